@@ -0,0 +1,94 @@
+package dev.abstratium.abstrauth.bench;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.Map;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.Cookie;
+import jakarta.ws.rs.core.UriInfo;
+
+/**
+ * Wiring for benchmarks that exercise CDI beans and JAX-RS filters without starting Quarkus.
+ * Beans are created with {@code new} and their {@code @Inject} / {@code @ConfigProperty} fields
+ * are set by reflection; request contexts are dynamic proxies that answer the few methods the
+ * filters call.
+ */
+final class BenchSupport {
+
+    private BenchSupport() {
+    }
+
+    /**
+     * Set a (typically package-private, injected) field of the target, searching superclasses.
+     */
+    static <T> T inject(T target, String fieldName, Object value) {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(target, value);
+                return target;
+            } catch (NoSuchFieldException e) {
+                // look in the superclass
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot set " + fieldName, e);
+            }
+        }
+        throw new IllegalArgumentException("No field " + fieldName + " in " + target.getClass());
+    }
+
+    /**
+     * Invoke a no-arg lifecycle method such as a {@code @PostConstruct} method.
+     */
+    static void invoke(Object target, String methodName) {
+        try {
+            Method method = target.getClass().getDeclaredMethod(methodName);
+            method.setAccessible(true);
+            method.invoke(target);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot invoke " + methodName, e);
+        }
+    }
+
+    /**
+     * A request context with the given method, path, headers and cookies. Properties set by the
+     * filter and aborts are ignored.
+     */
+    static ContainerRequestContext request(String method, String path, Map<String, String> headers, Map<String, Cookie> cookies) {
+        URI requestUri = URI.create("http://127.0.0.1:8080" + path);
+        UriInfo uriInfo = proxy(UriInfo.class, (p, m, args) -> switch (m.getName()) {
+            case "getPath" -> path;
+            case "getRequestUri" -> requestUri;
+            default -> throw new UnsupportedOperationException(m.getName());
+        });
+        return proxy(ContainerRequestContext.class, (p, m, args) -> switch (m.getName()) {
+            case "getMethod" -> method;
+            case "getUriInfo" -> uriInfo;
+            case "getHeaderString" -> headers.get((String) args[0]);
+            case "getCookies" -> cookies;
+            case "getProperty", "setProperty", "abortWith" -> null;
+            default -> throw new UnsupportedOperationException(m.getName());
+        });
+    }
+
+    /**
+     * A transaction synchronization registry of a thread that is not in a transaction.
+     */
+    static TransactionSynchronizationRegistry noTransaction() {
+        return proxy(TransactionSynchronizationRegistry.class, (p, m, args) -> switch (m.getName()) {
+            case "getTransactionStatus" -> Status.STATUS_NO_TRANSACTION;
+            default -> throw new UnsupportedOperationException(m.getName());
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(BenchSupport.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+}
@@ -0,0 +1,108 @@
+package dev.abstratium.abstrauth.bench;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.abstratium.abstrauth.service.IntrospectionResultCache;
+import dev.abstratium.abstrauth.service.IntrospectionService;
+import dev.abstratium.abstrauth.service.RevocationEpochService;
+import dev.abstratium.abstrauth.service.TokenRevocationService;
+import dev.abstratium.abstrauth.util.JwsSigner;
+import dev.abstratium.abstrauth.util.JwtClaimsWriter;
+import dev.abstratium.abstrauth.util.JwtSignatureVerifier;
+import jakarta.json.JsonObject;
+
+/**
+ * Introspection of a JWT access token with {@link IntrospectionService#activeClaims(String)},
+ * with the result cache disabled ({@code cold}: signature verification and revocation lookup
+ * on every call) and enabled ({@code warm}: the token was introspected before). The revocation
+ * lookup is stubbed out, so the cold numbers exclude the database round trip a real miss pays.
+ * {@code badSignature} is a token with a tampered payload, which is answered without the cache
+ * or the database.
+ *
+ * Run with {@code mvn test -Pbench -Dbench.include=Introspection}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IntrospectionBenchmark {
+
+    private static final String ISSUER = "https://prod.abstrauth.abstratium.dev";
+
+    @Param({ "cold", "warm" })
+    public String cache;
+
+    private IntrospectionService service;
+    private String token;
+    private String tamperedToken;
+
+    @Setup
+    public void setup() throws Exception {
+        KeyPair keyPair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        JwsSigner signer = new JwsSigner("abstrauth-bench", JwsSigner.EDDSA, keyPair.getPrivate());
+        long now = Instant.now().getEpochSecond();
+        token = signer.sign(new JwtClaimsWriter().reset()
+                .string("iss", ISSUER)
+                .string("jti", "6f1e0c4d-5a77-4d7e-9b2a-3e9f1a528c1d")
+                .string("sub", "0b7c2d9e-1f3a-4b5c-8d6e-7f8091a2b3c4")
+                .string("aud", "anapp-acme")
+                .stringArray("groups", List.of("anapp-acme_user", "anapp-acme_reader"))
+                .string("scope", "openid profile email")
+                .string("client_id", "anapp-acme")
+                .number("iat", now)
+                .number("exp", now + 86400));
+        String[] parts = token.split("\\.");
+        tamperedToken = parts[0] + "." + parts[1].substring(0, parts[1].length() - 2) + "AA." + parts[2];
+
+        IntrospectionResultCache resultCache = new IntrospectionResultCache();
+        BenchSupport.inject(resultCache, "ttlSeconds", "warm".equals(cache) ? 3600 : 0);
+        BenchSupport.inject(resultCache, "maxEntries", 100000);
+        BenchSupport.invoke(resultCache, "init");
+
+        service = new IntrospectionService();
+        BenchSupport.inject(service, "introspectionResultCache", resultCache);
+        BenchSupport.inject(service, "tokenRevocationService", new TokenRevocationService() {
+            @Override
+            public boolean isTokenRevoked(String jti) {
+                return false;
+            }
+        });
+        BenchSupport.inject(service, "revocationEpochService", new RevocationEpochService());
+        BenchSupport.inject(service, "issuer", ISSUER);
+        BenchSupport.inject(service, "jwtSignatureVerifier",
+                new JwtSignatureVerifier((kid, alg) -> JwsSigner.EDDSA.equals(alg) ? keyPair.getPublic() : null));
+
+        if (service.activeClaims(token).isEmpty()) {
+            throw new IllegalStateException("benchmark token is not active");
+        }
+    }
+
+    @Benchmark
+    public Optional<JsonObject> activeToken() {
+        return service.activeClaims(token);
+    }
+
+    @Benchmark
+    public Optional<JsonObject> badSignature() {
+        return service.activeClaims(tamperedToken);
+    }
+}
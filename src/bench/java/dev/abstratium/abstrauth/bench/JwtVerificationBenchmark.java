@@ -0,0 +1,95 @@
+package dev.abstratium.abstrauth.bench;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import dev.abstratium.abstrauth.util.JwsSigner;
+import dev.abstratium.abstrauth.util.JwtClaimsReader;
+import dev.abstratium.abstrauth.util.JwtClaimsWriter;
+import dev.abstratium.abstrauth.util.JwtSignatureVerifier;
+import jakarta.json.JsonObject;
+
+/**
+ * Signature verification of access tokens per signing algorithm: with the whole payload decoded
+ * by {@link JwtSignatureVerifier#verifyAndDecode(String)}, as introspection does, and with only
+ * sub, orgId, exp and jti read through {@link JwtSignatureVerifier#verify(String)}, as token
+ * exchange does for the checks of its subject tokens.
+ *
+ * Run with {@code mvn test -Pbench -Dbench.include=JwtVerification}, and with
+ * {@code -Dbench.args="-prof gc"} to compare the allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    @Param({ JwsSigner.PS256, JwsSigner.ES256, JwsSigner.EDDSA })
+    public String alg;
+
+    private JwtSignatureVerifier verifier;
+    private String token;
+
+    @Setup
+    public void setup() throws Exception {
+        KeyPair keyPair = switch (alg) {
+            case JwsSigner.PS256 -> {
+                KeyPairGenerator rsa = KeyPairGenerator.getInstance("RSA");
+                rsa.initialize(2048);
+                yield rsa.generateKeyPair();
+            }
+            case JwsSigner.ES256 -> {
+                KeyPairGenerator ec = KeyPairGenerator.getInstance("EC");
+                ec.initialize(new ECGenParameterSpec("secp256r1"));
+                yield ec.generateKeyPair();
+            }
+            default -> KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        };
+        JwsSigner signer = new JwsSigner("abstrauth-bench", alg, keyPair.getPrivate());
+        token = signer.sign(new JwtClaimsWriter().reset()
+                .string("iss", "https://prod.abstrauth.abstratium.dev")
+                .string("jti", "6f1e0c4d-5a77-4d7e-9b2a-3e9f1a528c1d")
+                .string("sub", "0b7c2d9e-1f3a-4b5c-8d6e-7f8091a2b3c4")
+                .string("aud", "anapp-acme")
+                .stringArray("groups", List.of("anapp-acme_user", "anapp-acme_reader"))
+                .string("scope", "openid profile email")
+                .string("client_id", "anapp-acme")
+                .string("orgId", "9d4f6b1a-2c3e-4f50-8a7b-6c5d4e3f2a1b")
+                .string("auth_method", "native")
+                .number("iat", 1760000000L)
+                .number("exp", 1760000900L));
+        verifier = new JwtSignatureVerifier((kid, tokenAlg) -> alg.equals(tokenAlg) ? keyPair.getPublic() : null);
+    }
+
+    @Benchmark
+    public JsonObject verifyAndDecode() {
+        return verifier.verifyAndDecode(token);
+    }
+
+    @Benchmark
+    public void verifyLazyClaims(Blackhole blackhole) {
+        JwtClaimsReader claims = verifier.verify(token);
+        blackhole.consume(claims.string("sub"));
+        blackhole.consume(claims.string("orgId"));
+        blackhole.consume(claims.number("exp", 0));
+        blackhole.consume(claims.string("jti"));
+    }
+}
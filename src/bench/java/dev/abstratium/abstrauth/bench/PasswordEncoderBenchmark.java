@@ -0,0 +1,60 @@
+package dev.abstratium.abstrauth.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.abstratium.abstrauth.util.PasswordEncoder;
+import dev.abstratium.abstrauth.util.SecureRandomProvider;
+
+/**
+ * BCrypt (cost 12) hashing and verification with {@link PasswordEncoder}, as used for account
+ * passwords at sign-in and for client secrets at the token endpoint. Both are deliberately
+ * slow, so the result is the time per operation rather than a throughput.
+ *
+ * Run with {@code mvn test -Pbench -Dbench.include=PasswordEncoder}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    private PasswordEncoder passwordEncoder;
+    private String hash;
+
+    @Setup
+    public void setup() {
+        passwordEncoder = BenchSupport.inject(new PasswordEncoder(), "secureRandomProvider", new SecureRandomProvider());
+        BenchSupport.invoke(passwordEncoder, "init");
+        hash = passwordEncoder.hashPassword(PASSWORD);
+    }
+
+    @Benchmark
+    public String hash() {
+        return passwordEncoder.hashPassword(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordEncoder.matches(PASSWORD, hash);
+    }
+
+    @Benchmark
+    public boolean mismatch() {
+        return passwordEncoder.matches("wrong password", hash);
+    }
+}
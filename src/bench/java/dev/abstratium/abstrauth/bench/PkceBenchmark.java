@@ -0,0 +1,57 @@
+package dev.abstratium.abstrauth.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.abstratium.abstrauth.util.PkceVerifier;
+
+/**
+ * PKCE verification at the token endpoint with {@link PkceVerifier}: S256 (SHA-256 and
+ * base64url of the code_verifier) and plain.
+ *
+ * Run with {@code mvn test -Pbench -Dbench.include=Pkce}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PkceBenchmark {
+
+    private String verifier;
+    private String challenge;
+
+    @Setup
+    public void setup() throws Exception {
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        verifier = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+        challenge = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                MessageDigest.getInstance("SHA-256").digest(verifier.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Benchmark
+    public boolean s256() {
+        return PkceVerifier.verify(verifier, challenge, "S256");
+    }
+
+    @Benchmark
+    public boolean plain() {
+        return PkceVerifier.verify(verifier, verifier, "plain");
+    }
+}
@@ -0,0 +1,73 @@
+package dev.abstratium.abstrauth.bench;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.abstratium.abstrauth.filter.RateLimitFilter;
+import jakarta.ws.rs.container.ContainerRequestContext;
+
+/**
+ * {@link RateLimitFilter} on the token endpoint, with requests spread over a number of client
+ * IPs (X-Forwarded-For). The limit is set high enough that no IP is banned, so every call
+ * takes the full path: finding the IP's bucket and taking a token. With 100000 IPs and
+ * {@code maxEntries} of 100000, the tracked IPs exceed the cap, so buckets are also moved
+ * between generations and the least recently used ones are shed.
+ *
+ * The filter instance is shared by all benchmark threads, as in the server. Run with
+ * {@code mvn test -Pbench -Dbench.include=RateLimitFilter}; pass {@code -Dbench.args="-t 8"}
+ * to measure contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class RateLimitFilterBenchmark {
+
+    @Param({ "1", "1000", "100000" })
+    public int ips;
+
+    @Param({ "100000" })
+    public int maxEntries;
+
+    private RateLimitFilter filter;
+    private ContainerRequestContext[] requests;
+
+    @Setup
+    public void setup() {
+        filter = new RateLimitFilter();
+        BenchSupport.inject(filter, "rateLimitEnabled", true);
+        BenchSupport.inject(filter, "maxRequests", Integer.MAX_VALUE);
+        BenchSupport.inject(filter, "windowSeconds", 60);
+        BenchSupport.inject(filter, "banDurationSeconds", 300);
+        BenchSupport.inject(filter, "maxEntries", maxEntries);
+
+        requests = new ContainerRequestContext[ips];
+        for (int i = 0; i < ips; i++) {
+            String ip = "10." + (i >> 16 & 0xff) + "." + (i >> 8 & 0xff) + "." + (i & 0xff);
+            requests[i] = BenchSupport.request("POST", "/oauth2/token", Map.of("X-Forwarded-For", ip), Map.of());
+        }
+    }
+
+    @Benchmark
+    public void filter() throws IOException {
+        filter.filter(requests[ThreadLocalRandom.current().nextInt(requests.length)]);
+    }
+}
@@ -0,0 +1,89 @@
+package dev.abstratium.abstrauth.bench;
+
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.abstratium.abstrauth.util.JwsSigner;
+import dev.abstratium.abstrauth.util.JwtClaimsWriter;
+
+/**
+ * Signatures per second on a single thread for the algorithms of the signing key ring:
+ * PS256 (the static 2048 bit RSA key), ES256 (P-256) and EdDSA (Ed25519). The claims set is a
+ * typical access token, so the results are comparable with {@link TokenMintingBenchmark}.
+ *
+ * Run with {@code mvn test -Pbench -Dbench.include=SigningAlgorithm}; pass
+ * {@code -Dbench.args="-t 4"} to see how signing scales across threads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class SigningAlgorithmBenchmark {
+
+    private JwsSigner ps256;
+    private JwsSigner es256;
+    private JwsSigner eddsa;
+    private JwtClaimsWriter writer;
+
+    @Setup
+    public void setup() throws Exception {
+        KeyPairGenerator rsa = KeyPairGenerator.getInstance("RSA");
+        rsa.initialize(2048);
+        ps256 = new JwsSigner("abstrauth-key-1", JwsSigner.PS256, rsa.generateKeyPair().getPrivate());
+
+        KeyPairGenerator ec = KeyPairGenerator.getInstance("EC");
+        ec.initialize(new ECGenParameterSpec("secp256r1"));
+        es256 = new JwsSigner("abstrauth-es256-bench", JwsSigner.ES256, ec.generateKeyPair().getPrivate());
+
+        eddsa = new JwsSigner("abstrauth-eddsa-bench", JwsSigner.EDDSA,
+                KeyPairGenerator.getInstance("Ed25519").generateKeyPair().getPrivate());
+
+        writer = new JwtClaimsWriter();
+    }
+
+    @Benchmark
+    public String ps256() {
+        return ps256.sign(claims());
+    }
+
+    @Benchmark
+    public String es256() {
+        return es256.sign(claims());
+    }
+
+    @Benchmark
+    public String eddsa() {
+        return eddsa.sign(claims());
+    }
+
+    private JwtClaimsWriter claims() {
+        return writer.reset()
+                .string("iss", "https://prod.abstrauth.abstratium.dev")
+                .string("jti", "6f1e0c4d-5a77-4d7e-9b2a-3e9f1a528c1d")
+                .string("sub", "0b7c2d9e-1f3a-4b5c-8d6e-7f8091a2b3c4")
+                .string("aud", "anapp-acme")
+                .stringArray("groups", List.of("anapp-acme_user", "anapp-acme_reader"))
+                .string("scope", "openid profile email")
+                .string("client_id", "anapp-acme")
+                .string("auth_method", "native")
+                .number("iat", 1760000000L)
+                .number("exp", 1760000900L);
+    }
+}
@@ -0,0 +1,144 @@
+package dev.abstratium.abstrauth.bench;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.abstratium.abstrauth.util.JwsSigner;
+import dev.abstratium.abstrauth.util.JwtClaimsWriter;
+import io.smallrye.jwt.algorithm.SignatureAlgorithm;
+import io.smallrye.jwt.build.Jwt;
+
+/**
+ * Compares minting an authorization_code access token with the smallrye {@code Jwt} builder
+ * (as the token endpoint used to) against {@link JwsSigner} + {@link JwtClaimsWriter}
+ * (as used by TokenMinter). Both variants sign with PS256 and the same 2048 bit key, so the
+ * difference is the claim assembly, serialisation and signer setup overhead.
+ * {@code accessAndIdToken} is the full token generation of an openid sign-in.
+ *
+ * Run with {@code mvn test -Pbench -Dbench.include=TokenMinting -Dbench.args="-prof gc"}
+ * to also see the allocation rate per token.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenMintingBenchmark {
+
+    private static final String ISSUER = "https://prod.abstrauth.abstratium.dev";
+    private static final String KEY_ID = "abstrauth-key-1";
+    private static final String CLIENT_ID = "anapp-acme";
+    private static final String ORG_ID = "3e9f1a52-8c1d-4d7e-9b2a-6f1e0c4d5a77";
+    private static final String ACCOUNT_ID = "0b7c2d9e-1f3a-4b5c-8d6e-7f8091a2b3c4";
+
+    private PrivateKey privateKey;
+    private JwsSigner signer;
+    private JwtClaimsWriter writer;
+    private String clientFragment;
+    private String groupPrefix;
+    private Set<String> roles;
+
+    @Setup
+    public void setup() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        privateKey = keyPair.getPrivate();
+        signer = new JwsSigner(KEY_ID, privateKey);
+        writer = new JwtClaimsWriter();
+        clientFragment = "\"client_id\":\"" + CLIENT_ID + "\",\"orgId\":\"" + ORG_ID + "\"";
+        groupPrefix = JwtClaimsWriter.escape(CLIENT_ID + "_");
+        roles = Set.of("user", "reader", "editor");
+    }
+
+    @Benchmark
+    public String jwtBuilder() {
+        Instant now = Instant.now();
+        Set<String> groups = new HashSet<>();
+        for (String role : roles) {
+            groups.add(CLIENT_ID + "_" + role);
+        }
+        return Jwt.issuer(ISSUER)
+                .claim("jti", UUID.randomUUID().toString())
+                .subject(ACCOUNT_ID)
+                .audience(CLIENT_ID)
+                .groups(groups)
+                .claim("scope", "openid profile email")
+                .claim("client_id", CLIENT_ID)
+                .claim("auth_method", "native")
+                .issuedAt(now)
+                .expiresAt(now.plusSeconds(900))
+                .claim("orgId", ORG_ID)
+                .upn("jane@example.com")
+                .claim("email", "jane@example.com")
+                .claim("email_verified", true)
+                .claim("name", "Jane Doe")
+                .jws()
+                    .keyId(KEY_ID)
+                    .algorithm(SignatureAlgorithm.PS256)
+                .sign(privateKey);
+    }
+
+    @Benchmark
+    public String claimsWriter() {
+        long now = Instant.now().getEpochSecond();
+        return signer.sign(writer.reset()
+                .string("iss", ISSUER)
+                .string("jti", UUID.randomUUID().toString())
+                .string("sub", ACCOUNT_ID)
+                .string("aud", CLIENT_ID)
+                .prefixedStringArray("groups", groupPrefix, roles)
+                .string("scope", "openid profile email")
+                .fragment(clientFragment)
+                .string("auth_method", "native")
+                .number("iat", now)
+                .number("exp", now + 900)
+                .string("upn", "jane@example.com")
+                .string("email", "jane@example.com")
+                .bool("email_verified", true)
+                .string("name", "Jane Doe"));
+    }
+
+    /**
+     * An openid authorization_code response: the access token and the ID token, as written by
+     * the token endpoint.
+     */
+    @Benchmark
+    public String accessAndIdToken() {
+        String accessToken = claimsWriter();
+        long now = Instant.now().getEpochSecond();
+        String idToken = signer.sign(writer.reset()
+                .string("iss", ISSUER)
+                .string("jti", UUID.randomUUID().toString())
+                .string("sub", ACCOUNT_ID)
+                .string("aud", CLIENT_ID)
+                .prefixedStringArray("groups", groupPrefix, roles)
+                .fragment(clientFragment)
+                .string("auth_method", "native")
+                .number("iat", now)
+                .number("exp", now + 900)
+                .string("upn", "jane@example.com")
+                .string("email", "jane@example.com")
+                .bool("email_verified", true)
+                .string("name", "Jane Doe"));
+        return accessToken + idToken;
+    }
+}
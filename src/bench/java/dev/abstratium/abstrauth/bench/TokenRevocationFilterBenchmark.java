@@ -0,0 +1,156 @@
+package dev.abstratium.abstrauth.bench;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.jwt.JsonWebToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.abstratium.abstrauth.filter.OrgIdResolutionFilter;
+import dev.abstratium.abstrauth.filter.TokenRevocationFilter;
+import dev.abstratium.abstrauth.service.CurrentOrgContext;
+import dev.abstratium.abstrauth.service.RequestTokenContext;
+import dev.abstratium.abstrauth.service.RevocationEpochService;
+import dev.abstratium.abstrauth.service.RevokedTokenCache;
+import dev.abstratium.abstrauth.service.TokenRevocationService;
+import dev.abstratium.abstrauth.util.JwsSigner;
+import dev.abstratium.abstrauth.util.JwtClaimsWriter;
+import io.quarkus.security.identity.SecurityIdentity;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.HttpHeaders;
+
+/**
+ * The per-request cost of {@link TokenRevocationFilter} and {@link OrgIdResolutionFilter} on a
+ * bearer token: reading the claims of the verified token once into a new
+ * {@link RequestTokenContext}, checking the (empty) revocation epochs, looking the jti up in the
+ * in-memory {@link RevokedTokenCache}, which holds {@code revoked} other JTIs, and resolving the
+ * orgId. The token itself is not revoked, the common case that the Bloom filter answers without
+ * touching the set. The security identity stands in for the one of the verification step, whose
+ * principal holds the already parsed claims.
+ *
+ * {@code decodePayload} is the base64 and JSON decoding of the payload that the revocation filter
+ * used to do on every request, on top of the verification, for comparison. Run with
+ * {@code mvn test -Pbench -Dbench.include=TokenRevocationFilter -Dbench.args="-prof gc"} to see
+ * the allocations per request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenRevocationFilterBenchmark {
+
+    @Param({"0", "100000"})
+    int revoked;
+
+    private TokenRevocationFilter filter;
+    private OrgIdResolutionFilter orgIdResolutionFilter;
+    private SecurityIdentity securityIdentity;
+    private Field identityField;
+    private Field revocationContextField;
+    private Field orgContextField;
+    private String token;
+    private ContainerRequestContext bearerRequest;
+    private ContainerRequestContext anonymousRequest;
+
+    @Setup
+    public void setup() throws Exception {
+        RevokedTokenCache revokedTokenCache = BenchSupport.inject(new RevokedTokenCache(), "expectedEntries", 100000);
+        BenchSupport.invoke(revokedTokenCache, "init");
+        for (int i = 0; i < revoked; i++) {
+            revokedTokenCache.add(UUID.randomUUID().toString(), Long.MAX_VALUE);
+        }
+        BenchSupport.inject(revokedTokenCache, "loaded", true);
+
+        TokenRevocationService tokenRevocationService = BenchSupport.inject(new TokenRevocationService(),
+                "revokedTokenCache", revokedTokenCache);
+        BenchSupport.inject(tokenRevocationService, "transactionSynchronizationRegistry", BenchSupport.noTransaction());
+
+        filter = BenchSupport.inject(new TokenRevocationFilter(), "tokenRevocationService", tokenRevocationService);
+        BenchSupport.inject(filter, "revocationEpochService", new RevocationEpochService());
+        orgIdResolutionFilter = BenchSupport.inject(new OrgIdResolutionFilter(), "currentOrgContext", new CurrentOrgContext());
+
+        JwsSigner signer = new JwsSigner("abstrauth-bench", JwsSigner.EDDSA,
+                KeyPairGenerator.getInstance("Ed25519").generateKeyPair().getPrivate());
+        token = signer.sign(new JwtClaimsWriter().reset()
+                .string("iss", "https://prod.abstrauth.abstratium.dev")
+                .string("jti", "6f1e0c4d-5a77-4d7e-9b2a-3e9f1a528c1d")
+                .string("sub", "0b7c2d9e-1f3a-4b5c-8d6e-7f8091a2b3c4")
+                .string("aud", "abstratium-abstrauth")
+                .string("scope", "openid profile email")
+                .string("client_id", "abstratium-abstrauth")
+                .string("orgId", "9d4f6b1a-2c3e-4f50-8a7b-6c5d4e3f2a1b")
+                .number("iat", 1760000000L)
+                .number("exp", 1760000900L));
+
+        JsonObject claims = decode(token);
+        JsonWebToken principal = BenchSupport.proxy(JsonWebToken.class, (p, m, args) -> switch (m.getName()) {
+            case "getClaim" -> claims.get((String) args[0]);
+            case "getName" -> claims.getString("sub");
+            default -> throw new UnsupportedOperationException(m.getName());
+        });
+        securityIdentity = BenchSupport.proxy(SecurityIdentity.class, (p, m, args) -> switch (m.getName()) {
+            case "getPrincipal" -> principal;
+            default -> throw new UnsupportedOperationException(m.getName());
+        });
+        identityField = field(RequestTokenContext.class, "securityIdentity");
+        revocationContextField = field(TokenRevocationFilter.class, "requestTokenContext");
+        orgContextField = field(OrgIdResolutionFilter.class, "requestTokenContext");
+
+        bearerRequest = BenchSupport.request("GET", "/api/accounts",
+                Map.of(HttpHeaders.AUTHORIZATION, "Bearer " + token), Map.of());
+        anonymousRequest = BenchSupport.request("GET", "/api/accounts", Map.of(), Map.of());
+    }
+
+    @Benchmark
+    public void bearerToken() throws Exception {
+        // a new request scope, shared by both filters
+        RequestTokenContext context = new RequestTokenContext();
+        identityField.set(context, securityIdentity);
+        revocationContextField.set(filter, context);
+        orgContextField.set(orgIdResolutionFilter, context);
+        orgIdResolutionFilter.filter(bearerRequest);
+        filter.filter(bearerRequest);
+    }
+
+    @Benchmark
+    public JsonObject decodePayload() {
+        return decode(token);
+    }
+
+    @Benchmark
+    public void noToken() throws IOException {
+        filter.filter(anonymousRequest);
+    }
+
+    private static JsonObject decode(String jwt) {
+        String payload = new String(Base64.getUrlDecoder().decode(jwt.split("\\.")[1]), StandardCharsets.UTF_8);
+        return Json.createReader(new StringReader(payload)).readObject();
+    }
+
+    private static Field field(Class<?> type, String name) throws NoSuchFieldException {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+}
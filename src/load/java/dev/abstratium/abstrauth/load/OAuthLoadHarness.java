@@ -0,0 +1,587 @@
+package dev.abstratium.abstrauth.load;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+
+/**
+ * Load generator for the complete OAuth authorization code flow against a running server,
+ * typically the e2e build (H2, see e2e-tests/start-e2e-server.sh) or a local MySQL instance.
+ *
+ * Every flow runs the same requests as CompleteOAuthFlowTest and PKCETest and times each
+ * stage separately:
+ * <ul>
+ * <li>password: authorize, authenticate, consent, token</li>
+ * <li>google: authorize, federated, callback, token; Google's token and userinfo endpoints
+ * are served by an in-process WireMock on {@code wiremockPort}, which is where the e2e profile
+ * points its rest clients</li>
+ * <li>mixed: alternates between the two</li>
+ * </ul>
+ *
+ * After the token stage, each flow redeems {@code refreshes} refresh_token grants, each with the
+ * refresh token returned by the previous response, the way a client renews its access token
+ * instead of sending the user through the login again. The refresh stage is not part of the flow
+ * latency; every successful refresh is reported as a login avoided.
+ *
+ * Two workload models are supported. In the closed model {@code concurrency} virtual users
+ * each run one flow after the other, so the offered load drops when the server slows down. In
+ * the open model flows are started at a fixed {@code rate} per second regardless of how long
+ * they take (at most {@code concurrency} in flight, the rest are counted as dropped), and the
+ * flow latency is measured from the scheduled start, so queueing is not hidden by the
+ * generator waiting for the server.
+ *
+ * Parameters are given as {@code name=value} arguments, see {@link Config}. Run with
+ * {@code mvn test -Pload -Dload.args="model=open rate=50 duration=120"}.
+ */
+public class OAuthLoadHarness {
+
+    static final String AUTHORIZE = "authorize";
+    static final String AUTHENTICATE = "authenticate";
+    static final String CONSENT = "consent";
+    static final String FEDERATED = "federated";
+    static final String CALLBACK = "callback";
+    static final String TOKEN = "token";
+    static final String REFRESH = "refresh";
+    static final String FLOW = "flow";
+
+    private static final String PASSWORD = "Load-Test-Pass-123!";
+    private static final String GOOGLE_ACCESS_TOKEN = "ya29.load_access_token";
+    private static final Pattern REFRESH_TOKEN = Pattern.compile("\"refresh_token\"\\s*:\\s*\"([^\"]+)\"");
+
+    private final Config config;
+    private final HttpClient http;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, StageStats> stats = new LinkedHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    // logins whose token response had no refresh token although refreshes were requested
+    private final LongAdder withoutRefreshToken = new LongAdder();
+    private final List<String> usernames = new ArrayList<>();
+
+    // flows started before this instant are warm-up and not recorded
+    private volatile long measureFromNanos;
+
+    OAuthLoadHarness(Config config) {
+        this.config = config;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        for (String stage : List.of(AUTHORIZE, AUTHENTICATE, CONSENT, FEDERATED, CALLBACK, TOKEN, REFRESH, FLOW)) {
+            stats.put(stage, new StageStats(stage));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.parse(args);
+        System.out.println("OAuth load harness: " + config);
+        new OAuthLoadHarness(config).run();
+    }
+
+    void run() throws Exception {
+        WireMockServer wireMock = null;
+        if (!"password".equals(config.flow())) {
+            wireMock = startGoogleStandIn();
+        }
+        try {
+            signUpUsers();
+
+            long start = System.nanoTime();
+            measureFromNanos = start + TimeUnit.SECONDS.toNanos(config.warmup());
+            long end = measureFromNanos + TimeUnit.SECONDS.toNanos(config.duration());
+            if ("open".equals(config.model())) {
+                runOpen(end);
+            } else {
+                runClosed(end);
+            }
+            report(TimeUnit.NANOSECONDS.toMillis(end - measureFromNanos) / 1000.0);
+        } finally {
+            if (wireMock != null) {
+                wireMock.stop();
+            }
+        }
+    }
+
+    // ─────────────────────────────────────────────────────────
+    // Workload models
+    // ─────────────────────────────────────────────────────────
+
+    private void runClosed(long endNanos) throws InterruptedException {
+        try (ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < config.concurrency(); i++) {
+                int user = i;
+                users.submit(() -> {
+                    int iteration = 0;
+                    while (System.nanoTime() < endNanos) {
+                        runFlow(user, iteration++, System.nanoTime());
+                    }
+                });
+            }
+        }
+    }
+
+    private void runOpen(long endNanos) throws InterruptedException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / config.rate();
+        Semaphore inFlight = new Semaphore(config.concurrency());
+        AtomicInteger started = new AtomicInteger();
+        try (ExecutorService flows = Executors.newVirtualThreadPerTaskExecutor()) {
+            long next = System.nanoTime();
+            while (next < endNanos) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                long scheduledAt = next;
+                next += intervalNanos;
+                if (!inFlight.tryAcquire()) {
+                    if (scheduledAt >= measureFromNanos) {
+                        dropped.increment();
+                    }
+                    continue;
+                }
+                int n = started.getAndIncrement();
+                flows.submit(() -> {
+                    try {
+                        runFlow(n, n, scheduledAt);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+    }
+
+    // ─────────────────────────────────────────────────────────
+    // Flows
+    // ─────────────────────────────────────────────────────────
+
+    private void runFlow(int user, int iteration, long scheduledAtNanos) {
+        boolean record = scheduledAtNanos >= measureFromNanos;
+        boolean google = "google".equals(config.flow()) || ("mixed".equals(config.flow()) && iteration % 2 == 1);
+        String refreshToken;
+        try {
+            Pkce pkce = newPkce();
+            String requestId = authorize(pkce, record);
+            String code = google ? signInWithGoogle(requestId, record)
+                    : signInWithPassword(usernames.get(user % usernames.size()), requestId, record);
+            refreshToken = token(code, pkce, record);
+            if (record) {
+                stats.get(FLOW).record(System.nanoTime() - scheduledAtNanos);
+            }
+        } catch (StageFailure e) {
+            if (record) {
+                stats.get(e.stage).error();
+                stats.get(FLOW).error();
+                if (config.verbose()) {
+                    System.err.println(e.getMessage());
+                }
+            }
+            return;
+        }
+
+        if (config.refreshes() > 0 && refreshToken == null) {
+            if (record) {
+                withoutRefreshToken.increment();
+            }
+            return;
+        }
+        try {
+            for (int i = 0; i < config.refreshes(); i++) {
+                refreshToken = refresh(refreshToken, record);
+            }
+        } catch (StageFailure e) {
+            if (record) {
+                stats.get(REFRESH).error();
+                if (config.verbose()) {
+                    System.err.println(e.getMessage());
+                }
+            }
+        }
+    }
+
+    private String authorize(Pkce pkce, boolean record) {
+        String query = form(Map.of(
+                "response_type", "code",
+                "client_id", config.clientId(),
+                "redirect_uri", config.redirectUri(),
+                "scope", "openid profile email",
+                "state", "load",
+                "code_challenge", pkce.challenge(),
+                "code_challenge_method", "S256"));
+        HttpResponse<String> response = send(AUTHORIZE, HttpRequest.newBuilder(uri("/oauth2/authorize?" + query)).GET(), 303, record);
+        String location = location(AUTHORIZE, response);
+        int signin = location.indexOf("/signin/");
+        if (signin < 0) {
+            throw new StageFailure(AUTHORIZE, "Unexpected redirect " + location);
+        }
+        String requestId = location.substring(signin + "/signin/".length());
+        int end = requestId.indexOf('?');
+        return end < 0 ? requestId : requestId.substring(0, end);
+    }
+
+    private String signInWithPassword(String username, String requestId, boolean record) {
+        send(AUTHENTICATE, post("/oauth2/authorize/authenticate", Map.of(
+                "username", username,
+                "password", PASSWORD,
+                "request_id", requestId)), 200, record);
+        HttpResponse<String> consent = send(CONSENT, post("/oauth2/authorize", Map.of(
+                "consent", "approve",
+                "request_id", requestId)), 303, record);
+        return code(CONSENT, consent);
+    }
+
+    private String signInWithGoogle(String requestId, boolean record) {
+        send(FEDERATED, HttpRequest.newBuilder(uri("/oauth2/federated/google?request_id=" + encode(requestId))).GET(), 303, record);
+        HttpResponse<String> callback = send(CALLBACK, HttpRequest.newBuilder(
+                uri("/oauth2/callback/google?code=load-google-code&state=" + encode(requestId))).GET(), 303, record);
+        return code(CALLBACK, callback);
+    }
+
+    /**
+     * @return the refresh token issued with the access token, or null if there is none
+     */
+    private String token(String code, Pkce pkce, boolean record) {
+        HttpResponse<String> response = send(TOKEN, post("/oauth2/token", Map.of(
+                "grant_type", "authorization_code",
+                "code", code,
+                "client_id", config.clientId(),
+                "client_secret", config.clientSecret(),
+                "redirect_uri", config.redirectUri(),
+                "code_verifier", pkce.verifier())), 200, record);
+        if (!response.body().contains("\"access_token\"")) {
+            throw new StageFailure(TOKEN, "No access_token in " + response.body());
+        }
+        return refreshToken(response.body());
+    }
+
+    /**
+     * @return the rotated refresh token to use for the next refresh
+     */
+    private String refresh(String refreshToken, boolean record) {
+        HttpResponse<String> response = send(REFRESH, post("/oauth2/token", Map.of(
+                "grant_type", "refresh_token",
+                "refresh_token", refreshToken,
+                "client_id", config.clientId(),
+                "client_secret", config.clientSecret())), 200, record);
+        String rotated = refreshToken(response.body());
+        if (!response.body().contains("\"access_token\"") || rotated == null) {
+            throw new StageFailure(REFRESH, "No access_token or refresh_token in " + response.body());
+        }
+        return rotated;
+    }
+
+    // ─────────────────────────────────────────────────────────
+    // Setup
+    // ─────────────────────────────────────────────────────────
+
+    private void signUpUsers() {
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        for (int i = 0; i < config.users(); i++) {
+            String username = "load-" + run + "-" + i;
+            HttpResponse<String> response = execute(post("/api/signup", Map.of(
+                    "email", username + "@example.com",
+                    "name", "Load User " + i,
+                    "username", username,
+                    "password", PASSWORD,
+                    "organisationName", "Load Organisation " + i)));
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Signup of " + username + " failed with " + response.statusCode()
+                        + ": " + response.body() + " (is allow.signup enabled?)");
+            }
+            usernames.add(username);
+        }
+        System.out.println("Signed up " + usernames.size() + " user(s)");
+    }
+
+    private WireMockServer startGoogleStandIn() {
+        WireMockServer server = new WireMockServer(options().port(config.wiremockPort()).asynchronousResponseEnabled(true));
+        server.start();
+        server.stubFor(WireMock.post(urlEqualTo("/oauth2/v4/token"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("""
+                                {
+                                    "access_token": "%s",
+                                    "expires_in": 3600,
+                                    "token_type": "Bearer",
+                                    "scope": "openid email profile",
+                                    "id_token": "eyJhbGciOiJSUzI1NiIsInR5cCI6IkpXVCJ9.mock"
+                                }
+                                """.formatted(GOOGLE_ACCESS_TOKEN))));
+        server.stubFor(get(urlEqualTo("/oauth2/v1/userinfo"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("""
+                                {
+                                    "sub": "google-load-user",
+                                    "email": "load-user@gmail.com",
+                                    "email_verified": true,
+                                    "name": "Load User"
+                                }
+                                """)));
+        System.out.println("Google stand-in listening on port " + config.wiremockPort());
+        return server;
+    }
+
+    // ─────────────────────────────────────────────────────────
+    // Reporting
+    // ─────────────────────────────────────────────────────────
+
+    private void report(double seconds) throws IOException {
+        List<StageStats.Summary> summaries = stats.values().stream()
+                .map(s -> s.summarize(seconds))
+                .filter(s -> s.count() > 0 || s.errors() > 0)
+                .toList();
+
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%s model, %d %s, %.0f s measured after %d s warm-up%n",
+                config.model(), "open".equals(config.model()) ? config.rate() : config.concurrency(),
+                "open".equals(config.model()) ? "flows/s offered" : "virtual users", seconds, config.warmup());
+        System.out.println(StageStats.Summary.header());
+        summaries.forEach(s -> System.out.println(s.row()));
+        if (dropped.sum() > 0) {
+            System.out.println("Dropped " + dropped.sum() + " flow(s): more than " + config.concurrency() + " in flight");
+        }
+        long logins = stats.get(FLOW).summarize(seconds).count();
+        long loginsAvoided = stats.get(REFRESH).summarize(seconds).count();
+        if (config.refreshes() > 0) {
+            // every refresh issued an access token that would otherwise have taken a full flow
+            long issued = logins + loginsAvoided;
+            System.out.printf(Locale.ROOT, "Logins avoided: %d, %.1f%% of the %d access tokens were issued by refresh_token grants%n",
+                    loginsAvoided, issued == 0 ? 0 : 100.0 * loginsAvoided / issued, issued);
+        }
+        if (withoutRefreshToken.sum() > 0) {
+            System.out.println("No refresh token issued in " + withoutRefreshToken.sum()
+                    + " flow(s): is abstrauth.refresh-token.enabled set on the server?");
+        }
+
+        if (!config.output().isEmpty()) {
+            String json = "{\"config\":" + config.json()
+                    + ",\"seconds\":" + String.format(Locale.ROOT, "%.3f", seconds)
+                    + ",\"dropped\":" + dropped.sum()
+                    + ",\"loginsAvoided\":" + loginsAvoided
+                    + ",\"withoutRefreshToken\":" + withoutRefreshToken.sum()
+                    + ",\"stages\":[" + summaries.stream().map(StageStats.Summary::json).collect(Collectors.joining(",")) + "]}";
+            Path path = Path.of(config.output());
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.writeString(path, json);
+            System.out.println("Results written to " + path.toAbsolutePath());
+        }
+    }
+
+    // ─────────────────────────────────────────────────────────
+    // HTTP helpers
+    // ─────────────────────────────────────────────────────────
+
+    private HttpResponse<String> send(String stage, HttpRequest.Builder request, int expectedStatus, boolean record) {
+        long start = System.nanoTime();
+        HttpResponse<String> response;
+        try {
+            response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new StageFailure(stage, stage + " failed: " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StageFailure(stage, stage + " interrupted");
+        }
+        if (response.statusCode() != expectedStatus) {
+            throw new StageFailure(stage, stage + " returned " + response.statusCode() + ": " + response.body());
+        }
+        if (record) {
+            stats.get(stage).record(System.nanoTime() - start);
+        }
+        return response;
+    }
+
+    private HttpResponse<String> execute(HttpRequest.Builder request) {
+        try {
+            return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new IllegalStateException("Request to " + config.baseUrl() + " failed, is the server running?", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        }
+    }
+
+    private HttpRequest.Builder post(String path, Map<String, String> params) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form(params)));
+    }
+
+    private URI uri(String pathAndQuery) {
+        return URI.create(config.baseUrl() + pathAndQuery);
+    }
+
+    private static String location(String stage, HttpResponse<String> response) {
+        return response.headers().firstValue("Location")
+                .orElseThrow(() -> new StageFailure(stage, stage + " returned no Location header"));
+    }
+
+    private static String code(String stage, HttpResponse<String> response) {
+        String location = location(stage, response);
+        int start = location.indexOf("code=");
+        if (start < 0) {
+            throw new StageFailure(stage, "No code in redirect " + location);
+        }
+        int end = location.indexOf('&', start);
+        return URLDecoder.decode(location.substring(start + 5, end < 0 ? location.length() : end), StandardCharsets.UTF_8);
+    }
+
+    private static String refreshToken(String tokenResponse) {
+        Matcher matcher = REFRESH_TOKEN.matcher(tokenResponse);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static String form(Map<String, String> params) {
+        return params.entrySet().stream()
+                .map(e -> encode(e.getKey()) + "=" + encode(e.getValue()))
+                .collect(Collectors.joining("&"));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private Pkce newPkce() {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String verifier = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(verifier.getBytes(StandardCharsets.US_ASCII));
+            return new Pkce(verifier, Base64.getUrlEncoder().withoutPadding().encodeToString(digest));
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record Pkce(String verifier, String challenge) {
+    }
+
+    /**
+     * A stage returned something other than the expected response; the flow is abandoned.
+     */
+    private static final class StageFailure extends RuntimeException {
+
+        private final String stage;
+
+        StageFailure(String stage, String message) {
+            super(message, null, false, false);
+            this.stage = stage;
+        }
+    }
+
+    /**
+     * Harness parameters, given as {@code name=value} arguments.
+     *
+     * @param baseUrl Server under test
+     * @param clientId Client used for the flows; its redirect URI and secret must match
+     * @param clientSecret Secret of the client
+     * @param redirectUri Registered redirect URI of the client
+     * @param flow password, google or mixed
+     * @param model closed (fixed number of virtual users) or open (fixed arrival rate)
+     * @param concurrency Virtual users (closed) or maximum flows in flight (open)
+     * @param rate Flows started per second (open model only)
+     * @param users Accounts signed up before the run and shared by the password flows
+     * @param warmup Seconds of load before measuring starts
+     * @param duration Seconds measured
+     * @param refreshes refresh_token grants redeemed after each login, 0 for none
+     * @param wiremockPort Port of the Google stand-in; must match the server's rest client URL
+     * @param output JSON results file, none if empty
+     * @param verbose Print every failed stage
+     */
+    record Config(String baseUrl, String clientId, String clientSecret, String redirectUri, String flow, String model,
+            int concurrency, int rate, int users, int warmup, int duration, int refreshes, int wiremockPort, String output, boolean verbose) {
+
+        static Config parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalArgumentException("Expected name=value but got " + arg);
+                }
+                values.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+            int concurrency = Integer.parseInt(values.getOrDefault("concurrency", "16"));
+            Config config = new Config(
+                    values.getOrDefault("baseUrl", "http://localhost:8080"),
+                    values.getOrDefault("clientId", "abstratium-abstrauth"),
+                    values.getOrDefault("clientSecret", "dev-secret-CHANGE-IN-PROD"),
+                    values.getOrDefault("redirectUri", "http://localhost:8080/api/auth/callback"),
+                    values.getOrDefault("flow", "password"),
+                    values.getOrDefault("model", "closed"),
+                    concurrency,
+                    Integer.parseInt(values.getOrDefault("rate", "20")),
+                    Integer.parseInt(values.getOrDefault("users", Integer.toString(concurrency))),
+                    Integer.parseInt(values.getOrDefault("warmup", "10")),
+                    Integer.parseInt(values.getOrDefault("duration", "60")),
+                    Integer.parseInt(values.getOrDefault("refreshes", "3")),
+                    Integer.parseInt(values.getOrDefault("wiremockPort", "8089")),
+                    values.getOrDefault("output", ""),
+                    Boolean.parseBoolean(values.getOrDefault("verbose", "false")));
+            if (!List.of("password", "google", "mixed").contains(config.flow())) {
+                throw new IllegalArgumentException("flow must be password, google or mixed");
+            }
+            if (!List.of("closed", "open").contains(config.model())) {
+                throw new IllegalArgumentException("model must be closed or open");
+            }
+            if (config.concurrency() < 1 || config.rate() < 1 || config.users() < 1) {
+                throw new IllegalArgumentException("concurrency, rate and users must be positive");
+            }
+            if (config.refreshes() < 0) {
+                throw new IllegalArgumentException("refreshes must not be negative");
+            }
+            return config;
+        }
+
+        String json() {
+            return String.format(Locale.ROOT,
+                    "{\"baseUrl\":\"%s\",\"flow\":\"%s\",\"model\":\"%s\",\"concurrency\":%d,\"rate\":%d,\"users\":%d,\"warmup\":%d,\"duration\":%d,\"refreshes\":%d}",
+                    baseUrl, flow, model, concurrency, rate, users, warmup, duration, refreshes);
+        }
+
+        @Override
+        public String toString() {
+            return json();
+        }
+    }
+}
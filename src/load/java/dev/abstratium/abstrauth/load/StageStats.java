@@ -0,0 +1,80 @@
+package dev.abstratium.abstrauth.load;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and errors of one stage of the OAuth flow (or of the whole flow).
+ *
+ * Latencies are kept as raw nanosecond samples so that the percentiles are exact; a run of a
+ * few minutes at a few hundred flows per second is a few hundred thousand samples per stage.
+ */
+final class StageStats {
+
+    private final String name;
+    private final LongAdder errors = new LongAdder();
+    private long[] samples = new long[1024];
+    private int count;
+
+    StageStats(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    synchronized void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    void error() {
+        errors.increment();
+    }
+
+    /**
+     * The summary of the samples recorded so far, over the given measurement period.
+     */
+    synchronized Summary summarize(double seconds) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return new Summary(name, count, errors.sum(), count / seconds,
+                percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                count == 0 ? 0 : sorted[count - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        // nearest rank
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    /**
+     * Latencies in milliseconds, throughput in successful operations per second.
+     */
+    record Summary(String stage, long count, long errors, double throughput, double p50, double p95, double p99, double max) {
+
+        static String header() {
+            return String.format(Locale.ROOT, "%-14s %9s %7s %10s %9s %9s %9s %9s",
+                    "stage", "count", "errors", "ops/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        }
+
+        String row() {
+            return String.format(Locale.ROOT, "%-14s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f",
+                    stage, count, errors, throughput, p50, p95, p99, max);
+        }
+
+        String json() {
+            return String.format(Locale.ROOT,
+                    "{\"stage\":\"%s\",\"count\":%d,\"errors\":%d,\"throughput\":%.3f,\"p50\":%.3f,\"p95\":%.3f,\"p99\":%.3f,\"max\":%.3f}",
+                    stage, count, errors, throughput, p50, p95, p99, max);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package dev.abstratium.abstrauth.boundary;
+
+/**
+ * Exception thrown when a bounded resource (e.g. the JWT signing pool) cannot accept more work.
+ * This will be mapped to HTTP 503 Service Unavailable with a Retry-After header by OverloadedExceptionMapper.
+ */
+public class OverloadedException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public OverloadedException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,22 @@
+package dev.abstratium.abstrauth.boundary;
+
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Maps OverloadedException to HTTP 503 Service Unavailable responses with a Retry-After header.
+ * The body uses the OAuth 2.0 error code temporarily_unavailable, so token clients can handle it
+ * like any other OAuth error.
+ */
+@Provider
+public class OverloadedExceptionMapper implements ExceptionMapper<OverloadedException> {
+
+    @Override
+    public Response toResponse(OverloadedException exception) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header("Retry-After", exception.getRetryAfterSeconds())
+                .entity(new ErrorResponse("temporarily_unavailable", exception.getMessage()))
+                .build();
+    }
+}
@@ -13,11 +13,11 @@ import dev.abstratium.abstrauth.boundary.ErrorResponse;
 import dev.abstratium.abstrauth.entity.Account;
 import dev.abstratium.abstrauth.entity.AccountRole;
 import dev.abstratium.abstrauth.interceptor.VerifyOrgMembership;
-import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyAccountRoleService;
 import dev.abstratium.abstrauth.service.AccountRoleService;
 import dev.abstratium.abstrauth.service.AccountService;
-import dev.abstratium.abstrauth.service.ClientAllowedRoleService;
+import dev.abstratium.abstrauth.service.DefaultRoleSeeder;
 import dev.abstratium.abstrauth.service.OrganisationService;
+import dev.abstratium.abstrauth.service.RevocationEpochService;
 import dev.abstratium.abstrauth.service.Roles;
 import dev.abstratium.abstrauth.service.SubscriptionService;
 import dev.abstratium.abstrauth.util.SecureRandomProvider;
@@ -35,6 +35,7 @@ import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -60,10 +61,10 @@ public class AccountsResource {
     SubscriptionService subscriptionService;
 
     @Inject
-    ClientAllowedRoleService clientAllowedRoleService;
+    DefaultRoleSeeder defaultRoleSeeder;
 
     @Inject
-    NonMultitenancyAccountRoleService nonMultitenancyAccountRoleService;
+    RevocationEpochService revocationEpochService;
 
     @Inject
     SecurityIdentity securityIdentity;
@@ -125,14 +126,7 @@ public class AccountsResource {
             // Seed default roles for all clients the org is subscribed to
             boolean isOwner = organisationService.isOwner(orgId, account.getId());
             for (String clientId : subscriptionService.findClientIdsByOrgId(orgId)) {
-                var defaultRoles = clientAllowedRoleService.findDefaultRolesByClientIdForOrg(clientId, orgId);
-                var rolesToSeed = defaultRoles.stream()
-                        .filter(r -> r.getDefaultAssignment() == dev.abstratium.abstrauth.entity.DefaultAssignment.ALL_USERS
-                                || (r.getDefaultAssignment() == dev.abstratium.abstrauth.entity.DefaultAssignment.ORG_OWNERS_ONLY && isOwner))
-                        .collect(Collectors.toList());
-                if (!rolesToSeed.isEmpty()) {
-                    nonMultitenancyAccountRoleService.seedDefaultRoles(account.getId(), clientId, orgId, rolesToSeed);
-                }
+                defaultRoleSeeder.seed(account.getId(), clientId, orgId, () -> isOwner);
             }
 
             // Return 200 OK (not 201 since we didn't create the account, just added to org)
@@ -254,6 +248,33 @@ public class AccountsResource {
         return Response.noContent().build();
     }
 
+    @POST
+    @Path("/{accountId}/revoke-tokens")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Revoke all tokens of an account in your organization", description = "Revokes every access, ID and refresh token issued to the account for the caller's organization so far, signing it out of the organization everywhere. Its tokens for other organizations are not affected")
+    @RolesAllowed(Roles.MANAGE_ACCOUNTS)
+    public Response revokeAccountTokens(@PathParam("accountId") String accountId) {
+        // Verify account exists
+        if (accountService.findById(accountId).isEmpty()) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(new ErrorResponse("Account not found"))
+                    .build();
+        }
+
+        // Verify account belongs to caller's organization
+        String orgId = token.getClaim("orgId");
+        if (!organisationService.isMember(orgId, accountId)) {
+            return Response.status(Response.Status.FORBIDDEN)
+                    .entity(new ErrorResponse("Account not found in your organization"))
+                    .build();
+        }
+
+        // the account may be a member of organisations the caller does not administer
+        revocationEpochService.revokeMember(accountId, orgId, "admin_revocation");
+
+        return Response.noContent().build();
+    }
+
     @POST
     @Path("/reset-password")
     @Consumes(MediaType.APPLICATION_JSON)
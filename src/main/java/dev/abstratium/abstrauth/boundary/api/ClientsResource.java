@@ -15,6 +15,7 @@ import dev.abstratium.abstrauth.service.AccountRoleService;
 import dev.abstratium.abstrauth.service.ClientAllowedRoleService;
 import dev.abstratium.abstrauth.service.MetricsService;
 import dev.abstratium.abstrauth.service.OAuthClientService;
+import dev.abstratium.abstrauth.service.RevocationEpochService;
 import dev.abstratium.abstrauth.service.Roles;
 import dev.abstratium.abstrauth.service.SubscriptionService;
 import io.quarkus.oidc.IdToken;
@@ -55,6 +56,9 @@ public class ClientsResource {
     @Inject
     SubscriptionService subscriptionService;
 
+    @Inject
+    RevocationEpochService revocationEpochService;
+
     @Inject
     @IdToken
     JsonWebToken token;    
@@ -214,6 +218,22 @@ public class ClientsResource {
         return Response.ok(toClientResponse(updated)).build();
     }
 
+    @POST
+    @Path("/{clientId}/revoke-tokens")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Revoke all tokens of a client", description = "Revokes every token issued to the client so far, including the refresh tokens of its users")
+    @RolesAllowed(Roles.MANAGE_CLIENTS)
+    public Response revokeClientTokens(@PathParam("clientId") String clientId) {
+        if (oauthClientService.findByClientId(clientId).isEmpty()) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(new ErrorResponse("Client not found"))
+                    .build();
+        }
+
+        revocationEpochService.revokeClient(clientId, "admin_revocation");
+        return Response.noContent().build();
+    }
+
     @GET
     @Path("/{clientId}/allowed-roles-for-users-in-clients-org")
     @Produces(MediaType.APPLICATION_JSON)
@@ -12,6 +12,7 @@ import dev.abstratium.abstrauth.entity.Organisation;
 import dev.abstratium.abstrauth.entity.Subscription;
 import dev.abstratium.abstrauth.service.AccountService;
 import dev.abstratium.abstrauth.service.OrganisationService;
+import dev.abstratium.abstrauth.service.RevocationEpochService;
 import dev.abstratium.abstrauth.service.Roles;
 import dev.abstratium.abstrauth.service.SubscriptionService;
 import io.quarkus.oidc.IdToken;
@@ -46,6 +47,9 @@ public class OrganisationsResource {
     @Inject
     AccountService accountService;
 
+    @Inject
+    RevocationEpochService revocationEpochService;
+
     @Inject
     EntityManager em;
 
@@ -297,6 +301,30 @@ public class OrganisationsResource {
         return Response.noContent().build();
     }
 
+    @POST
+    @Path("/{orgId}/revoke-tokens")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Revoke all tokens of an organisation", description = "Revokes every token issued so far in the context of the organisation, for all of its members and clients. Caller must be an owner with MANAGE_ACCOUNTS role.")
+    @RolesAllowed(Roles.MANAGE_ACCOUNTS)
+    public Response revokeOrganisationTokens(@PathParam("orgId") String orgId) {
+        String callerId = token.getSubject();
+
+        if (!isOwnerOfOrg(callerId, orgId)) {
+            return Response.status(Response.Status.FORBIDDEN)
+                    .entity(new ErrorResponse("You must be an owner of this organisation"))
+                    .build();
+        }
+
+        if (organisationService.findById(orgId).isEmpty()) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(new ErrorResponse("Organisation not found"))
+                    .build();
+        }
+
+        revocationEpochService.revokeOrganisation(orgId, "admin_revocation");
+        return Response.noContent().build();
+    }
+
     private boolean isOwnerOfOrg(String accountId, String orgId) {
         return organisationService.isOwner(orgId, accountId);
     }
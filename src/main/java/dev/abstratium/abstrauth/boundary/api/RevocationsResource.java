@@ -0,0 +1,219 @@
+package dev.abstratium.abstrauth.boundary.api;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.jwt.JsonWebToken;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import dev.abstratium.abstrauth.boundary.ErrorResponse;
+import dev.abstratium.abstrauth.interceptor.VerifyOrgMembership;
+import dev.abstratium.abstrauth.service.AccountService;
+import dev.abstratium.abstrauth.service.BulkRevocationService;
+import dev.abstratium.abstrauth.service.OAuthClientService;
+import dev.abstratium.abstrauth.service.OrganisationService;
+import dev.abstratium.abstrauth.service.Roles;
+import io.quarkus.oidc.IdToken;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import io.quarkus.security.identity.SecurityIdentity;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Bulk revocation for incident response: revokes every token of many accounts, clients and
+ * organisations in one request. Each subject is checked like at its own revoke-tokens endpoint
+ * (AccountsResource, ClientsResource, OrganisationsResource); if any check fails, nothing is
+ * revoked.
+ */
+@Path("/api/revocations")
+@Tag(name = "Revocations", description = "Bulk token revocation endpoints")
+@VerifyOrgMembership
+public class RevocationsResource {
+
+    @Inject
+    BulkRevocationService bulkRevocationService;
+
+    @Inject
+    AccountService accountService;
+
+    @Inject
+    OAuthClientService oauthClientService;
+
+    @Inject
+    OrganisationService organisationService;
+
+    @Inject
+    SecurityIdentity securityIdentity;
+
+    @Inject
+    @IdToken
+    JsonWebToken token;
+
+    @ConfigProperty(name = "abstrauth.revocation.bulk.max-subjects", defaultValue = "1000")
+    int maxSubjects;
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Revoke all tokens of accounts, clients and organisations",
+            description = "Revokes every access, ID and refresh token issued so far to the given accounts, clients and organisations, "
+                    + "and reports how many tokens were revoked and how long it took. Accounts require the MANAGE_ACCOUNTS role and "
+                    + "membership in the caller's organisation, and only their tokens for the caller's organisation are revoked; clients the MANAGE_CLIENTS role, organisations the MANAGE_ACCOUNTS role "
+                    + "and ownership of the organisation.")
+    @RolesAllowed(Roles.USER)
+    public Response revoke(@Valid BulkRevocationRequest request) {
+        Set<String> accountIds = ids(request.accountIds);
+        Set<String> clientIds = ids(request.clientIds);
+        Set<String> orgIds = ids(request.orgIds);
+        int subjects = accountIds.size() + clientIds.size() + orgIds.size();
+        if (subjects == 0) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorResponse("At least one account, client or organisation is required"))
+                    .build();
+        }
+        if (subjects > maxSubjects) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorResponse("At most " + maxSubjects + " accounts, clients and organisations per request"))
+                    .build();
+        }
+
+        Response denied = checkAccounts(accountIds);
+        if (denied == null) {
+            denied = checkClients(clientIds);
+        }
+        if (denied == null) {
+            denied = checkOrganisations(orgIds);
+        }
+        if (denied != null) {
+            return denied;
+        }
+
+        String reason = request.reason == null || request.reason.isBlank() ? "admin_revocation" : request.reason;
+        BulkRevocationService.Result result = bulkRevocationService.revoke(accountIds, token.getClaim("orgId"), clientIds, orgIds, reason);
+
+        BulkRevocationResponse response = new BulkRevocationResponse();
+        response.subjects = result.subjects();
+        response.refreshTokens = result.refreshTokens();
+        response.accessTokens = result.accessTokens();
+        response.elapsedMillis = result.elapsedMillis();
+        return Response.ok(response).build();
+    }
+
+    private Response checkAccounts(Set<String> accountIds) {
+        if (accountIds.isEmpty()) {
+            return null;
+        }
+        if (!securityIdentity.hasRole(Roles.MANAGE_ACCOUNTS)) {
+            return forbidden("Revoking the tokens of accounts requires the manage-accounts role");
+        }
+        String orgId = token.getClaim("orgId");
+        for (String accountId : accountIds) {
+            if (accountService.findById(accountId).isEmpty()) {
+                return notFound("Account not found: " + accountId);
+            }
+            if (!organisationService.isMember(orgId, accountId)) {
+                return forbidden("Account not found in your organization: " + accountId);
+            }
+        }
+        return null;
+    }
+
+    private Response checkClients(Set<String> clientIds) {
+        if (clientIds.isEmpty()) {
+            return null;
+        }
+        if (!securityIdentity.hasRole(Roles.MANAGE_CLIENTS)) {
+            return forbidden("Revoking the tokens of clients requires the manage-clients role");
+        }
+        Set<String> missing = new LinkedHashSet<>(clientIds);
+        oauthClientService.findByClientIds(clientIds).forEach(client -> missing.remove(client.getClientId()));
+        if (!missing.isEmpty()) {
+            return notFound("Client not found: " + missing.iterator().next());
+        }
+        return null;
+    }
+
+    private Response checkOrganisations(Set<String> orgIds) {
+        if (orgIds.isEmpty()) {
+            return null;
+        }
+        if (!securityIdentity.hasRole(Roles.MANAGE_ACCOUNTS)) {
+            return forbidden("Revoking the tokens of organisations requires the manage-accounts role");
+        }
+        String callerId = token.getSubject();
+        for (String orgId : orgIds) {
+            if (!organisationService.isOwner(orgId, callerId)) {
+                return forbidden("You must be an owner of organisation " + orgId);
+            }
+            if (organisationService.findById(orgId).isEmpty()) {
+                return notFound("Organisation not found: " + orgId);
+            }
+        }
+        return null;
+    }
+
+    private static Set<String> ids(List<String> ids) {
+        Set<String> unique = new LinkedHashSet<>();
+        if (ids != null) {
+            for (String id : ids) {
+                if (id != null && !id.isBlank()) {
+                    unique.add(id);
+                }
+            }
+        }
+        return unique;
+    }
+
+    private static Response forbidden(String message) {
+        return Response.status(Response.Status.FORBIDDEN).entity(new ErrorResponse(message)).build();
+    }
+
+    private static Response notFound(String message) {
+        return Response.status(Response.Status.NOT_FOUND).entity(new ErrorResponse(message)).build();
+    }
+
+    @RegisterForReflection
+    public static class BulkRevocationRequest {
+        @Schema(description = "Accounts whose tokens for the caller's organisation are revoked", examples = "[\"6f1c2a0e-...\"]")
+        public List<String> accountIds;
+
+        @Schema(description = "Clients whose tokens are revoked, including the refresh tokens of their users", examples = "[\"my-compromised-client\"]")
+        public List<String> clientIds;
+
+        @Schema(description = "Organisations whose tokens are revoked, for all of their accounts and clients", examples = "[\"0b5e9f3d-...\"]")
+        public List<String> orgIds;
+
+        @Size(max = 100, message = "Reason must not exceed 100 characters")
+        @Schema(description = "Reason recorded with the revocations; defaults to admin_revocation", examples = "incident-2026-10-16")
+        public String reason;
+    }
+
+    @RegisterForReflection
+    @Schema(description = "Outcome of a bulk revocation")
+    public static class BulkRevocationResponse {
+        @Schema(description = "Number of accounts, clients and organisations whose tokens were revoked", examples = "3")
+        public int subjects;
+
+        @Schema(description = "Number of refresh tokens revoked", examples = "1250")
+        public int refreshTokens;
+
+        @Schema(description = "Number of live access tokens revoked by jti, and in the status list; "
+                + "the others are revoked by the revocation epochs of the subjects", examples = "830")
+        public int accessTokens;
+
+        @Schema(description = "Time taken in milliseconds", examples = "412")
+        public long elapsedMillis;
+    }
+}
@@ -1,6 +1,19 @@
 package dev.abstratium.abstrauth.boundary.oauth;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import jakarta.inject.Inject;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.eclipse.microprofile.openapi.annotations.Operation;
@@ -13,9 +26,24 @@ import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.jboss.logging.Logger;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import dev.abstratium.abstrauth.boundary.ErrorResponse;
+import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyClientSecretService;
+import dev.abstratium.abstrauth.service.IntrospectionService;
+import dev.abstratium.abstrauth.service.MetricsService;
+import dev.abstratium.abstrauth.service.ReferenceTokenService;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
 /**
  * OAuth 2.0 Token Introspection Endpoint
  * RFC 7662 - OAuth 2.0 Token Introspection
+ *
+ * Answers for abstrauth's JWT access tokens and for reference tokens (see
+ * ReferenceTokenService). For an active reference token the response also contains the JWT it
+ * stands for, so that a gateway can forward the JWT to the resource servers behind it.
+ * Callers authenticate with a client secret, like at the token endpoint. Whether a JWT is
+ * active is decided by the IntrospectionService, which caches the outcome per token.
  */
 @Path("/oauth2/introspect")
 @Tag(name = "OAuth 2.0 Token", description = "OAuth 2.0 Token management endpoints")
@@ -23,6 +51,19 @@ public class IntrospectionResource {
 
     private static final Logger log = Logger.getLogger(IntrospectionResource.class); 
 
+    @Inject
+    NonMultitenancyClientSecretService nonMultitenancyClientSecretService;
+
+    @Inject
+    ReferenceTokenService referenceTokenService;
+
+    @Inject
+    IntrospectionService introspectionService;
+
+    @Inject
+    MetricsService metricsService;
+
+
     @POST
     @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
     @Produces(MediaType.APPLICATION_JSON)
@@ -30,7 +71,8 @@ public class IntrospectionResource {
         summary = "Token Introspection Endpoint",
         description = "Returns metadata about a token including whether it is active, " +
                      "expiration time, scope, client_id, and other claims. " +
-                     "Requires client authentication."
+                     "For reference tokens the response also contains the JWT in 'jwt'. " +
+                     "Requires client authentication with client_secret (form or HTTP Basic)."
     )
     @APIResponses({
         @APIResponse(
@@ -52,7 +94,7 @@ public class IntrospectionResource {
                             "exp": 1719302400,
                             "iat": 1719298800,
                             "sub": "user_67890",
-                            "aud": "https://api.example.com",
+                            "aud": ["https://api.example.com"],
                             "iss": "https://auth.example.com"
                         }
                         """
@@ -68,12 +110,20 @@ public class IntrospectionResource {
                 }
             )
         ),
+        @APIResponse(
+            responseCode = "400",
+            description = "Missing token parameter",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON)
+        ),
         @APIResponse(
             responseCode = "401",
-            description = "Client authentication failed"
+            description = "Client authentication failed",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON)
         )
     })
     public Response introspect(
+        @Context HttpHeaders headers,
+
         @Parameter(
             description = "The token to introspect",
             required = true,
@@ -90,8 +140,8 @@ public class IntrospectionResource {
         @FormParam("token_type_hint") String tokenTypeHint,
 
         @Parameter(
-            description = "Client identifier",
-            required = true,
+            description = "Client identifier (or HTTP Basic authentication)",
+            required = false,
             example = "client_12345"
         )
         @FormParam("client_id") String clientId,
@@ -103,16 +153,139 @@ public class IntrospectionResource {
         )
         @FormParam("client_secret") String clientSecret
     ) {
-        log.info("Introspection request received");
-        // Implementation pending
-        throw new UnsupportedOperationException("Not implemented yet");
+        metricsService.recordTokenIntrospection();
+
+        // Extract client credentials from HTTP Basic Auth if not in form params
+        if ((clientId == null || clientId.isBlank()) && headers.getHeaderString("Authorization") != null) {
+            String[] credentials = extractBasicAuth(headers.getHeaderString("Authorization"));
+            if (credentials != null) {
+                clientId = credentials[0];
+                clientSecret = credentials[1];
+            }
+        }
+
+        // Only confidential clients have secrets, so public and unknown clients are rejected here
+        if (clientId == null || clientId.isBlank() || clientSecret == null || clientSecret.isBlank()
+                || !nonMultitenancyClientSecretService.verifySecret(clientId, clientSecret)) {
+            return buildErrorResponse(Response.Status.UNAUTHORIZED, "invalid_client",
+                    "Client authentication failed");
+        }
+
+        if (token == null || token.isBlank()) {
+            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_request",
+                    "Missing required parameter: token");
+        }
+
+        IntrospectionResponse response;
+        if (ReferenceTokenService.isHandle(token)) {
+            // The JWT behind a handle gets the same checks as a JWT presented directly: its row is
+            // deleted when the token is revoked by jti, but not when a revocation epoch is bumped
+            response = referenceTokenService.resolve(token)
+                    .flatMap(jwt -> introspectionService.activeClaims(jwt)
+                            .map(claims -> {
+                                IntrospectionResponse active = fromClaims(claims);
+                                if (active.active) {
+                                    active.jwt = jwt;
+                                }
+                                return active;
+                            }))
+                    .orElseGet(IntrospectionResponse::inactive);
+        } else {
+            response = introspectionService.activeClaims(token)
+                    .map(this::fromClaims)
+                    .orElseGet(IntrospectionResponse::inactive);
+        }
+        log.debugf("Introspection by %s: active=%s", clientId, response.active);
+        return Response.ok(response).build();
     }
 
     /**
-     * Introspection Response DTO for OpenAPI documentation
+     * The response for the claims of a token whose signature is known to be good; inactive if it
+     * has expired or is not valid yet.
      */
+    private IntrospectionResponse fromClaims(JsonObject claims) {
+        if (!IntrospectionService.isWithinValidity(claims, Instant.now().getEpochSecond())) {
+            return IntrospectionResponse.inactive();
+        }
+        IntrospectionResponse response = new IntrospectionResponse();
+        response.active = true;
+        response.scope = stringClaim(claims, "scope");
+        response.client_id = stringClaim(claims, "client_id");
+        response.token_type = "Bearer";
+        response.exp = longClaim(claims, "exp");
+        response.iat = longClaim(claims, "iat");
+        response.nbf = longClaim(claims, "nbf");
+        response.sub = stringClaim(claims, "sub");
+        response.aud = audience(claims.get("aud"));
+        response.iss = stringClaim(claims, "iss");
+        response.jti = stringClaim(claims, "jti");
+        return response;
+    }
+
+    private static String stringClaim(JsonObject claims, String name) {
+        JsonValue value = claims.get(name);
+        return value instanceof JsonString string ? string.getString() : null;
+    }
+
+    private static Long longClaim(JsonObject claims, String name) {
+        return claims.containsKey(name) && claims.get(name).getValueType() == JsonValue.ValueType.NUMBER
+                ? claims.getJsonNumber(name).longValue() : null;
+    }
+
+    private static List<String> audience(JsonValue aud) {
+        if (aud instanceof JsonString string) {
+            return List.of(string.getString());
+        }
+        if (aud instanceof JsonArray array) {
+            List<String> audiences = new ArrayList<>();
+            for (JsonValue value : array) {
+                if (value instanceof JsonString string) {
+                    audiences.add(string.getString());
+                }
+            }
+            return audiences;
+        }
+        return null;
+    }
+
+    private String[] extractBasicAuth(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Basic ")) {
+            return null;
+        }
+        try {
+            byte[] decoded = Base64.getDecoder().decode(authHeader.substring(6));
+            String credentials = new String(decoded, StandardCharsets.UTF_8);
+            int colon = credentials.indexOf(':');
+            if (colon == -1) {
+                return null;
+            }
+            return new String[]{credentials.substring(0, colon), credentials.substring(colon + 1)};
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private Response buildErrorResponse(Response.Status status, String error, String errorDescription) {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.error = error;
+        errorResponse.error_description = errorDescription;
+        return Response.status(status).entity(errorResponse).build();
+    }
+
+    /**
+     * Introspection Response DTO. Inactive tokens are answered with {@code active} only.
+     */
+    @RegisterForReflection
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     @Schema(description = "OAuth 2.0 Token Introspection Response")
     public static class IntrospectionResponse {
+
+        static IntrospectionResponse inactive() {
+            IntrospectionResponse response = new IntrospectionResponse();
+            response.active = false;
+            return response;
+        }
+
         @Schema(description = "Whether the token is currently active", examples = "true", required = true)
         public Boolean active;
 
@@ -140,13 +313,17 @@ public class IntrospectionResource {
         @Schema(description = "Subject of the token", examples = "user_67890")
         public String sub;
 
-        @Schema(description = "Audience - intended recipients", examples = "https://api.example.com")
-        public String aud;
+        @Schema(description = "Audience - intended recipients", examples = "[\"https://api.example.com\"]")
+        public List<String> aud;
 
         @Schema(description = "Issuer identifier", examples = "https://auth.example.com")
         public String iss;
 
         @Schema(description = "JWT ID - unique identifier", examples = "jwt_abc123")
         public String jti;
+
+        @Schema(description = "For reference tokens only: the JWT access token the reference token stands for",
+                examples = "eyJhbGciOiJSUzI1NiIsInR5cCI6IkpXVCJ9...")
+        public String jwt;
     }
 }
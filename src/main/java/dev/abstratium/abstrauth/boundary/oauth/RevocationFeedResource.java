@@ -0,0 +1,325 @@
+package dev.abstratium.abstrauth.boundary.oauth;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.ExampleObject;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.logging.Logger;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import dev.abstratium.abstrauth.boundary.ErrorResponse;
+import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyClientRoleService;
+import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyClientSecretService;
+import dev.abstratium.abstrauth.service.RevocationFeed;
+import dev.abstratium.abstrauth.service.Roles;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import io.smallrye.common.annotation.Blocking;
+
+/**
+ * Revocation feed for resource servers.
+ *
+ * Instead of introspecting every token, a resource server validates JWTs locally and follows
+ * this feed to keep a deny-list of revoked JTIs and of revocation epochs (all tokens of an
+ * account, client or organisation, or of an account within one organisation, issued at or
+ * before a time). It either long polls
+ * {@code GET /oauth2/revocations?cursor=...&wait=...} or keeps {@code GET /oauth2/revocations/stream}
+ * open as server-sent events, resuming with the Last-Event-ID header after a reconnect. A
+ * response marked as a reset is a snapshot of all current revocations and replaces the
+ * deny-list. Callers authenticate with a client secret (HTTP Basic), like at the introspection
+ * endpoint. Since the feed contains the revocations of all organisations, the client must also
+ * hold the {@link Roles#REVOCATION_FEED} client role, which only the organisation owning
+ * abstrauth can grant.
+ *
+ * See RevocationFeed for how the events are collected and how long cursors can be resumed.
+ */
+@Path("/oauth2/revocations")
+@Tag(name = "OAuth 2.0 Token", description = "OAuth 2.0 Token management endpoints")
+public class RevocationFeedResource {
+
+    private static final Logger log = Logger.getLogger(RevocationFeedResource.class);
+
+    @Inject
+    NonMultitenancyClientSecretService nonMultitenancyClientSecretService;
+
+    @Inject
+    NonMultitenancyClientRoleService nonMultitenancyClientRoleService;
+
+    @Inject
+    RevocationFeed revocationFeed;
+
+    @ConfigProperty(name = "abstrauth.revocation.feed.page-size", defaultValue = "1000")
+    int pageSize;
+
+    @ConfigProperty(name = "abstrauth.revocation.feed.max-wait.seconds", defaultValue = "30")
+    int maxWaitSeconds;
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Blocking
+    @Operation(
+        summary = "Revocation Feed (long polling)",
+        description = "Returns the revocations after the cursor, waiting up to 'wait' seconds for one if there " +
+                     "are none yet. Without a cursor, or if the cursor can no longer be resumed, all current " +
+                     "revocations are returned with 'reset' set. Requires client authentication with " +
+                     "client_secret (HTTP Basic) and the revocation-feed client role."
+    )
+    @APIResponses({
+        @APIResponse(
+            responseCode = "200",
+            description = "Revocations after the cursor",
+            content = @Content(
+                mediaType = MediaType.APPLICATION_JSON,
+                schema = @Schema(implementation = RevocationsResponse.class),
+                examples = @ExampleObject(
+                    name = "Revocations",
+                    value = """
+                    {
+                        "cursor": "9f3a61c2.42",
+                        "reset": false,
+                        "events": [
+                            {"type": "jti", "id": "6f1e0c4d-5a77-4d7e-9b2a-3e9f1a528c1d", "exp": 1760000900},
+                            {"type": "account", "id": "0b7c2d9e-1f3a-4b5c-8d6e-7f8091a2b3c4", "not_before": 1760000100}
+                        ]
+                    }
+                    """
+                )
+            )
+        ),
+        @APIResponse(
+            responseCode = "401",
+            description = "Client authentication failed",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON)
+        ),
+        @APIResponse(
+            responseCode = "403",
+            description = "The client does not have the revocation-feed role",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON)
+        )
+    })
+    public CompletionStage<Response> poll(
+        @Context HttpHeaders headers,
+
+        @Parameter(description = "Cursor returned by the previous response", example = "9f3a61c2.42")
+        @QueryParam("cursor") String cursor,
+
+        @Parameter(description = "Seconds to wait for a revocation if there is none after the cursor", example = "30")
+        @QueryParam("wait") @DefaultValue("0") int wait
+    ) {
+        Response denied = authorize(headers);
+        if (denied != null) {
+            return CompletableFuture.completedFuture(denied);
+        }
+        RevocationFeed.Page page = revocationFeed.read(cursor, pageSize);
+        if (page.reset() || !page.events().isEmpty() || wait <= 0) {
+            return CompletableFuture.completedFuture(Response.ok(RevocationsResponse.of(page)).build());
+        }
+        // suspended without holding a thread until an event is published or the wait is over
+        return revocationFeed.awaitAfter(page.cursor())
+                .completeOnTimeout(null, Math.min(wait, maxWaitSeconds), TimeUnit.SECONDS)
+                .thenApply(ignored -> Response.ok(RevocationsResponse.of(revocationFeed.read(page.cursor(), pageSize))).build());
+    }
+
+    @GET
+    @Path("/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @Blocking
+    @Operation(
+        summary = "Revocation Feed (server-sent events)",
+        description = "Streams the revocations after the cursor (or the Last-Event-ID header) and then every new " +
+                     "one as it happens. Each event is named 'revocations', carries the same JSON as the long " +
+                     "polling endpoint and has the cursor as its id. Requires client authentication with " +
+                     "client_secret (HTTP Basic) and the revocation-feed client role."
+    )
+    @APIResponses({
+        @APIResponse(responseCode = "200", description = "Stream of revocations"),
+        @APIResponse(
+            responseCode = "401",
+            description = "Client authentication failed",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON)
+        ),
+        @APIResponse(
+            responseCode = "403",
+            description = "The client does not have the revocation-feed role",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON)
+        )
+    })
+    public void stream(
+        @Context HttpHeaders headers,
+
+        @Parameter(description = "Cursor to resume from, if there is no Last-Event-ID header", example = "9f3a61c2.42")
+        @QueryParam("cursor") String cursor,
+
+        @Context SseEventSink sink,
+        @Context Sse sse
+    ) {
+        Response denied = authorize(headers);
+        if (denied != null) {
+            throw new WebApplicationException(denied);
+        }
+        String lastEventId = headers.getHeaderString(HttpHeaders.LAST_EVENT_ID_HEADER);
+        revocationFeed.subscribe(lastEventId != null ? lastEventId : cursor, new RevocationFeed.Subscriber() {
+            @Override
+            public boolean onPage(RevocationFeed.Page page) {
+                if (sink.isClosed()) {
+                    return false;
+                }
+                sink.send(sse.newEventBuilder()
+                        .id(page.cursor())
+                        .name("revocations")
+                        .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                        .data(RevocationsResponse.class, RevocationsResponse.of(page))
+                        .build());
+                return true;
+            }
+
+            @Override
+            public boolean onHeartbeat() {
+                if (sink.isClosed()) {
+                    return false;
+                }
+                sink.send(sse.newEventBuilder().comment("heartbeat").build());
+                return true;
+            }
+        });
+    }
+
+    /**
+     * @return null if the caller may read the feed, otherwise the error response
+     */
+    private Response authorize(HttpHeaders headers) {
+        String[] credentials = extractBasicAuth(headers.getHeaderString("Authorization"));
+        // Only confidential clients have secrets, so public and unknown clients are rejected here
+        if (credentials == null || credentials[0].isBlank() || credentials[1].isBlank()
+                || !nonMultitenancyClientSecretService.verifySecret(credentials[0], credentials[1])) {
+            return unauthorized();
+        }
+        // the feed is not filtered by organisation, so it is only for clients trusted with all of them
+        if (!nonMultitenancyClientRoleService.hasRole(credentials[0], Roles.CLIENT_ID, Roles._REVOCATION_FEED_PLAIN)) {
+            log.warnf("Revocation feed denied to %s, which does not have the %s role", credentials[0], Roles.REVOCATION_FEED);
+            return forbidden();
+        }
+        log.debugf("Revocation feed read by %s", credentials[0]);
+        return null;
+    }
+
+    private String[] extractBasicAuth(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Basic ")) {
+            return null;
+        }
+        try {
+            byte[] decoded = Base64.getDecoder().decode(authHeader.substring(6));
+            String credentials = new String(decoded, StandardCharsets.UTF_8);
+            int colon = credentials.indexOf(':');
+            if (colon == -1) {
+                return null;
+            }
+            return new String[]{credentials.substring(0, colon), credentials.substring(colon + 1)};
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private Response unauthorized() {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.error = "invalid_client";
+        errorResponse.error_description = "Client authentication failed";
+        return Response.status(Response.Status.UNAUTHORIZED).type(MediaType.APPLICATION_JSON).entity(errorResponse).build();
+    }
+
+    private Response forbidden() {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.error = "access_denied";
+        errorResponse.error_description = "The client requires the " + Roles.REVOCATION_FEED + " role";
+        return Response.status(Response.Status.FORBIDDEN).type(MediaType.APPLICATION_JSON).entity(errorResponse).build();
+    }
+
+    /**
+     * Revocations after a cursor.
+     */
+    @RegisterForReflection
+    @Schema(description = "Revocations after a cursor")
+    public static class RevocationsResponse {
+
+        static RevocationsResponse of(RevocationFeed.Page page) {
+            RevocationsResponse response = new RevocationsResponse();
+            response.cursor = page.cursor();
+            response.reset = page.reset();
+            response.events = page.events().stream().map(RevocationEvent::of).toList();
+            return response;
+        }
+
+        @Schema(description = "Cursor to pass to the next request", examples = "9f3a61c2.42", required = true)
+        public String cursor;
+
+        @Schema(description = "Whether the events are all current revocations, replacing those received so far",
+                examples = "false", required = true)
+        public boolean reset;
+
+        @Schema(description = "The revocations, oldest first", required = true)
+        public List<RevocationEvent> events;
+    }
+
+    /**
+     * A revoked JTI, with the exp of its token, or the revocation epoch of an account, client,
+     * organisation or member.
+     */
+    @RegisterForReflection
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Schema(description = "A revoked token or revocation epoch")
+    public static class RevocationEvent {
+
+        static RevocationEvent of(RevocationFeed.Event event) {
+            RevocationEvent revocation = new RevocationEvent();
+            revocation.type = event.type();
+            revocation.id = event.id();
+            revocation.org = event.orgId();
+            if (RevocationFeed.JTI.equals(event.type())) {
+                revocation.exp = event.time();
+            } else {
+                revocation.not_before = event.time();
+            }
+            return revocation;
+        }
+
+        @Schema(description = "What is revoked", examples = "jti", required = true,
+                enumeration = {"jti", "account", "client", "org", "member"})
+        public String type;
+
+        @Schema(description = "The JTI, account id (for accounts and members), client id or organisation id",
+                examples = "6f1e0c4d-5a77-4d7e-9b2a-3e9f1a528c1d", required = true)
+        public String id;
+
+        @Schema(description = "For members: the organisation in which the tokens of the account are revoked (orgId claim)",
+                examples = "0b5e9f3d-2c1a-4e8b-9f7d-6a5b4c3d2e1f")
+        public String org;
+
+        @Schema(description = "For JTIs: expiry of the token (seconds since epoch), after which it can be forgotten",
+                examples = "1760000900")
+        public Long exp;
+
+        @Schema(description = "For epochs: tokens issued at or before this time (seconds since epoch, iat) are revoked",
+                examples = "1760000100")
+        public Long not_before;
+    }
+}
@@ -1,6 +1,18 @@
 package dev.abstratium.abstrauth.boundary.oauth;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+import jakarta.inject.Inject;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.eclipse.microprofile.openapi.annotations.Operation;
@@ -11,15 +23,59 @@ import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.logging.Logger;
+
+import dev.abstratium.abstrauth.boundary.ErrorResponse;
+import dev.abstratium.abstrauth.entity.RefreshToken;
+import dev.abstratium.abstrauth.non_multitenancy.entity.NonMultitenancyOAuthClient;
+import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyClientSecretService;
+import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyOAuthClientService;
+import dev.abstratium.abstrauth.service.IntrospectionService;
+import dev.abstratium.abstrauth.service.MetricsService;
+import dev.abstratium.abstrauth.service.ReferenceTokenService;
+import dev.abstratium.abstrauth.service.RefreshTokenService;
+import dev.abstratium.abstrauth.service.TokenRevocationService;
 
 /**
  * OAuth 2.0 Token Revocation Endpoint
  * RFC 7009 - OAuth 2.0 Token Revocation
+ *
+ * A client revokes its own access tokens (JWTs or reference tokens) and refresh tokens, e.g. on
+ * logout. Revoking a refresh token revokes its whole family, together with the access tokens
+ * issued with it (RFC 7009 Section 2.1). Confidential clients authenticate with a client secret,
+ * like at the introspection endpoint; public clients, which have no secret, identify themselves
+ * with their client_id alone (RFC 7009 Section 2.1). Tokens that are unknown, invalid, expired or
+ * issued to another client are answered with 200 like any other, so that the endpoint cannot be used to probe tokens.
  */
 @Path("/oauth2/revoke")
 @Tag(name = "OAuth 2.0 Token", description = "OAuth 2.0 Token management endpoints")
 public class RevocationResource {
 
+    private static final Logger log = Logger.getLogger(RevocationResource.class);
+
+    static final String REASON = "client_revocation";
+
+    @Inject
+    NonMultitenancyOAuthClientService nonMultitenancyOAuthClientService;
+
+    @Inject
+    NonMultitenancyClientSecretService nonMultitenancyClientSecretService;
+
+    @Inject
+    IntrospectionService introspectionService;
+
+    @Inject
+    ReferenceTokenService referenceTokenService;
+
+    @Inject
+    RefreshTokenService refreshTokenService;
+
+    @Inject
+    TokenRevocationService tokenRevocationService;
+
+    @Inject
+    MetricsService metricsService;
+
     @POST
     @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
     @Produces(MediaType.APPLICATION_JSON)
@@ -28,7 +84,8 @@ public class RevocationResource {
         description = "Revokes an access token or refresh token. " +
                      "The authorization server invalidates the token and, " +
                      "if applicable, other tokens based on the same authorization grant. " +
-                     "Requires client authentication."
+                     "Confidential clients authenticate with client_secret (form or HTTP Basic), " +
+                     "public clients send their client_id alone."
     )
     @APIResponses({
         @APIResponse(
@@ -72,6 +129,8 @@ public class RevocationResource {
         )
     })
     public Response revoke(
+        @Context HttpHeaders headers,
+
         @Parameter(
             description = "The token to revoke",
             required = true,
@@ -88,20 +147,160 @@ public class RevocationResource {
         @FormParam("token_type_hint") String tokenTypeHint,
 
         @Parameter(
-            description = "Client identifier",
-            required = true,
+            description = "Client identifier (or HTTP Basic authentication)",
+            required = false,
             example = "client_12345"
         )
         @FormParam("client_id") String clientId,
 
         @Parameter(
-            description = "Client secret",
+            description = "Client secret, required for confidential clients",
             required = false,
             example = "client_secret_xyz"
         )
         @FormParam("client_secret") String clientSecret
     ) {
-        // Implementation pending
-        throw new UnsupportedOperationException("Not implemented yet");
+        metricsService.recordTokenRevocation();
+
+        // Extract client credentials from HTTP Basic Auth if not in form params
+        if ((clientId == null || clientId.isBlank()) && headers.getHeaderString("Authorization") != null) {
+            String[] credentials = extractBasicAuth(headers.getHeaderString("Authorization"));
+            if (credentials != null) {
+                clientId = credentials[0];
+                clientSecret = credentials[1];
+            }
+        }
+
+        if (clientId == null || clientId.isBlank() || !authenticateClient(clientId, clientSecret)) {
+            return buildErrorResponse(Response.Status.UNAUTHORIZED, "invalid_client",
+                    "Client authentication failed");
+        }
+
+        if (token == null || token.isBlank()) {
+            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_request",
+                    "Missing required parameter: token");
+        }
+
+        // The hint only decides which kind of token is looked for first (RFC 7009 Section 2.1)
+        boolean found = "refresh_token".equals(tokenTypeHint)
+                ? revokeRefreshToken(token, clientId) || revokeAccessToken(token, clientId)
+                : revokeAccessToken(token, clientId) || revokeRefreshToken(token, clientId);
+        log.debugf("Revocation by %s: token found=%s", clientId, found);
+        return Response.ok().build();
+    }
+
+    /**
+     * Revoke a JWT access token, or the JWT a reference token stands for, if it was issued to the
+     * client and is still live.
+     *
+     * @return whether the value is one of our access tokens, whoever it was issued to
+     */
+    private boolean revokeAccessToken(String token, String clientId) {
+        String jwt = token;
+        if (ReferenceTokenService.isHandle(token)) {
+            // resolves only while the handle is live and its JWT not revoked
+            Optional<String> resolved = referenceTokenService.resolve(token);
+            if (resolved.isEmpty()) {
+                return false;
+            }
+            jwt = resolved.get();
+        }
+        JsonObject claims = introspectionService.verifiedClaims(jwt).orElse(null);
+        if (claims == null) {
+            return false;
+        }
+        if (!clientId.equals(stringClaim(claims, "client_id"))) {
+            log.debugf("Client %s tried to revoke an access token of another client", clientId);
+            return true;
+        }
+        String jti = stringClaim(claims, "jti");
+        JsonValue exp = claims.get("exp");
+        if (jti == null || !(exp instanceof JsonNumber expNumber)) {
+            return true;
+        }
+        Instant expiresAt = Instant.ofEpochSecond(expNumber.longValue());
+        if (expiresAt.isAfter(Instant.now()) && !tokenRevocationService.isTokenRevoked(jti)) {
+            tokenRevocationService.revokeToken(jti, REASON, expiresAt, statusIdx(claims));
+        }
+        return true;
+    }
+
+    /**
+     * Revoke the family of a refresh token, if it was issued to the client and not revoked yet.
+     *
+     * @return whether the value is one of our refresh tokens, whoever it was issued to
+     */
+    private boolean revokeRefreshToken(String token, String clientId) {
+        Optional<RefreshToken> refreshToken = refreshTokenService.findByToken(token);
+        if (refreshToken.isEmpty()) {
+            return false;
+        }
+        RefreshToken found = refreshToken.get();
+        if (!clientId.equals(found.getClientId())) {
+            log.debugf("Client %s tried to revoke a refresh token of another client", clientId);
+        } else if (found.getRevokedAt() == null) {
+            tokenRevocationService.revokeRefreshTokenFamily(found.getFamilyId(), REASON);
+        }
+        return true;
+    }
+
+    /**
+     * Confidential clients must present one of their secrets; public clients have none, so their
+     * client_id is enough (RFC 7009 Section 2.1). Unknown clients are rejected.
+     * Use NonMultitenancyOAuthClientService because the client's orgId is not known here.
+     */
+    private boolean authenticateClient(String clientId, String clientSecret) {
+        Optional<NonMultitenancyOAuthClient> client = nonMultitenancyOAuthClientService.findByClientId(clientId);
+        if (client.isEmpty()) {
+            return false;
+        }
+        String clientType = client.get().getClientType();
+        if ("confidential".equals(clientType)) {
+            return clientSecret != null && !clientSecret.isBlank()
+                    && nonMultitenancyClientSecretService.verifySecret(clientId, clientSecret);
+        }
+        return "public".equals(clientType);
+    }
+
+    /**
+     * The idx of the token's status list entry, see StatusListService#claim.
+     */
+    private static Integer statusIdx(JsonObject claims) {
+        JsonValue status = claims.get("status");
+        if (!(status instanceof JsonObject statusObject)
+                || !(statusObject.get("status_list") instanceof JsonObject statusList)
+                || !(statusList.get("idx") instanceof JsonNumber idx)) {
+            return null;
+        }
+        return idx.intValue();
+    }
+
+    private static String stringClaim(JsonObject claims, String name) {
+        JsonValue value = claims.get(name);
+        return value instanceof JsonString string ? string.getString() : null;
+    }
+
+    private String[] extractBasicAuth(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Basic ")) {
+            return null;
+        }
+        try {
+            byte[] decoded = Base64.getDecoder().decode(authHeader.substring(6));
+            String credentials = new String(decoded, StandardCharsets.UTF_8);
+            int colon = credentials.indexOf(':');
+            if (colon == -1) {
+                return null;
+            }
+            return new String[]{credentials.substring(0, colon), credentials.substring(colon + 1)};
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private Response buildErrorResponse(Response.Status status, String error, String errorDescription) {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.error = error;
+        errorResponse.error_description = errorDescription;
+        return Response.status(status).entity(errorResponse).build();
     }
 }
@@ -0,0 +1,134 @@
+package dev.abstratium.abstrauth.boundary.oauth;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.ExampleObject;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import dev.abstratium.abstrauth.service.StatusListService;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * Token Status List endpoint (OAuth Token Status List draft, JSON format).
+ *
+ * Access tokens carry a claim {@code "status":{"status_list":{"idx":...,"uri":...}}}; a resource
+ * server downloads the list from the uri and checks the bit at idx, which is set once the token
+ * has been revoked. The list is zlib-compressed, so a list that is mostly clear is tiny. It is
+ * public, like the JWKS, as it reveals nothing but which indexes are revoked. Responses carry an
+ * ETag and a short max-age, so that clients can poll it cheaply with If-None-Match.
+ * See StatusListService.
+ */
+@Path("/oauth2/status-list")
+@Tag(name = "OAuth 2.0 Token", description = "OAuth 2.0 Token management endpoints")
+public class StatusListResource {
+
+    public static final String STATUS_LIST_JSON = "application/statuslist+json";
+
+    @Inject
+    StatusListService statusListService;
+
+    @ConfigProperty(name = "abstrauth.status-list.max-age.seconds", defaultValue = "60")
+    int maxAgeSeconds;
+
+    @GET
+    @Produces(STATUS_LIST_JSON)
+    @Operation(
+        summary = "Token Status List",
+        description = "Returns the status list referenced by the status claim of access tokens: one bit per token, " +
+                     "set if the token has been revoked. 'lst' is the zlib-compressed bit string, base64url-encoded; " +
+                     "the bit of index i is bit i % 8 (least significant first) of byte i / 8. Supports If-None-Match."
+    )
+    @APIResponses({
+        @APIResponse(
+            responseCode = "200",
+            description = "The status list",
+            content = @Content(
+                mediaType = STATUS_LIST_JSON,
+                schema = @Schema(implementation = StatusListResponse.class),
+                examples = @ExampleObject(
+                    name = "Status list",
+                    value = """
+                    {
+                        "sub": "https://auth.example.com/oauth2/status-list",
+                        "iat": 1760000000,
+                        "ttl": 60,
+                        "status_list": {
+                            "bits": 1,
+                            "lst": "eNrbuRgAAhcBXQ"
+                        }
+                    }
+                    """
+                )
+            )
+        ),
+        @APIResponse(responseCode = "304", description = "The status list has not changed since the ETag given in If-None-Match")
+    })
+    public Response statusList(@Context Request request) {
+        StatusListService.Rendered rendered = statusListService.render();
+        // weak, as iat differs between renderings (and instances) of the same bits
+        EntityTag etag = new EntityTag(rendered.etag(), true);
+        String cacheControl = "public, max-age=" + maxAgeSeconds;
+
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            return notModified.header("Cache-Control", cacheControl).build();
+        }
+
+        StatusListResponse response = new StatusListResponse();
+        response.sub = statusListService.getUri();
+        response.iat = rendered.iat();
+        response.ttl = maxAgeSeconds;
+        response.status_list = new StatusList();
+        response.status_list.bits = 1;
+        response.status_list.lst = rendered.lst();
+        return Response.ok(response).tag(etag).header("Cache-Control", cacheControl).build();
+    }
+
+    /**
+     * Status List in JSON format.
+     */
+    @RegisterForReflection
+    @Schema(description = "Token Status List")
+    public static class StatusListResponse {
+
+        @Schema(description = "URI of the status list, as in the status claim of the tokens",
+                examples = "https://auth.example.com/oauth2/status-list", required = true)
+        public String sub;
+
+        @Schema(description = "When the list was rendered (seconds since epoch)", examples = "1760000000", required = true)
+        public long iat;
+
+        @Schema(description = "Seconds the list may be cached", examples = "60")
+        public int ttl;
+
+        @Schema(required = true)
+        public StatusList status_list;
+    }
+
+    /**
+     * The bits of the list.
+     */
+    @RegisterForReflection
+    @Schema(description = "Status bits")
+    public static class StatusList {
+
+        @Schema(description = "Bits per token: 1 (0 = valid, 1 = revoked)", examples = "1", required = true)
+        public int bits;
+
+        @Schema(description = "zlib-compressed bit string, base64url-encoded without padding",
+                examples = "eNrbuRgAAhcBXQ", required = true)
+        public String lst;
+    }
+}
@@ -0,0 +1,186 @@
+package dev.abstratium.abstrauth.boundary.oauth;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import jakarta.inject.Inject;
+import jakarta.json.JsonObject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.ExampleObject;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.logging.Logger;
+
+import dev.abstratium.abstrauth.boundary.ErrorResponse;
+import dev.abstratium.abstrauth.service.AccountProfileCache;
+import dev.abstratium.abstrauth.service.AccountProfileCache.AccountProfile;
+import dev.abstratium.abstrauth.service.IntrospectionService;
+import dev.abstratium.abstrauth.service.ReferenceTokenService;
+
+/**
+ * OpenID Connect UserInfo Endpoint
+ * OpenID Connect Core 1.0 Section 5.3
+ *
+ * Unlike /api/userinfo, which serves the BFF's own session cookie, this endpoint accepts any
+ * access token issued by abstrauth (or a reference token) as a bearer token and returns the
+ * claims of the account it was issued for, filtered by the token's scopes in the same way as
+ * the claims of the access token itself. The token is checked by the IntrospectionService and
+ * the claims are read from the AccountProfileCache, so repeated calls need no queries.
+ */
+@Path("/oauth2/userinfo")
+@Tag(name = "OAuth 2.0 Token", description = "OAuth 2.0 Token management endpoints")
+public class UserInfoEndpointResource {
+
+    private static final Logger log = Logger.getLogger(UserInfoEndpointResource.class);
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    @Inject
+    IntrospectionService introspectionService;
+
+    @Inject
+    ReferenceTokenService referenceTokenService;
+
+    @Inject
+    AccountProfileCache accountProfileCache;
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(
+        summary = "UserInfo Endpoint",
+        description = "Returns the claims of the account the bearer access token was issued for. " +
+                     "'sub' is always returned, 'email' and 'email_verified' with the 'email' scope, " +
+                     "'name' and 'picture' with the 'profile' scope."
+    )
+    @APIResponses({
+        @APIResponse(
+            responseCode = "200",
+            description = "Claims of the account",
+            content = @Content(
+                mediaType = MediaType.APPLICATION_JSON,
+                examples = @ExampleObject(
+                    name = "Profile and Email Scopes",
+                    value = """
+                    {
+                        "sub": "0b7c2d9e-1f3a-4b5c-8d6e-7f8091a2b3c4",
+                        "email": "john.doe@example.com",
+                        "email_verified": true,
+                        "name": "John Doe"
+                    }
+                    """
+                )
+            )
+        ),
+        @APIResponse(
+            responseCode = "401",
+            description = "Missing, invalid, expired or revoked access token, or a token not issued for an account",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON)
+        )
+    })
+    public Response userInfo(@Context HttpHeaders headers) {
+        return respond(bearerToken(headers));
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(
+        summary = "UserInfo Endpoint (POST)",
+        description = "Same as GET. The access token may also be sent in the 'access_token' form " +
+                     "parameter (RFC 6750 Section 2.2)."
+    )
+    public Response userInfoPost(
+        @Context HttpHeaders headers,
+
+        @Parameter(
+            description = "The access token, if not sent in the Authorization header",
+            required = false
+        )
+        @FormParam("access_token") String accessToken
+    ) {
+        String token = bearerToken(headers);
+        return respond(token != null ? token : accessToken);
+    }
+
+    private Response respond(String token) {
+        if (token == null || token.isBlank()) {
+            return Response.status(Response.Status.UNAUTHORIZED)
+                    .header(HttpHeaders.WWW_AUTHENTICATE, "Bearer")
+                    .build();
+        }
+
+        Optional<String> jwt = ReferenceTokenService.isHandle(token)
+                ? referenceTokenService.resolve(token)
+                : Optional.of(token);
+        Optional<JsonObject> claims = jwt.flatMap(introspectionService::activeClaims);
+        if (claims.isEmpty()) {
+            return invalidToken("The access token is invalid, expired or revoked");
+        }
+
+        // client_credentials tokens have no account behind them
+        Optional<AccountProfile> profile = accountProfileCache.find(claims.get().getString("sub", null));
+        if (profile.isEmpty()) {
+            return invalidToken("The access token was not issued for an account");
+        }
+        log.debugf("UserInfo for account %s", profile.get().id());
+        return Response.ok(filterClaims(profile.get(), parseScopes(claims.get().getString("scope", null)))).build();
+    }
+
+    /**
+     * Scope-based claim filtering, as for the claims of the access token
+     * (OpenID Connect Core 1.0 Section 5.4).
+     */
+    private static Map<String, Object> filterClaims(AccountProfile profile, Set<String> scopes) {
+        Map<String, Object> userInfo = new LinkedHashMap<>();
+        userInfo.put("sub", profile.id());
+        if (scopes.contains("email")) {
+            userInfo.put("email", profile.email());
+            userInfo.put("email_verified", Boolean.TRUE.equals(profile.emailVerified()));
+        }
+        if (scopes.contains("profile")) {
+            userInfo.put("name", profile.name());
+            if (profile.picture() != null) {
+                userInfo.put("picture", profile.picture());
+            }
+        }
+        return userInfo;
+    }
+
+    private static Set<String> parseScopes(String scope) {
+        if (scope == null || scope.isBlank()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(Arrays.asList(scope.trim().split("\\s+")));
+    }
+
+    private static String bearerToken(HttpHeaders headers) {
+        String authHeader = headers.getHeaderString(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith(BEARER_PREFIX)) {
+            return null;
+        }
+        return authHeader.substring(BEARER_PREFIX.length()).trim();
+    }
+
+    private static Response invalidToken(String errorDescription) {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.error = "invalid_token";
+        errorResponse.error_description = errorDescription;
+        return Response.status(Response.Status.UNAUTHORIZED)
+                .header(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"")
+                .type(MediaType.APPLICATION_JSON)
+                .entity(errorResponse)
+                .build();
+    }
+}
@@ -1,6 +1,6 @@
 package dev.abstratium.abstrauth.boundary.oauth;
 
-import jakarta.annotation.PostConstruct;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
@@ -14,14 +14,17 @@ import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import dev.abstratium.abstrauth.service.SigningKeyRing;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 
-import java.security.KeyFactory;
-import java.security.NoSuchAlgorithmException;
+import java.math.BigInteger;
+import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPublicKey;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.RSAPublicKeySpec;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
 
 /**
  * OAuth 2.0 Discovery and JWKS Endpoints
@@ -32,8 +35,8 @@ import java.util.Base64;
 @Tag(name = "OAuth 2.0 Discovery", description = "OAuth 2.0 server metadata and key discovery")
 public class WellKnownResource {
 
-    @ConfigProperty(name = "smallrye.jwt.sign.key")
-    String privateKeyPem;
+    @Inject
+    SigningKeyRing signingKeyRing;
 
     @ConfigProperty(name = "mp.jwt.verify.issuer")
     String issuer;
@@ -41,7 +44,7 @@ public class WellKnownResource {
     @ConfigProperty(name = "server.base.url", defaultValue = "http://localhost:8080")
     String baseUrl;
 
-    JwksResponse jwksResponse;
+    private volatile CachedJwks cachedJwks;
 
     @GET
     @Path("/oauth-authorization-server")
@@ -92,6 +95,7 @@ public class WellKnownResource {
         metadata.authorization_endpoint = baseUrl + "/oauth2/authorize";
         metadata.token_endpoint = baseUrl + "/oauth2/token";
         metadata.introspection_endpoint = baseUrl + "/oauth2/introspect";
+        metadata.userinfo_endpoint = baseUrl + "/oauth2/userinfo";
         metadata.revocation_endpoint = baseUrl + "/oauth2/revoke";
         metadata.end_session_endpoint = baseUrl + "/api/auth/logout";
         metadata.jwks_uri = baseUrl + "/.well-known/jwks.json";
@@ -123,63 +127,66 @@ public class WellKnownResource {
         )
     })
     public Response jwks() {
-        return Response.ok(this.jwksResponse).build();
+        return Response.ok(buildJwks()).build();
     }
     
-    @PostConstruct
-    public void init() throws NoSuchAlgorithmException, InvalidKeySpecException {
-        RSAPublicKey publicKey = extractPublicKey(privateKeyPem);
-        
-        JwkKey jwkKey = new JwkKey();
-        jwkKey.kty = "RSA";
-        jwkKey.use = "sig";
-        jwkKey.kid = "abstrauth-key-1";
-        jwkKey.alg = "PS256";
-        
-        // Extract modulus (n) and exponent (e) from public key
-        jwkKey.n = Base64.getUrlEncoder().withoutPadding()
-            .encodeToString(publicKey.getModulus().toByteArray());
-        jwkKey.e = Base64.getUrlEncoder().withoutPadding()
-            .encodeToString(publicKey.getPublicExponent().toByteArray());
-        
+    /**
+     * Build the JWKS from the keys of the ring. The static RSA key always comes first.
+     * The result is cached until the ring publishes a different set of keys.
+     */
+    JwksResponse buildJwks() {
+        List<SigningKeyRing.PublishedKey> keys = signingKeyRing.publishedKeys();
+        CachedJwks cached = this.cachedJwks;
+        if (cached != null && cached.keys() == keys) {
+            return cached.response();
+        }
+
         JwksResponse response = new JwksResponse();
-        response.keys = new JwkKey[]{jwkKey};
+        response.keys = keys.stream().map(WellKnownResource::toJwk).toArray(JwkKey[]::new);
+        this.cachedJwks = new CachedJwks(keys, response);
+        return response;
+    }
 
-        this.jwksResponse = response;
+    static JwkKey toJwk(SigningKeyRing.PublishedKey key) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        JwkKey jwkKey = new JwkKey();
+        jwkKey.use = "sig";
+        jwkKey.kid = key.kid();
+        jwkKey.alg = key.algorithm();
+
+        if (key.publicKey() instanceof RSAPublicKey rsa) {
+            // Extract modulus (n) and exponent (e) from public key
+            jwkKey.kty = "RSA";
+            jwkKey.n = encoder.encodeToString(rsa.getModulus().toByteArray());
+            jwkKey.e = encoder.encodeToString(rsa.getPublicExponent().toByteArray());
+        } else if (key.publicKey() instanceof ECPublicKey ec) {
+            // RFC 7518 6.2.1: coordinates are unsigned and padded to the field size
+            jwkKey.kty = "EC";
+            jwkKey.crv = "P-256";
+            jwkKey.x = encoder.encodeToString(unsigned(ec.getW().getAffineX(), 32));
+            jwkKey.y = encoder.encodeToString(unsigned(ec.getW().getAffineY(), 32));
+        } else {
+            // RFC 8037: Ed25519 public keys are the raw 32 bytes, which end the X.509 encoding
+            byte[] encoded = key.publicKey().getEncoded();
+            jwkKey.kty = "OKP";
+            jwkKey.crv = "Ed25519";
+            jwkKey.x = encoder.encodeToString(Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length));
+        }
+        return jwkKey;
     }
-    
-    /**
-     * Extract RSA public key from PEM-encoded private key
-     */
-    private RSAPublicKey extractPublicKey(String privateKeyPem) throws NoSuchAlgorithmException, InvalidKeySpecException {
-        // Remove PEM headers/footers and whitespace
-        String keyContent = privateKeyPem
-            .replaceAll("-----BEGIN.*?-----", "")
-            .replaceAll("-----END.*?-----", "")
-            .replaceAll("\\s+", "");
-        
-        byte[] keyBytes = Base64.getDecoder().decode(keyContent);
-        
-        // Parse PKCS#8 format to extract RSA key components
-        // This is a simplified parser for RSA keys
-        java.security.KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-        java.security.spec.PKCS8EncodedKeySpec keySpec = new java.security.spec.PKCS8EncodedKeySpec(keyBytes);
-        java.security.PrivateKey privateKey = keyFactory.generatePrivate(keySpec);
-        
-        // Get the public key from the private key
-        if (privateKey instanceof java.security.interfaces.RSAPrivateCrtKey) {
-            java.security.interfaces.RSAPrivateCrtKey rsaPrivateKey = 
-                (java.security.interfaces.RSAPrivateCrtKey) privateKey;
-            
-            RSAPublicKeySpec publicKeySpec = new RSAPublicKeySpec(
-                rsaPrivateKey.getModulus(),
-                rsaPrivateKey.getPublicExponent()
-            );
-            
-            return (RSAPublicKey) keyFactory.generatePublic(publicKeySpec);
+
+    private static byte[] unsigned(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length == length) {
+            return bytes;
         }
-        
-        throw new IllegalArgumentException("Private key is not an RSA CRT key");
+        byte[] result = new byte[length];
+        int copy = Math.min(bytes.length, length);
+        System.arraycopy(bytes, bytes.length - copy, result, length - copy, copy);
+        return result;
+    }
+
+    private record CachedJwks(List<SigningKeyRing.PublishedKey> keys, JwksResponse response) {
     }
 
     @RegisterForReflection
@@ -197,6 +204,9 @@ public class WellKnownResource {
         @Schema(description = "Token introspection endpoint URL", examples = "https://auth.example.com/oauth2/introspect")
         public String introspection_endpoint;
 
+        @Schema(description = "UserInfo endpoint URL", examples = "https://auth.example.com/oauth2/userinfo")
+        public String userinfo_endpoint;
+
         @Schema(description = "Token revocation endpoint URL", examples = "https://auth.example.com/oauth2/revoke")
         public String revocation_endpoint;
 
@@ -230,6 +240,7 @@ public class WellKnownResource {
     }
 
     @RegisterForReflection
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     @Schema(description = "JSON Web Key")
     public static class JwkKey {
         @Schema(description = "Key type", examples = "RSA")
@@ -249,5 +260,14 @@ public class WellKnownResource {
 
         @Schema(description = "RSA exponent")
         public String e;
+
+        @Schema(description = "Curve of an EC or OKP key", examples = "P-256")
+        public String crv;
+
+        @Schema(description = "EC x coordinate, or the OKP public key")
+        public String x;
+
+        @Schema(description = "EC y coordinate")
+        public String y;
     }
 }
@@ -1,18 +1,28 @@
 package dev.abstratium.abstrauth.entity;
 
 import jakarta.persistence.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
 import java.util.UUID;
 
+/**
+ * An authorization code issued by the authorization endpoint.
+ * The primary key is the SHA-256 digest of the code (see {@link #idForCode(String)}), so the code
+ * itself is never stored and redeeming it is a primary key lookup. The plaintext is only held in
+ * memory by the instance that generated it, for building the redirect.
+ */
 @Entity
 @Table(name = "T_authorization_codes")
 public class AuthorizationCode {
 
     @Id
-    @Column(length = 36)
+    @Column(length = 64)
     private String id;
 
-    @Column(nullable = false, unique = true)
+    @Transient
     private String code;
 
     @Column(name = "authorization_request_id", nullable = false, length = 36)
@@ -48,7 +58,7 @@ public class AuthorizationCode {
     @PrePersist
     public void prePersist() {
         if (id == null) {
-            id = UUID.randomUUID().toString();
+            id = code != null ? idForCode(code) : UUID.randomUUID().toString();
         }
         if (createdAt == null) {
             createdAt = LocalDateTime.now();
@@ -154,4 +164,16 @@ public class AuthorizationCode {
     public void setExpiresAt(LocalDateTime expiresAt) {
         this.expiresAt = expiresAt;
     }
+
+    /**
+     * The primary key of the code: its SHA-256 digest, hex encoded.
+     */
+    public static String idForCode(String code) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(code.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
 }
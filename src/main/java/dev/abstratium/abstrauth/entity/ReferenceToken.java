@@ -0,0 +1,88 @@
+package dev.abstratium.abstrauth.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A reference (opaque) access token: the SHA-256 digest of the handle handed to the client and
+ * the JWT it stands for. See ReferenceTokenService.
+ */
+@Entity
+@Table(name = "T_reference_tokens")
+public class ReferenceToken {
+
+    @Id
+    @Column(name = "handle_hash", length = 64)
+    private String handleHash;
+
+    @Column(name = "access_token_jti", nullable = false, length = 36)
+    private String accessTokenJti;
+
+    @Column(name = "client_id", nullable = false)
+    private String clientId;
+
+    @Column(name = "access_token", nullable = false, columnDefinition = "TEXT")
+    private String accessToken;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @PrePersist
+    public void prePersist() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    // Getters and setters
+    public String getHandleHash() {
+        return handleHash;
+    }
+
+    public void setHandleHash(String handleHash) {
+        this.handleHash = handleHash;
+    }
+
+    public String getAccessTokenJti() {
+        return accessTokenJti;
+    }
+
+    public void setAccessTokenJti(String accessTokenJti) {
+        this.accessTokenJti = accessTokenJti;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public void setAccessToken(String accessToken) {
+        this.accessToken = accessToken;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
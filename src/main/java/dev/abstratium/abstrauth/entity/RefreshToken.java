@@ -0,0 +1,218 @@
+package dev.abstratium.abstrauth.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A refresh token, stored only as the SHA-256 digest of the token value.
+ * All tokens rotated from the same authorization code share a family_id.
+ * See RefreshTokenService.
+ */
+@Entity
+@Table(name = "T_refresh_tokens")
+public class RefreshToken {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "token_hash", nullable = false, unique = true, length = 64)
+    private String tokenHash;
+
+    @Column(name = "family_id", nullable = false, length = 36)
+    private String familyId;
+
+    @Column(name = "account_id", nullable = false, length = 36)
+    private String accountId;
+
+    @Column(name = "client_id", nullable = false)
+    private String clientId;
+
+    @Column(name = "org_id", length = 36)
+    private String orgId;
+
+    @Column(length = 500)
+    private String scope;
+
+    @Column(name = "auth_method", length = 50)
+    private String authMethod;
+
+    @Column(name = "authorization_code_id", length = 64)
+    private String authorizationCodeId;
+
+    @Column(name = "access_token_jti", length = 36)
+    private String accessTokenJti;
+
+    // index of the access token in the status list (see StatusListService), if it has one
+    @Column(name = "access_token_status_idx")
+    private Integer accessTokenStatusIdx;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "family_expires_at", nullable = false)
+    private LocalDateTime familyExpiresAt;
+
+    @Column(name = "used_at")
+    private LocalDateTime usedAt;
+
+    @Column(name = "revoked_at")
+    private LocalDateTime revokedAt;
+
+    @Column(name = "revoked_reason", length = 100)
+    private String revokedReason;
+
+    @PrePersist
+    public void prePersist() {
+        if (id == null) {
+            id = UUID.randomUUID().toString();
+        }
+        if (familyId == null) {
+            familyId = id;
+        }
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    // Getters and setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getTokenHash() {
+        return tokenHash;
+    }
+
+    public void setTokenHash(String tokenHash) {
+        this.tokenHash = tokenHash;
+    }
+
+    public String getFamilyId() {
+        return familyId;
+    }
+
+    public void setFamilyId(String familyId) {
+        this.familyId = familyId;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(String accountId) {
+        this.accountId = accountId;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getOrgId() {
+        return orgId;
+    }
+
+    public void setOrgId(String orgId) {
+        this.orgId = orgId;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+
+    public String getAuthMethod() {
+        return authMethod;
+    }
+
+    public void setAuthMethod(String authMethod) {
+        this.authMethod = authMethod;
+    }
+
+    public String getAuthorizationCodeId() {
+        return authorizationCodeId;
+    }
+
+    public void setAuthorizationCodeId(String authorizationCodeId) {
+        this.authorizationCodeId = authorizationCodeId;
+    }
+
+    public String getAccessTokenJti() {
+        return accessTokenJti;
+    }
+
+    public void setAccessTokenJti(String accessTokenJti) {
+        this.accessTokenJti = accessTokenJti;
+    }
+
+    public Integer getAccessTokenStatusIdx() {
+        return accessTokenStatusIdx;
+    }
+
+    public void setAccessTokenStatusIdx(Integer accessTokenStatusIdx) {
+        this.accessTokenStatusIdx = accessTokenStatusIdx;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public LocalDateTime getFamilyExpiresAt() {
+        return familyExpiresAt;
+    }
+
+    public void setFamilyExpiresAt(LocalDateTime familyExpiresAt) {
+        this.familyExpiresAt = familyExpiresAt;
+    }
+
+    public LocalDateTime getUsedAt() {
+        return usedAt;
+    }
+
+    public void setUsedAt(LocalDateTime usedAt) {
+        this.usedAt = usedAt;
+    }
+
+    public LocalDateTime getRevokedAt() {
+        return revokedAt;
+    }
+
+    public void setRevokedAt(LocalDateTime revokedAt) {
+        this.revokedAt = revokedAt;
+    }
+
+    public String getRevokedReason() {
+        return revokedReason;
+    }
+
+    public void setRevokedReason(String revokedReason) {
+        this.revokedReason = revokedReason;
+    }
+}
@@ -0,0 +1,96 @@
+package dev.abstratium.abstrauth.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * The "not before" time of an account, client, organisation or membership of an account in an
+ * organisation: all tokens issued to the subject at or before it are revoked. See
+ * RevocationEpochService.
+ */
+@Entity
+@Table(name = "T_revocation_epochs")
+public class RevocationEpoch {
+
+    public static final String ACCOUNT = "ACCOUNT";
+    public static final String CLIENT = "CLIENT";
+    public static final String ORG = "ORG";
+    // an account within one organisation, see memberId
+    public static final String MEMBER = "MEMBER";
+
+    /**
+     * The subject id of a MEMBER epoch.
+     */
+    public static String memberId(String accountId, String orgId) {
+        return accountId + '/' + orgId;
+    }
+
+    @Embeddable
+    public static class Id implements Serializable {
+
+        @Column(name = "subject_type", nullable = false, length = 10)
+        private String subjectType;
+
+        @Column(name = "subject_id", nullable = false, length = 255)
+        private String subjectId;
+
+        public Id() {}
+
+        public Id(String subjectType, String subjectId) {
+            this.subjectType = subjectType;
+            this.subjectId = subjectId;
+        }
+
+        public String getSubjectType() { return subjectType; }
+        public void setSubjectType(String subjectType) { this.subjectType = subjectType; }
+        public String getSubjectId() { return subjectId; }
+        public void setSubjectId(String subjectId) { this.subjectId = subjectId; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Id)) return false;
+            Id id = (Id) o;
+            return Objects.equals(subjectType, id.subjectType) &&
+                   Objects.equals(subjectId, id.subjectId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(subjectType, subjectId);
+        }
+    }
+
+    @EmbeddedId
+    private Id id = new Id();
+
+    // seconds since the epoch, like the iat claim
+    @Column(name = "not_before", nullable = false)
+    private long notBefore;
+
+    @Column(nullable = false, length = 100)
+    private String reason;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public Id getId() { return id; }
+    public void setId(Id id) { this.id = id; }
+
+    public long getNotBefore() { return notBefore; }
+    public void setNotBefore(long notBefore) { this.notBefore = notBefore; }
+
+    public String getReason() { return reason; }
+    public void setReason(String reason) { this.reason = reason; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -25,12 +25,16 @@ public class RevokedToken {
     @Column(nullable = false, length = 100)
     private String reason;
 
-    @Column(name = "authorization_code_id", length = 36)
+    @Column(name = "authorization_code_id", length = 64)
     private String authorizationCodeId;
 
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // exp of the revoked token; the row is purged after it, when the token is no longer usable anyway
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
     @PrePersist
     public void prePersist() {
         if (id == null) {
@@ -92,4 +96,12 @@ public class RevokedToken {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
 }
@@ -0,0 +1,106 @@
+package dev.abstratium.abstrauth.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * A managed JWT signing key of the key ring (ES256 or EdDSA).
+ * Not tenant specific and not audited - keys belong to the server, not to an organisation.
+ * See SigningKeyRing for the lifecycle.
+ */
+@Entity
+@Table(name = "T_signing_keys")
+public class SigningKey {
+
+    @Id
+    @Column(length = 64)
+    private String kid;
+
+    @Column(nullable = false, length = 10)
+    private String algorithm;
+
+    // AES-GCM encrypted PKCS#8 private key, base64
+    @Column(name = "private_key", nullable = false, length = 2000)
+    private String privateKey;
+
+    // X.509 encoded public key, base64
+    @Column(name = "public_key", nullable = false, length = 2000)
+    private String publicKey;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt = Instant.now();
+
+    @Column(name = "activates_at", nullable = false)
+    private Instant activatesAt;
+
+    @Column(name = "retires_at", nullable = false)
+    private Instant retiresAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    // Getters and setters
+    public String getKid() {
+        return kid;
+    }
+
+    public void setKid(String kid) {
+        this.kid = kid;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public String getPrivateKey() {
+        return privateKey;
+    }
+
+    public void setPrivateKey(String privateKey) {
+        this.privateKey = privateKey;
+    }
+
+    public String getPublicKey() {
+        return publicKey;
+    }
+
+    public void setPublicKey(String publicKey) {
+        this.publicKey = publicKey;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getActivatesAt() {
+        return activatesAt;
+    }
+
+    public void setActivatesAt(Instant activatesAt) {
+        this.activatesAt = activatesAt;
+    }
+
+    public Instant getRetiresAt() {
+        return retiresAt;
+    }
+
+    public void setRetiresAt(Instant retiresAt) {
+        this.retiresAt = retiresAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,27 @@
+package dev.abstratium.abstrauth.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * The single row holding the round-robin position of the next status list chunk to lease.
+ * Locking it serialises leasing across instances. See StatusListService.
+ */
+@Entity
+@Table(name = "T_status_list_allocations")
+public class StatusListAllocation {
+
+    public static final int ID = 1;
+
+    @Id
+    private int id;
+
+    // not reduced modulo the number of chunks, so that the list can be resized
+    @Column(name = "next_chunk", nullable = false)
+    private long nextChunk;
+
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+
+    public long getNextChunk() { return nextChunk; }
+    public void setNextChunk(long nextChunk) { this.nextChunk = nextChunk; }
+}
@@ -0,0 +1,54 @@
+package dev.abstratium.abstrauth.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A chunk of consecutive indexes of the token status list, with one bit per index that is set
+ * when the token with that index is revoked. See StatusListService.
+ */
+@Entity
+@Table(name = "T_status_list_chunks")
+public class StatusListChunk {
+
+    @Id
+    @Column(name = "chunk_no")
+    private int chunkNo;
+
+    // index 0 of the chunk is the least significant bit of the first byte
+    @Lob
+    @Column(nullable = false)
+    private byte[] bits;
+
+    // incremented on every change
+    @Column(nullable = false)
+    private long version;
+
+    // when the chunk was last leased to an instance for issuing tokens
+    @Column(name = "allocated_at", nullable = false)
+    private LocalDateTime allocatedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public int getChunkNo() { return chunkNo; }
+    public void setChunkNo(int chunkNo) { this.chunkNo = chunkNo; }
+
+    public byte[] getBits() { return bits; }
+    public void setBits(byte[] bits) { this.bits = bits; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public LocalDateTime getAllocatedAt() { return allocatedAt; }
+    public void setAllocatedAt(LocalDateTime allocatedAt) { this.allocatedAt = allocatedAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
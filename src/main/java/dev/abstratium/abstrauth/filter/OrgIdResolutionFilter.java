@@ -1,17 +1,15 @@
 package dev.abstratium.abstrauth.filter;
 
-import io.quarkus.oidc.IdToken;
 import jakarta.annotation.Priority;
-import jakarta.enterprise.inject.Instance;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Priorities;
 import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.container.ContainerRequestFilter;
 import jakarta.ws.rs.ext.Provider;
-import org.eclipse.microprofile.jwt.JsonWebToken;
 import org.jboss.logging.Logger;
 
 import dev.abstratium.abstrauth.service.CurrentOrgContext;
+import dev.abstratium.abstrauth.service.RequestTokenContext;
 
 import java.io.IOException;
 
@@ -20,8 +18,8 @@ import java.io.IOException;
  * the request-scoped {@link CurrentOrgContext}.
  *
  * <p>This filter runs <em>after</em> authentication (OIDC cookie or MP-JWT
- * Bearer) so that the injected tokens are fully populated, then makes the
- * organisation identifier available to {@link dev.abstratium.abstrauth.service.JwtOrgResolver}
+ * Bearer) so that the verified token is available from the {@link RequestTokenContext},
+ * then makes the organisation identifier available to {@link dev.abstratium.abstrauth.service.JwtOrgResolver}
  * without duplicating cookie-decryption logic.</p>
  */
 @Provider
@@ -34,60 +32,19 @@ public class OrgIdResolutionFilter implements ContainerRequestFilter {
     CurrentOrgContext currentOrgContext;
 
     @Inject
-    @IdToken
-    Instance<JsonWebToken> idTokenInstance;
-
-    @Inject
-    Instance<JsonWebToken> accessTokenInstance;
+    RequestTokenContext requestTokenContext;
 
     @Override
     public void filter(ContainerRequestContext requestContext) throws IOException {
         currentOrgContext.setRequestPath(requestContext.getUriInfo().getPath());
         currentOrgContext.setRequestMethod(requestContext.getMethod());
 
-        String orgId = extractOrgIdFromIdToken();
-        if (orgId == null) {
-            orgId = extractOrgIdFromAccessToken();
-        }
+        RequestTokenContext.TokenClaims claims = requestTokenContext.claims();
+        String orgId = claims != null ? claims.orgId() : null;
         if (orgId != null && !orgId.isBlank()) {
             currentOrgContext.setOrgId(orgId);
             log.debugv("Resolved orgId={0} for request {1}", orgId, requestContext.getUriInfo().getPath());
-            return;
-        }
-    }
-
-    private String extractOrgIdFromIdToken() {
-        if (idTokenInstance != null && idTokenInstance.isResolvable()) {
-            try {
-                Object claim = idTokenInstance.get().getClaim("orgId");
-                if (claim != null) {
-                    String orgId = claim.toString();
-                    if (!orgId.isBlank()) {
-                        return orgId;
-                    }
-                }
-            } catch (Exception e) {
-                log.debug("Failed to extract orgId from ID token", e);
-            }
-        }
-        return null;
-    }
-
-    private String extractOrgIdFromAccessToken() {
-        if (accessTokenInstance != null && accessTokenInstance.isResolvable()) {
-            try {
-                Object claim = accessTokenInstance.get().getClaim("orgId");
-                if (claim != null) {
-                    String orgId = claim.toString();
-                    if (!orgId.isBlank()) {
-                        return orgId;
-                    }
-                }
-            } catch (Exception e) {
-                log.debug("Failed to extract orgId from access token", e);
-            }
         }
-        return null;
     }
 
 }
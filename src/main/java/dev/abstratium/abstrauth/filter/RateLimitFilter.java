@@ -1,10 +1,10 @@
 package dev.abstratium.abstrauth.filter;
 
 import java.io.IOException;
-import java.time.Instant;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
@@ -19,11 +19,24 @@ import jakarta.ws.rs.ext.Provider;
 /**
  * Rate Limiting Filter for OAuth endpoints.
  * 
- * Implements a sliding window rate limiter to prevent abuse and brute-force attacks
- * on authentication endpoints. Uses in-memory storage (suitable for single-instance
- * deployments; use Redis/distributed cache for multi-instance).
+ * Implements a token bucket per IP address to prevent abuse and brute-force attacks on
+ * authentication endpoints: a bucket holds up to max-requests tokens and refills at
+ * max-requests per window, so bursts are bounded without the doubled burst a fixed window
+ * allows at its boundaries. An IP that runs out of tokens is banned for the ban duration.
+ * Uses in-memory storage (suitable for single-instance deployments; use Redis/distributed
+ * cache for multi-instance).
  * 
- * Rate limits are applied per IP address.
+ * Each bucket is a single long, its theoretical arrival time (the token bucket in GCRA
+ * form): the time at which the bucket will be full again, pushed forward by one emission
+ * interval per request, and past the ban when the IP is banned. It is updated with CAS, so
+ * the hot path neither locks nor allocates once the IP is known.
+ * 
+ * Buckets live in two generations. Requests move their bucket to the current generation,
+ * and the generations are rotated once the longest meaningful bucket lifetime has passed, so
+ * that the previous generation only holds buckets that are full again and can be dropped as
+ * a whole. If the current generation reaches max-entries / 2 before that, it is rotated
+ * early, which sheds the least recently used IPs and bounds memory during an attack from
+ * many addresses.
  */
 @Provider
 @PreMatching
@@ -44,20 +57,29 @@ public class RateLimitFilter implements ContainerRequestFilter {
     @ConfigProperty(name = "rate-limit.oauth.ban-duration-seconds", defaultValue = "300")
     int banDurationSeconds;
 
-    // In-memory storage for rate limiting
-    // Key: IP address, Value: Request tracker
-    private final Map<String, RequestTracker> requestTrackers = new ConcurrentHashMap<>();
+    @ConfigProperty(name = "rate-limit.oauth.max-entries", defaultValue = "200000")
+    int maxEntries;
+
+    // Times are nanoseconds since the filter was created, so that they are never negative
+    private final long origin = System.nanoTime();
 
-    // Banned IPs (temporary bans for repeated violations)
-    private final Map<String, Instant> bannedIps = new ConcurrentHashMap<>();
+    // Buckets by IP address, in two generations; null until the first request
+    private final AtomicReference<Generations> generations = new AtomicReference<>();
 
     /**
      * Clear all rate limit tracking data.
      * Useful for testing or administrative purposes.
      */
     public void clearAll() {
-        requestTrackers.clear();
-        bannedIps.clear();
+        generations.set(null);
+    }
+
+    /**
+     * Number of IPs that currently have a bucket, in both generations.
+     */
+    long trackedIps() {
+        Generations g = generations.get();
+        return g == null ? 0 : g.current.mappingCount() + g.previous.mappingCount();
     }
 
     @Override
@@ -74,11 +96,41 @@ public class RateLimitFilter implements ContainerRequestFilter {
         }
 
         String clientIp = getClientIp(requestContext);
-        
-        // Check if IP is banned
-        if (isBanned(clientIp)) {
 
-            log.info("IP " + clientIp + " is banned, blocking request");
+        long interval = emissionInterval();
+        long burst = interval * maxRequests;
+        long now = System.nanoTime() - origin;
+        AtomicLong bucket = bucket(clientIp, now, burst);
+
+        // Take a token: allowed while the bucket is not pushed further than a full burst ahead
+        long tat;
+        long next;
+        do {
+            tat = bucket.get();
+            next = Math.max(tat, now) + interval;
+            if (next - now > burst) {
+                reject(requestContext, clientIp, bucket, tat, now, burst, interval);
+                return;
+            }
+        } while (!bucket.compareAndSet(tat, next));
+
+        // Add rate limit headers to response
+        long remaining = (burst - (next - now)) / interval;
+        requestContext.setProperty("X-RateLimit-Limit", maxRequests);
+        requestContext.setProperty("X-RateLimit-Remaining", (int) remaining);
+        requestContext.setProperty("X-RateLimit-Reset",
+                System.currentTimeMillis() / 1000 + TimeUnit.NANOSECONDS.toSeconds(next - now + 999_999_999L));
+    }
+
+    /**
+     * Refuse the request, and ban the IP unless it is banned already: the bucket is pushed so
+     * far ahead that the next token is only available once the ban has passed. Only a ban
+     * pushes a bucket more than a full burst ahead.
+     */
+    private void reject(ContainerRequestContext requestContext, String clientIp, AtomicLong bucket, long tat, long now,
+            long burst, long interval) {
+        if (tat - now > burst) {
+            log.debugf("IP %s is banned, blocking request", clientIp);
 
             requestContext.abortWith(
                 Response.status(429) // Too Many Requests
@@ -89,35 +141,76 @@ public class RateLimitFilter implements ContainerRequestFilter {
             return;
         }
 
-        // Check rate limit
-        if (isRateLimited(clientIp)) {
-            // Ban the IP temporarily for repeated violations
-            bannedIps.put(clientIp, Instant.now().plusSeconds(banDurationSeconds));
+        bucket.accumulateAndGet(now + TimeUnit.SECONDS.toNanos(banDurationSeconds) + burst - interval, Math::max);
+        log.info("Rate limit exceeded for IP: " + clientIp + ", temporarily banning");
 
-            log.info("Rate limit exceeded for IP: " + clientIp + ", temporarily banning");
-            
-            requestContext.abortWith(
-                Response.status(429) // Too Many Requests
-                    .entity("Rate limit exceeded. Too many requests from your IP address.")
-                    .header("Retry-After", banDurationSeconds)
-                    .header("X-RateLimit-Limit", String.valueOf(maxRequests))
-                    .header("X-RateLimit-Window", String.valueOf(windowSeconds))
-                    .build()
-            );
-            return;
+        requestContext.abortWith(
+            Response.status(429) // Too Many Requests
+                .entity("Rate limit exceeded. Too many requests from your IP address.")
+                .header("Retry-After", banDurationSeconds)
+                .header("X-RateLimit-Limit", String.valueOf(maxRequests))
+                .header("X-RateLimit-Window", String.valueOf(windowSeconds))
+                .build()
+        );
+    }
+
+    /**
+     * The time in which one token is added to a bucket.
+     */
+    private long emissionInterval() {
+        return Math.max(1, TimeUnit.SECONDS.toNanos(windowSeconds) / Math.max(1, maxRequests));
+    }
+
+    /**
+     * The bucket of the IP in the current generation; it is moved there from the previous
+     * generation, or created full.
+     */
+    private AtomicLong bucket(String ip, long now, long burst) {
+        Generations g = generations(now, burst);
+        AtomicLong bucket = g.current.get(ip);
+        if (bucket != null) {
+            return bucket;
+        }
+        AtomicLong previous = g.previous.get(ip);
+        AtomicLong created = previous != null ? previous : new AtomicLong();
+        bucket = g.current.putIfAbsent(ip, created);
+        if (bucket != null) {
+            return bucket;
         }
+        if (g.current.mappingCount() >= Math.max(1, maxEntries / 2)) {
+            rotate(g, now, burst);
+        }
+        return created;
+    }
 
-        // Record the request
-        recordRequest(clientIp);
-        
-        // Add rate limit headers to response
-        RequestTracker tracker = requestTrackers.get(clientIp);
-        if (tracker != null) {
-            int remaining = Math.max(0, maxRequests - tracker.getCount());
-            requestContext.setProperty("X-RateLimit-Limit", maxRequests);
-            requestContext.setProperty("X-RateLimit-Remaining", remaining);
-            requestContext.setProperty("X-RateLimit-Reset", tracker.getWindowEnd().getEpochSecond());
+    private Generations generations(long now, long burst) {
+        Generations g = generations.get();
+        if (g == null) {
+            generations.compareAndSet(null, new Generations(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                    now + lifetime(burst)));
+            g = generations.get();
+        }
+        if (now >= g.rotateAt) {
+            rotate(g, now, burst);
+            g = generations.get();
         }
+        return g;
+    }
+
+    /**
+     * Make the current generation the previous one and drop the previous one. Only one of the
+     * threads that see the same generations wins; the others use the winner's.
+     */
+    private void rotate(Generations g, long now, long burst) {
+        generations.compareAndSet(g, new Generations(new ConcurrentHashMap<>(), g.current, now + lifetime(burst)));
+    }
+
+    /**
+     * The longest time after its last request until a bucket is full again: a full burst plus
+     * a ban. A bucket that has not been used for that long can be dropped without losing state.
+     */
+    private long lifetime(long burst) {
+        return burst + TimeUnit.SECONDS.toNanos(banDurationSeconds);
     }
 
     /**
@@ -148,7 +241,8 @@ public class RateLimitFilter implements ContainerRequestFilter {
         String forwardedFor = requestContext.getHeaderString("X-Forwarded-For");
         if (forwardedFor != null && !forwardedFor.isEmpty()) {
             // X-Forwarded-For can contain multiple IPs, take the first one
-            return forwardedFor.split(",")[0].trim();
+            int comma = forwardedFor.indexOf(',');
+            return comma < 0 ? forwardedFor.trim() : forwardedFor.substring(0, comma).trim();
         }
         
         // Check X-Real-IP header (set by some reverse proxies)
@@ -163,100 +257,10 @@ public class RateLimitFilter implements ContainerRequestFilter {
     }
 
     /**
-     * Check if an IP is currently banned.
-     */
-    private boolean isBanned(String ip) {
-        Instant banExpiry = bannedIps.get(ip);
-        if (banExpiry == null) {
-            return false;
-        }
-        
-        if (Instant.now().isAfter(banExpiry)) {
-            // Ban has expired, remove it
-            bannedIps.remove(ip);
-            return false;
-        }
-        
-        return true;
-    }
-
-    /**
-     * Check if an IP has exceeded the rate limit.
+     * The buckets of the IPs seen since the last rotation, those seen in the period before, and
+     * the time of the next rotation.
      */
-    private boolean isRateLimited(String ip) {
-        RequestTracker tracker = requestTrackers.get(ip);
-        
-        if (tracker == null) {
-            return false;
-        }
-        
-        // Clean up expired window
-        if (Instant.now().isAfter(tracker.getWindowEnd())) {
-            requestTrackers.remove(ip);
-            return false;
-        }
-        
-        return tracker.getCount() >= maxRequests;
-    }
-
-    /**
-     * Record a request for rate limiting.
-     */
-    private void recordRequest(String ip) {
-        requestTrackers.compute(ip, (key, tracker) -> {
-            Instant now = Instant.now();
-            
-            if (tracker == null || now.isAfter(tracker.getWindowEnd())) {
-                // Start a new window
-                return new RequestTracker(now, windowSeconds);
-            }
-            
-            // Increment counter in current window
-            tracker.increment();
-            return tracker;
-        });
-        
-        // Cleanup old entries periodically (simple approach)
-        if (requestTrackers.size() > 10000) {
-            cleanupExpiredEntries();
-        }
-    }
-
-    /**
-     * Remove expired entries to prevent memory leaks.
-     */
-    private void cleanupExpiredEntries() {
-        Instant now = Instant.now();
-        requestTrackers.entrySet().removeIf(entry -> 
-            now.isAfter(entry.getValue().getWindowEnd())
-        );
-        bannedIps.entrySet().removeIf(entry ->
-            now.isAfter(entry.getValue())
-        );
-    }
-
-    /**
-     * Tracks requests within a time window for a single IP.
-     */
-    private static class RequestTracker {
-        private final Instant windowEnd;
-        private final AtomicInteger count;
-
-        public RequestTracker(Instant windowStart, int windowSeconds) {
-            this.windowEnd = windowStart.plusSeconds(windowSeconds);
-            this.count = new AtomicInteger(1);
-        }
-
-        public void increment() {
-            count.incrementAndGet();
-        }
-
-        public int getCount() {
-            return count.get();
-        }
-
-        public Instant getWindowEnd() {
-            return windowEnd;
-        }
+    private record Generations(ConcurrentHashMap<String, AtomicLong> current,
+            ConcurrentHashMap<String, AtomicLong> previous, long rotateAt) {
     }
 }
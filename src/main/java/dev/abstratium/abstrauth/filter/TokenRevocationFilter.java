@@ -1,5 +1,7 @@
 package dev.abstratium.abstrauth.filter;
 
+import dev.abstratium.abstrauth.service.RequestTokenContext;
+import dev.abstratium.abstrauth.service.RevocationEpochService;
 import dev.abstratium.abstrauth.service.SecurityProblemLogger;
 import dev.abstratium.abstrauth.service.TokenRevocationService;
 import jakarta.annotation.Priority;
@@ -12,11 +14,12 @@ import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.ext.Provider;
 
 import java.io.IOException;
-import java.util.Base64;
 
 /**
  * Filter that checks if a JWT token has been revoked before allowing access to protected resources.
- * This enforces token revocation for authorization code replay attacks and explicit revocations.
+ * This enforces token revocation for authorization code replay attacks and explicit revocations,
+ * and the revocation epochs of accounts, clients and organisations (see RevocationEpochService).
+ * The claims are those of the verified bearer token, from the RequestTokenContext.
  * 
  * Runs after authentication (AUTHENTICATION priority) but before authorization (AUTHORIZATION priority).
  */
@@ -30,6 +33,12 @@ public class TokenRevocationFilter implements ContainerRequestFilter {
     @Inject
     TokenRevocationService tokenRevocationService;
 
+    @Inject
+    RevocationEpochService revocationEpochService;
+
+    @Inject
+    RequestTokenContext requestTokenContext;
+
     @Override
     public void filter(ContainerRequestContext requestContext) throws IOException {
         // Extract Authorization header
@@ -40,12 +49,26 @@ public class TokenRevocationFilter implements ContainerRequestFilter {
             return;
         }
 
-        // Extract JWT token
-        String token = authHeader.substring(7);
-        
-        // Extract JTI from JWT payload
-        String jti = extractJtiFromToken(token, requestContext);
-        
+        // The userinfo endpoint checks revocation itself, through the introspection result cache
+        if (requestContext.getUriInfo().getPath().startsWith("/oauth2/userinfo")) {
+            return;
+        }
+
+        // The claims of the verified token, read once per request
+        RequestTokenContext.TokenClaims claims = requestTokenContext.claims();
+        if (claims == null) {
+            return;
+        }
+
+        // Check the revocation epochs of the token's account, client and org (in memory)
+        if (revocationEpochService.isRevoked(claims.subject(), claims.clientId(), claims.orgId(), claims.issuedAt())) {
+            securityProblemLogger.warnfNoAuth(requestContext, "Attempt to use token issued before a revocation epoch, sub: %s",
+                    claims.subject());
+            abortRevoked(requestContext);
+            return;
+        }
+
+        String jti = claims.jti();
         if (jti == null || jti.isBlank()) {
             // Tokens without JTI cannot be revoked individually
             // This is acceptable for tokens issued before the revocation system was implemented
@@ -55,52 +78,16 @@ public class TokenRevocationFilter implements ContainerRequestFilter {
         // Check if the token has been revoked
         if (tokenRevocationService.isTokenRevoked(jti)) {
             securityProblemLogger.warnfNoAuth(requestContext, "Attempt to use revoked token with JTI: %s", jti);
-            
-            requestContext.abortWith(
-                Response.status(Response.Status.UNAUTHORIZED)
-                    .entity("{\"error\": \"invalid_token\", \"error_description\": \"The access token has been revoked\"}")
-                    .type("application/json")
-                    .build()
-            );
+            abortRevoked(requestContext);
         }
     }
 
-    /**
-     * Extract JTI claim from JWT token payload.
-     * 
-     * @param token The JWT token string
-     * @return The JTI value, or null if not found
-     */
-    private String extractJtiFromToken(String token, ContainerRequestContext requestContext) {
-        try {
-            // JWT format: header.payload.signature
-            String[] parts = token.split("\\.");
-            if (parts.length != 3) {
-                securityProblemLogger.warnfNoAuth(requestContext, "Invalid JWT format in Authorization header");
-                return null;
-            }
-
-            // Decode the payload (middle part)
-            String payload = new String(Base64.getUrlDecoder().decode(parts[1]));
-            
-            // Extract JTI using simple JSON parsing
-            // Format: "jti":"<uuid>"
-            int jtiStart = payload.indexOf("\"jti\":\"");
-            if (jtiStart == -1) {
-                return null;
-            }
-            
-            jtiStart += 7; // Length of "jti":"
-            int jtiEnd = payload.indexOf("\"", jtiStart);
-            
-            if (jtiEnd == -1) {
-                return null;
-            }
-            
-            return payload.substring(jtiStart, jtiEnd);
-        } catch (Exception e) {
-            securityProblemLogger.warnfNoAuth(requestContext, "Error extracting JTI from token: %s", e.getMessage());
-            return null;
-        }
+    private void abortRevoked(ContainerRequestContext requestContext) {
+        requestContext.abortWith(
+            Response.status(Response.Status.UNAUTHORIZED)
+                .entity("{\"error\": \"invalid_token\", \"error_description\": \"The access token has been revoked\"}")
+                .type("application/json")
+                .build()
+        );
     }
 }
@@ -1,10 +1,9 @@
 package dev.abstratium.abstrauth.interceptor;
 
-import org.eclipse.microprofile.jwt.JsonWebToken;
 import org.jboss.logging.Logger;
 
 import dev.abstratium.abstrauth.service.OrganisationService;
-import io.quarkus.oidc.IdToken;
+import dev.abstratium.abstrauth.service.RequestTokenContext;
 import jakarta.annotation.Priority;
 import jakarta.inject.Inject;
 import jakarta.interceptor.AroundInvoke;
@@ -19,6 +18,9 @@ import jakarta.ws.rs.ForbiddenException;
  * This prevents security vulnerabilities where a forged JWT with an arbitrary
  * orgId claim could access data from organizations where the account is not
  * a member.
+ *
+ * The claims are read from the {@link RequestTokenContext}, which the request
+ * filters have usually resolved already.
  */
 @Interceptor
 @VerifyOrgMembership
@@ -28,16 +30,16 @@ public class OrgMembershipInterceptor {
     private static final Logger log = Logger.getLogger(OrgMembershipInterceptor.class);
 
     @Inject
-    @IdToken
-    JsonWebToken token;
+    RequestTokenContext requestTokenContext;
 
     @Inject
     OrganisationService organisationService;
 
     @AroundInvoke
     public Object verifyMembership(InvocationContext context) throws Exception {
-        String accountId = token.getSubject();
-        String orgId = token.getClaim("orgId");
+        RequestTokenContext.TokenClaims claims = requestTokenContext.claims();
+        String accountId = claims != null ? claims.subject() : null;
+        String orgId = claims != null ? claims.orgId() : null;
 
         log.debugv("Interceptor: accountId={0} orgId={1}", accountId, orgId);
 
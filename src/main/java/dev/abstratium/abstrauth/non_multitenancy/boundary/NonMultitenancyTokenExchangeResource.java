@@ -2,9 +2,11 @@ package dev.abstratium.abstrauth.non_multitenancy.boundary;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -21,19 +23,21 @@ import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.jboss.logging.Logger;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import dev.abstratium.abstrauth.boundary.ErrorResponse;
-import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyAccountRoleService;
 import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyClientSecretService;
-import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyOAuthClientService;
-import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancySubscriptionService;
-import dev.abstratium.abstrauth.service.ClientAllowedRoleService;
+import dev.abstratium.abstrauth.non_multitenancy.service.RequestLookupCache;
 import dev.abstratium.abstrauth.service.MetricsService;
-import dev.abstratium.abstrauth.service.OrganisationService;
+import dev.abstratium.abstrauth.service.RevocationEpochService;
+import dev.abstratium.abstrauth.service.SigningExecutor;
+import dev.abstratium.abstrauth.service.SigningKeyRing;
+import dev.abstratium.abstrauth.service.StatusListService;
+import dev.abstratium.abstrauth.service.TokenMinter;
 import dev.abstratium.abstrauth.service.TokenRevocationService;
+import dev.abstratium.abstrauth.util.JwtClaimsReader;
 import dev.abstratium.abstrauth.util.JwtSignatureVerifier;
-import dev.abstratium.abstrauth.util.PasswordEncoder;
 import io.quarkus.runtime.annotations.RegisterForReflection;
-import io.smallrye.jwt.build.Jwt;
 import jakarta.inject.Inject;
 import jakarta.json.Json;
 import jakarta.json.JsonObject;
@@ -67,49 +71,50 @@ public class NonMultitenancyTokenExchangeResource {
     private static final String TOKEN_TYPE_ACCESS_TOKEN = "urn:ietf:params:oauth:token-type:access_token";
 
     @Inject
-    NonMultitenancyOAuthClientService nonMultitenancyOAuthClientService;
+    NonMultitenancyClientSecretService nonMultitenancyClientSecretService;
 
     @Inject
-    NonMultitenancyClientSecretService nonMultitenancyClientSecretService;
+    TokenRevocationService tokenRevocationService;
 
     @Inject
-    NonMultitenancySubscriptionService nonMultitenancySubscriptionService;
+    RevocationEpochService revocationEpochService;
 
     @Inject
-    NonMultitenancyAccountRoleService nonMultitenancyAccountRoleService;
+    MetricsService metricsService;
 
     @Inject
-    ClientAllowedRoleService clientAllowedRoleService;
+    TokenMinter tokenMinter;
 
     @Inject
-    OrganisationService organisationService;
+    SigningKeyRing signingKeyRing;
 
     @Inject
-    TokenRevocationService tokenRevocationService;
+    SigningExecutor signingExecutor;
 
     @Inject
-    MetricsService metricsService;
+    RequestLookupCache lookups;
 
     @Inject
-    PasswordEncoder passwordEncoder;
+    StatusListService statusListService;
 
     @ConfigProperty(name = "mp.jwt.verify.issuer")
     String issuer;
 
-    @ConfigProperty(name = "mp.jwt.verify.publickey")
-    String publicKeyBase64;
-
     @ConfigProperty(name = "abstrauth.session.timeout.seconds", defaultValue = "900")
     int sessionTimeoutSeconds;
 
     @ConfigProperty(name = "abstrauth.token.exchange.max.depth", defaultValue = "3")
     int maxExchangeDepth;
 
+    @ConfigProperty(name = "abstrauth.token.exchange.batch.max.audiences", defaultValue = "20")
+    int maxBatchAudiences;
+
     private JwtSignatureVerifier jwtSignatureVerifier;
 
     @PostConstruct
     public void init() {
-        this.jwtSignatureVerifier = new JwtSignatureVerifier(publicKeyBase64);
+        // subject tokens may be signed with any key of the ring, not just the static one
+        this.jwtSignatureVerifier = new JwtSignatureVerifier(signingKeyRing::verificationKey);
     }
 
     @POST
@@ -148,6 +153,11 @@ public class NonMultitenancyTokenExchangeResource {
             responseCode = "401",
             description = "Client authentication failed",
             content = @Content(mediaType = MediaType.APPLICATION_JSON)
+        ),
+        @APIResponse(
+            responseCode = "503",
+            description = "Token signing capacity exceeded; retry after the number of seconds in the Retry-After header",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON)
         )
     })
     public Response exchange(
@@ -181,6 +191,169 @@ public class NonMultitenancyTokenExchangeResource {
         @FormParam("context") String context
     ) {
         metricsService.recordTokenExchangeRequest();
+        signingExecutor.ensureCapacity();
+
+        try {
+            List<String> audiences = audience == null || audience.isBlank() ? List.of() : List.of(audience);
+            ExchangeRequest request = validateRequest(headers, grantType, subjectToken, subjectTokenType,
+                    audiences, clientId, clientSecret, scope, context);
+            TokenExchangeResponse tokenResponse = exchangeFor(request, audience);
+            metricsService.recordTokenExchangeSuccess();
+            return Response.ok(tokenResponse).build();
+        } catch (ExchangeRejectedException e) {
+            metricsService.recordTokenExchangeFailure();
+            return buildErrorResponse(e.status, e.error, e.getMessage());
+        }
+    }
+
+    @POST
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(
+        summary = "Batch Token Exchange",
+        description = "Exchanges one abstrauth access token for one token per requested audience. The subject " +
+                      "token and the calling client are verified once, and the subscriptions and roles of all " +
+                      "audiences are read together. The parameters are those of the single exchange, with " +
+                      "'audience' repeated. An audience that cannot be exchanged gets an entry with 'error' and " +
+                      "'error_description' instead of a token; the other audiences are not affected."
+    )
+    @APIResponses({
+        @APIResponse(
+            responseCode = "200",
+            description = "One entry per distinct audience, in request order",
+            content = @Content(
+                mediaType = MediaType.APPLICATION_JSON,
+                schema = @Schema(implementation = BatchTokenExchangeResponse.class),
+                examples = @ExampleObject(value = """
+                    {
+                        "tokens": [
+                            {
+                                "audience": "orders-service",
+                                "access_token": "eyJhbGciOiJSUzI1NiIsInR5cCI6IkpXVCJ9...",
+                                "token_type": "Bearer",
+                                "expires_in": 900,
+                                "scope": "openid profile",
+                                "issued_token_type": "urn:ietf:params:oauth:token-type:access_token"
+                            },
+                            {
+                                "audience": "billing-service",
+                                "error": "unauthorized_client",
+                                "error_description": "User's organisation is not subscribed to the requested audience"
+                            }
+                        ]
+                    }
+                    """)
+            )
+        ),
+        @APIResponse(
+            responseCode = "400",
+            description = "Invalid request or invalid subject token; no tokens are issued",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON)
+        ),
+        @APIResponse(
+            responseCode = "401",
+            description = "Client authentication failed",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON)
+        ),
+        @APIResponse(
+            responseCode = "503",
+            description = "Token signing capacity exceeded; retry after the number of seconds in the Retry-After header",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON)
+        )
+    })
+    public Response exchangeBatch(
+        @Context HttpHeaders headers,
+
+        @Parameter(description = "Must be 'urn:ietf:params:oauth:grant-type:token-exchange'", required = true)
+        @FormParam("grant_type") String grantType,
+
+        @Parameter(description = "The existing abstrauth access token to exchange", required = true)
+        @FormParam("subject_token") String subjectToken,
+
+        @Parameter(description = "Must be 'urn:ietf:params:oauth:token-type:access_token'", required = true)
+        @FormParam("subject_token_type") String subjectTokenType,
+
+        @Parameter(description = "Defaults to 'urn:ietf:params:oauth:token-type:access_token'")
+        @FormParam("requested_token_type") String requestedTokenType,
+
+        @Parameter(description = "Target client_ids, one parameter per audience", required = true)
+        @FormParam("audience") List<String> audienceParams,
+
+        @Parameter(description = "The client making the exchange request", required = true)
+        @FormParam("client_id") String clientId,
+
+        @Parameter(description = "Secret of the requesting client (required for confidential clients)")
+        @FormParam("client_secret") String clientSecret,
+
+        @Parameter(description = "Space-delimited scope list; cannot exceed original token scope")
+        @FormParam("scope") String scope,
+
+        @Parameter(description = "JSON object with transaction context, e.g. {\"orderId\":\"abc123\"}")
+        @FormParam("context") String context
+    ) {
+        metricsService.recordTokenExchangeRequest();
+        signingExecutor.ensureCapacity();
+
+        List<String> audiences = audienceParams == null ? List.of() : audienceParams.stream()
+                .filter(a -> a != null && !a.isBlank())
+                .distinct()
+                .toList();
+        if (audiences.size() > maxBatchAudiences) {
+            metricsService.recordTokenExchangeFailure();
+            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_request",
+                    "At most " + maxBatchAudiences + " audiences can be exchanged in one request");
+        }
+
+        ExchangeRequest request;
+        try {
+            request = validateRequest(headers, grantType, subjectToken, subjectTokenType,
+                    audiences, clientId, clientSecret, scope, context);
+        } catch (ExchangeRejectedException e) {
+            metricsService.recordTokenExchangeFailure();
+            return buildErrorResponse(e.status, e.error, e.getMessage());
+        }
+
+        // one query each for the clients, subscriptions and roles of all audiences
+        List<String> clientIds = new ArrayList<>(audiences);
+        clientIds.add(request.clientId());
+        lookups.preloadClients(clientIds);
+        lookups.preloadSubscriptions(request.orgId(), clientIds);
+        lookups.preloadRoles(request.accountId(), audiences, request.orgId());
+
+        BatchTokenExchangeResponse batchResponse = new BatchTokenExchangeResponse();
+        batchResponse.tokens = new ArrayList<>(audiences.size());
+        for (String audience : audiences) {
+            BatchTokenExchangeEntry entry = new BatchTokenExchangeEntry();
+            entry.audience = audience;
+            try {
+                TokenExchangeResponse tokenResponse = exchangeFor(request, audience);
+                entry.access_token = tokenResponse.access_token;
+                entry.token_type = tokenResponse.token_type;
+                entry.expires_in = tokenResponse.expires_in;
+                entry.scope = tokenResponse.scope;
+                entry.issued_token_type = tokenResponse.issued_token_type;
+            } catch (ExchangeRejectedException e) {
+                entry.error = e.error;
+                entry.error_description = e.getMessage();
+            }
+            batchResponse.tokens.add(entry);
+        }
+
+        metricsService.recordTokenExchangeSuccess();
+        return Response.ok(batchResponse).build();
+    }
+
+    /**
+     * Steps shared by the single and the batch exchange that do not depend on the audience:
+     * request parameters, the subject token (signature, issuer, lifetime, depth, revocation) and
+     * authentication of the calling client.
+     *
+     * @throws ExchangeRejectedException if the request must be rejected as a whole
+     */
+    private ExchangeRequest validateRequest(HttpHeaders headers, String grantType, String subjectToken,
+            String subjectTokenType, List<String> audiences, String clientId, String clientSecret,
+            String scope, String context) {
 
         // Extract client credentials from Basic Auth header if not provided as form params
         if ((clientId == null || clientId.isBlank()) && headers.getHeaderString("Authorization") != null) {
@@ -193,215 +366,201 @@ public class NonMultitenancyTokenExchangeResource {
 
         // --- Step 1: Validate grant_type ---
         if (!GRANT_TYPE_TOKEN_EXCHANGE.equals(grantType)) {
-            metricsService.recordTokenExchangeFailure();
-            return buildErrorResponse(Response.Status.BAD_REQUEST, "unsupported_grant_type",
+            throw new ExchangeRejectedException(Response.Status.BAD_REQUEST, "unsupported_grant_type",
                     "grant_type must be '" + GRANT_TYPE_TOKEN_EXCHANGE + "'");
         }
 
         // --- Step 2: Validate required parameters ---
         if (subjectToken == null || subjectToken.isBlank()) {
-            metricsService.recordTokenExchangeFailure();
-            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_request", "subject_token is required");
+            throw new ExchangeRejectedException(Response.Status.BAD_REQUEST, "invalid_request", "subject_token is required");
         }
         if (subjectTokenType == null || !TOKEN_TYPE_ACCESS_TOKEN.equals(subjectTokenType)) {
-            metricsService.recordTokenExchangeFailure();
-            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_request",
+            throw new ExchangeRejectedException(Response.Status.BAD_REQUEST, "invalid_request",
                     "subject_token_type must be '" + TOKEN_TYPE_ACCESS_TOKEN + "'");
         }
-        if (audience == null || audience.isBlank()) {
-            metricsService.recordTokenExchangeFailure();
-            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_request", "audience is required");
+        if (audiences.isEmpty()) {
+            throw new ExchangeRejectedException(Response.Status.BAD_REQUEST, "invalid_request", "audience is required");
         }
         if (clientId == null || clientId.isBlank()) {
-            metricsService.recordTokenExchangeFailure();
-            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_request", "client_id is required");
+            throw new ExchangeRejectedException(Response.Status.BAD_REQUEST, "invalid_request", "client_id is required");
         }
 
         // --- Step 3: Parse and validate the subject token ---
-        JsonObject subjectClaims;
+        JwtClaimsReader subjectClaims;
         try {
             subjectClaims = decodeJwtPayload(subjectToken);
         } catch (IllegalArgumentException e) {
-            metricsService.recordTokenExchangeFailure();
-            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_request",
+            throw new ExchangeRejectedException(Response.Status.BAD_REQUEST, "invalid_request",
                     "subject_token is not a valid JWT");
         }
 
         // Enforce delegation chain depth limit
-        int currentDepth = actChainDepth(subjectClaims);
+        JsonObject subjectAct = subjectClaims.object("act");
+        int currentDepth = actChainDepth(subjectAct);
         if (currentDepth >= maxExchangeDepth) {
-            metricsService.recordTokenExchangeFailure();
-            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_request",
+            throw new ExchangeRejectedException(Response.Status.BAD_REQUEST, "invalid_request",
                     "Maximum token exchange depth (" + maxExchangeDepth + ") exceeded");
         }
 
         // Verify issuer
-        String tokenIssuer = subjectClaims.containsKey("iss") ? subjectClaims.getString("iss") : null;
+        String tokenIssuer = subjectClaims.string("iss");
         if (!issuer.equals(tokenIssuer)) {
-            metricsService.recordTokenExchangeFailure();
-            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_request",
+            throw new ExchangeRejectedException(Response.Status.BAD_REQUEST, "invalid_request",
                     "subject_token issuer is invalid");
         }
 
         // Verify expiry
-        long exp = subjectClaims.containsKey("exp") ? subjectClaims.getJsonNumber("exp").longValue() : 0;
+        long exp = subjectClaims.number("exp", 0);
         if (exp == 0 || Instant.now().getEpochSecond() >= exp) {
-            metricsService.recordTokenExchangeFailure();
-            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_grant",
+            throw new ExchangeRejectedException(Response.Status.BAD_REQUEST, "invalid_grant",
                     "subject_token has expired");
         }
 
         // Verify nbf if present
-        if (subjectClaims.containsKey("nbf")) {
-            long nbf = subjectClaims.getJsonNumber("nbf").longValue();
+        if (subjectClaims.has("nbf")) {
+            long nbf = subjectClaims.number("nbf", 0);
             if (Instant.now().getEpochSecond() < nbf) {
-                metricsService.recordTokenExchangeFailure();
-                return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_grant",
+                throw new ExchangeRejectedException(Response.Status.BAD_REQUEST, "invalid_grant",
                         "subject_token is not yet valid");
             }
         }
 
+        // Check the revocation epochs of the subject token's account, client and org (in memory)
+        if (revocationEpochService.isRevoked(subjectClaims.string("sub"), subjectClaims.string("client_id"),
+                subjectClaims.string("orgId"), subjectClaims.number("iat", 0))) {
+            throw new ExchangeRejectedException(Response.Status.BAD_REQUEST, "invalid_grant",
+                    "subject_token has been revoked");
+        }
+
         // Check JTI revocation
-        String jti = subjectClaims.containsKey("jti") ? subjectClaims.getString("jti") : null;
+        String jti = subjectClaims.string("jti");
         if (jti != null && tokenRevocationService.isTokenRevoked(jti)) {
-            metricsService.recordTokenExchangeFailure();
-            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_grant",
+            throw new ExchangeRejectedException(Response.Status.BAD_REQUEST, "invalid_grant",
                     "subject_token has been revoked");
         }
 
         // --- Step 4: Extract claims from subject token ---
-        String subjectAccountId = subjectClaims.containsKey("sub") ? subjectClaims.getString("sub") : null;
-        String subjectOrgId = subjectClaims.containsKey("orgId") ? subjectClaims.getString("orgId") : null;
-        String originalScope = subjectClaims.containsKey("scope") ? subjectClaims.getString("scope") : "";
-        String authMethod = subjectClaims.containsKey("auth_method") ? subjectClaims.getString("auth_method") : "unknown";
-        String originalTxn = subjectClaims.containsKey("txn") ? subjectClaims.getString("txn") : null;
-        JsonObject inheritedCtx = subjectClaims.containsKey("ctx") ? subjectClaims.getJsonObject("ctx") : null;
+        String subjectAccountId = subjectClaims.string("sub");
+        String subjectOrgId = subjectClaims.string("orgId");
+        String originalScope = subjectClaims.has("scope") ? subjectClaims.string("scope") : "";
+        String authMethod = subjectClaims.has("auth_method") ? subjectClaims.string("auth_method") : "unknown";
+        String originalTxn = subjectClaims.string("txn");
+        JsonObject inheritedCtx = subjectClaims.object("ctx");
 
         if (subjectAccountId == null || subjectOrgId == null) {
-            metricsService.recordTokenExchangeFailure();
-            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_request",
+            throw new ExchangeRejectedException(Response.Status.BAD_REQUEST, "invalid_request",
                     "subject_token is missing required claims (sub, orgId)");
         }
 
         // --- Step 5: Authenticate the calling client ---
-        var callerClientOpt = nonMultitenancyOAuthClientService.findByClientId(clientId);
+        var callerClientOpt = lookups.findClient(clientId);
         if (callerClientOpt.isEmpty()) {
-            metricsService.recordTokenExchangeFailure();
-            return buildErrorResponse(Response.Status.UNAUTHORIZED, "invalid_client",
+            throw new ExchangeRejectedException(Response.Status.UNAUTHORIZED, "invalid_client",
                     "Client authentication failed");
         }
         var callerClient = callerClientOpt.get();
         if ("confidential".equals(callerClient.getClientType())) {
             if (!authenticateClient(clientId, clientSecret)) {
-                metricsService.recordTokenExchangeFailure();
-                return buildErrorResponse(Response.Status.UNAUTHORIZED, "invalid_client",
+                throw new ExchangeRejectedException(Response.Status.UNAUTHORIZED, "invalid_client",
                         "Client authentication failed");
             }
         }
 
+        // Build the act claim (RFC 8693 §4.1 actor chaining).
+        // The new act wraps the caller; any existing act chain is nested inside it.
+        var actBuilder = Json.createObjectBuilder().add("sub", clientId);
+        if (subjectAct != null) {
+            actBuilder.add("act", subjectAct);
+        }
+
+        // Inherit or override ctx (transaction context)
+        JsonObject resolvedCtx = null;
+        if (context != null && !context.isBlank()) {
+            try {
+                resolvedCtx = Json.createReader(new java.io.StringReader(context)).readObject();
+            } catch (Exception e) {
+                log.warnf("Ignoring unparseable context parameter: %s", e.getMessage());
+            }
+        }
+
+        return new ExchangeRequest(clientId, subjectClaims, subjectAccountId, subjectOrgId,
+                parseScopes(originalScope), scope, authMethod, originalTxn,
+                actBuilder.build().toString(),
+                resolvedCtx != null ? resolvedCtx : inheritedCtx);
+    }
+
+    /**
+     * Steps of the exchange for one audience: subscription checks, scope, roles (with default role
+     * seeding) and the new access token.
+     *
+     * @throws ExchangeRejectedException if no token can be issued for the audience
+     */
+    private TokenExchangeResponse exchangeFor(ExchangeRequest request, String audience) {
         // --- Step 6: Authorise the exchange via subscription checks ---
-        if (nonMultitenancyOAuthClientService.findByClientId(audience).isEmpty()) {
-            metricsService.recordTokenExchangeFailure();
-            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_request",
+        if (lookups.findClient(audience).isEmpty()) {
+            throw new ExchangeRejectedException(Response.Status.BAD_REQUEST, "invalid_request",
                     "audience client does not exist");
         }
-        if (nonMultitenancySubscriptionService.findNonMultitenancySubscription(subjectOrgId, audience).isEmpty()) {
-            metricsService.recordTokenExchangeFailure();
-            return buildErrorResponse(Response.Status.BAD_REQUEST, "unauthorized_client",
+        if (lookups.findSubscription(request.orgId(), audience).isEmpty()) {
+            throw new ExchangeRejectedException(Response.Status.BAD_REQUEST, "unauthorized_client",
                     "User's organisation is not subscribed to the requested audience");
         }
-        if (nonMultitenancySubscriptionService.findNonMultitenancySubscription(subjectOrgId, clientId).isEmpty()) {
-            metricsService.recordTokenExchangeFailure();
-            return buildErrorResponse(Response.Status.BAD_REQUEST, "unauthorized_client",
+        if (lookups.findSubscription(request.orgId(), request.clientId()).isEmpty()) {
+            throw new ExchangeRejectedException(Response.Status.BAD_REQUEST, "unauthorized_client",
                     "User's organisation is not subscribed to the calling client");
         }
 
         // --- Step 7: Intersect requested scope (before DB writes) ---
-        Set<String> originalScopes = parseScopes(originalScope);
+        Set<String> originalScopes = request.originalScopes();
+        String scope = request.requestedScope();
         Set<String> requestedScopes = scope != null && !scope.isBlank() ? parseScopes(scope) : new HashSet<>(originalScopes);
         Set<String> grantedScopes = new HashSet<>(requestedScopes);
         grantedScopes.retainAll(originalScopes);
 
         if (scope != null && !scope.isBlank() && !originalScopes.containsAll(requestedScopes)) {
-            metricsService.recordTokenExchangeFailure();
-            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_scope",
+            throw new ExchangeRejectedException(Response.Status.BAD_REQUEST, "invalid_scope",
                     "Requested scope exceeds the scope of the subject token");
         }
 
         // --- Step 8: Resolve target roles (with default role seeding) ---
-        if (!nonMultitenancyAccountRoleService.hasAnyRoleForClient(subjectAccountId, audience, subjectOrgId)) {
-            var defaultRoles = clientAllowedRoleService.findDefaultRolesByClientIdForOrg(audience, subjectOrgId);
-            boolean isOwner = organisationService.isOwner(subjectOrgId, subjectAccountId);
-            var rolesToSeed = defaultRoles.stream()
-                    .filter(r -> r.getDefaultAssignment() == dev.abstratium.abstrauth.entity.DefaultAssignment.ALL_USERS
-                            || (r.getDefaultAssignment() == dev.abstratium.abstrauth.entity.DefaultAssignment.ORG_OWNERS_ONLY && isOwner))
-                    .collect(java.util.stream.Collectors.toList());
-            if (!rolesToSeed.isEmpty()) {
-                nonMultitenancyAccountRoleService.seedDefaultRoles(subjectAccountId, audience, subjectOrgId, rolesToSeed);
-            }
-        }
-        Set<String> dbRoles = nonMultitenancyAccountRoleService.findRolesByAccountIdAndClientIdAndOrgId(
-                subjectAccountId, audience, subjectOrgId);
-
-        String displayAudienceId = dev.abstratium.abstrauth.util.ClientIdUtil.stripOrgPrefix(audience);
-        Set<String> groups = new HashSet<>();
-        for (String role : dbRoles) {
-            groups.add(displayAudienceId + "_" + role);
-        }
+        lookups.seedDefaultRolesIfNone(request.accountId(), audience, request.orgId());
+        Set<String> dbRoles = lookups.findRoles(
+                request.accountId(), audience, request.orgId());
 
-        // --- Step 9: Build the act claim (RFC 8693 §4.1 actor chaining) ---
-        // The new act wraps the caller; any existing act chain is nested inside it.
-        var actBuilder = Json.createObjectBuilder().add("sub", clientId);
-        if (subjectClaims.containsKey("act")) {
-            actBuilder.add("act", subjectClaims.getJsonObject("act"));
-        }
-        JsonObject actClaim = actBuilder.build();
-
-        // --- Step 10: Generate the new access token ---
+        // --- Step 9: Generate the new access token ---
         Instant now = Instant.now();
         String newJti = UUID.randomUUID().toString();
         String grantedScopeString = String.join(" ", grantedScopes);
-
-        var jwtBuilder = Jwt.issuer(issuer)
-                .claim("jti", newJti)
-                .subject(subjectAccountId)
-                .audience(audience)
-                .groups(groups)
-                .claim("scope", grantedScopeString)
-                .claim("client_id", audience)
-                .claim("auth_method", authMethod)
-                .claim("orgId", subjectOrgId)
-                .claim("act", actClaim)
-                .claim("txn", originalTxn != null ? originalTxn : UUID.randomUUID().toString())
-                .issuedAt(now)
-                .expiresAt(now.plusSeconds(sessionTimeoutSeconds));
+        JwtClaimsReader subjectClaims = request.subjectClaims();
+
+        // Groups are written as "audience_role"; client_id and orgId come from a cached fragment
+        var claims = tokenMinter.newClaims()
+                .string("jti", newJti)
+                .string("sub", request.accountId())
+                .string("aud", audience)
+                .prefixedStringArray("groups", tokenMinter.groupPrefix(audience), dbRoles)
+                .string("scope", grantedScopeString)
+                .fragment(tokenMinter.clientClaims(audience, request.orgId()))
+                .string("auth_method", request.authMethod())
+                .json("act", request.actClaim())
+                .string("txn", request.txn() != null ? request.txn() : UUID.randomUUID().toString())
+                .json("status", statusListService.claim(statusListService.allocate()))
+                .number("iat", now.getEpochSecond())
+                .number("exp", now.plusSeconds(sessionTimeoutSeconds).getEpochSecond());
 
         // Scope-based claim filtering for profile/email
-        if (grantedScopes.contains("email") && subjectClaims.containsKey("email")) {
-            jwtBuilder.claim("email", subjectClaims.getString("email"));
+        if (grantedScopes.contains("email")) {
+            claims.string("email", subjectClaims.string("email"));
         }
-        if (grantedScopes.contains("profile") && subjectClaims.containsKey("name")) {
-            jwtBuilder.claim("name", subjectClaims.getString("name"));
+        if (grantedScopes.contains("profile")) {
+            claims.string("name", subjectClaims.string("name"));
         }
 
-        // Inherit or override ctx (transaction context)
-        JsonObject resolvedCtx = null;
-        if (context != null && !context.isBlank()) {
-            try {
-                resolvedCtx = Json.createReader(new java.io.StringReader(context)).readObject();
-            } catch (Exception e) {
-                log.warnf("Ignoring unparseable context parameter: %s", e.getMessage());
-            }
-        }
-        if (resolvedCtx != null) {
-            jwtBuilder.claim("ctx", resolvedCtx);
-        } else if (inheritedCtx != null) {
-            jwtBuilder.claim("ctx", inheritedCtx);
+        if (request.ctx() != null) {
+            claims.json("ctx", request.ctx().toString());
         }
 
-        String newAccessToken = jwtBuilder.jws()
-                .keyId("abstrauth-key-1")
-                .sign();
+        String newAccessToken = tokenMinter.sign(claims, audience);
 
         TokenExchangeResponse tokenResponse = new TokenExchangeResponse();
         tokenResponse.access_token = newAccessToken;
@@ -409,29 +568,22 @@ public class NonMultitenancyTokenExchangeResource {
         tokenResponse.expires_in = sessionTimeoutSeconds;
         tokenResponse.scope = grantedScopeString;
         tokenResponse.issued_token_type = TOKEN_TYPE_ACCESS_TOKEN;
-
-        metricsService.recordTokenExchangeSuccess();
-        return Response.ok(tokenResponse).build();
+        return tokenResponse;
     }
 
     /**
      * Delegate to the shared verifier to decode and cryptographically verify the
      * signature of the subject JWT access token.
      */
-    private JsonObject decodeJwtPayload(String jwt) {
-        return jwtSignatureVerifier.verifyAndDecode(jwt);
+    private JwtClaimsReader decodeJwtPayload(String jwt) {
+        return jwtSignatureVerifier.verify(jwt);
     }
 
     private boolean authenticateClient(String clientIdParam, String clientSecretParam) {
         if (clientSecretParam == null || clientSecretParam.isBlank()) {
             return false;
         }
-        var activeSecrets = nonMultitenancyClientSecretService.findActiveSecrets(clientIdParam);
-        if (activeSecrets.isEmpty()) {
-            return false;
-        }
-        return activeSecrets.stream()
-                .anyMatch(secret -> passwordEncoder.matches(clientSecretParam, secret.getSecretHash()));
+        return nonMultitenancyClientSecretService.verifySecret(clientIdParam, clientSecretParam);
     }
 
     private String[] extractBasicAuth(String authHeader) {
@@ -454,15 +606,16 @@ public class NonMultitenancyTokenExchangeResource {
 
     /**
      * Returns the current delegation chain depth by counting nested {@code act} claims
-     * per RFC 8693 §4.1. A token with no {@code act} has depth 0. A once-exchanged
-     * token has depth 1. A twice-exchanged token has depth 2, and so on.
+     * per RFC 8693 §4.1, starting at the act claim of the subject token. A token with
+     * no {@code act} (null) has depth 0. A once-exchanged token has depth 1. A
+     * twice-exchanged token has depth 2, and so on.
      */
-    private int actChainDepth(JsonObject claims) {
+    private int actChainDepth(JsonObject act) {
         int depth = 0;
-        JsonObject current = claims;
-        while (current.containsKey("act")) {
+        JsonObject current = act;
+        while (current != null) {
             depth++;
-            current = current.getJsonObject("act");
+            current = current.containsKey("act") ? current.getJsonObject("act") : null;
         }
         return depth;
     }
@@ -499,4 +652,62 @@ public class NonMultitenancyTokenExchangeResource {
         @Schema(description = "Type of issued token", examples = "urn:ietf:params:oauth:token-type:access_token")
         public String issued_token_type;
     }
+
+    @RegisterForReflection
+    @Schema(description = "Batch Token Exchange Response")
+    public static class BatchTokenExchangeResponse {
+        @Schema(description = "One entry per distinct requested audience, in request order")
+        public List<BatchTokenExchangeEntry> tokens;
+    }
+
+    @RegisterForReflection
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Schema(description = "Token or error for one audience of a batch token exchange")
+    public static class BatchTokenExchangeEntry {
+        @Schema(description = "The audience (client_id) of this entry", examples = "orders-service")
+        public String audience;
+
+        @Schema(description = "The newly issued access token, absent on error", examples = "eyJhbGciOiJSUzI1NiIsInR5cCI6IkpXVCJ9...")
+        public String access_token;
+
+        @Schema(description = "Always 'Bearer', absent on error", examples = "Bearer")
+        public String token_type;
+
+        @Schema(description = "Token lifetime in seconds, absent on error", examples = "900")
+        public Integer expires_in;
+
+        @Schema(description = "Granted scope, absent on error", examples = "openid profile")
+        public String scope;
+
+        @Schema(description = "Type of issued token, absent on error", examples = "urn:ietf:params:oauth:token-type:access_token")
+        public String issued_token_type;
+
+        @Schema(description = "Error code if no token was issued for this audience", examples = "unauthorized_client")
+        public String error;
+
+        @Schema(description = "Description of the error", examples = "User's organisation is not subscribed to the requested audience")
+        public String error_description;
+    }
+
+    /**
+     * What the audience-specific steps need from the validated request.
+     */
+    private record ExchangeRequest(String clientId, JwtClaimsReader subjectClaims, String accountId, String orgId,
+            Set<String> originalScopes, String requestedScope, String authMethod, String txn, String actClaim,
+            JsonObject ctx) {
+    }
+
+    /**
+     * An exchange step failed; carries the OAuth error to return.
+     */
+    private static class ExchangeRejectedException extends RuntimeException {
+        private final Response.Status status;
+        private final String error;
+
+        ExchangeRejectedException(Response.Status status, String error, String errorDescription) {
+            super(errorDescription, null, false, false);
+            this.status = status;
+            this.error = error;
+        }
+    }
 }
@@ -1,7 +1,6 @@
 package dev.abstratium.abstrauth.non_multitenancy.boundary;
 
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.time.Instant;
 import java.util.Base64;
 import java.util.HashSet;
@@ -21,25 +20,32 @@ import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import dev.abstratium.abstrauth.boundary.ErrorResponse;
 import dev.abstratium.abstrauth.entity.Account;
 import dev.abstratium.abstrauth.entity.AuthorizationCode;
-import dev.abstratium.abstrauth.entity.AuthorizationRequest;
 import dev.abstratium.abstrauth.entity.OAuthClient;
-import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyAccountRoleService;
+import dev.abstratium.abstrauth.entity.RefreshToken;
 import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyClientRoleService;
 import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyClientSecretService;
-import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyOAuthClientService;
+import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyTokenPrecomputer;
+import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyUserTokenService;
+import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyUserTokenService.PreparedTokens;
+import dev.abstratium.abstrauth.non_multitenancy.service.RequestLookupCache;
 import dev.abstratium.abstrauth.service.AccountService;
 import dev.abstratium.abstrauth.service.AuthorizationService;
-import dev.abstratium.abstrauth.service.ClientAllowedRoleService;
+import dev.abstratium.abstrauth.service.ClientCredentialsTokenCache;
 import dev.abstratium.abstrauth.service.ClientRoleService;
 import dev.abstratium.abstrauth.service.ClientSecretService;
 import dev.abstratium.abstrauth.service.MetricsService;
 import dev.abstratium.abstrauth.service.OAuthClientService;
-import dev.abstratium.abstrauth.service.OrganisationService;
+import dev.abstratium.abstrauth.service.ReferenceTokenService;
+import dev.abstratium.abstrauth.service.RefreshTokenService;
+import dev.abstratium.abstrauth.service.RevocationEpochService;
+import dev.abstratium.abstrauth.service.Roles;
+import dev.abstratium.abstrauth.service.SigningExecutor;
+import dev.abstratium.abstrauth.service.StatusListService;
+import dev.abstratium.abstrauth.service.TokenMinter;
 import dev.abstratium.abstrauth.service.TokenRevocationService;
 import dev.abstratium.abstrauth.util.ClientIdUtil;
-import dev.abstratium.abstrauth.util.PasswordEncoder;
+import dev.abstratium.abstrauth.util.PkceVerifier;
 import io.quarkus.runtime.annotations.RegisterForReflection;
-import io.smallrye.jwt.build.Jwt;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.FormParam;
@@ -75,18 +81,12 @@ public class NonMultitenancyTokenResource {
     @Inject
     NonMultitenancyClientSecretService nonMultitenancyClientSecretService;
 
-    @Inject
-    NonMultitenancyOAuthClientService nonMultitenancyOAuthClientService;
-
     @Inject
     NonMultitenancyClientRoleService nonMultitenancyClientRoleService;
 
     @Inject
     AccountService accountService;
 
-    @Inject
-    NonMultitenancyAccountRoleService nonMultitenancyAccountRoleService;
-
     @Inject
     ClientRoleService clientRoleService;
 
@@ -94,19 +94,37 @@ public class NonMultitenancyTokenResource {
     TokenRevocationService tokenRevocationService;
 
     @Inject
-    OrganisationService organisationService;
+    RevocationEpochService revocationEpochService;
 
     @Inject
-    ClientAllowedRoleService clientAllowedRoleService;
+    MetricsService metricsService;
 
     @Inject
-    MetricsService metricsService;
+    ClientCredentialsTokenCache clientCredentialsTokenCache;
+
+    @Inject
+    TokenMinter tokenMinter;
+
+    @Inject
+    RefreshTokenService refreshTokenService;
+
+    @Inject
+    ReferenceTokenService referenceTokenService;
+
+    @Inject
+    SigningExecutor signingExecutor;
+
+    @Inject
+    RequestLookupCache lookups;
+
+    @Inject
+    NonMultitenancyUserTokenService userTokenService;
 
     @Inject
-    PasswordEncoder passwordEncoder;
+    NonMultitenancyTokenPrecomputer tokenPrecomputer;
 
-    @ConfigProperty(name = "mp.jwt.verify.issuer")
-    String issuer;
+    @Inject
+    StatusListService statusListService;
 
     @ConfigProperty(name = "abstrauth.session.timeout.seconds", defaultValue = "900")
     int sessionTimeoutSeconds;
@@ -116,8 +134,8 @@ public class NonMultitenancyTokenResource {
     @Produces(MediaType.APPLICATION_JSON)
     @Operation(
         summary = "Token Endpoint",
-        description = "Exchanges authorization code for access token. " +
-                     "Supports PKCE code_verifier validation. " +
+        description = "Exchanges authorization code or refresh token for access token. " +
+                     "Supports PKCE code_verifier validation. Refresh tokens are rotated on every use. " +
                      "Returns access_token, token_type, expires_in, and optional refresh_token."
     )
     @APIResponses({
@@ -169,6 +187,11 @@ public class NonMultitenancyTokenResource {
                     """
                 )
             )
+        ),
+        @APIResponse(
+            responseCode = "503",
+            description = "Token signing capacity exceeded; retry after the number of seconds in the Retry-After header",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON)
         )
     })
     public Response token(
@@ -242,6 +265,10 @@ public class NonMultitenancyTokenResource {
         // Record token request
         metricsService.recordTokenRequest();
 
+        // Shed load early if signing is saturated. This is only a fast path: the queue can still
+        // fill up before the tokens are signed, so the grants sign before consuming any state.
+        signingExecutor.ensureCapacity();
+
         // Validate grant_type
         if (!"authorization_code".equals(grantType) && 
             !"refresh_token".equals(grantType) && 
@@ -261,10 +288,13 @@ public class NonMultitenancyTokenResource {
             return handleClientCredentials(clientId, clientSecret, scope);
         }
 
-        // Handle refresh_token grant (not implemented yet)
-        metricsService.recordTokenRequestFailure();
-        return buildErrorResponse(Response.Status.BAD_REQUEST, "unsupported_grant_type",
-                "Refresh token grant not yet implemented");
+        // Handle refresh_token grant
+        if (!refreshTokenService.isEnabled()) {
+            metricsService.recordTokenRequestFailure();
+            return buildErrorResponse(Response.Status.BAD_REQUEST, "unsupported_grant_type",
+                    "Refresh token grant is disabled");
+        }
+        return handleRefreshTokenGrant(refreshToken, clientId, clientSecret, scope);
     }
 
     private Response handleAuthorizationCodeGrant(String code, String redirectUri, String clientId,
@@ -293,28 +323,19 @@ public class NonMultitenancyTokenResource {
             }
         }
 
-        // Find authorization code
-        Optional<AuthorizationCode> authCodeOpt = authorizationService.findAuthorizationCode(code);
-        if (authCodeOpt.isEmpty()) {
+        // Load the code (by its hashed primary key), account, auth request data and org membership in one query
+        Optional<AuthorizationService.CodeRedemption> redemptionOpt = authorizationService.findCodeRedemption(code);
+        if (redemptionOpt.isEmpty()) {
             return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_grant",
                     "Authorization code is invalid or expired");
         }
 
-        AuthorizationCode authCode = authCodeOpt.get();
+        AuthorizationService.CodeRedemption redemption = redemptionOpt.get();
+        AuthorizationCode authCode = redemption.authCode();
 
         // Check if code has been used
         if (authCode.getUsed()) {
-            // SECURITY: Authorization code replay attack detected!
-            // RFC 6749 Section 10.5: "If an authorization code is used more than once,
-            // the authorization server MUST deny the request and SHOULD revoke all tokens
-            // previously issued based on that authorization code."
-            tokenRevocationService.revokeTokensByAuthorizationCode(
-                authCode.getId(), 
-                "authorization_code_replay_detected"
-            );
-            
-            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_grant",
-                    "Authorization code has already been used");
+            return authorizationCodeReplayed(authCode);
         }
 
         // Check if code is expired
@@ -342,51 +363,84 @@ public class NonMultitenancyTokenResource {
                         "code_verifier is required for PKCE");
             }
 
-            if (!verifyPKCE(codeVerifier, authCode.getCodeChallenge(), authCode.getCodeChallengeMethod())) {
+            if (!PkceVerifier.verify(codeVerifier, authCode.getCodeChallenge(), authCode.getCodeChallengeMethod())) {
                 return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_grant",
                         "PKCE code_verifier verification failed");
             }
         }
 
-        // Get account
-        Account account = accountService.findById(authCode.getAccountId())
-                .orElseThrow(() -> new IllegalStateException("Account not found"));
-
-        // Get the authorization request to retrieve the auth method and orgId
-        Optional<AuthorizationRequest> authRequestOpt = authorizationService.findAuthorizationRequest(authCode.getAuthorizationRequestId());
-        AuthorizationRequest authRequest = authRequestOpt.orElse(null);
-        String authMethod = authRequest != null ? authRequest.getAuthMethod() : "unknown";
-        String orgId = authRequest != null ? authRequest.getOrgId() : null;
+        Account account = redemption.account();
+        String authMethod = redemption.authMethod() != null ? redemption.authMethod() : "unknown";
+        String orgId = redemption.orgId();
 
         // Verify account is still a member of the selected org (if orgId is set)
-        if (orgId != null && !organisationService.isMember(orgId, account.getId())) {
+        if (orgId != null && !redemption.member()) {
             return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_grant",
                     "Account is no longer a member of the selected organisation");
         }
 
-        // Seed default roles if no AccountRole rows exist for this account + clientId + orgId
-        if (orgId != null && !nonMultitenancyAccountRoleService.hasAnyRoleForClient(account.getId(), clientId, orgId)) {
-            var defaultRoles = clientAllowedRoleService.findDefaultRolesByClientIdForOrg(clientId, orgId);
-            boolean isOwner = organisationService.isOwner(orgId, account.getId());
-            var rolesToSeed = defaultRoles.stream()
-                    .filter(r -> r.getDefaultAssignment() == dev.abstratium.abstrauth.entity.DefaultAssignment.ALL_USERS
-                            || (r.getDefaultAssignment() == dev.abstratium.abstrauth.entity.DefaultAssignment.ORG_OWNERS_ONLY && isOwner))
-                    .collect(java.util.stream.Collectors.toList());
-            if (!rolesToSeed.isEmpty()) {
-                nonMultitenancyAccountRoleService.seedDefaultRoles(account.getId(), clientId, orgId, rolesToSeed);
+        // Codes issued before a revocation epoch of the account, client or org (e.g. "sign out
+        // everywhere") must not yield new tokens
+        if (authCode.getCreatedAt() != null && revocationEpochService.isRevoked(account.getId(), clientId, orgId,
+                authCode.getCreatedAt().atZone(java.time.ZoneId.systemDefault()).toEpochSecond())) {
+            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_grant",
+                    "Authorization code has been revoked");
+        }
+
+        // Sign first: if signing is rejected (503) the code has not been consumed yet, so the
+        // client's retry is not mistaken for a replay. Use the tokens minted in the background
+        // when the code was issued, if there are any (see NonMultitenancyTokenPrecomputer),
+        // otherwise mint them now.
+        PreparedTokens prepared = tokenPrecomputer.take(authCode.getId(), account.getId(), clientId,
+                authCode.getScope(), authMethod, orgId).orElse(null);
+        String jti;
+        Integer statusIdx;
+        String signedAccessToken;
+        Instant expiresAt;
+        String idToken = null;
+        if (prepared != null) {
+            jti = prepared.jti();
+            statusIdx = prepared.statusIdx();
+            signedAccessToken = prepared.accessToken();
+            expiresAt = prepared.expiresAt();
+            idToken = prepared.idToken();
+        } else {
+            // Seed default roles if no AccountRole rows exist for this account + clientId + orgId
+            if (orgId != null) {
+                lookups.seedDefaultRolesIfNone(account.getId(), clientId, orgId);
             }
+
+            // Generate access token with the authentication method and orgId used for this session
+            jti = UUID.randomUUID().toString();
+            statusIdx = statusListService.allocate();
+            signedAccessToken = userTokenService.generateAccessToken(account, clientId, authMethod, authCode.getScope(),
+                    orgId, jti, statusIdx);
+            expiresAt = Instant.now().plusSeconds(sessionTimeoutSeconds);
+
+            // Generate ID token for OIDC (if openid scope is requested)
+            if (authCode.getScope() != null && authCode.getScope().contains("openid")) {
+                idToken = userTokenService.generateIdToken(account, clientId, authMethod, authCode.getScope(), orgId);
+            }
+        }
+
+        // Consume the code with a conditional update. The check above only saw the state at read
+        // time; if a concurrent request claimed the code since, this one is a replay and the
+        // tokens just minted are discarded without ever being handed out.
+        if (!authorizationService.claimAuthorizationCode(authCode.getId())) {
+            return authorizationCodeReplayed(authCode);
         }
 
-        // Mark code as used
-        authorizationService.markCodeAsUsed(code);
+        String accessToken = referenceOrJwt(clientId, signedAccessToken, jti, expiresAt);
+        int expiresIn = prepared != null
+                ? (int) Math.max(0L, expiresAt.getEpochSecond() - Instant.now().getEpochSecond())
+                : sessionTimeoutSeconds;
 
-        // Generate access token with the authentication method and orgId used for this session
-        String accessToken = generateAccessToken(account, clientId, authMethod, authCode.getScope(), orgId);
-        
-        // Generate ID token for OIDC (if openid scope is requested)
-        String idToken = null;
-        if (authCode.getScope() != null && authCode.getScope().contains("openid")) {
-            idToken = generateIdToken(account, clientId, authMethod, authCode.getScope(), orgId);
+        // Start a refresh token family, so that the client can renew the access token without
+        // sending the user through the login again
+        String newRefreshToken = null;
+        if (refreshTokenService.isEnabled()) {
+            newRefreshToken = refreshTokenService.issue(account.getId(), clientId, orgId, authCode.getScope(),
+                    authMethod, authCode.getId(), jti, statusIdx);
         }
 
         // Record metrics
@@ -396,198 +450,143 @@ public class NonMultitenancyTokenResource {
         TokenResponse response = new TokenResponse();
         response.access_token = accessToken;
         response.token_type = "Bearer";
-        response.expires_in = sessionTimeoutSeconds;
+        response.expires_in = expiresIn;
         response.id_token = idToken;
+        response.refresh_token = newRefreshToken;
         response.scope = authCode.getScope();
 
         return Response.ok(response).build();
     }
 
+    private Response authorizationCodeReplayed(AuthorizationCode authCode) {
+        // SECURITY: Authorization code replay attack detected!
+        // RFC 6749 Section 10.5: "If an authorization code is used more than once,
+        // the authorization server MUST deny the request and SHOULD revoke all tokens
+        // previously issued based on that authorization code."
+        tokenRevocationService.revokeTokensByAuthorizationCode(
+            authCode.getId(), 
+            "authorization_code_replay_detected"
+        );
+
+        return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_grant",
+                "Authorization code has already been used");
+    }
+
     /**
-     * Verify PKCE code_verifier against code_challenge.
-     * RFC 7636 - Proof Key for Code Exchange by OAuth Public Clients
-     * 
-     * @param codeVerifier The code_verifier from the client
-     * @param codeChallenge The code_challenge stored in the authorization code
-     * @param codeChallengeMethod The code_challenge_method (S256 or plain)
-     * @return true if verification succeeds, false otherwise
+     * Refresh token grant (RFC 6749 Section 6).
+     * The presented refresh token is rotated: it is consumed and a new one is returned. Presenting
+     * a consumed token again revokes all refresh tokens of the login and the access tokens issued
+     * with them (OAuth 2.0 Security BCP, Section 4.14).
+     * Roles are read from the database again, so role changes take effect on the next refresh.
      */
-    private boolean verifyPKCE(String codeVerifier, String codeChallenge, String codeChallengeMethod) {
-        if (codeVerifier == null || codeChallenge == null) {
-            return false;
+    private Response handleRefreshTokenGrant(String refreshToken, String clientId, String clientSecret, String scope) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_request",
+                    "refresh_token is required");
         }
 
-        // Default to S256 if not specified
-        String method = codeChallengeMethod != null ? codeChallengeMethod : "S256";
-
-        if ("plain".equals(method)) {
-            // For "plain" method, direct comparison
-            return codeVerifier.equals(codeChallenge);
-        } else if ("S256".equals(method)) {
-            // For "S256" method, hash the verifier with SHA-256 and base64url encode
-            try {
-                MessageDigest digest = MessageDigest.getInstance("SHA-256");
-                byte[] hash = digest.digest(codeVerifier.getBytes(StandardCharsets.US_ASCII));
-                String computedChallenge = Base64.getUrlEncoder()
-                        .withoutPadding()
-                        .encodeToString(hash);
-                return computedChallenge.equals(codeChallenge);
-            } catch (Exception e) {
-                return false;
-            }
+        if (clientId == null || clientId.isBlank()) {
+            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_request",
+                    "client_id is required");
         }
 
-        // Unknown method
-        return false;
-    }
-
-    /**
-     * Generate access token with RFC-compliant scope-based claim filtering.
-     * 
-     * This method uses NonMultitenancyAccountRoleService to retrieve roles because
-     * during token generation the orgId comes from the AuthorizationRequest (not the JWT),
-     * so we cannot rely on Hibernate's @TenantId discriminator.
-     * 
-     * @param account The authenticated user account
-     * @param clientId The OAuth client ID
-     * @param authMethod The authentication method used
-     * @param scope Space-delimited scope string from the authorization request
-     * @param orgId The organization ID from the authorization request
-     * @return Signed JWT access token
-     */
-    private String generateAccessToken(Account account, String clientId, String authMethod, String scope, String orgId) {
-        Instant now = Instant.now();
-        Instant expiresAt = now.plusSeconds(sessionTimeoutSeconds);
+        // Authenticate confidential clients
+        Optional<OAuthClient> clientOpt = clientService.findByClientId(clientId);
+        if (clientOpt.isPresent() && "confidential".equals(clientOpt.get().getClientType())
+                && !authenticateClient(clientOpt.get(), clientSecret)) {
+            return buildErrorResponse(Response.Status.UNAUTHORIZED, "invalid_client",
+                    "Client authentication failed");
+        }
 
-        // Generate unique JTI (JWT ID) for token revocation support
-        String jti = UUID.randomUUID().toString();
+        Optional<RefreshToken> currentOpt = refreshTokenService.findByToken(refreshToken);
+        if (currentOpt.isEmpty()) {
+            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_grant",
+                    "Refresh token is invalid or expired");
+        }
+        RefreshToken current = currentOpt.get();
 
-        // Get roles (groups) for this account and client from the database
-        // Uses non-multitenancy service because orgId comes from AuthorizationRequest, not JWT
-        Set<String> dbRoles = nonMultitenancyAccountRoleService.findRolesByAccountIdAndClientIdAndOrgId(account.getId(), clientId, orgId);
-        String displayClientId = ClientIdUtil.stripOrgPrefix(clientId);
-        Set<String> groups = new HashSet<>();
-        for (String role : dbRoles) {
-            groups.add(displayClientId + "_" + role);
+        // Refresh tokens are bound to the client they were issued to
+        if (!current.getClientId().equals(clientId)) {
+            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_grant",
+                    "Client ID does not match refresh token");
         }
-        
-        // Parse scopes for claim filtering
-        Set<String> scopes = parseScopes(scope);
-        
-        // Build JWT with mandatory claims
-        var jwtBuilder = Jwt.issuer(issuer)
-                .claim("jti", jti)  // JWT ID for token revocation
-                .subject(account.getId())  // ALWAYS include sub - it's the primary subject identifier
-                .audience(clientId)  // REQUIRED: audience is the client_id
-                .groups(groups)  // ALWAYS include groups for @RolesAllowed authorization
-                .claim("scope", scope)
-                .claim("client_id", clientId)
-                .claim("auth_method", authMethod)
-                .issuedAt(now)
-                .expiresAt(expiresAt);
-        
-        // Emit orgId claim if available (tenant context for downstream applications)
-        if (orgId != null) {
-            jwtBuilder.claim("orgId", orgId);
+
+        if (current.getRevokedAt() != null) {
+            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_grant",
+                    "Refresh token has been revoked");
         }
-        
-        // RFC-compliant scope-based claim filtering:
-        // Add 'email' scope claims (OpenID Connect Core 1.0 Section 5.4)
-        if (scopes.contains("email")) {
-            jwtBuilder.upn(account.getEmail());  // User Principal Name for MicroProfile JWT
-            jwtBuilder.claim("email", account.getEmail());
-            jwtBuilder.claim("email_verified", account.getEmailVerified());
+
+        if (current.getUsedAt() != null) {
+            return refreshTokenReused(current);
         }
-        
-        // Add 'profile' scope claims (OpenID Connect Core 1.0 Section 5.4)
-        if (scopes.contains("profile")) {
-            jwtBuilder.claim("name", account.getName());
-            // Note: We only store 'name' currently. In the future, you could add:
-            // family_name, given_name, middle_name, nickname, preferred_username,
-            // profile, picture, website, gender, birthdate, zoneinfo, locale, updated_at
+
+        if (refreshTokenService.isExpired(current)) {
+            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_grant",
+                    "Refresh token has expired");
         }
-        
-        return jwtBuilder.jws()
-                    .keyId("abstrauth-key-1")  // Must match kid in JWKS
-                .sign();
-    }
 
-    /**
-     * Generate OpenID Connect ID Token with RFC-compliant scope-based claim filtering.
-     * 
-     * ID tokens are used to convey user identity information to the client.
-     * According to OpenID Connect Core 1.0:
-     * - ID tokens MUST contain: iss, sub, aud, exp, iat (Section 2)
-     * - Additional claims are controlled by scopes requested during authorization
-     * - 'profile' scope: name and other profile claims
-     * - 'email' scope: email, email_verified
-     * 
-     * Note: This method is only called when 'openid' scope is present, so we know
-     * the client requested OpenID Connect authentication.
-     * 
-     * This method uses NonMultitenancyAccountRoleService because the orgId comes from
-     * the AuthorizationRequest, not the JWT, during token generation.
-     * 
-     * @param account The authenticated user account
-     * @param clientId The OAuth client ID
-     * @param authMethod The authentication method used
-     * @param scope Space-delimited scope string from the authorization request
-     * @param orgId The organization ID from the authorization request
-     * @return Signed JWT ID token
-     */
-    private String generateIdToken(Account account, String clientId, String authMethod, String scope, String orgId) {
-        Instant now = Instant.now();
-        Instant expiresAt = now.plusSeconds(sessionTimeoutSeconds);
+        // The client may ask for a subset of the originally granted scope
+        String grantedScope = current.getScope();
+        if (scope != null && !scope.isBlank()) {
+            if (!parseScopes(current.getScope()).containsAll(parseScopes(scope))) {
+                return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_scope",
+                        "Requested scope exceeds the scope originally granted");
+            }
+            grantedScope = scope;
+        }
 
-        // Get roles (groups) for this account and client
-        // Uses non-multitenancy service because orgId comes from AuthorizationRequest, not JWT
-        Set<String> dbRoles = nonMultitenancyAccountRoleService.findRolesByAccountIdAndClientIdAndOrgId(account.getId(), clientId, orgId);
-        String displayClientId = ClientIdUtil.stripOrgPrefix(clientId);
-        Set<String> groups = new HashSet<>();
-        for (String role : dbRoles) {
-            groups.add(displayClientId + "_" + role);
+        Optional<Account> accountOpt = accountService.findById(current.getAccountId());
+        if (accountOpt.isEmpty()) {
+            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_grant",
+                    "Refresh token is invalid or expired");
         }
-        
-        // Parse scopes for claim filtering
-        Set<String> scopes = parseScopes(scope);
-
-        // Build ID token with mandatory claims (OpenID Connect Core 1.0 Section 2)
-        var jwtBuilder = Jwt.issuer(issuer)
-                .claim("jti", UUID.randomUUID().toString())  // Unique token ID
-                .subject(account.getId())  // REQUIRED: Subject identifier
-                .audience(clientId)  // REQUIRED: ID token audience is the client_id
-                .groups(groups)  // Add groups/roles for @RolesAllowed authorization
-                .claim("client_id", clientId)
-                .claim("auth_method", authMethod)
-                .issuedAt(now)  // REQUIRED: Issued at time
-                .expiresAt(expiresAt);  // REQUIRED: Expiration time
-
-        // Emit orgId claim if available (tenant context for downstream applications)
-        if (orgId != null) {
-            jwtBuilder.claim("orgId", orgId);
+        Account account = accountOpt.get();
+
+        String orgId = current.getOrgId();
+        if (orgId != null && !lookups.isMember(orgId, account.getId())) {
+            return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_grant",
+                    "Account is no longer a member of the selected organisation");
         }
-        
-        // RFC-compliant scope-based claim filtering:
-        // Add 'email' scope claims (OpenID Connect Core 1.0 Section 5.4)
-        if (scopes.contains("email")) {
-            jwtBuilder.upn(account.getEmail());  // User principal name for MicroProfile JWT
-            jwtBuilder.claim("email", account.getEmail());
-            jwtBuilder.claim("email_verified", account.getEmailVerified());
+
+        // Sign first: if signing is rejected (503) the refresh token stays usable for the retry
+        String jti = UUID.randomUUID().toString();
+        Integer statusIdx = statusListService.allocate();
+        String accessToken = referenceOrJwt(clientId,
+                userTokenService.generateAccessToken(account, clientId, current.getAuthMethod(), grantedScope, orgId, jti, statusIdx), jti,
+                Instant.now().plusSeconds(sessionTimeoutSeconds));
+        String idToken = null;
+        if (grantedScope != null && grantedScope.contains("openid")) {
+            idToken = userTokenService.generateIdToken(account, clientId, current.getAuthMethod(), grantedScope, orgId);
         }
-        
-        // Add 'profile' scope claims (OpenID Connect Core 1.0 Section 5.4)
-        if (scopes.contains("profile")) {
-            jwtBuilder.claim("name", account.getName());
-            // Note: We only store 'name' currently. In the future, you could add:
-            // family_name, given_name, middle_name, nickname, preferred_username,
-            // profile, picture, website, gender, birthdate, zoneinfo, locale, updated_at
+
+        // Consume the token; losing the race against a concurrent request with the same token is reuse
+        Optional<String> rotated = refreshTokenService.rotate(current, jti, statusIdx);
+        if (rotated.isEmpty()) {
+            return refreshTokenReused(current);
         }
-        
-        return jwtBuilder.jws()
-                    .keyId("abstrauth-key-1")  // CRITICAL: Must match kid in JWKS
-                .sign();
+
+        metricsService.recordTokenRefresh();
+        metricsService.recordTokenRequestSuccess();
+
+        TokenResponse response = new TokenResponse();
+        response.access_token = accessToken;
+        response.token_type = "Bearer";
+        response.expires_in = sessionTimeoutSeconds;
+        response.id_token = idToken;
+        response.refresh_token = rotated.get();
+        response.scope = grantedScope;
+
+        return Response.ok(response).build();
     }
 
+    private Response refreshTokenReused(RefreshToken token) {
+        // SECURITY: a rotated refresh token was presented again, so it has been copied.
+        // Either party may be the attacker, so the whole family is revoked.
+        tokenRevocationService.revokeRefreshTokenFamily(token.getFamilyId(), "refresh_token_reuse_detected");
+        metricsService.recordRefreshTokenReuse();
+        return buildErrorResponse(Response.Status.BAD_REQUEST, "invalid_grant",
+                "Refresh token has already been used");
+    }
 
     /**
      * Handle client credentials grant (RFC 6749 Section 4.4)
@@ -606,9 +605,9 @@ public class NonMultitenancyTokenResource {
         }
 
         // 2. Validate client exists and is a confidential client
-        // Use NonMultitenancyOAuthClientService because orgId is not yet known at this point
+        // Use NonMultitenancyOAuthClientService (through the request lookup cache) because orgId is not yet known at this point
         // The orgId comes from the client itself after lookup
-        var clientOpt = nonMultitenancyOAuthClientService.findByClientId(clientId);
+        var clientOpt = lookups.findClient(clientId);
         if (clientOpt.isEmpty()) {
             return buildErrorResponse(Response.Status.UNAUTHORIZED, "invalid_client",
                     "Client authentication failed");
@@ -637,7 +636,30 @@ public class NonMultitenancyTokenResource {
                     "Requested scope exceeds allowed scopes for this client");
         }
 
-        // 5. Get client roles for @RolesAllowed support
+        // 5. Hand out the previously issued token again if reuse is enabled for this client
+        boolean reuseEnabled = clientCredentialsTokenCache.isEnabledFor(clientId);
+        if (reuseEnabled) {
+            var cached = clientCredentialsTokenCache.find(clientId, client.getOrgId(), requestedScopes);
+            if (cached.isPresent() && (tokenRevocationService.isTokenRevoked(cached.get().jti())
+                    || revocationEpochService.isRevoked(null, clientId, client.getOrgId(), cached.get().issuedAtEpochSeconds()))) {
+                // revoked on another instance, or minted in the second its client or org was revoked
+                clientCredentialsTokenCache.invalidateTokens(Set.of(cached.get().jti()));
+                cached = Optional.empty();
+            }
+            if (cached.isPresent()) {
+                TokenResponse response = new TokenResponse();
+                response.access_token = cached.get().accessToken();
+                response.token_type = "Bearer";
+                response.expires_in = (int) cached.get().remainingSeconds();
+                response.scope = String.join(" ", requestedScopes);
+
+                metricsService.recordTokenRequestSuccess();
+                return Response.ok(response).build();
+            }
+        }
+        long reuseGeneration = clientCredentialsTokenCache.generation();
+
+        // 6. Get client roles for @RolesAllowed support
         // Use NonMultitenancyClientRoleService because orgId filter would exclude the client's own org
         var clientRoles = nonMultitenancyClientRoleService.findBySrcClientId(clientId);
         Set<String> groups = new HashSet<>();
@@ -648,40 +670,59 @@ public class NonMultitenancyTokenResource {
             groups.add(displayTargetId + "_" + clientRole.getRole());
             targetClientIds.add(clientRole.getTargetClientId());
         }
+        String scopeString = String.join(" ", requestedScopes);
 
-        // 6. Generate service token with BOTH scopes AND groups
+        // 7. Generate service token with BOTH scopes AND groups
         Instant now = Instant.now();
         Instant expiresAt = now.plusSeconds(3600);  // 1 hour for service tokens
 
         // Build audience from the target client ids
         Set<String> auds = new HashSet<>(targetClientIds);
 
-        String accessToken = Jwt.issuer(issuer)
-                .claim("jti", UUID.randomUUID().toString())
-                .subject(clientId)  // Service ID as subject (for audit logging)
+        // abstrauth's own API only verifies the static key, so tokens for it must not use the
+        // client's managed key
+        String signingClientId = auds.contains(Roles.CLIENT_ID) ? Roles.CLIENT_ID : clientId;
+        String jti = UUID.randomUUID().toString();
+        String accessToken = tokenMinter.sign(tokenMinter.newClaims()
+                .string("jti", jti)
+                .string("sub", clientId)  // Service ID as subject (for audit logging)
                 .audience(auds)
-                .groups(groups)     // Roles for @RolesAllowed
-                .claim("scope", String.join(" ", requestedScopes))
-                .claim("client_id", clientId)
-                .claim("auth_method", "client_credentials")
-                .issuedAt(now)
-                .expiresAt(expiresAt)
-                .claim("orgId", client.getOrgId())
-                .jws()
-                    .keyId("abstrauth-key-1")
-                .sign();
-
-        // 7. Return token response (no refresh token for client credentials)
+                .stringArray("groups", groups)     // Roles for @RolesAllowed
+                .string("scope", scopeString)
+                .fragment(tokenMinter.clientClaims(clientId, client.getOrgId()))  // client_id and orgId
+                .string("auth_method", "client_credentials")
+                .json("status", statusListService.claim(statusListService.allocate()))
+                .number("iat", now.getEpochSecond())
+                .number("exp", expiresAt.getEpochSecond()), signingClientId);
+        clientCredentialsTokenCache.recordMinted();
+        accessToken = referenceOrJwt(clientId, accessToken, jti, expiresAt);
+        if (reuseEnabled) {
+            clientCredentialsTokenCache.store(clientId, client.getOrgId(), requestedScopes,
+                    accessToken, jti, now, expiresAt, reuseGeneration);
+        }
+
+        // 8. Return token response (no refresh token for client credentials)
         TokenResponse response = new TokenResponse();
         response.access_token = accessToken;
         response.token_type = "Bearer";
         response.expires_in = 3600;
-        response.scope = String.join(" ", requestedScopes);
+        response.scope = scopeString;
 
         metricsService.recordTokenRequestSuccess();
         return Response.ok(response).build();
     }
 
+    /**
+     * The access token to hand to the client: the signed JWT, or a reference token (handle)
+     * for it if the client is configured for reference tokens, see ReferenceTokenService.
+     */
+    private String referenceOrJwt(String clientId, String accessToken, String jti, Instant expiresAt) {
+        if (!referenceTokenService.isEnabledFor(clientId)) {
+            return accessToken;
+        }
+        return referenceTokenService.issue(accessToken, jti, clientId, expiresAt);
+    }
+
     /**
      * Parse space-separated scope string into a Set
      */
@@ -694,7 +735,8 @@ public class NonMultitenancyTokenResource {
 
     /**
      * Authenticate a confidential client using its client_secret.
-     * Uses BCrypt to verify the secret against the stored hash.
+     * Uses BCrypt to verify the secret against the stored hash, unless the same secret
+     * was verified recently (see ClientSecretVerificationCache).
      *
      * @param client The OAuth client
      * @param clientSecret The client secret provided in the request
@@ -710,16 +752,9 @@ public class NonMultitenancyTokenResource {
             return false;
         }
 
-        // Get all active secrets for this client using non-multitenancy service
+        // Verify secret against all active secrets using BCrypt (or a cached verification)
         // Client secrets are owned by the client-owning org, not the user's org
-        var activeSecrets = nonMultitenancyClientSecretService.findActiveSecrets(client.getClientId());
-        if (activeSecrets.isEmpty()) {
-            return false;
-        }
-
-        // Verify secret against all active secrets using BCrypt
-        return activeSecrets.stream()
-            .anyMatch(secret -> passwordEncoder.matches(clientSecret, secret.getSecretHash()));
+        return nonMultitenancyClientSecretService.verifySecret(client.getClientId(), clientSecret);
     }
 
     /**
@@ -736,16 +771,9 @@ public class NonMultitenancyTokenResource {
             return false;
         }
 
-        // Get all active secrets for this client using non-multitenancy service
+        // Verify secret against all active secrets using BCrypt (or a cached verification)
         // Client secrets are owned by the client-owning org, not the user's org
-        var activeSecrets = nonMultitenancyClientSecretService.findActiveSecrets(client.getClientId());
-        if (activeSecrets.isEmpty()) {
-            return false;
-        }
-
-        // Verify secret against all active secrets using BCrypt
-        return activeSecrets.stream()
-            .anyMatch(secret -> passwordEncoder.matches(clientSecret, secret.getSecretHash()));
+        return nonMultitenancyClientSecretService.verifySecret(client.getClientId(), clientSecret);
     }
 
     /**
@@ -1,9 +1,14 @@
 package dev.abstratium.abstrauth.non_multitenancy.service;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.hibernate.Session;
 import org.jboss.logging.Logger;
 
 import dev.abstratium.abstrauth.boundary.ConflictException;
@@ -95,6 +100,37 @@ public class NonMultitenancyAccountRoleService {
         return roles;
     }
 
+    /**
+     * Same as {@link #findRolesByAccountIdAndClientIdAndOrgId} for several clients at once, with
+     * a single query. Used by the batch token exchange, which needs the account's roles for every
+     * requested audience.
+     *
+     * @param accountId The account ID
+     * @param clientIds The OAuth client IDs
+     * @param orgId The organisation ID
+     * @return Role names per client ID; every given client ID is present, with an empty set if the
+     *         account has no roles for it
+     */
+    public Map<String, Set<String>> findRolesByAccountIdAndClientIdsAndOrgId(String accountId, Collection<String> clientIds, String orgId) {
+        Map<String, Set<String>> rolesByClient = new HashMap<>();
+        for (String clientId : clientIds) {
+            rolesByClient.put(clientId, new HashSet<>());
+        }
+        if (clientIds.isEmpty()) {
+            return rolesByClient;
+        }
+        var query = em.createQuery(
+            "SELECT ar FROM NonMultitenancyAccountRole ar WHERE ar.accountId = :accountId AND ar.clientId IN :clientIds AND ar.orgId = :orgId",
+            NonMultitenancyAccountRole.class
+        );
+        query.setParameter("accountId", accountId);
+        query.setParameter("clientIds", clientIds);
+        query.setParameter("orgId", orgId);
+        query.getResultStream().forEach(ar -> rolesByClient.get(ar.getClientId()).add(ar.getRole()));
+        log.debugf("Found roles for accountId %s and clientIds %s: %s", accountId, clientIds, rolesByClient);
+        return rolesByClient;
+    }
+
     /**
      * Check if account has any roles for the given client within a specific org.
      * Uses NonMultitenancyAccountRole to bypass the @TenantId discriminator and query
@@ -129,6 +165,24 @@ public class NonMultitenancyAccountRoleService {
      */
     @Transactional
     public void seedDefaultRoles(String accountId, String clientId, String orgId, List<ClientAllowedRole> defaultRoles) {
+        seedRoles(accountId, clientId, orgId, defaultRoles.stream().map(ClientAllowedRole::getRole).toList());
+    }
+
+    /**
+     * Seed the given roles to an account for a specific client and org, skipping roles the
+     * account already has. The new rows are written with a single JDBC batch rather than one
+     * round trip per role.
+     *
+     * @param accountId The account ID
+     * @param clientId The OAuth client ID
+     * @param orgId The organisation ID
+     * @param roles The role names to seed
+     */
+    @Transactional
+    public void seedRoles(String accountId, String clientId, String orgId, Collection<String> roles) {
+        if (roles.isEmpty()) {
+            return;
+        }
         var query = em.createQuery(
             "SELECT ar.role FROM NonMultitenancyAccountRole ar WHERE ar.accountId = :accountId AND ar.clientId = :clientId AND ar.orgId = :orgId",
             String.class
@@ -138,16 +192,25 @@ public class NonMultitenancyAccountRoleService {
         query.setParameter("orgId", orgId);
         Set<String> existingRoles = query.getResultStream().collect(Collectors.toSet());
 
-        for (ClientAllowedRole allowedRole : defaultRoles) {
-            String roleName = allowedRole.getRole();
-            if (!existingRoles.contains(roleName)) {
-                NonMultitenancyAccountRole accountRole = new NonMultitenancyAccountRole();
-                accountRole.setAccountId(accountId);
-                accountRole.setClientId(clientId);
-                accountRole.setRole(roleName);
-                accountRole.setOrgId(orgId);
-                em.persist(accountRole);
+        // Envers audits these rows, so they are persisted as entities (a native multi-row
+        // insert would skip the audit trail) and flushed together as one batch
+        Session session = em.unwrap(Session.class);
+        Integer previousBatchSize = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(roles.size());
+        try {
+            for (String roleName : roles) {
+                if (existingRoles.add(roleName)) {
+                    NonMultitenancyAccountRole accountRole = new NonMultitenancyAccountRole();
+                    accountRole.setAccountId(accountId);
+                    accountRole.setClientId(clientId);
+                    accountRole.setRole(roleName);
+                    accountRole.setOrgId(orgId);
+                    em.persist(accountRole);
+                }
             }
+            em.flush();
+        } finally {
+            session.setJdbcBatchSize(previousBatchSize);
         }
     }
 
@@ -11,6 +11,7 @@ import java.util.stream.Collectors;
 import dev.abstratium.abstrauth.entity.AuthorizationRequest;
 import dev.abstratium.abstrauth.non_multitenancy.entity.NonMultitenancyAccount;
 import dev.abstratium.abstrauth.non_multitenancy.entity.NonMultitenancyOrganisation;
+import dev.abstratium.abstrauth.service.AccountProfileCache;
 import dev.abstratium.abstrauth.service.Roles;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -32,6 +33,9 @@ public class NonMultitenancyAccountService {
     @Inject
     EntityManager em;
 
+    @Inject
+    AccountProfileCache accountProfileCache;
+
     @Inject
     NonMultitenancyOrganisationService nonMultitenancyOrganisationService;
 
@@ -114,6 +118,7 @@ public class NonMultitenancyAccountService {
 
         em.remove(account);
         em.flush();
+        accountProfileCache.invalidate(accountId);
 
         // Delete organisations that only contained this account
         for (String orgId : singleMemberOrgIds) {
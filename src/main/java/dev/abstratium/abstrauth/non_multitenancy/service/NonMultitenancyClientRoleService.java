@@ -3,6 +3,8 @@ package dev.abstratium.abstrauth.non_multitenancy.service;
 import java.util.List;
 
 import dev.abstratium.abstrauth.non_multitenancy.entity.NonMultitenancyClientRole;
+import dev.abstratium.abstrauth.service.ClientCredentialsTokenCache;
+import dev.abstratium.abstrauth.util.TransactionHooks;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
@@ -14,6 +16,12 @@ public class NonMultitenancyClientRoleService {
     @Inject
     EntityManager em;
 
+    @Inject
+    ClientCredentialsTokenCache clientCredentialsTokenCache;
+
+    @Inject
+    TransactionHooks transactionHooks;
+
     /**
      * Find all client roles where the specified client is the source client.
      * Uses NonMultitenancyClientRole to bypass the @TenantId discriminator.
@@ -30,6 +38,27 @@ public class NonMultitenancyClientRoleService {
                 .getResultList();
     }
 
+    /**
+     * Whether the source client holds the role for calling the target client, in any organisation.
+     * Uses NonMultitenancyClientRole to bypass the @TenantId discriminator, e.g. for clients that
+     * authenticate with their secret alone.
+     *
+     * @param srcClientId The source client ID
+     * @param targetClientId The target client ID
+     * @param role The role name
+     */
+    public boolean hasRole(String srcClientId, String targetClientId, String role) {
+        return !em.createQuery(
+                "SELECT cr.id FROM NonMultitenancyClientRole cr WHERE cr.srcClientId = :srcClientId " +
+                "AND cr.targetClientId = :targetClientId AND cr.role = :role")
+                .setParameter("srcClientId", srcClientId)
+                .setParameter("targetClientId", targetClientId)
+                .setParameter("role", role)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
     /**
      * Remove all ClientRole rows for a given target client and role across ALL organisations.
      * Uses NonMultitenancyClientRole to bypass the @TenantId discriminator.
@@ -46,7 +75,7 @@ public class NonMultitenancyClientRoleService {
                 .setParameter("targetClientId", targetClientId)
                 .setParameter("role", role)
                 .getResultList()
-                .forEach(em::remove);
+                .forEach(this::remove);
     }
 
     /**
@@ -68,6 +97,13 @@ public class NonMultitenancyClientRoleService {
                 .setParameter("role", role)
                 .setParameter("owningOrgId", owningOrgId)
                 .getResultList()
-                .forEach(em::remove);
+                .forEach(this::remove);
+    }
+
+    private void remove(NonMultitenancyClientRole clientRole) {
+        em.remove(clientRole);
+        // The source client's reusable tokens still carry the removed role
+        String srcClientId = clientRole.getSrcClientId();
+        transactionHooks.afterCommit(() -> clientCredentialsTokenCache.invalidateClient(srcClientId));
     }
 }
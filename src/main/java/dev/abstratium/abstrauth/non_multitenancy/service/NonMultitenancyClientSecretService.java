@@ -2,6 +2,8 @@ package dev.abstratium.abstrauth.non_multitenancy.service;
 
 import dev.abstratium.abstrauth.non_multitenancy.entity.NonMultitenancyClientSecret;
 import dev.abstratium.abstrauth.non_multitenancy.entity.NonMultitenancyOAuthClient;
+import dev.abstratium.abstrauth.service.ClientSecretVerificationCache;
+import dev.abstratium.abstrauth.util.PasswordEncoder;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
@@ -30,6 +32,12 @@ public class NonMultitenancyClientSecretService {
     @Inject
     EntityManager em;
 
+    @Inject
+    PasswordEncoder passwordEncoder;
+
+    @Inject
+    ClientSecretVerificationCache verificationCache;
+
     /**
      * Find all active AND non-expired secrets for a client.
      * Used during token endpoint authentication to check against all valid secrets.
@@ -56,6 +64,33 @@ public class NonMultitenancyClientSecretService {
         return query.getResultList();
     }
 
+    /**
+     * Verify a presented client secret against all active, non-expired secrets of a client.
+     *
+     * Successful verifications are remembered in the {@link ClientSecretVerificationCache},
+     * so that repeated requests by the same client do not pay for BCrypt again until the
+     * cache entry expires or the client's secrets change.
+     *
+     * @param clientId the client ID
+     * @param presentedSecret the plain secret sent by the client
+     * @return true if the secret matches one of the client's active secrets
+     */
+    public boolean verifySecret(String clientId, String presentedSecret) {
+        if (verificationCache.isVerified(clientId, presentedSecret)) {
+            return true;
+        }
+
+        // read the generation before loading, so that a concurrent revocation wins
+        long generation = verificationCache.generation();
+        for (NonMultitenancyClientSecret secret : findActiveSecrets(clientId)) {
+            if (passwordEncoder.matches(presentedSecret, secret.getSecretHash())) {
+                verificationCache.recordVerified(clientId, presentedSecret, secret.getExpiresAt(), generation);
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Find active secrets that need a first expiration warning (within 30 days,
      * more than 3 days away, and first warning not yet sent).
@@ -11,8 +11,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.abstratium.abstrauth.entity.OAuthClient;
 import dev.abstratium.abstrauth.non_multitenancy.entity.NonMultitenancyClientSecret;
 import dev.abstratium.abstrauth.non_multitenancy.entity.NonMultitenancyOAuthClient;
+import dev.abstratium.abstrauth.service.ClientCredentialsTokenCache;
+import dev.abstratium.abstrauth.service.ClientSecretVerificationCache;
+import dev.abstratium.abstrauth.service.DefaultRoleSeeder;
 import dev.abstratium.abstrauth.service.OAuthClientService;
 import dev.abstratium.abstrauth.service.Roles;
+import dev.abstratium.abstrauth.util.TransactionHooks;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
@@ -35,6 +39,18 @@ public class NonMultitenancyOAuthClientService {
     @Inject
     ObjectMapper objectMapper;
 
+    @Inject
+    ClientSecretVerificationCache verificationCache;
+
+    @Inject
+    ClientCredentialsTokenCache clientCredentialsTokenCache;
+
+    @Inject
+    DefaultRoleSeeder defaultRoleSeeder;
+
+    @Inject
+    TransactionHooks transactionHooks;
+
     /**
      * Returns clients matching the given clientIds, across all organisations.
      * Uses NonMultitenancyOAuthClient to bypass the @TenantId discriminator so that
@@ -89,6 +105,14 @@ public class NonMultitenancyOAuthClientService {
         NonMultitenancyOAuthClient client = clientOpt.get();
 
         em.remove(client);
+        // Only once committed, otherwise a concurrent request could cache the old state again
+        transactionHooks.afterCommit(() -> {
+            verificationCache.invalidateClient(clientId);
+            // The cascade also removes the client's allowed roles
+            defaultRoleSeeder.invalidateClient(clientId);
+            // The cascade also removes roles other clients hold on this client
+            clientCredentialsTokenCache.clear();
+        });
         return true;
     }
 
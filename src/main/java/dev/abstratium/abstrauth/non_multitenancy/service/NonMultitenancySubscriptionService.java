@@ -1,5 +1,7 @@
 package dev.abstratium.abstrauth.non_multitenancy.service;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import dev.abstratium.abstrauth.non_multitenancy.entity.NonMultitenancySubscription;
@@ -25,6 +27,21 @@ public class NonMultitenancySubscriptionService {
                 .findFirst();
     }
 
+    /**
+     * The org's subscriptions to any of the given clients, with a single query.
+     */
+    public List<NonMultitenancySubscription> findNonMultitenancySubscriptions(String orgId, Collection<String> clientIds) {
+        if (clientIds.isEmpty()) {
+            return List.of();
+        }
+        return em.createQuery(
+                "SELECT s FROM NonMultitenancySubscription s WHERE s.orgId = :orgId AND s.clientId IN :clientIds",
+                NonMultitenancySubscription.class)
+                .setParameter("orgId", orgId)
+                .setParameter("clientIds", clientIds)
+                .getResultList();
+    }
+
     /**
      * Ensures the org is subscribed to the client.
      * If not subscribed and autoSubscribe is true, creates the subscription automatically.
@@ -0,0 +1,238 @@
+package dev.abstratium.abstrauth.non_multitenancy.service;
+
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import dev.abstratium.abstrauth.entity.AuthorizationCode;
+import dev.abstratium.abstrauth.entity.AuthorizationRequest;
+import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyUserTokenService.PreparedTokens;
+import dev.abstratium.abstrauth.util.TransactionHooks;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Mints the tokens of an authorization code in the background while the browser is being
+ * redirected back to the client, so that the token request only has to validate the client
+ * and PKCE and can return tokens that were signed in the meantime.
+ *
+ * Opt-in with {@code abstrauth.token.precompute.enabled}. Once the code has been committed,
+ * the default roles are seeded and the access and ID tokens are minted on a small dedicated
+ * pool and kept in memory, keyed by the ID of the code, until the code is redeemed or expires.
+ * If the tokens are not ready when the code is redeemed (not computed yet, the pool was
+ * busy, another instance issued the code, or the inputs no longer match), the token endpoint
+ * mints them inline as before.
+ *
+ * The roles in precomputed tokens are those of the moment the code was issued, so a role
+ * change made while the code is outstanding (at most the code lifetime of 5 minutes) only
+ * shows up with the next token.
+ */
+@ApplicationScoped
+public class NonMultitenancyTokenPrecomputer {
+
+    private static final Logger log = Logger.getLogger(NonMultitenancyTokenPrecomputer.class);
+
+    @Inject
+    NonMultitenancyUserTokenService userTokenService;
+
+    @Inject
+    TransactionHooks transactionHooks;
+
+    @ConfigProperty(name = "abstrauth.token.precompute.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "abstrauth.token.precompute.threads", defaultValue = "1")
+    int threads;
+
+    @ConfigProperty(name = "abstrauth.token.precompute.queue-size", defaultValue = "256")
+    int queueSize;
+
+    @ConfigProperty(name = "abstrauth.token.precompute.max-entries", defaultValue = "10000")
+    int maxEntries;
+
+    // How long the token request waits for tokens that are still being minted, before minting inline
+    @ConfigProperty(name = "abstrauth.token.precompute.wait.millis", defaultValue = "100")
+    long waitMillis;
+
+    private ThreadPoolExecutor executor;
+
+    // Key: authorization code ID, Value: the tokens being or having been minted for it
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder prepared = new LongAdder();
+    private final LongAdder used = new LongAdder();
+    private final LongAdder missed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "abstrauth-token-precompute-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * Start minting the tokens for an authorization code that was just persisted. Within a
+     * transaction the work only starts once it has committed.
+     */
+    public void schedule(AuthorizationCode authCode, AuthorizationRequest request) {
+        if (!isEnabled()) {
+            return;
+        }
+        Pending entry = new Pending(authCode.getAccountId(), authCode.getClientId(), authCode.getScope(),
+                request.getAuthMethod() != null ? request.getAuthMethod() : "unknown", request.getOrgId(),
+                authCode.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                new CompletableFuture<>());
+        String codeId = authCode.getId();
+        transactionHooks.afterCommit(() -> submit(codeId, entry));
+    }
+
+    /**
+     * Remove and return the tokens minted for an authorization code that is being redeemed.
+     * The remaining arguments are those the token endpoint would mint with; if any of them
+     * differs from what the tokens were minted with, they are not used.
+     *
+     * @return the tokens, or empty if the caller has to mint them itself
+     */
+    public Optional<PreparedTokens> take(String codeId, String accountId, String clientId, String scope,
+                                         String authMethod, String orgId) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        Pending entry = pending.remove(codeId);
+        if (entry == null || !entry.matches(accountId, clientId, scope, authMethod, orgId)) {
+            missed.increment();
+            return Optional.empty();
+        }
+        PreparedTokens tokens = null;
+        try {
+            tokens = entry.tokens().get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // still being minted or failed; minting inline is quicker than waiting any longer
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (tokens == null) {
+            missed.increment();
+            return Optional.empty();
+        }
+        used.increment();
+        return Optional.of(tokens);
+    }
+
+    /**
+     * Drop the tokens of codes that expired without being redeemed.
+     */
+    @Scheduled(every = "${abstrauth.token.precompute.purge.interval}")
+    void purgeExpired() {
+        long now = System.currentTimeMillis();
+        pending.values().removeIf(entry -> entry.codeExpiresAtMillis() <= now);
+    }
+
+    /**
+     * Drop all precomputed tokens. Useful for testing or administrative purposes.
+     */
+    public void clear() {
+        pending.clear();
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    public long getPreparedCount() {
+        return prepared.sum();
+    }
+
+    public long getUsedCount() {
+        return used.sum();
+    }
+
+    public long getMissedCount() {
+        return missed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private void submit(String codeId, Pending entry) {
+        if (pending.size() >= maxEntries) {
+            rejected.increment();
+            return;
+        }
+        pending.put(codeId, entry);
+        try {
+            executor.execute(() -> {
+                try {
+                    PreparedTokens tokens = userTokenService.prepare(entry.accountId(), entry.clientId(),
+                            entry.authMethod(), entry.scope(), entry.orgId());
+                    if (tokens == null) {
+                        pending.remove(codeId, entry);
+                        entry.tokens().complete(null);
+                        return;
+                    }
+                    entry.tokens().complete(tokens);
+                    prepared.increment();
+                } catch (RuntimeException e) {
+                    log.debugf(e, "Failed to precompute the tokens of authorization code %s", codeId);
+                    pending.remove(codeId, entry);
+                    entry.tokens().completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the pool is busy, so the token endpoint mints these tokens itself
+            pending.remove(codeId, entry);
+            rejected.increment();
+        }
+    }
+
+    private record Pending(String accountId, String clientId, String scope, String authMethod, String orgId,
+                           long codeExpiresAtMillis, CompletableFuture<PreparedTokens> tokens) {
+
+        boolean matches(String accountId, String clientId, String scope, String authMethod, String orgId) {
+            return Objects.equals(this.accountId, accountId)
+                    && Objects.equals(this.clientId, clientId)
+                    && Objects.equals(this.scope, scope)
+                    && Objects.equals(this.authMethod, authMethod)
+                    && Objects.equals(this.orgId, orgId);
+        }
+    }
+}
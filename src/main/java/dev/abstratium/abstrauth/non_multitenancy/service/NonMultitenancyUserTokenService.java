@@ -0,0 +1,221 @@
+package dev.abstratium.abstrauth.non_multitenancy.service;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import dev.abstratium.abstrauth.entity.Account;
+import dev.abstratium.abstrauth.service.AccountService;
+import dev.abstratium.abstrauth.service.CurrentOrgContext;
+import dev.abstratium.abstrauth.service.StatusListService;
+import dev.abstratium.abstrauth.service.TokenMinter;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.inject.Inject;
+
+/**
+ * Mints the access and ID tokens that the token endpoint issues to accounts, for the
+ * authorization code and refresh token grants.
+ *
+ * Roles are read with NonMultitenancyAccountRoleService (through the RequestLookupCache)
+ * because the orgId comes from the AuthorizationRequest or refresh token, not from a JWT, so
+ * Hibernate's @TenantId discriminator cannot be relied upon.
+ */
+@ApplicationScoped
+public class NonMultitenancyUserTokenService {
+
+    @Inject
+    RequestLookupCache lookups;
+
+    @Inject
+    TokenMinter tokenMinter;
+
+    @Inject
+    AccountService accountService;
+
+    @Inject
+    CurrentOrgContext orgCtx;
+
+    @Inject
+    StatusListService statusListService;
+
+    @ConfigProperty(name = "abstrauth.session.timeout.seconds", defaultValue = "900")
+    int sessionTimeoutSeconds;
+
+    /**
+     * Everything the authorization code grant needs for an account, minted ahead of the
+     * redemption by the NonMultitenancyTokenPrecomputer.
+     *
+     * @param accessToken The signed JWT access token (never a reference token handle)
+     * @param jti The JWT ID of the access token
+     * @param statusIdx The index of the access token in the status list, or null
+     * @param expiresAt No later than the exp claim of the access token
+     * @param idToken The ID token, or null if the scope does not contain openid
+     */
+    public record PreparedTokens(String accessToken, String jti, Integer statusIdx, Instant expiresAt, String idToken) {
+    }
+
+    /**
+     * Seed the default roles and mint the tokens for an authorization code that was just
+     * issued, outside of any HTTP request.
+     *
+     * @return the tokens, or null if the account no longer exists
+     */
+    @ActivateRequestContext
+    public PreparedTokens prepare(String accountId, String clientId, String authMethod, String scope, String orgId) {
+        orgCtx.setContextDescription("NonMultitenancyUserTokenService#prepare");
+        orgCtx.setIgnore(true);
+
+        Account account = accountService.findById(accountId).orElse(null);
+        if (account == null) {
+            return null;
+        }
+
+        // Seed default roles if no AccountRole rows exist for this account + clientId + orgId
+        if (orgId != null) {
+            lookups.seedDefaultRolesIfNone(accountId, clientId, orgId);
+        }
+
+        Instant expiresAt = Instant.now().plusSeconds(sessionTimeoutSeconds);
+        String jti = UUID.randomUUID().toString();
+        Integer statusIdx = statusListService.allocate();
+        String accessToken = generateAccessToken(account, clientId, authMethod, scope, orgId, jti, statusIdx);
+        String idToken = null;
+        if (scope != null && scope.contains("openid")) {
+            idToken = generateIdToken(account, clientId, authMethod, scope, orgId);
+        }
+        return new PreparedTokens(accessToken, jti, statusIdx, expiresAt, idToken);
+    }
+
+    /**
+     * Generate access token with RFC-compliant scope-based claim filtering.
+     *
+     * @param account The authenticated user account
+     * @param clientId The OAuth client ID
+     * @param authMethod The authentication method used
+     * @param scope Space-delimited scope string from the authorization request
+     * @param orgId The organization ID from the authorization request
+     * @param jti Unique JWT ID for token revocation support, also recorded with the refresh token
+     * @param statusIdx Index in the status list (see StatusListService.allocate()), also recorded
+     *                  with the refresh token, or null for no status claim
+     * @return Signed JWT access token
+     */
+    public String generateAccessToken(Account account, String clientId, String authMethod, String scope, String orgId, String jti,
+                                      Integer statusIdx) {
+        Instant now = Instant.now();
+        Instant expiresAt = now.plusSeconds(sessionTimeoutSeconds);
+
+        // Get roles (groups) for this account and client from the database
+        // Uses non-multitenancy service because orgId comes from AuthorizationRequest, not JWT
+        Set<String> dbRoles = lookups.findRoles(account.getId(), clientId, orgId);
+
+        // Parse scopes for claim filtering
+        Set<String> scopes = parseScopes(scope);
+
+        // Write JWT with mandatory claims
+        // client_id and orgId (tenant context for downstream applications, if available)
+        // come from a cached per-(client, org) fragment
+        var claims = tokenMinter.newClaims()
+                .string("jti", jti)  // JWT ID for token revocation
+                .string("sub", account.getId())  // ALWAYS include sub - it's the primary subject identifier
+                .string("aud", clientId)  // REQUIRED: audience is the client_id
+                .prefixedStringArray("groups", tokenMinter.groupPrefix(clientId), dbRoles)  // ALWAYS include groups for @RolesAllowed authorization
+                .string("scope", scope)
+                .fragment(tokenMinter.clientClaims(clientId, orgId))
+                .string("auth_method", authMethod)
+                .json("status", statusListService.claim(statusIdx))  // revocation bit for offline checks
+                .number("iat", now.getEpochSecond())
+                .number("exp", expiresAt.getEpochSecond());
+
+        // RFC-compliant scope-based claim filtering:
+        // Add 'email' scope claims (OpenID Connect Core 1.0 Section 5.4)
+        if (scopes.contains("email")) {
+            claims.string("upn", account.getEmail());  // User Principal Name for MicroProfile JWT
+            claims.string("email", account.getEmail());
+            claims.bool("email_verified", account.getEmailVerified());
+        }
+
+        // Add 'profile' scope claims (OpenID Connect Core 1.0 Section 5.4)
+        if (scopes.contains("profile")) {
+            claims.string("name", account.getName());
+            // Note: We only store 'name' currently. In the future, you could add:
+            // family_name, given_name, middle_name, nickname, preferred_username,
+            // profile, picture, website, gender, birthdate, zoneinfo, locale, updated_at
+        }
+
+        return tokenMinter.sign(claims, clientId);  // key (and kid) chosen per client by the SigningKeyRing
+    }
+
+    /**
+     * Generate OpenID Connect ID Token with RFC-compliant scope-based claim filtering.
+     *
+     * ID tokens are used to convey user identity information to the client.
+     * According to OpenID Connect Core 1.0:
+     * - ID tokens MUST contain: iss, sub, aud, exp, iat (Section 2)
+     * - Additional claims are controlled by scopes requested during authorization
+     * - 'profile' scope: name and other profile claims
+     * - 'email' scope: email, email_verified
+     *
+     * Note: This method is only called when 'openid' scope is present, so we know
+     * the client requested OpenID Connect authentication.
+     *
+     * @param account The authenticated user account
+     * @param clientId The OAuth client ID
+     * @param authMethod The authentication method used
+     * @param scope Space-delimited scope string from the authorization request
+     * @param orgId The organization ID from the authorization request
+     * @return Signed JWT ID token
+     */
+    public String generateIdToken(Account account, String clientId, String authMethod, String scope, String orgId) {
+        Instant now = Instant.now();
+        Instant expiresAt = now.plusSeconds(sessionTimeoutSeconds);
+
+        // Get roles (groups) for this account and client
+        // Uses non-multitenancy service because orgId comes from AuthorizationRequest, not JWT
+        Set<String> dbRoles = lookups.findRoles(account.getId(), clientId, orgId);
+
+        // Parse scopes for claim filtering
+        Set<String> scopes = parseScopes(scope);
+
+        // Write ID token with mandatory claims (OpenID Connect Core 1.0 Section 2)
+        // client_id and orgId (if available) come from a cached per-(client, org) fragment
+        var claims = tokenMinter.newClaims()
+                .string("jti", UUID.randomUUID().toString())  // Unique token ID
+                .string("sub", account.getId())  // REQUIRED: Subject identifier
+                .string("aud", clientId)  // REQUIRED: ID token audience is the client_id
+                .prefixedStringArray("groups", tokenMinter.groupPrefix(clientId), dbRoles)  // Add groups/roles for @RolesAllowed authorization
+                .fragment(tokenMinter.clientClaims(clientId, orgId))
+                .string("auth_method", authMethod)
+                .number("iat", now.getEpochSecond())  // REQUIRED: Issued at time
+                .number("exp", expiresAt.getEpochSecond());  // REQUIRED: Expiration time
+
+        // RFC-compliant scope-based claim filtering:
+        // Add 'email' scope claims (OpenID Connect Core 1.0 Section 5.4)
+        if (scopes.contains("email")) {
+            claims.string("upn", account.getEmail());  // User principal name for MicroProfile JWT
+            claims.string("email", account.getEmail());
+            claims.bool("email_verified", account.getEmailVerified());
+        }
+
+        // Add 'profile' scope claims (OpenID Connect Core 1.0 Section 5.4)
+        if (scopes.contains("profile")) {
+            claims.string("name", account.getName());
+            // Note: We only store 'name' currently. In the future, you could add:
+            // family_name, given_name, middle_name, nickname, preferred_username,
+            // profile, picture, website, gender, birthdate, zoneinfo, locale, updated_at
+        }
+
+        return tokenMinter.sign(claims, clientId);  // CRITICAL: kid must match JWKS, see SigningKeyRing
+    }
+
+    private static Set<String> parseScopes(String scopeString) {
+        if (scopeString == null || scopeString.isBlank()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(Arrays.asList(scopeString.trim().split("\\s+")));
+    }
+}
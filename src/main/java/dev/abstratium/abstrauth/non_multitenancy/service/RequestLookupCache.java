@@ -0,0 +1,200 @@
+package dev.abstratium.abstrauth.non_multitenancy.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.jboss.logging.Logger;
+
+import dev.abstratium.abstrauth.non_multitenancy.entity.NonMultitenancyOAuthClient;
+import dev.abstratium.abstrauth.non_multitenancy.entity.NonMultitenancySubscription;
+import dev.abstratium.abstrauth.service.DefaultRoleSeeder;
+import dev.abstratium.abstrauth.service.MetricsService;
+import dev.abstratium.abstrauth.service.OrganisationService;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Request-scoped memoization of the read lookups made by the token endpoints.
+ *
+ * A single token request reads the same rows several times, e.g. the account's roles for the
+ * default role check, the access token and the ID token, or the calling client for
+ * authentication and again for authorization. Going through this bean, each distinct lookup
+ * hits the database at most once per request. Nothing outlives the request, so there is no
+ * invalidation across requests; writes made through this bean (role seeding) evict the
+ * affected entries. Requests that need the same lookup for several clients (the batch token
+ * exchange) preload them with one query each.
+ *
+ * The number of queries saved is logged at debug level when the request ends and counted in
+ * the {@code abstrauth.request.lookup.saved} metric.
+ */
+@RequestScoped
+public class RequestLookupCache {
+
+    private static final Logger log = Logger.getLogger(RequestLookupCache.class);
+
+    @Inject
+    NonMultitenancyOAuthClientService nonMultitenancyOAuthClientService;
+
+    @Inject
+    NonMultitenancyAccountRoleService nonMultitenancyAccountRoleService;
+
+    @Inject
+    NonMultitenancySubscriptionService nonMultitenancySubscriptionService;
+
+    @Inject
+    OrganisationService organisationService;
+
+    @Inject
+    DefaultRoleSeeder defaultRoleSeeder;
+
+    @Inject
+    MetricsService metricsService;
+
+    // request scoped, so only ever used by one thread at a time
+    private final Map<String, Object> values = new HashMap<>();
+
+    private int lookups;
+    private int saved;
+
+    public Optional<NonMultitenancyOAuthClient> findClient(String clientId) {
+        return memoize("client", () -> nonMultitenancyOAuthClientService.findByClientId(clientId), clientId);
+    }
+
+    public Optional<NonMultitenancySubscription> findSubscription(String orgId, String clientId) {
+        return memoize("subscription", () -> nonMultitenancySubscriptionService.findNonMultitenancySubscription(orgId, clientId),
+                orgId, clientId);
+    }
+
+    public Set<String> findRoles(String accountId, String clientId, String orgId) {
+        return memoize("roles", () -> nonMultitenancyAccountRoleService.findRolesByAccountIdAndClientIdAndOrgId(accountId, clientId, orgId),
+                accountId, clientId, orgId);
+    }
+
+    /**
+     * Load the clients with the given IDs that were not looked up yet in one query, so that the
+     * following {@link #findClient} calls for them are answered from memory.
+     */
+    public void preloadClients(Collection<String> clientIds) {
+        List<String> missing = missing(clientIds, id -> key("client", id));
+        if (missing.isEmpty()) {
+            return;
+        }
+        lookups++;
+        Map<String, NonMultitenancyOAuthClient> found = new HashMap<>();
+        for (NonMultitenancyOAuthClient client : nonMultitenancyOAuthClientService.findAllByClientIds(new HashSet<>(missing))) {
+            found.put(client.getClientId(), client);
+        }
+        for (String clientId : missing) {
+            values.put(key("client", clientId), Optional.ofNullable(found.get(clientId)));
+        }
+    }
+
+    /**
+     * Like {@link #preloadClients}, for the org's subscriptions to the given clients.
+     */
+    public void preloadSubscriptions(String orgId, Collection<String> clientIds) {
+        List<String> missing = missing(clientIds, id -> key("subscription", orgId, id));
+        if (missing.isEmpty()) {
+            return;
+        }
+        lookups++;
+        Map<String, NonMultitenancySubscription> found = new HashMap<>();
+        for (NonMultitenancySubscription subscription : nonMultitenancySubscriptionService.findNonMultitenancySubscriptions(orgId, missing)) {
+            found.put(subscription.getClientId(), subscription);
+        }
+        for (String clientId : missing) {
+            values.put(key("subscription", orgId, clientId), Optional.ofNullable(found.get(clientId)));
+        }
+    }
+
+    /**
+     * Like {@link #preloadClients}, for the account's roles for the given clients in the org.
+     */
+    public void preloadRoles(String accountId, Collection<String> clientIds, String orgId) {
+        List<String> missing = missing(clientIds, id -> key("roles", accountId, id, orgId));
+        if (missing.isEmpty()) {
+            return;
+        }
+        lookups++;
+        nonMultitenancyAccountRoleService.findRolesByAccountIdAndClientIdsAndOrgId(accountId, missing, orgId)
+                .forEach((clientId, roles) -> values.put(key("roles", accountId, clientId, orgId), roles));
+    }
+
+    /**
+     * Same as {@link NonMultitenancyAccountRoleService#hasAnyRoleForClient}, answered from the
+     * roles, so that the check and the subsequent token generation share one query.
+     */
+    public boolean hasAnyRoleForClient(String accountId, String clientId, String orgId) {
+        return !findRoles(accountId, clientId, orgId).isEmpty();
+    }
+
+    /**
+     * Seed the client's default roles if the account has no roles for the client in the org yet,
+     * and forget the roles read so far for the account, client and org.
+     */
+    public void seedDefaultRolesIfNone(String accountId, String clientId, String orgId) {
+        if (hasAnyRoleForClient(accountId, clientId, orgId)) {
+            return;
+        }
+        if (defaultRoleSeeder.seed(accountId, clientId, orgId, () -> isOwner(orgId, accountId))) {
+            values.remove(key("roles", accountId, clientId, orgId));
+        }
+    }
+
+    public boolean isMember(String orgId, String accountId) {
+        return memoize("member", () -> organisationService.isMember(orgId, accountId), orgId, accountId);
+    }
+
+    public boolean isOwner(String orgId, String accountId) {
+        return memoize("owner", () -> organisationService.isOwner(orgId, accountId), orgId, accountId);
+    }
+
+    /**
+     * Number of lookups answered without a query so far in this request.
+     */
+    public int getSavedCount() {
+        return saved;
+    }
+
+    @PreDestroy
+    void report() {
+        if (saved > 0) {
+            log.debugf("Request lookup cache saved %d of %d queries", saved, lookups);
+            metricsService.recordRequestLookupsSaved(saved);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T memoize(String kind, Supplier<T> loader, String... parts) {
+        lookups++;
+        String key = key(kind, parts);
+        if (values.containsKey(key)) {
+            saved++;
+            return (T) values.get(key);
+        }
+        T value = loader.get();
+        values.put(key, value);
+        return value;
+    }
+
+    private List<String> missing(Collection<String> ids, Function<String, String> keyOf) {
+        return ids.stream().distinct().filter(id -> !values.containsKey(keyOf.apply(id))).toList();
+    }
+
+    private static String key(String kind, String... parts) {
+        StringBuilder sb = new StringBuilder(kind);
+        for (String part : parts) {
+            // NUL cannot occur in ids, so keys of different parts cannot collide
+            sb.append('\0').append(part);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package dev.abstratium.abstrauth.service;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import dev.abstratium.abstrauth.util.BoundedTtlCache;
+import dev.abstratium.abstrauth.util.TransactionHooks;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Bounded in-memory cache of the profile claims of accounts, as served by the OIDC userinfo
+ * endpoint.
+ *
+ * Resource servers may call userinfo on every request, so only the few columns the endpoint
+ * needs are read (across all organisations, using NonMultitenancyAccount) and kept for
+ * {@code abstrauth.account-profile.cache.ttl.seconds}. Updating or deleting an account through
+ * AccountService or NonMultitenancyAccountService invalidates its entry; other instances see the
+ * change once their entry expires. Setting the TTL to 0 disables the cache.
+ */
+@ApplicationScoped
+public class AccountProfileCache {
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    TransactionHooks transactionHooks;
+
+    @ConfigProperty(name = "abstrauth.account-profile.cache.ttl.seconds", defaultValue = "300")
+    int ttlSeconds;
+
+    @ConfigProperty(name = "abstrauth.account-profile.cache.max-entries", defaultValue = "100000")
+    int maxEntries;
+
+    // Key: account ID, Value: the profile. Its generation ensures that loads which started
+    // before an invalidation cannot re-populate the cache with the old profile
+    private BoundedTtlCache<String, AccountProfile> entries;
+
+    @PostConstruct
+    void init() {
+        entries = new BoundedTtlCache<>(maxEntries);
+    }
+
+    /**
+     * The profile of an account.
+     *
+     * @return the profile, or empty if the account does not exist
+     */
+    public Optional<AccountProfile> find(String accountId) {
+        if (accountId == null) {
+            return Optional.empty();
+        }
+        AccountProfile cached = entries.get(accountId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        // read the generation before loading, so that a concurrent update wins
+        long generationAtLoad = entries.generation();
+        List<AccountProfile> found = em.createQuery(
+                "SELECT new dev.abstratium.abstrauth.service.AccountProfileCache$AccountProfile(a.id, a.email, a.name, a.emailVerified, a.picture) " +
+                "FROM NonMultitenancyAccount a WHERE a.id = :accountId",
+                AccountProfile.class)
+                .setParameter("accountId", accountId)
+                .getResultList();
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        AccountProfile profile = found.get(0);
+        entries.put(accountId, profile, System.currentTimeMillis() + ttlSeconds * 1000L, generationAtLoad);
+        return Optional.of(profile);
+    }
+
+    /**
+     * Drop the cached profile of an account that is being updated or deleted, once the change is
+     * committed, so that a load that read the row before the commit cannot bring the old profile back.
+     */
+    public void invalidate(String accountId) {
+        transactionHooks.afterCommit(() -> entries.invalidate(accountId));
+    }
+
+    /**
+     * Drop all cached profiles. Useful for testing or administrative purposes.
+     */
+    public void clear() {
+        entries.invalidateAll();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return entries.getHitCount();
+    }
+
+    public long getMissCount() {
+        return entries.getMissCount();
+    }
+
+    /**
+     * The claims of an account that the userinfo endpoint can return.
+     */
+    public record AccountProfile(String id, String email, String name, Boolean emailVerified, String picture) {
+    }
+}
@@ -49,6 +49,9 @@ public class AccountService {
     @Inject
     PasswordEncoder passwordEncoder;
 
+    @Inject
+    AccountProfileCache accountProfileCache;
+
     @ConfigProperty(name = "password.pepper")
     String pepper;
 
@@ -206,6 +209,7 @@ public class AccountService {
 
     @Transactional
     public Account updateAccount(Account account) {
+        accountProfileCache.invalidate(account.getId());
         return em.merge(account);
     }
 
@@ -5,8 +5,10 @@ import java.util.Base64;
 import java.util.Optional;
 
 import dev.abstratium.abstrauth.boundary.TimedOutException;
+import dev.abstratium.abstrauth.entity.Account;
 import dev.abstratium.abstrauth.entity.AuthorizationCode;
 import dev.abstratium.abstrauth.entity.AuthorizationRequest;
+import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyTokenPrecomputer;
 import dev.abstratium.abstrauth.util.SecureRandomProvider;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.context.control.ActivateRequestContext;
@@ -30,6 +32,9 @@ public class AuthorizationService {
     @Inject
     OAuthClientService oAuthClientService;
 
+    @Inject
+    NonMultitenancyTokenPrecomputer tokenPrecomputer;
+
     @Transactional
     public AuthorizationRequest createAuthorizationRequest(
             String clientId,
@@ -165,23 +170,69 @@ public class AuthorizationService {
         authCode.setCodeChallengeMethod(request.getCodeChallengeMethod());
 
         em.persist(authCode);
+
+        // Mint the tokens while the browser is redirected back to the client (if enabled)
+        tokenPrecomputer.schedule(authCode, request);
         return authCode;
     }
 
     public Optional<AuthorizationCode> findAuthorizationCode(String code) {
-        var query = em.createQuery("SELECT ac FROM AuthorizationCode ac WHERE ac.code = :code", AuthorizationCode.class);
-        query.setParameter("code", code);
-        return query.getResultStream().findFirst();
+        if (code == null) {
+            return Optional.empty();
+        }
+        AuthorizationCode authCode = em.find(AuthorizationCode.class, AuthorizationCode.idForCode(code));
+        if (authCode != null) {
+            authCode.setCode(code);
+        }
+        return Optional.ofNullable(authCode);
+    }
+
+    /**
+     * Load everything the token endpoint needs to redeem a code in a single query: the code
+     * (by primary key), its account, the auth method and org of the authorization request, and
+     * whether the account is still a member of that org. Nothing is modified; use
+     * {@link #claimAuthorizationCode(String)} to consume the code.
+     */
+    public Optional<CodeRedemption> findCodeRedemption(String code) {
+        if (code == null) {
+            return Optional.empty();
+        }
+        return em.createQuery("""
+                SELECT ac, a, r.authMethod, r.orgId,
+                       (SELECT COUNT(oa) FROM OrganisationAccount oa
+                        WHERE oa.id.orgId = r.orgId AND oa.id.accountId = ac.accountId AND oa.id.role = :member)
+                FROM AuthorizationCode ac
+                JOIN Account a ON a.id = ac.accountId
+                LEFT JOIN AuthorizationRequest r ON r.id = ac.authorizationRequestId
+                WHERE ac.id = :id""", Object[].class)
+                .setParameter("id", AuthorizationCode.idForCode(code))
+                .setParameter("member", OrganisationService.ROLE_MEMBER)
+                .getResultStream()
+                .findFirst()
+                .map(row -> {
+                    AuthorizationCode authCode = (AuthorizationCode) row[0];
+                    authCode.setCode(code);
+                    return new CodeRedemption(authCode, (Account) row[1], (String) row[2], (String) row[3],
+                            ((Number) row[4]).longValue() > 0);
+                });
+    }
+
+    /**
+     * Consume an authorization code with a single conditional update. Of several concurrent
+     * redemptions of the same code exactly one gets true; the others must treat it as a replay.
+     *
+     * @return true if the code was unused and is now marked as used
+     */
+    @Transactional
+    public boolean claimAuthorizationCode(String authCodeId) {
+        return em.createQuery("UPDATE AuthorizationCode ac SET ac.used = true WHERE ac.id = :id AND ac.used = false")
+                .setParameter("id", authCodeId)
+                .executeUpdate() == 1;
     }
 
     @Transactional
     public void markCodeAsUsed(String code) {
-        Optional<AuthorizationCode> authCodeOpt = findAuthorizationCode(code);
-        if (authCodeOpt.isPresent()) {
-            AuthorizationCode authCode = authCodeOpt.get();
-            authCode.setUsed(true);
-            em.merge(authCode);
-        }
+        claimAuthorizationCode(AuthorizationCode.idForCode(code));
     }
 
     @Transactional
@@ -198,4 +249,15 @@ public class AuthorizationService {
         secureRandomProvider.getSecureRandom().nextBytes(randomBytes);
         return Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
     }
+
+    /**
+     * An authorization code together with the data needed to issue tokens for it.
+     *
+     * @param authMethod The auth method of the authorization request, or null if the request is gone
+     * @param orgId The org selected during the authorization request, or null
+     * @param member Whether the account is a member of orgId
+     */
+    public record CodeRedemption(AuthorizationCode authCode, Account account, String authMethod, String orgId,
+                                 boolean member) {
+    }
 }
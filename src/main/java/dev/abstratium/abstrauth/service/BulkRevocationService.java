@@ -0,0 +1,168 @@
+package dev.abstratium.abstrauth.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import dev.abstratium.abstrauth.entity.RevocationEpoch;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.transaction.Transactional;
+
+/**
+ * Incident response: revoke every token of many accounts, clients and organisations in one
+ * transaction, e.g. when a client is compromised or an organisation is offboarded. Accounts are
+ * revoked within one organisation only (MEMBER epochs), like at the revoke-tokens endpoint of
+ * AccountsResource, since they may be members of organisations the caller does not administer.
+ *
+ * The revocation epochs of the subjects are bumped, which revokes all of their tokens for the
+ * checks made here (filters, introspection, revocation feed). The refresh tokens of all subjects
+ * are revoked with a single update. The access tokens that are known by jti, i.e. those issued
+ * together with a refresh token within the last {@code abstrauth.session.timeout.seconds}, are
+ * additionally revoked one by one, with batched inserts (see
+ * {@link TokenRevocationService#revokeTokens}), so that their status list bits are set and
+ * resource servers that only check the status list stop accepting them too.
+ */
+@ApplicationScoped
+public class BulkRevocationService {
+
+    private static final Logger log = Logger.getLogger(BulkRevocationService.class);
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    RevocationEpochService revocationEpochService;
+
+    @Inject
+    TokenRevocationService tokenRevocationService;
+
+    @ConfigProperty(name = "abstrauth.session.timeout.seconds", defaultValue = "900")
+    int sessionTimeoutSeconds;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder revokedTokens = new LongAdder();
+
+    /**
+     * What a bulk revocation did.
+     *
+     * @param subjects number of accounts, clients and organisations whose epoch was bumped
+     * @param refreshTokens number of refresh tokens revoked
+     * @param accessTokens number of access tokens revoked by jti
+     * @param elapsedMillis time taken, excluding the commit
+     */
+    public record Result(int subjects, int refreshTokens, int accessTokens, long elapsedMillis) {
+    }
+
+    /**
+     * Revoke all tokens of the given accounts within an organisation, and of the given clients and
+     * organisations. Any of the sets may be empty; the caller has checked that it may revoke each
+     * of the subjects.
+     *
+     * @param accountOrgId The organisation in which the tokens of the accounts are revoked
+     */
+    @Transactional
+    public Result revoke(Set<String> accountIds, String accountOrgId, Set<String> clientIds, Set<String> orgIds, String reason) {
+        long start = System.nanoTime();
+        if (!accountIds.isEmpty() && accountOrgId == null) {
+            throw new IllegalArgumentException("The organisation of the accounts is required");
+        }
+        String subjects = subjectClause(accountIds, clientIds, orgIds);
+
+        // Live access tokens issued with a refresh token, which are not revoked already
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> issued = bind(em.createQuery(
+            "SELECT r.accessTokenJti, r.createdAt, r.accessTokenStatusIdx FROM RefreshToken r WHERE (" + subjects + ") " +
+            "AND r.accessTokenJti IS NOT NULL AND r.createdAt >= :since " +
+            "AND NOT EXISTS (SELECT t.id FROM RevokedToken t WHERE t.tokenJti = r.accessTokenJti)",
+            Object[].class
+        ), accountIds, accountOrgId, clientIds, orgIds)
+         .setParameter("since", now.minusSeconds(sessionTimeoutSeconds))
+         .getResultList();
+
+        int refreshTokens = bind(em.createQuery(
+            "UPDATE RefreshToken r SET r.revokedAt = :now, r.revokedReason = :reason " +
+            "WHERE (" + subjects + ") AND r.revokedAt IS NULL"
+        ), accountIds, accountOrgId, clientIds, orgIds)
+         .setParameter("now", now)
+         .setParameter("reason", reason)
+         .executeUpdate();
+
+        revocationEpochService.bumpAll(RevocationEpoch.MEMBER,
+                accountIds.stream().map(accountId -> RevocationEpoch.memberId(accountId, accountOrgId)).toList(), reason);
+        revocationEpochService.bumpAll(RevocationEpoch.CLIENT, clientIds, reason);
+        revocationEpochService.bumpAll(RevocationEpoch.ORG, orgIds, reason);
+
+        // a token may have been issued with refresh tokens of several matching subjects
+        List<TokenRevocationService.IssuedToken> tokens = new ArrayList<>(issued.size());
+        Set<String> seen = new HashSet<>();
+        for (Object[] row : issued) {
+            String jti = (String) row[0];
+            if (seen.add(jti)) {
+                LocalDateTime expiresAt = ((LocalDateTime) row[1]).plusSeconds(sessionTimeoutSeconds);
+                tokens.add(new TokenRevocationService.IssuedToken(jti,
+                        expiresAt.atZone(ZoneId.systemDefault()).toInstant(), (Integer) row[2]));
+            }
+        }
+        int accessTokens = tokenRevocationService.revokeTokens(tokens, reason);
+
+        requests.increment();
+        revokedTokens.add(refreshTokens + accessTokens);
+        Result result = new Result(accountIds.size() + clientIds.size() + orgIds.size(), refreshTokens, accessTokens,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.infof("Bulk revocation of %d account(s), %d client(s) and %d organisation(s) revoked %d refresh and %d access token(s) in %dms, reason: %s",
+                accountIds.size(), clientIds.size(), orgIds.size(), refreshTokens, accessTokens, result.elapsedMillis(), reason);
+        return result;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getRevokedTokenCount() {
+        return revokedTokens.sum();
+    }
+
+    private static String subjectClause(Set<String> accountIds, Set<String> clientIds, Set<String> orgIds) {
+        // an empty IN list is not valid in every database, so empty sets are left out
+        List<String> conditions = new ArrayList<>();
+        if (!accountIds.isEmpty()) {
+            conditions.add("(r.accountId IN :accountIds AND r.orgId = :accountOrgId)");
+        }
+        if (!clientIds.isEmpty()) {
+            conditions.add("r.clientId IN :clientIds");
+        }
+        if (!orgIds.isEmpty()) {
+            conditions.add("r.orgId IN :orgIds");
+        }
+        if (conditions.isEmpty()) {
+            throw new IllegalArgumentException("At least one account, client or organisation is required");
+        }
+        return String.join(" OR ", conditions);
+    }
+
+    private static <Q extends Query> Q bind(Q query, Set<String> accountIds, String accountOrgId, Set<String> clientIds,
+                                            Set<String> orgIds) {
+        if (!accountIds.isEmpty()) {
+            query.setParameter("accountIds", accountIds);
+            query.setParameter("accountOrgId", accountOrgId);
+        }
+        if (!clientIds.isEmpty()) {
+            query.setParameter("clientIds", clientIds);
+        }
+        if (!orgIds.isEmpty()) {
+            query.setParameter("orgIds", orgIds);
+        }
+        return query;
+    }
+}
@@ -31,6 +31,9 @@ public class ClientAllowedRoleService {
     @Inject
     NonMultitenancyClientRoleService nonMultitenancyClientRoleService;
 
+    @Inject
+    DefaultRoleSeeder defaultRoleSeeder;
+
     /** 
      * Returns ALL ClientAllowedRoles, for the given clientId. Note that 
      * not all should be visible by other organisations!! This interface is
@@ -195,6 +198,7 @@ public class ClientAllowedRoleService {
         allowedRole.setDefaultAssignment(defaultAssignment);
         allowedRole.setAvailableToForeignOrgs(availableToForeignOrgs);
         em.persist(allowedRole);
+        defaultRoleSeeder.invalidateClient(clientId);
     }
 
     /**
@@ -229,6 +233,8 @@ public class ClientAllowedRoleService {
 
         // Cascade: remove this role from all client roles (M2M) where this client is the target
         nonMultitenancyClientRoleService.removeClientRolesForTargetAndRole(clientId, role);
+
+        defaultRoleSeeder.invalidateClient(clientId);
     }
 
     /**
@@ -275,6 +281,7 @@ public class ClientAllowedRoleService {
 
         allowedRole.setDefaultAssignment(defaultAssignment);
         allowedRole.setAvailableToForeignOrgs(availableToForeignOrgs);
+        defaultRoleSeeder.invalidateClient(clientId);
     }
 
 }
@@ -0,0 +1,191 @@
+package dev.abstratium.abstrauth.service;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import dev.abstratium.abstrauth.util.BoundedTtlCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Opt-in reuse of access tokens issued via the client_credentials grant.
+ *
+ * Batch workers tend to call the token endpoint for every unit of work. Without reuse, each
+ * call signs a brand new JWT (PS256) and loads the client's roles from the database, even
+ * though the previous token is still valid for most of its lifetime. For clients listed in
+ * {@code abstrauth.client-credentials.token-reuse.client-ids}, the last token issued for a
+ * (clientId, orgId, scope set) is handed out again as long as more than
+ * {@code abstrauth.client-credentials.token-reuse.min-remaining-fraction} of its lifetime is left.
+ *
+ * The client is still authenticated on every request - only the token minting is skipped.
+ * All entries of a client are invalidated when its client roles or secrets change, or when
+ * the client is deleted, so that new roles are picked up immediately. A token that is revoked
+ * by its jti is dropped as well, see {@link #invalidateTokens}.
+ */
+@ApplicationScoped
+public class ClientCredentialsTokenCache {
+
+    private static final Logger log = Logger.getLogger(ClientCredentialsTokenCache.class);
+
+    @ConfigProperty(name = "abstrauth.client-credentials.token-reuse.client-ids")
+    Optional<Set<String>> reuseClientIds;
+
+    @ConfigProperty(name = "abstrauth.client-credentials.token-reuse.min-remaining-fraction", defaultValue = "0.5")
+    double minRemainingFraction;
+
+    @ConfigProperty(name = "abstrauth.client-credentials.token-reuse.max-entries", defaultValue = "10000")
+    int maxEntries;
+
+    // Key: clientId + NUL + orgId + NUL + sorted scopes, Value: the token last issued for it,
+    // indexed by jti. Its generation ensures that tokens minted from roles that were loaded
+    // before an invalidation are not cached
+    private BoundedTtlCache<String, CachedToken> entries;
+
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder minted = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        entries = new BoundedTtlCache<>(maxEntries, CachedToken::jti);
+    }
+
+    /**
+     * Whether token reuse is enabled for the given client.
+     */
+    public boolean isEnabledFor(String clientId) {
+        return maxEntries > 0 && reuseClientIds.map(ids -> ids.contains(clientId)).orElse(false);
+    }
+
+    /**
+     * Find a previously issued token that can be handed out again.
+     *
+     * @param clientId The client ID
+     * @param orgId The client's organisation
+     * @param scopes The granted scopes
+     * @return the cached token, if it still has enough of its lifetime left
+     */
+    public Optional<CachedToken> find(String clientId, String orgId, Set<String> scopes) {
+        // entries expire once no more than the minimum remaining lifetime is left
+        CachedToken cached = entries.get(cacheKey(clientId, orgId, scopes));
+        if (cached == null) {
+            return Optional.empty();
+        }
+        reused.increment();
+        return Optional.of(cached);
+    }
+
+    /**
+     * The current invalidation generation. Callers read it BEFORE loading the client's roles
+     * and pass it to {@link #store} afterwards.
+     */
+    public long generation() {
+        return entries.generation();
+    }
+
+    /**
+     * Count a freshly signed token. Called for every client_credentials token that is minted,
+     * regardless of whether reuse is enabled for the client, so that the reuse ratio can be derived.
+     */
+    public void recordMinted() {
+        minted.increment();
+    }
+
+    /**
+     * Remember a freshly minted token so that it can be reused.
+     *
+     * @param clientId The client ID
+     * @param orgId The client's organisation
+     * @param scopes The granted scopes
+     * @param accessToken The signed token
+     * @param jti The jti of the token
+     * @param issuedAt When the token was issued
+     * @param expiresAt When the token expires
+     * @param generationAtLoad The value of {@link #generation()} read before the roles were loaded
+     */
+    public void store(String clientId, String orgId, Set<String> scopes, String accessToken, String jti,
+                      Instant issuedAt, Instant expiresAt, long generationAtLoad) {
+        long lifetime = expiresAt.getEpochSecond() - issuedAt.getEpochSecond();
+        CachedToken token = new CachedToken(clientId, accessToken, jti, expiresAt.getEpochSecond(), lifetime);
+        long reusableUntilMillis = expiresAt.toEpochMilli() - (long) (lifetime * 1000L * minRemainingFraction);
+        // Not cached if roles or secrets changed while this token was being minted
+        entries.put(cacheKey(clientId, orgId, scopes), token, reusableUntilMillis, generationAtLoad);
+    }
+
+    /**
+     * Drop all cached tokens of a client. Called when the client's roles or secrets change,
+     * or when the client is deleted.
+     */
+    public void invalidateClient(String clientId) {
+        int removed = entries.invalidateIf(cached -> cached.clientId().equals(clientId));
+        log.debugf("Invalidated %d reusable client_credentials tokens for client %s", removed, clientId);
+    }
+
+    /**
+     * Drop the cached tokens with the given jtis. Called when tokens are revoked, so that a
+     * revoked token is not handed out again.
+     */
+    public void invalidateTokens(Collection<String> jtis) {
+        if (jtis.isEmpty()) {
+            return;
+        }
+        entries.invalidateIndexed(jtis);
+    }
+
+    /**
+     * Drop all cached tokens. Used when a change may affect the roles of many clients at once,
+     * e.g. when a role is removed from a target client's allowlist.
+     */
+    public void clear() {
+        entries.invalidateAll();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Number of token requests answered with a previously issued token, i.e. signing operations saved.
+     */
+    public long getReusedCount() {
+        return reused.sum();
+    }
+
+    /**
+     * Number of client_credentials tokens that were actually signed.
+     */
+    public long getMintedCount() {
+        return minted.sum();
+    }
+
+    private static String cacheKey(String clientId, String orgId, Set<String> scopes) {
+        // Normalise the scope set so that "a b" and "b a" share a token
+        return clientId + '\0' + orgId + '\0' + String.join(" ", new TreeSet<>(scopes));
+    }
+
+    /**
+     * A token that was issued via client_credentials and may be handed out again.
+     */
+    public record CachedToken(String clientId, String accessToken, String jti, long expiresAtEpochSeconds, long lifetimeSeconds) {
+
+        /**
+         * When the token was issued, its iat.
+         */
+        public long issuedAtEpochSeconds() {
+            return expiresAtEpochSeconds - lifetimeSeconds;
+        }
+
+        /**
+         * Seconds until the token expires, for the expires_in field of the token response.
+         */
+        public long remainingSeconds() {
+            return Math.max(0, expiresAtEpochSeconds - Instant.now().getEpochSecond());
+        }
+    }
+}
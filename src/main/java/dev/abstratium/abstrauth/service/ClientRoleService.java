@@ -3,6 +3,7 @@ package dev.abstratium.abstrauth.service;
 import dev.abstratium.abstrauth.boundary.ConflictException;
 import dev.abstratium.abstrauth.entity.ClientAllowedRole;
 import dev.abstratium.abstrauth.entity.ClientRole;
+import dev.abstratium.abstrauth.util.TransactionHooks;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
@@ -30,6 +31,12 @@ public class ClientRoleService {
     @Inject
     ClientAllowedRoleService clientAllowedRoleService;
 
+    @Inject
+    ClientCredentialsTokenCache clientCredentialsTokenCache;
+
+    @Inject
+    TransactionHooks transactionHooks;
+
     /**
      * Find all client roles for a given source client.
      * Results are scoped to the caller's organisation via Hibernate tenant filter.
@@ -161,6 +168,7 @@ public class ClientRoleService {
         // orgId is set automatically by Hibernate tenant filter
 
         em.persist(clientRole);
+        transactionHooks.afterCommit(() -> clientCredentialsTokenCache.invalidateClient(srcClientId));
     }
 
     /**
@@ -183,5 +191,6 @@ public class ClientRoleService {
         }
 
         em.remove(existing.get());
+        transactionHooks.afterCommit(() -> clientCredentialsTokenCache.invalidateClient(srcClientId));
     }
 }
@@ -3,6 +3,7 @@ package dev.abstratium.abstrauth.service;
 import java.util.List;
 
 import dev.abstratium.abstrauth.entity.ClientSecret;
+import dev.abstratium.abstrauth.util.TransactionHooks;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
@@ -17,6 +18,15 @@ public class ClientSecretService {
     
     @Inject
     EntityManager em;
+
+    @Inject
+    ClientSecretVerificationCache verificationCache;
+
+    @Inject
+    ClientCredentialsTokenCache clientCredentialsTokenCache;
+
+    @Inject
+    TransactionHooks transactionHooks;
     
     /**
      * Find all active AND non-expired secrets for a client.
@@ -82,6 +92,7 @@ public class ClientSecretService {
     
     /**
      * Deactivate a secret.
+     * Cached verifications and reusable tokens of the client are dropped so the secret stops working immediately.
      */
     @Transactional
     public void deactivate(Long secretId) {
@@ -89,6 +100,7 @@ public class ClientSecretService {
         if (secret != null) {
             secret.setActive(false);
             em.merge(secret);
+            invalidateClientAfterCommit(secret.getClientId());
         }
     }
     
@@ -101,6 +113,19 @@ public class ClientSecretService {
         ClientSecret secret = findById(secretId);
         if (secret != null) {
             em.remove(secret);
+            invalidateClientAfterCommit(secret.getClientId());
         }
     }
+
+    /**
+     * Drop the cached verifications and reusable tokens of the client once the change is
+     * committed. Dropping them earlier would let a verification that still reads the old secret
+     * cache it again, for the whole ttl.
+     */
+    private void invalidateClientAfterCommit(String clientId) {
+        transactionHooks.afterCommit(() -> {
+            verificationCache.invalidateClient(clientId);
+            clientCredentialsTokenCache.invalidateClient(clientId);
+        });
+    }
 }
@@ -0,0 +1,164 @@
+package dev.abstratium.abstrauth.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Set;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import dev.abstratium.abstrauth.util.BoundedTtlCache;
+import dev.abstratium.abstrauth.util.SecureRandomProvider;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Bounded, TTL'd in-memory cache of successful client secret verifications.
+ *
+ * Client secrets are stored as BCrypt hashes (cost 12), so every token request from a
+ * confidential client costs several hundred milliseconds of CPU per active secret. This
+ * cache remembers that a given (clientId, presented secret) pair has already been verified
+ * so that repeated service-to-service calls skip BCrypt entirely.
+ *
+ * The plain secret is never stored. Entries are keyed by an HMAC-SHA256 of the clientId and
+ * the presented secret, using a random key that only lives in this process. A dump of the
+ * heap therefore does not allow an offline dictionary attack against the cached keys.
+ *
+ * Entries expire after {@code abstrauth.client-secret.cache.ttl.seconds} or when the matched
+ * secret expires, whichever comes first. All entries of a client are invalidated when one of
+ * its secrets is revoked or deleted, or when the client itself is deleted.
+ * Setting the TTL to 0 disables the cache.
+ */
+@ApplicationScoped
+public class ClientSecretVerificationCache {
+
+    private static final Logger log = Logger.getLogger(ClientSecretVerificationCache.class);
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    @Inject
+    SecureRandomProvider secureRandomProvider;
+
+    @ConfigProperty(name = "abstrauth.client-secret.cache.ttl.seconds", defaultValue = "300")
+    int ttlSeconds;
+
+    @ConfigProperty(name = "abstrauth.client-secret.cache.max-entries", defaultValue = "10000")
+    int maxEntries;
+
+    // Key: base64(HMAC(clientId + NUL + secret)), Value: the client ID, indexed for invalidation.
+    // Its generation ensures that verifications which started before an invalidation cannot
+    // re-populate the cache with a revoked secret
+    private BoundedTtlCache<String, String> entries;
+
+    private ThreadLocal<Mac> macs;
+
+    @PostConstruct
+    void init() {
+        entries = new BoundedTtlCache<>(maxEntries, clientId -> clientId);
+        byte[] keyBytes = new byte[32];
+        secureRandomProvider.getSecureRandom().nextBytes(keyBytes);
+        SecretKeySpec key = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+        macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+                throw new IllegalStateException("Unable to initialise " + HMAC_ALGORITHM, e);
+            }
+        });
+    }
+
+    /**
+     * Check whether the given secret was recently verified for the given client.
+     *
+     * @return true on a cache hit, false if the caller must verify the secret against the database
+     */
+    public boolean isVerified(String clientId, String presentedSecret) {
+        if (!isEnabled()) {
+            return false;
+        }
+        return entries.get(cacheKey(clientId, presentedSecret)) != null;
+    }
+
+    /**
+     * The current invalidation generation. Callers read it BEFORE loading secrets from the
+     * database and pass it to {@link #recordVerified} afterwards.
+     */
+    public long generation() {
+        return entries.generation();
+    }
+
+    /**
+     * Remember a successful verification.
+     *
+     * @param clientId The client ID
+     * @param presentedSecret The plain secret that was verified
+     * @param secretExpiresAt Expiry of the matched secret, or null if it never expires
+     * @param generationAtLoad The value of {@link #generation()} read before the secrets were loaded
+     */
+    public void recordVerified(String clientId, String presentedSecret, Instant secretExpiresAt, long generationAtLoad) {
+        if (!isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long validUntil = now + ttlSeconds * 1000L;
+        if (secretExpiresAt != null) {
+            validUntil = Math.min(validUntil, secretExpiresAt.toEpochMilli());
+        }
+        // Not cached if an invalidation happened while the secret was being verified - the
+        // secret may have been revoked in the meantime, so do not trust this verification.
+        entries.put(cacheKey(clientId, presentedSecret), clientId, validUntil, generationAtLoad);
+    }
+
+    /**
+     * Drop all cached verifications of a client. Called when one of its secrets is
+     * revoked or deleted, or when the client is deleted.
+     */
+    public void invalidateClient(String clientId) {
+        int removed = entries.invalidateIndexed(Set.of(clientId));
+        log.debugf("Invalidated %d cached secret verifications for client %s", removed, clientId);
+    }
+
+    /**
+     * Drop all cached verifications. Useful for testing or administrative purposes.
+     */
+    public void clear() {
+        entries.invalidateAll();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return entries.getHitCount();
+    }
+
+    public long getMissCount() {
+        return entries.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return entries.getEvictionCount();
+    }
+
+    private boolean isEnabled() {
+        return ttlSeconds > 0 && maxEntries > 0;
+    }
+
+    private String cacheKey(String clientId, String presentedSecret) {
+        Mac mac = macs.get();
+        mac.update(clientId.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        byte[] digest = mac.doFinal(presentedSecret.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+}
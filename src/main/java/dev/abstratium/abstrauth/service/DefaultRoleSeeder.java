@@ -0,0 +1,159 @@
+package dev.abstratium.abstrauth.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import dev.abstratium.abstrauth.entity.ClientAllowedRole;
+import dev.abstratium.abstrauth.entity.DefaultAssignment;
+import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyAccountRoleService;
+import dev.abstratium.abstrauth.util.BoundedTtlCache;
+import dev.abstratium.abstrauth.util.TransactionHooks;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Seeds the default roles of a client to an account signing in to it for the first time.
+ *
+ * Which roles are seeded depends only on the client's allowlist and on whether the account's
+ * organisation owns the client, so the resolved lists ({@link DefaultRolePlan}) are cached per
+ * (clientId, orgId). Only the owner check is left per account, and it is skipped entirely when
+ * the client has no ORG_OWNERS_ONLY roles.
+ *
+ * {@link ClientAllowedRoleService} invalidates a client's plans when it adds, updates or removes
+ * an allowed role. They are dropped once the transaction has committed, and a plan read by a
+ * concurrent sign-in before the commit is not cached. The cache is per process, so other
+ * instances pick up changes after {@code abstrauth.default-role-plan.cache.ttl.seconds}.
+ * Setting the TTL to 0 disables the cache.
+ */
+@ApplicationScoped
+public class DefaultRoleSeeder {
+
+    private static final Logger log = Logger.getLogger(DefaultRoleSeeder.class);
+
+    @Inject
+    ClientAllowedRoleService clientAllowedRoleService;
+
+    @Inject
+    NonMultitenancyAccountRoleService nonMultitenancyAccountRoleService;
+
+    @Inject
+    TransactionHooks transactionHooks;
+
+    @ConfigProperty(name = "abstrauth.default-role-plan.cache.ttl.seconds", defaultValue = "300")
+    int ttlSeconds;
+
+    @ConfigProperty(name = "abstrauth.default-role-plan.cache.max-entries", defaultValue = "10000")
+    int maxEntries;
+
+    // Key: clientId + NUL + orgId, indexed by clientId. Its generation ensures that plans which
+    // were loaded before an invalidation cannot re-populate the cache
+    private BoundedTtlCache<String, CachedPlan> plans;
+
+    @PostConstruct
+    void init() {
+        plans = new BoundedTtlCache<>(maxEntries, CachedPlan::clientId);
+    }
+
+    /**
+     * The default roles of the client for accounts of the given organisation.
+     */
+    public DefaultRolePlan planFor(String clientId, String orgId) {
+        if (!isEnabled()) {
+            return loadPlan(clientId, orgId);
+        }
+        String key = clientId + '\0' + orgId;
+        CachedPlan cached = plans.get(key);
+        if (cached != null) {
+            return cached.plan();
+        }
+
+        long generationAtLoad = plans.generation();
+        DefaultRolePlan plan = loadPlan(clientId, orgId);
+        plans.put(key, new CachedPlan(clientId, plan), System.currentTimeMillis() + ttlSeconds * 1000L, generationAtLoad);
+        return plan;
+    }
+
+    /**
+     * Seed the client's default roles to the account.
+     *
+     * @param isOwner Whether the account owns the organisation; only asked if the client has
+     *                ORG_OWNERS_ONLY roles
+     * @return true if roles were seeded
+     */
+    public boolean seed(String accountId, String clientId, String orgId, BooleanSupplier isOwner) {
+        DefaultRolePlan plan = planFor(clientId, orgId);
+        List<String> roles = plan.orgOwnersOnly().isEmpty() ? plan.allUsers() : plan.rolesFor(isOwner.getAsBoolean());
+        if (roles.isEmpty()) {
+            return false;
+        }
+        nonMultitenancyAccountRoleService.seedRoles(accountId, clientId, orgId, roles);
+        return true;
+    }
+
+    /**
+     * Drop the cached plans of a client once the change is committed. Called when its allowed
+     * roles change.
+     */
+    public void invalidateClient(String clientId) {
+        transactionHooks.afterCommit(() -> removeClient(clientId));
+    }
+
+    /**
+     * Drop all cached plans. Useful for testing or administrative purposes.
+     */
+    public void clear() {
+        plans.invalidateAll();
+    }
+
+    public int size() {
+        return plans.size();
+    }
+
+    private void removeClient(String clientId) {
+        int removed = plans.invalidateIndexed(List.of(clientId));
+        log.debugf("Invalidated %d cached default role plans for client %s", removed, clientId);
+    }
+
+    private DefaultRolePlan loadPlan(String clientId, String orgId) {
+        List<String> allUsers = new ArrayList<>();
+        List<String> orgOwnersOnly = new ArrayList<>();
+        for (ClientAllowedRole role : clientAllowedRoleService.findDefaultRolesByClientIdForOrg(clientId, orgId)) {
+            if (role.getDefaultAssignment() == DefaultAssignment.ALL_USERS) {
+                allUsers.add(role.getRole());
+            } else if (role.getDefaultAssignment() == DefaultAssignment.ORG_OWNERS_ONLY) {
+                orgOwnersOnly.add(role.getRole());
+            }
+        }
+        return new DefaultRolePlan(List.copyOf(allUsers), List.copyOf(orgOwnersOnly));
+    }
+
+    private boolean isEnabled() {
+        return ttlSeconds > 0 && maxEntries > 0;
+    }
+
+    /**
+     * The default roles of a client for the accounts of one organisation.
+     *
+     * @param allUsers Roles seeded for every member
+     * @param orgOwnersOnly Roles seeded only for owners of the organisation
+     */
+    public record DefaultRolePlan(List<String> allUsers, List<String> orgOwnersOnly) {
+
+        public List<String> rolesFor(boolean owner) {
+            if (!owner || orgOwnersOnly.isEmpty()) {
+                return allUsers;
+            }
+            List<String> roles = new ArrayList<>(allUsers);
+            roles.addAll(orgOwnersOnly);
+            return roles;
+        }
+    }
+
+    private record CachedPlan(String clientId, DefaultRolePlan plan) {
+    }
+}
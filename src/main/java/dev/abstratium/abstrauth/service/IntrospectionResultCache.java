@@ -0,0 +1,154 @@
+package dev.abstratium.abstrauth.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Set;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import dev.abstratium.abstrauth.util.BoundedTtlCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.json.JsonObject;
+
+/**
+ * Bounded in-memory cache of the outcome of introspecting JWT access tokens.
+ *
+ * Introspecting a JWT means verifying its signature and querying T_revoked_tokens. Resource
+ * servers and gateways tend to introspect the same token on every request, so the verified
+ * claims and the revocation state are remembered until the token expires, but at most for
+ * {@code abstrauth.introspection.cache.ttl.seconds}. Revoked tokens are remembered too, since a
+ * revocation is final, so that replaying a revoked token does not cost a query either.
+ *
+ * Entries are keyed by the SHA-256 digest of the token, so the cache does not hold bearer
+ * tokens. Tokens that fail verification are not cached, otherwise anybody could fill the cache
+ * with garbage; they are rejected without a query anyway.
+ *
+ * Revoking a token invalidates its entry on this instance once the revocation has committed.
+ * Other instances do not evict their entry, but IntrospectionService checks every hit against
+ * the RevokedTokenCache, so they see the revocation once they have synced it. Setting the ttl to 0 disables the cache.
+ */
+@ApplicationScoped
+public class IntrospectionResultCache {
+
+    private static final Logger log = Logger.getLogger(IntrospectionResultCache.class);
+
+    @ConfigProperty(name = "abstrauth.introspection.cache.ttl.seconds", defaultValue = "3600")
+    int ttlSeconds;
+
+    @ConfigProperty(name = "abstrauth.introspection.cache.max-entries", defaultValue = "100000")
+    int maxEntries;
+
+    // Key: base64(SHA-256(token)), Value: the verified claims and revocation state, indexed by
+    // jti. Its generation ensures that introspections which started before a revocation cannot
+    // re-populate the cache with the revoked token
+    private BoundedTtlCache<String, CachedResult> entries;
+
+    @PostConstruct
+    void init() {
+        entries = new BoundedTtlCache<>(ttlSeconds > 0 ? maxEntries : 0, CachedResult::jti);
+    }
+
+    /**
+     * The cached outcome of introspecting the token.
+     *
+     * @return the result, or null if the caller must verify the token and check its revocation
+     */
+    public CachedResult get(String token) {
+        if (!isEnabled()) {
+            return null;
+        }
+        return entries.get(cacheKey(token));
+    }
+
+    /**
+     * The current invalidation generation. Callers read it BEFORE checking the revocation state
+     * and pass it to {@link #record} afterwards.
+     */
+    public long generation() {
+        return entries.generation();
+    }
+
+    /**
+     * Remember the outcome of introspecting a token whose signature and issuer were verified.
+     *
+     * @param token The JWT
+     * @param claims The verified claims
+     * @param jti The jti of the token
+     * @param revoked Whether the token is revoked
+     * @param expiresAtMillis The expiry of the token
+     * @param generationAtLoad The value of {@link #generation()} read before the revocation check
+     */
+    public void record(String token, JsonObject claims, String jti, boolean revoked, long expiresAtMillis, long generationAtLoad) {
+        if (!isEnabled()) {
+            return;
+        }
+        long validUntil = Math.min(System.currentTimeMillis() + ttlSeconds * 1000L, expiresAtMillis);
+        // Not cached if a revocation happened while the token was being checked
+        entries.put(cacheKey(token), new CachedResult(claims, jti, revoked), validUntil, generationAtLoad);
+    }
+
+    /**
+     * Drop the cached result of a revoked token. Called by {@link TokenRevocationService} once
+     * the revocation has committed, so that an introspection that read the revocation state
+     * before the commit cannot bring it back.
+     */
+    public void invalidateToken(String jti) {
+        invalidateTokens(Set.of(jti));
+    }
+
+    /**
+     * Drop the cached results of several revoked tokens, looking them up by jti.
+     */
+    public void invalidateTokens(Collection<String> jtis) {
+        if (jtis.isEmpty()) {
+            return;
+        }
+        int removed = entries.invalidateIndexed(jtis);
+        log.debugf("Invalidated %d cached introspection results for %d jti(s)", removed, jtis.size());
+    }
+
+    /**
+     * Drop all cached results. Useful for testing or administrative purposes.
+     */
+    public void clear() {
+        entries.invalidateAll();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return entries.getHitCount();
+    }
+
+    public long getMissCount() {
+        return entries.getMissCount();
+    }
+
+    private boolean isEnabled() {
+        return ttlSeconds > 0 && maxEntries > 0;
+    }
+
+    private static String cacheKey(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * @param claims The verified claims of the token
+     * @param jti The jti of the token
+     * @param revoked Whether the token was revoked when it was checked
+     */
+    public record CachedResult(JsonObject claims, String jti, boolean revoked) {
+    }
+}
@@ -0,0 +1,126 @@
+package dev.abstratium.abstrauth.service;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import dev.abstratium.abstrauth.util.JwtSignatureVerifier;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonValue;
+
+/**
+ * Decides whether a JWT access token is active in the sense of RFC 7662: signed by one of our
+ * keys, issued by us, within its validity period and not revoked.
+ *
+ * Results are remembered in the {@link IntrospectionResultCache}. Tokens that are malformed,
+ * badly signed, foreign or outside their validity period are rejected without a query.
+ * The revocation epochs of the token's account, client and organisation, and the revoked JTIs
+ * synced from other instances (see {@link RevokedTokenCache}), are checked in memory on every
+ * call (see {@link RevocationEpochService}).
+ */
+@ApplicationScoped
+public class IntrospectionService {
+
+    @Inject
+    SigningKeyRing signingKeyRing;
+
+    @Inject
+    TokenRevocationService tokenRevocationService;
+
+    @Inject
+    IntrospectionResultCache introspectionResultCache;
+
+    @Inject
+    RevocationEpochService revocationEpochService;
+
+    @Inject
+    RevokedTokenCache revokedTokenCache;
+
+    @ConfigProperty(name = "mp.jwt.verify.issuer")
+    String issuer;
+
+    JwtSignatureVerifier jwtSignatureVerifier;
+
+    @PostConstruct
+    void init() {
+        this.jwtSignatureVerifier = new JwtSignatureVerifier(signingKeyRing::verificationKey);
+    }
+
+    /**
+     * The verified claims of the token if it is active.
+     *
+     * @param jwt The JWT presented for introspection
+     * @return the claims, or empty if the token is not active
+     */
+    public Optional<JsonObject> activeClaims(String jwt) {
+        long now = Instant.now().getEpochSecond();
+        IntrospectionResultCache.CachedResult cached = introspectionResultCache.get(jwt);
+        if (cached != null) {
+            // the cached result never outlives the token, but nbf may still lie ahead, and
+            // revocation epochs and JTIs revoked on other instances since the result was cached
+            // are checked in memory on every call rather than cached
+            return cached.revoked() || !isWithinValidity(cached.claims(), now)
+                    || revokedTokenCache.contains(cached.jti())
+                    || revocationEpochService.isRevoked(cached.claims())
+                    ? Optional.empty() : Optional.of(cached.claims());
+        }
+
+        JsonObject claims = verifiedClaims(jwt).orElse(null);
+        if (claims == null || !isWithinValidity(claims, now)) {
+            return Optional.empty();
+        }
+        // every token we issue has a jti, without one it could not be revoked
+        String jti = stringClaim(claims, "jti");
+        if (jti == null || jti.isBlank()) {
+            return Optional.empty();
+        }
+
+        long generationAtLoad = introspectionResultCache.generation();
+        boolean revoked = tokenRevocationService.isTokenRevoked(jti);
+        introspectionResultCache.record(jwt, claims, jti, revoked,
+                claims.getJsonNumber("exp").longValue() * 1000L, generationAtLoad);
+        return revoked || revocationEpochService.isRevoked(claims) ? Optional.empty() : Optional.of(claims);
+    }
+
+    /**
+     * The claims of a JWT signed by one of our keys and issued by us, whether or not it has
+     * expired or been revoked. Nothing is cached.
+     *
+     * @return the claims, or empty if the token is malformed, badly signed or foreign
+     */
+    public Optional<JsonObject> verifiedClaims(String jwt) {
+        JsonObject claims;
+        try {
+            claims = jwtSignatureVerifier.verifyAndDecode(jwt);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        return issuer.equals(stringClaim(claims, "iss")) ? Optional.of(claims) : Optional.empty();
+    }
+
+    /**
+     * Whether the token has not expired and is not used before its nbf. Tokens without exp are
+     * never considered valid.
+     */
+    public static boolean isWithinValidity(JsonObject claims, long nowSeconds) {
+        if (!isNumber(claims, "exp") || nowSeconds >= claims.getJsonNumber("exp").longValue()) {
+            return false;
+        }
+        return !isNumber(claims, "nbf") || nowSeconds >= claims.getJsonNumber("nbf").longValue();
+    }
+
+    private static boolean isNumber(JsonObject claims, String name) {
+        JsonValue value = claims.get(name);
+        return value != null && value.getValueType() == JsonValue.ValueType.NUMBER;
+    }
+
+    private static String stringClaim(JsonObject claims, String name) {
+        JsonValue value = claims.get(name);
+        return value != null && value.getValueType() == JsonValue.ValueType.STRING
+                ? claims.getString(name) : null;
+    }
+}
@@ -1,16 +1,20 @@
 package dev.abstratium.abstrauth.service;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.quarkus.scheduler.Scheduled;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyAccountService;
 import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyOAuthClientService;
+import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyTokenPrecomputer;
 
 /**
  * Service for tracking application metrics using Micrometer.
@@ -31,6 +35,42 @@ public class MetricsService {
     @Inject
     CurrentOrgContext orgCtx;
 
+    @Inject
+    ClientSecretVerificationCache clientSecretVerificationCache;
+
+    @Inject
+    ClientCredentialsTokenCache clientCredentialsTokenCache;
+
+    @Inject
+    SigningExecutor signingExecutor;
+
+    @Inject
+    ReferenceTokenService referenceTokenService;
+
+    @Inject
+    IntrospectionResultCache introspectionResultCache;
+
+    @Inject
+    AccountProfileCache accountProfileCache;
+
+    @Inject
+    NonMultitenancyTokenPrecomputer tokenPrecomputer;
+
+    @Inject
+    RevokedTokenCache revokedTokenCache;
+
+    @Inject
+    RevokedTokenPurgeService revokedTokenPurgeService;
+
+    @Inject
+    RevocationFeed revocationFeed;
+
+    @Inject
+    StatusListService statusListService;
+
+    @Inject
+    BulkRevocationService bulkRevocationService;
+
 
     // Counters for authentication events
     private Counter successfulLogins;
@@ -51,6 +91,9 @@ public class MetricsService {
     private Counter tokenExchangeRequests;
     private Counter tokenExchangeSuccess;
     private Counter tokenExchangeFailure;
+    private Counter tokenRefreshes;
+    private Counter refreshTokenReuse;
+    private Counter requestLookupsSaved;
 
     // Counters for client management
     private Counter clientCreations;
@@ -141,6 +184,18 @@ public class MetricsService {
                 .description("Number of failed token exchanges")
                 .register(registry);
 
+        tokenRefreshes = Counter.builder("abstrauth.oauth.token.refresh")
+                .description("Number of access tokens issued via the refresh_token grant (full login flows avoided)")
+                .register(registry);
+
+        refreshTokenReuse = Counter.builder("abstrauth.oauth.token.refresh.reuse")
+                .description("Number of already used refresh tokens presented again (token family revoked)")
+                .register(registry);
+
+        requestLookupsSaved = Counter.builder("abstrauth.request.lookup.saved")
+                .description("Number of database lookups answered from the request-scoped lookup cache")
+                .register(registry);
+
         // Client management metrics
         clientCreations = Counter.builder("abstrauth.client.creation")
                 .description("Number of OAuth clients created")
@@ -184,6 +239,194 @@ public class MetricsService {
                 .description("Number of validation errors")
                 .register(registry);
 
+        // Client secret verification cache metrics - read directly from the cache's own counters
+        FunctionCounter.builder("abstrauth.client.secret.cache.hit", clientSecretVerificationCache,
+                        ClientSecretVerificationCache::getHitCount)
+                .description("Number of client authentications answered from the verified-secret cache (BCrypt skipped)")
+                .register(registry);
+
+        FunctionCounter.builder("abstrauth.client.secret.cache.miss", clientSecretVerificationCache,
+                        ClientSecretVerificationCache::getMissCount)
+                .description("Number of client authentications that required BCrypt verification")
+                .register(registry);
+
+        FunctionCounter.builder("abstrauth.client.secret.cache.eviction", clientSecretVerificationCache,
+                        ClientSecretVerificationCache::getEvictionCount)
+                .description("Number of verified-secret cache entries evicted due to expiry or size limit")
+                .register(registry);
+
+        Gauge.builder("abstrauth.client.secret.cache.size", clientSecretVerificationCache, cache -> (double) cache.size())
+                .description("Current number of entries in the verified-secret cache")
+                .register(registry);
+
+        // Client credentials token reuse metrics - reuse ratio = reused / (reused + minted)
+        FunctionCounter.builder("abstrauth.client.credentials.token.reused", clientCredentialsTokenCache,
+                        ClientCredentialsTokenCache::getReusedCount)
+                .description("Number of client_credentials requests answered with a previously issued token (signing operations saved)")
+                .register(registry);
+
+        FunctionCounter.builder("abstrauth.client.credentials.token.minted", clientCredentialsTokenCache,
+                        ClientCredentialsTokenCache::getMintedCount)
+                .description("Number of client_credentials tokens that were signed")
+                .register(registry);
+
+        Gauge.builder("abstrauth.client.credentials.token.cache.size", clientCredentialsTokenCache, cache -> (double) cache.size())
+                .description("Current number of reusable client_credentials tokens held in memory")
+                .register(registry);
+
+        // Reference token metrics - a miss is a query by the introspection endpoint
+        FunctionCounter.builder("abstrauth.reference.token.cache.hit", referenceTokenService,
+                        ReferenceTokenService::getHitCount)
+                .description("Number of reference tokens resolved from the in-memory cache")
+                .register(registry);
+
+        FunctionCounter.builder("abstrauth.reference.token.cache.miss", referenceTokenService,
+                        ReferenceTokenService::getMissCount)
+                .description("Number of reference token lookups that required a database query")
+                .register(registry);
+
+        Gauge.builder("abstrauth.reference.token.cache.size", referenceTokenService, cache -> (double) cache.size())
+                .description("Current number of resolved reference tokens held in memory")
+                .register(registry);
+
+        // Introspection result cache metrics - a miss costs a signature verification and a query
+        FunctionCounter.builder("abstrauth.introspection.cache.hit", introspectionResultCache,
+                        IntrospectionResultCache::getHitCount)
+                .description("Number of JWT introspections answered from the result cache")
+                .register(registry);
+
+        FunctionCounter.builder("abstrauth.introspection.cache.miss", introspectionResultCache,
+                        IntrospectionResultCache::getMissCount)
+                .description("Number of JWT introspections that required signature verification")
+                .register(registry);
+
+        Gauge.builder("abstrauth.introspection.cache.size", introspectionResultCache, cache -> (double) cache.size())
+                .description("Current number of introspection results held in memory")
+                .register(registry);
+
+        // Account profile cache metrics - a miss is a query by the userinfo endpoint
+        FunctionCounter.builder("abstrauth.account.profile.cache.hit", accountProfileCache,
+                        AccountProfileCache::getHitCount)
+                .description("Number of userinfo requests answered from the account profile cache")
+                .register(registry);
+
+        FunctionCounter.builder("abstrauth.account.profile.cache.miss", accountProfileCache,
+                        AccountProfileCache::getMissCount)
+                .description("Number of account profile lookups that required a database query")
+                .register(registry);
+
+        Gauge.builder("abstrauth.account.profile.cache.size", accountProfileCache, cache -> (double) cache.size())
+                .description("Current number of account profiles held in memory")
+                .register(registry);
+
+        // JWT signing pool metrics - queue depth near the configured queue size means 503s are imminent
+        Gauge.builder("abstrauth.signing.queue.depth", signingExecutor, SigningExecutor::getQueueDepth)
+                .description("Number of JWT signing tasks waiting for a signing thread")
+                .register(registry);
+
+        Gauge.builder("abstrauth.signing.active", signingExecutor, SigningExecutor::getActiveCount)
+                .description("Number of signing threads currently computing a signature")
+                .register(registry);
+
+        FunctionCounter.builder("abstrauth.signing.rejected", signingExecutor, SigningExecutor::getRejectedCount)
+                .description("Number of token requests rejected with 503 because the signing queue was full")
+                .register(registry);
+
+        FunctionTimer.builder("abstrauth.signing.queue.wait", signingExecutor,
+                        SigningExecutor::getCompletedCount, SigningExecutor::getQueueWaitNanos, TimeUnit.NANOSECONDS)
+                .description("Time JWT signing tasks spent waiting in the signing queue")
+                .register(registry);
+
+        FunctionTimer.builder("abstrauth.signing.duration", signingExecutor,
+                        SigningExecutor::getCompletedCount, SigningExecutor::getSigningNanos, TimeUnit.NANOSECONDS)
+                .description("Time spent computing JWT signatures on the signing pool")
+                .register(registry);
+
+        // Token precomputation metrics - a low used/(used+missed) ratio means codes are redeemed
+        // before their tokens are ready, or on another instance
+        FunctionCounter.builder("abstrauth.token.precompute.prepared", tokenPrecomputer,
+                        NonMultitenancyTokenPrecomputer::getPreparedCount)
+                .description("Number of authorization codes whose tokens were minted in the background")
+                .register(registry);
+
+        FunctionCounter.builder("abstrauth.token.precompute.used", tokenPrecomputer,
+                        NonMultitenancyTokenPrecomputer::getUsedCount)
+                .description("Number of authorization code redemptions answered with precomputed tokens")
+                .register(registry);
+
+        FunctionCounter.builder("abstrauth.token.precompute.missed", tokenPrecomputer,
+                        NonMultitenancyTokenPrecomputer::getMissedCount)
+                .description("Number of authorization code redemptions that had to mint their tokens inline")
+                .register(registry);
+
+        FunctionCounter.builder("abstrauth.token.precompute.rejected", tokenPrecomputer,
+                        NonMultitenancyTokenPrecomputer::getRejectedCount)
+                .description("Number of authorization codes not precomputed because the queue or the store was full")
+                .register(registry);
+
+        Gauge.builder("abstrauth.token.precompute.size", tokenPrecomputer, precomputer -> (double) precomputer.size())
+                .description("Current number of authorization codes with precomputed tokens held in memory")
+                .register(registry);
+
+        // Revoked token cache metrics - a growing sync lag means revocations of other instances
+        // are not being picked up
+        Gauge.builder("abstrauth.revocation.cache.size", revokedTokenCache, cache -> (double) cache.size())
+                .description("Current number of revoked JTIs held in memory")
+                .register(registry);
+
+        Gauge.builder("abstrauth.revocation.sync.lag", revokedTokenCache, RevokedTokenCache::getSyncLagSeconds)
+                .description("Seconds since the revoked JTIs were last synchronised with the database")
+                .baseUnit("seconds")
+                .register(registry);
+
+        FunctionCounter.builder("abstrauth.revocation.cache.filtered", revokedTokenCache,
+                        RevokedTokenCache::getFilteredCount)
+                .description("Number of revocation checks answered by the Bloom filter alone")
+                .register(registry);
+
+        FunctionCounter.builder("abstrauth.revocation.purge.deleted", revokedTokenPurgeService,
+                        RevokedTokenPurgeService::getDeletedCount)
+                .description("Number of revocations of expired tokens deleted from the database")
+                .register(registry);
+
+        FunctionCounter.builder("abstrauth.revocation.purge.batches", revokedTokenPurgeService,
+                        RevokedTokenPurgeService::getBatchCount)
+                .description("Number of delete batches run by the revocation purge")
+                .register(registry);
+
+        // Revocation feed metrics - frequent resets mean subscribers fall behind the buffer
+        Gauge.builder("abstrauth.revocation.feed.subscribers", revocationFeed, feed -> (double) feed.getSubscriberCount())
+                .description("Current number of open revocation feed streams")
+                .register(registry);
+
+        FunctionCounter.builder("abstrauth.revocation.feed.events", revocationFeed, RevocationFeed::getPublishedCount)
+                .description("Number of revocations published to the revocation feed")
+                .register(registry);
+
+        FunctionCounter.builder("abstrauth.revocation.feed.resets", revocationFeed, RevocationFeed::getResetCount)
+                .description("Number of revocation feed snapshots sent instead of resuming a cursor")
+                .register(registry);
+
+        // Status list metrics - exhaustion means access tokens are issued without status claim
+        FunctionCounter.builder("abstrauth.status-list.leases", statusListService, StatusListService::getLeaseCount)
+                .description("Number of status list chunks leased by this instance")
+                .register(registry);
+
+        FunctionCounter.builder("abstrauth.status-list.exhausted", statusListService, StatusListService::getExhaustedCount)
+                .description("Number of access tokens issued without status claim because no status list chunk was free")
+                .register(registry);
+
+        // Bulk revocation metrics
+        FunctionCounter.builder("abstrauth.revocation.bulk.requests", bulkRevocationService,
+                        BulkRevocationService::getRequestCount)
+                .description("Number of bulk revocations of accounts, clients and organisations")
+                .register(registry);
+
+        FunctionCounter.builder("abstrauth.revocation.bulk.tokens", bulkRevocationService,
+                        BulkRevocationService::getRevokedTokenCount)
+                .description("Number of refresh and access tokens revoked by bulk revocations")
+                .register(registry);
+
         // Gauges for current state
         Gauge.builder("abstrauth.accounts.total", totalAccounts, counter -> (double) counter.get())
                 .description("Total number of user accounts")
@@ -250,6 +493,18 @@ public class MetricsService {
         tokenRequestsFailure.increment();
     }
 
+    public void recordTokenRefresh() {
+        tokenRefreshes.increment();
+    }
+
+    public void recordRefreshTokenReuse() {
+        refreshTokenReuse.increment();
+    }
+
+    public void recordRequestLookupsSaved(int saved) {
+        requestLookupsSaved.increment(saved);
+    }
+
     public void recordTokenExchangeRequest() {
         tokenExchangeRequests.increment();
     }
@@ -262,15 +517,13 @@ public class MetricsService {
         tokenExchangeFailure.increment();
     }
 
-    // TODO: Integrate in TokenRevocationService when revocation endpoint is called
-    // public void recordTokenRevocation() {
-    //     tokenRevocations.increment();
-    // }
+    public void recordTokenRevocation() {
+        tokenRevocations.increment();
+    }
 
-    // TODO: Integrate when token introspection endpoint is implemented
-    // public void recordTokenIntrospection() {
-    //     tokenIntrospections.increment();
-    // }
+    public void recordTokenIntrospection() {
+        tokenIntrospections.increment();
+    }
 
     // Client management metrics
     public void recordClientCreation() {
@@ -0,0 +1,239 @@
+package dev.abstratium.abstrauth.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import dev.abstratium.abstrauth.entity.ReferenceToken;
+import dev.abstratium.abstrauth.util.BoundedTtlCache;
+import dev.abstratium.abstrauth.util.SecureRandomProvider;
+import dev.abstratium.abstrauth.util.TransactionHooks;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+/**
+ * Opt-in reference (opaque) access tokens.
+ *
+ * For clients listed in {@code abstrauth.reference-tokens.client-ids} the token endpoint returns
+ * a 256 bit random handle instead of the JWT, so that the client's requests carry a short header
+ * and the roles in the JWT are not visible to it. The JWT is kept in T_reference_tokens and a
+ * gateway swaps the handle for it at the introspection endpoint.
+ *
+ * Like refresh tokens, only the SHA-256 digest of a handle is stored. Resolved handles are held
+ * in a bounded in-memory cache for {@code abstrauth.reference-tokens.cache.ttl.seconds} (never
+ * beyond the expiry of the JWT), so a busy gateway costs one map lookup per request instead of a
+ * query. Revoking the JWT deletes the row and the cache entry on this instance; other instances
+ * stop resolving the handle once their entry is older than the ttl.
+ */
+@ApplicationScoped
+public class ReferenceTokenService {
+
+    private static final Logger log = Logger.getLogger(ReferenceTokenService.class);
+
+    // a handle is 32 random bytes, base64url encoded without padding
+    private static final int HANDLE_LENGTH = 43;
+
+    // JTIs per DELETE when revoking in bulk, keeping the IN list well below database limits
+    static final int REVOKE_SLICE_SIZE = 1000;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    SecureRandomProvider secureRandomProvider;
+
+    @Inject
+    TransactionHooks transactionHooks;
+
+    @ConfigProperty(name = "abstrauth.reference-tokens.client-ids")
+    Optional<Set<String>> clientIds;
+
+    @ConfigProperty(name = "abstrauth.reference-tokens.cache.ttl.seconds", defaultValue = "30")
+    int ttlSeconds;
+
+    @ConfigProperty(name = "abstrauth.reference-tokens.cache.max-entries", defaultValue = "100000")
+    int maxEntries;
+
+    // Key: hex SHA-256 of the handle, Value: the JWT it resolves to, indexed by jti. Its
+    // generation ensures that lookups which started before a revocation cannot re-populate
+    // the cache with a revoked token
+    private BoundedTtlCache<String, CachedReference> entries;
+
+    @PostConstruct
+    void init() {
+        entries = new BoundedTtlCache<>(maxEntries, CachedReference::jti);
+    }
+
+    /**
+     * Whether the token endpoint hands out reference tokens to the given client.
+     */
+    public boolean isEnabledFor(String clientId) {
+        return clientIds.map(ids -> ids.contains(clientId)).orElse(false);
+    }
+
+    /**
+     * Store the JWT and create a handle for it.
+     *
+     * @param accessToken The signed JWT
+     * @param jti The jti of the JWT
+     * @param clientId The client the token was issued to
+     * @param expiresAt The expiry of the JWT; the handle expires with it
+     * @return the handle to hand to the client instead of the JWT
+     */
+    @Transactional
+    public String issue(String accessToken, String jti, String clientId, Instant expiresAt) {
+        byte[] randomBytes = new byte[32];
+        secureRandomProvider.getSecureRandom().nextBytes(randomBytes);
+        String handle = Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
+        String key = digest(handle);
+
+        ReferenceToken token = new ReferenceToken();
+        token.setHandleHash(key);
+        token.setAccessTokenJti(jti);
+        token.setClientId(clientId);
+        token.setAccessToken(accessToken);
+        token.setExpiresAt(LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()));
+        em.persist(token);
+
+        // the gateway usually resolves the handle within moments
+        entries.put(key, new CachedReference(accessToken, jti), cachedUntil(expiresAt.toEpochMilli()),
+                entries.generation());
+        return handle;
+    }
+
+    /**
+     * Whether the value has the shape of a handle, as opposed to e.g. a JWT.
+     */
+    public static boolean isHandle(String token) {
+        return token != null && token.length() == HANDLE_LENGTH && token.indexOf('.') < 0;
+    }
+
+    /**
+     * The JWT a handle stands for.
+     *
+     * @return the JWT, or empty if the handle is unknown, expired or its token was revoked
+     */
+    public Optional<String> resolve(String handle) {
+        if (!isHandle(handle)) {
+            return Optional.empty();
+        }
+        String key = digest(handle);
+        CachedReference cached = entries.get(key);
+        if (cached != null) {
+            return Optional.of(cached.accessToken());
+        }
+
+        // read the generation before loading, so that a concurrent revocation wins
+        long generationAtLoad = entries.generation();
+        ReferenceToken token = em.find(ReferenceToken.class, key);
+        if (token == null) {
+            return Optional.empty();
+        }
+        long expiresAtMillis = token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+        entries.put(key, new CachedReference(token.getAccessToken(), token.getAccessTokenJti()), cachedUntil(expiresAtMillis), generationAtLoad);
+        return Optional.of(token.getAccessToken());
+    }
+
+    /**
+     * Forget the handles of a revoked JWT. Called by {@link TokenRevocationService} in the
+     * revoking transaction; the cache entries are dropped once it has committed, so that a
+     * lookup that read the row before the commit cannot bring them back.
+     */
+    @Transactional
+    public void revoke(String jti) {
+        revokeAll(Set.of(jti));
+    }
+
+    /**
+     * Forget the handles of several revoked JWTs, deleting their rows in slices of
+     * {@value #REVOKE_SLICE_SIZE} JTIs and dropping their cache entries by jti.
+     */
+    @Transactional
+    public void revokeAll(Collection<String> jtis) {
+        if (jtis.isEmpty()) {
+            return;
+        }
+        List<String> all = List.copyOf(jtis);
+        int deleted = 0;
+        for (int from = 0; from < all.size(); from += REVOKE_SLICE_SIZE) {
+            deleted += em.createQuery("DELETE FROM ReferenceToken r WHERE r.accessTokenJti IN :jtis")
+                    .setParameter("jtis", all.subList(from, Math.min(from + REVOKE_SLICE_SIZE, all.size())))
+                    .executeUpdate();
+        }
+        if (deleted > 0) {
+            log.debugf("Deleted %d reference token(s) for %d jti(s)", deleted, all.size());
+        }
+        transactionHooks.afterCommit(() -> entries.invalidateIndexed(all));
+    }
+
+    /**
+     * Delete reference tokens whose JWT has expired.
+     */
+    @Scheduled(cron = "${abstrauth.reference-tokens.purge.cron}")
+    @Transactional
+    void purgeExpired() {
+        int deleted = em.createQuery("DELETE FROM ReferenceToken r WHERE r.expiresAt < :now")
+                .setParameter("now", LocalDateTime.now())
+                .executeUpdate();
+        if (deleted > 0) {
+            log.infof("Deleted %d expired reference token(s)", deleted);
+        }
+    }
+
+    /**
+     * Drop all cached handles. Useful for testing or administrative purposes.
+     */
+    public void clear() {
+        entries.invalidateAll();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return entries.getHitCount();
+    }
+
+    public long getMissCount() {
+        return entries.getMissCount();
+    }
+
+    private long cachedUntil(long expiresAtMillis) {
+        return Math.min(System.currentTimeMillis() + ttlSeconds * 1000L, expiresAtMillis);
+    }
+
+    /**
+     * Hex encoded SHA-256 digest of a handle, as stored in T_reference_tokens.handle_hash.
+     */
+    static String digest(String handle) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(handle.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record CachedReference(String accessToken, String jti) {
+    }
+}
@@ -0,0 +1,174 @@
+package dev.abstratium.abstrauth.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import dev.abstratium.abstrauth.entity.RefreshToken;
+import dev.abstratium.abstrauth.util.SecureRandomProvider;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+/**
+ * Issues and rotates refresh tokens.
+ *
+ * Refresh tokens are 256 bit random values. Only their SHA-256 digest is stored, so a database
+ * leak does not reveal usable tokens, and redemption is a single lookup on the unique digest
+ * index. Every redemption rotates the token; the rows of one login form a family. Presenting a
+ * token that was already rotated means it was copied, so the whole family is revoked via
+ * {@link TokenRevocationService#revokeRefreshTokenFamily(String, String)}.
+ */
+@ApplicationScoped
+public class RefreshTokenService {
+
+    private static final Logger log = Logger.getLogger(RefreshTokenService.class);
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    SecureRandomProvider secureRandomProvider;
+
+    @ConfigProperty(name = "abstrauth.refresh-token.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "abstrauth.refresh-token.idle-timeout.seconds", defaultValue = "86400")
+    long idleTimeoutSeconds;
+
+    @ConfigProperty(name = "abstrauth.refresh-token.max-lifetime.seconds", defaultValue = "604800")
+    long maxLifetimeSeconds;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start a new refresh token family, e.g. when an authorization code is redeemed.
+     *
+     * @param accessTokenJti The jti of the access token issued together with this refresh token
+     * @param accessTokenStatusIdx The status list index of that access token, or null
+     * @return the refresh token to hand to the client
+     */
+    @Transactional
+    public String issue(String accountId, String clientId, String orgId, String scope, String authMethod,
+                        String authorizationCodeId, String accessTokenJti, Integer accessTokenStatusIdx) {
+        LocalDateTime now = LocalDateTime.now();
+        RefreshToken token = new RefreshToken();
+        token.setAccountId(accountId);
+        token.setClientId(clientId);
+        token.setOrgId(orgId);
+        token.setScope(scope);
+        token.setAuthMethod(authMethod);
+        token.setAuthorizationCodeId(authorizationCodeId);
+        token.setFamilyExpiresAt(now.plusSeconds(maxLifetimeSeconds));
+        return persistNew(token, now, accessTokenJti, accessTokenStatusIdx);
+    }
+
+    /**
+     * Look up a refresh token by its value. The returned row may be used, revoked or expired;
+     * the caller decides how to react.
+     */
+    public Optional<RefreshToken> findByToken(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        return em.createQuery("SELECT r FROM RefreshToken r WHERE r.tokenHash = :hash", RefreshToken.class)
+                .setParameter("hash", digest(token))
+                .getResultStream()
+                .findFirst();
+    }
+
+    /**
+     * Consume the given refresh token and issue its successor in the same family.
+     * The token is marked as used with a conditional update, so of two concurrent requests
+     * presenting the same token only one succeeds.
+     *
+     * @param accessTokenJti The jti of the access token issued together with the successor
+     * @param accessTokenStatusIdx The status list index of that access token, or null
+     * @return the successor, or empty if the token had already been used or revoked
+     */
+    @Transactional
+    public Optional<String> rotate(RefreshToken current, String accessTokenJti, Integer accessTokenStatusIdx) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = em.createQuery(
+                "UPDATE RefreshToken r SET r.usedAt = :now WHERE r.id = :id AND r.usedAt IS NULL AND r.revokedAt IS NULL")
+                .setParameter("now", now)
+                .setParameter("id", current.getId())
+                .executeUpdate();
+        if (updated == 0) {
+            return Optional.empty();
+        }
+
+        RefreshToken next = new RefreshToken();
+        next.setFamilyId(current.getFamilyId());
+        next.setAccountId(current.getAccountId());
+        next.setClientId(current.getClientId());
+        next.setOrgId(current.getOrgId());
+        // RFC 6749 Section 6: the new refresh token has the same scope as the old one
+        next.setScope(current.getScope());
+        next.setAuthMethod(current.getAuthMethod());
+        next.setAuthorizationCodeId(current.getAuthorizationCodeId());
+        next.setFamilyExpiresAt(current.getFamilyExpiresAt());
+        return Optional.of(persistNew(next, now, accessTokenJti, accessTokenStatusIdx));
+    }
+
+    /**
+     * Whether the token is past its idle timeout or the absolute lifetime of its family.
+     */
+    public boolean isExpired(RefreshToken token) {
+        LocalDateTime now = LocalDateTime.now();
+        return token.getExpiresAt().isBefore(now) || token.getFamilyExpiresAt().isBefore(now);
+    }
+
+    /**
+     * Delete refresh tokens whose family has reached its absolute lifetime. Rows of live
+     * families are kept, even if used, so that reuse is still detected.
+     */
+    @Scheduled(cron = "${abstrauth.refresh-token.purge.cron}")
+    @Transactional
+    void purgeExpired() {
+        int deleted = em.createQuery("DELETE FROM RefreshToken r WHERE r.familyExpiresAt < :now")
+                .setParameter("now", LocalDateTime.now())
+                .executeUpdate();
+        if (deleted > 0) {
+            log.infof("Deleted %d expired refresh token(s)", deleted);
+        }
+    }
+
+    private String persistNew(RefreshToken token, LocalDateTime now, String accessTokenJti, Integer accessTokenStatusIdx) {
+        byte[] randomBytes = new byte[32];
+        secureRandomProvider.getSecureRandom().nextBytes(randomBytes);
+        String value = Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
+
+        token.setTokenHash(digest(value));
+        token.setAccessTokenJti(accessTokenJti);
+        token.setAccessTokenStatusIdx(accessTokenStatusIdx);
+        token.setCreatedAt(now);
+        LocalDateTime idleExpiry = now.plusSeconds(idleTimeoutSeconds);
+        token.setExpiresAt(idleExpiry.isBefore(token.getFamilyExpiresAt()) ? idleExpiry : token.getFamilyExpiresAt());
+        em.persist(token);
+        return value;
+    }
+
+    /**
+     * Hex encoded SHA-256 digest of a refresh token, as stored in T_refresh_tokens.token_hash.
+     */
+    static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
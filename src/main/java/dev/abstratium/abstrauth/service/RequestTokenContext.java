@@ -0,0 +1,68 @@
+package dev.abstratium.abstrauth.service;
+
+import org.eclipse.microprofile.jwt.JsonWebToken;
+
+import io.quarkus.security.identity.SecurityIdentity;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonString;
+
+/**
+ * Request-scoped view of the JWT that authenticated the current request: the bearer access token,
+ * or the ID token of a BFF session. The token has already been verified and parsed by the
+ * security layer, so its claims are simply read from the principal, once per request, and shared
+ * by {@link dev.abstratium.abstrauth.filter.TokenRevocationFilter},
+ * {@link dev.abstratium.abstrauth.filter.OrgIdResolutionFilter} and
+ * {@link dev.abstratium.abstrauth.interceptor.OrgMembershipInterceptor}, instead of each of them
+ * decoding the token or looking its claims up again.
+ */
+@RequestScoped
+public class RequestTokenContext {
+
+    @Inject
+    SecurityIdentity securityIdentity;
+
+    private boolean resolved;
+    private TokenClaims claims;
+
+    /**
+     * The claims of the token the request was authenticated with.
+     *
+     * @return the claims, or null if the request is anonymous or its principal is not a JWT
+     */
+    public TokenClaims claims() {
+        if (!resolved) {
+            claims = securityIdentity != null && securityIdentity.getPrincipal() instanceof JsonWebToken jwt
+                    ? TokenClaims.of(jwt) : null;
+            resolved = true;
+        }
+        return claims;
+    }
+
+    /**
+     * The claims the filters and interceptors need. Any of the strings may be null; issuedAt is
+     * 0 if the token has no iat.
+     */
+    public record TokenClaims(String subject, String jti, String clientId, String orgId, long issuedAt) {
+
+        static TokenClaims of(JsonWebToken jwt) {
+            return new TokenClaims(string(jwt.getClaim("sub")), string(jwt.getClaim("jti")),
+                    string(jwt.getClaim("client_id")), string(jwt.getClaim("orgId")), number(jwt.getClaim("iat")));
+        }
+
+        private static String string(Object claim) {
+            if (claim instanceof JsonString json) {
+                return json.getString();
+            }
+            return claim != null ? claim.toString() : null;
+        }
+
+        private static long number(Object claim) {
+            if (claim instanceof Number number) {
+                return number.longValue();
+            }
+            return claim instanceof JsonNumber json ? json.longValue() : 0;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package dev.abstratium.abstrauth.service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import dev.abstratium.abstrauth.entity.RevocationEpoch;
+import dev.abstratium.abstrauth.util.TransactionHooks;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+/**
+ * Subject-level revocation: every token issued to an account, client or organisation at or
+ * before the subject's "not before" time (its revocation epoch) is revoked. An account can also
+ * be revoked within one organisation only (a MEMBER epoch), which is what organisation admins
+ * do, since an account may be a member of organisations they do not administer.
+ *
+ * This revokes all tokens of a subject with one row in T_revocation_epochs instead of one
+ * T_revoked_tokens row per jti, and lets the checks compare the iat claim against an in-memory
+ * map instead of querying the database. The map holds only epochs that can still match an
+ * unexpired token ({@code abstrauth.revocation.epochs.retention.seconds}) and is reloaded every
+ * {@code abstrauth.revocation.epochs.refresh.interval}, which is how long other instances may
+ * still accept the tokens after a bump. The instance that bumps an epoch applies it as soon as
+ * the transaction commits. Epochs that move forward, locally or on refresh, are published to the
+ * RevocationFeed, and the reusable client_credentials tokens they revoke are dropped.
+ *
+ * Epochs are in whole seconds, like iat, so tokens issued in the same second as the bump are
+ * revoked as well.
+ */
+@ApplicationScoped
+public class RevocationEpochService {
+
+    private static final Logger log = Logger.getLogger(RevocationEpochService.class);
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    TransactionHooks transactionHooks;
+
+    @Inject
+    SecurityProblemLogger securityProblemLogger;
+
+    @Inject
+    ClientCredentialsTokenCache clientCredentialsTokenCache;
+
+    @Inject
+    RevocationFeed revocationFeed;
+
+    // Longest lifetime of any token checked against the epochs; older epochs cannot match any
+    // unexpired token and are not loaded
+    @ConfigProperty(name = "abstrauth.revocation.epochs.retention.seconds", defaultValue = "86400")
+    long retentionSeconds;
+
+    // Immutable, replaced as a whole on every change
+    private volatile Epochs epochs = Epochs.EMPTY;
+
+    @Transactional
+    void onStart(@Observes StartupEvent event) {
+        refresh();
+    }
+
+    /**
+     * Reload the epochs from the database, picking up epochs bumped by other instances.
+     */
+    @Scheduled(every = "${abstrauth.revocation.epochs.refresh.interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    @Transactional
+    void scheduledRefresh() {
+        refresh();
+    }
+
+    /**
+     * Whether the token with the given claims was issued at or before the epoch of its account
+     * (sub), client (client_id), organisation (orgId) or of the account within the organisation.
+     */
+    public boolean isRevoked(JsonObject claims) {
+        if (epochs.isEmpty()) {
+            return false;
+        }
+        JsonNumber iat = claims.getJsonNumber("iat");
+        return isRevoked(stringClaim(claims, "sub"), stringClaim(claims, "client_id"), stringClaim(claims, "orgId"),
+                iat != null ? iat.longValue() : 0);
+    }
+
+    /**
+     * Whether a token of the given account, client and organisation (each may be null) that was
+     * issued at issuedAt (seconds since the epoch) is revoked.
+     */
+    public boolean isRevoked(String accountId, String clientId, String orgId, long issuedAt) {
+        Epochs current = epochs;
+        return issuedAt <= current.notBefore(current.accounts(), accountId)
+                || issuedAt <= current.notBefore(current.clients(), clientId)
+                || issuedAt <= current.notBefore(current.orgs(), orgId)
+                // only build the member id if there are member epochs at all
+                || !current.members().isEmpty() && accountId != null && orgId != null
+                        && issuedAt <= current.notBefore(current.members(), RevocationEpoch.memberId(accountId, orgId));
+    }
+
+    /**
+     * Revoke all tokens of an account, e.g. to sign it out everywhere. Its refresh tokens are
+     * revoked too, so that no new tokens can be obtained without signing in again.
+     */
+    @Transactional
+    public void revokeAccount(String accountId, String reason) {
+        bump(RevocationEpoch.ACCOUNT, accountId, reason);
+        revokeRefreshTokens("r.accountId", accountId, reason);
+    }
+
+    /**
+     * Revoke the tokens of an account that were issued in the context of one organisation, e.g.
+     * to sign it out of that organisation everywhere. Its refresh tokens for the organisation are
+     * revoked too; its tokens for other organisations are not affected.
+     */
+    @Transactional
+    public void revokeMember(String accountId, String orgId, String reason) {
+        bump(RevocationEpoch.MEMBER, RevocationEpoch.memberId(accountId, orgId), reason);
+        em.createQuery(
+            "UPDATE RefreshToken r SET r.revokedAt = :now, r.revokedReason = :reason " +
+            "WHERE r.accountId = :accountId AND r.orgId = :orgId AND r.revokedAt IS NULL"
+        ).setParameter("now", LocalDateTime.now())
+         .setParameter("reason", reason)
+         .setParameter("accountId", accountId)
+         .setParameter("orgId", orgId)
+         .executeUpdate();
+    }
+
+    /**
+     * Revoke all tokens issued to a client, including the refresh tokens of its users and the
+     * client_credentials tokens it may be reusing.
+     */
+    @Transactional
+    public void revokeClient(String clientId, String reason) {
+        bump(RevocationEpoch.CLIENT, clientId, reason);
+        revokeRefreshTokens("r.clientId", clientId, reason);
+    }
+
+    /**
+     * Revoke all tokens issued in the context of an organisation, for any of its accounts and clients.
+     */
+    @Transactional
+    public void revokeOrganisation(String orgId, String reason) {
+        bump(RevocationEpoch.ORG, orgId, reason);
+        revokeRefreshTokens("r.orgId", orgId, reason);
+    }
+
+    /**
+     * Bump the epochs of many subjects of one type (RevocationEpoch.ACCOUNT, CLIENT, ORG or MEMBER)
+     * without revoking their refresh tokens, which the caller does in one statement for all of
+     * them (see BulkRevocationService).
+     */
+    @Transactional
+    public void bumpAll(String subjectType, Collection<String> subjectIds, String reason) {
+        for (String subjectId : subjectIds) {
+            bump(subjectType, subjectId, reason);
+        }
+    }
+
+    /**
+     * Rebuild the in-memory epochs from the database.
+     */
+    @Transactional
+    public void refresh() {
+        long since = Instant.now().getEpochSecond() - retentionSeconds;
+        List<RevocationEpoch> rows = em.createQuery(
+                "SELECT e FROM RevocationEpoch e WHERE e.notBefore >= :since", RevocationEpoch.class)
+                .setParameter("since", since)
+                .getResultList();
+        Map<String, Long> accounts = new HashMap<>();
+        Map<String, Long> clients = new HashMap<>();
+        Map<String, Long> orgs = new HashMap<>();
+        Map<String, Long> members = new HashMap<>();
+        for (RevocationEpoch row : rows) {
+            mapFor(row.getId().getSubjectType(), accounts, clients, orgs, members)
+                    .put(row.getId().getSubjectId(), row.getNotBefore());
+        }
+        synchronized (this) {
+            // epochs only ever move forward; keep those applied locally since the query read the table
+            Epochs current = epochs;
+            keepNewer(current.accounts(), accounts, since);
+            keepNewer(current.clients(), clients, since);
+            keepNewer(current.orgs(), orgs, since);
+            keepNewer(current.members(), members, since);
+            epochs = new Epochs(Map.copyOf(accounts), Map.copyOf(clients), Map.copyOf(orgs), Map.copyOf(members));
+            publishNewer(RevocationEpoch.ACCOUNT, current.accounts(), accounts);
+            publishNewer(RevocationEpoch.CLIENT, current.clients(), clients);
+            publishNewer(RevocationEpoch.ORG, current.orgs(), orgs);
+            publishNewer(RevocationEpoch.MEMBER, current.members(), members);
+        }
+        log.debugf("Loaded %d revocation epoch(s)", rows.size());
+    }
+
+    /**
+     * Drop the in-memory epochs. Useful for testing; the next refresh loads them again.
+     */
+    public synchronized void clear() {
+        epochs = Epochs.EMPTY;
+    }
+
+    public int size() {
+        Epochs current = epochs;
+        return current.accounts().size() + current.clients().size() + current.orgs().size() + current.members().size();
+    }
+
+    /**
+     * The epochs currently held, keyed by subject type and then subject id.
+     */
+    public Map<String, Map<String, Long>> snapshot() {
+        Epochs current = epochs;
+        return Map.of(RevocationEpoch.ACCOUNT, current.accounts(),
+                RevocationEpoch.CLIENT, current.clients(),
+                RevocationEpoch.ORG, current.orgs(),
+                RevocationEpoch.MEMBER, current.members());
+    }
+
+    private void bump(String subjectType, String subjectId, String reason) {
+        securityProblemLogger.warnfNoContext("Revoking all tokens of %s %s, reason: %s", subjectType, subjectId, reason);
+        long notBefore = Instant.now().getEpochSecond();
+        RevocationEpoch.Id id = new RevocationEpoch.Id(subjectType, subjectId);
+        RevocationEpoch epoch = em.find(RevocationEpoch.class, id);
+        if (epoch == null) {
+            epoch = new RevocationEpoch();
+            epoch.setId(id);
+            epoch.setNotBefore(notBefore);
+            epoch.setReason(reason);
+            em.persist(epoch);
+        } else {
+            epoch.setNotBefore(Math.max(epoch.getNotBefore(), notBefore));
+            epoch.setReason(reason);
+        }
+
+        long applied = epoch.getNotBefore();
+        transactionHooks.afterCommit(() -> apply(subjectType, subjectId, applied));
+    }
+
+    private void revokeRefreshTokens(String attribute, String value, String reason) {
+        em.createQuery(
+            "UPDATE RefreshToken r SET r.revokedAt = :now, r.revokedReason = :reason " +
+            "WHERE " + attribute + " = :value AND r.revokedAt IS NULL"
+        ).setParameter("now", LocalDateTime.now())
+         .setParameter("reason", reason)
+         .setParameter("value", value)
+         .executeUpdate();
+    }
+
+    private synchronized void apply(String subjectType, String subjectId, long notBefore) {
+        Epochs current = epochs;
+        Map<String, Long> accounts = new HashMap<>(current.accounts());
+        Map<String, Long> clients = new HashMap<>(current.clients());
+        Map<String, Long> orgs = new HashMap<>(current.orgs());
+        Map<String, Long> members = new HashMap<>(current.members());
+        Map<String, Long> map = mapFor(subjectType, accounts, clients, orgs, members);
+        Long previous = map.get(subjectId);
+        if (previous != null && previous >= notBefore) {
+            return;
+        }
+        map.put(subjectId, notBefore);
+        epochs = new Epochs(Map.copyOf(accounts), Map.copyOf(clients), Map.copyOf(orgs), Map.copyOf(members));
+        moved(subjectType, subjectId, notBefore);
+    }
+
+    private void publishNewer(String subjectType, Map<String, Long> before, Map<String, Long> after) {
+        after.forEach((subjectId, notBefore) -> {
+            Long previous = before.get(subjectId);
+            if (previous == null || previous < notBefore) {
+                moved(subjectType, subjectId, notBefore);
+            }
+        });
+    }
+
+    /**
+     * An epoch moved forward, here or on another instance: publish it and stop reusing the
+     * client_credentials tokens it revokes. Only called once the epoch is committed, so that a
+     * concurrent token request cannot cache a revoked token again after the invalidation.
+     */
+    private void moved(String subjectType, String subjectId, long notBefore) {
+        if (RevocationEpoch.CLIENT.equals(subjectType)) {
+            clientCredentialsTokenCache.invalidateClient(subjectId);
+        } else if (RevocationEpoch.ORG.equals(subjectType)) {
+            clientCredentialsTokenCache.clear();
+        }
+        revocationFeed.publishEpoch(subjectType, subjectId, notBefore);
+    }
+
+    private static void keepNewer(Map<String, Long> current, Map<String, Long> loaded, long since) {
+        current.forEach((subjectId, notBefore) -> {
+            if (notBefore >= since) {
+                loaded.merge(subjectId, notBefore, Math::max);
+            }
+        });
+    }
+
+    private static Map<String, Long> mapFor(String subjectType, Map<String, Long> accounts, Map<String, Long> clients,
+                                            Map<String, Long> orgs, Map<String, Long> members) {
+        return switch (subjectType) {
+            case RevocationEpoch.ACCOUNT -> accounts;
+            case RevocationEpoch.CLIENT -> clients;
+            case RevocationEpoch.ORG -> orgs;
+            case RevocationEpoch.MEMBER -> members;
+            default -> throw new IllegalArgumentException("Unknown revocation subject type: " + subjectType);
+        };
+    }
+
+    private static String stringClaim(JsonObject claims, String name) {
+        return claims.get(name) instanceof JsonString value ? value.getString() : null;
+    }
+
+    private record Epochs(Map<String, Long> accounts, Map<String, Long> clients, Map<String, Long> orgs,
+                          Map<String, Long> members) {
+
+        static final Epochs EMPTY = new Epochs(Map.of(), Map.of(), Map.of(), Map.of());
+
+        boolean isEmpty() {
+            return accounts.isEmpty() && clients.isEmpty() && orgs.isEmpty() && members.isEmpty();
+        }
+
+        long notBefore(Map<String, Long> epochs, String subjectId) {
+            if (subjectId == null) {
+                return Long.MIN_VALUE;
+            }
+            Long notBefore = epochs.get(subjectId);
+            return notBefore != null ? notBefore : Long.MIN_VALUE;
+        }
+    }
+}
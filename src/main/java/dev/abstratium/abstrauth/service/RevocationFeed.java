@@ -0,0 +1,259 @@
+package dev.abstratium.abstrauth.service;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import dev.abstratium.abstrauth.entity.RevocationEpoch;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * The revocations this instance learns about, as a feed that resource servers can follow to
+ * keep a local deny-list instead of calling back for every request (see RevocationFeedResource).
+ *
+ * Revoked JTIs come from the RevokedTokenCache and revocation epochs from the
+ * RevocationEpochService, so the feed contains revocations of other instances too, once they
+ * have been synced. Each event gets a sequence number and the last
+ * {@code abstrauth.revocation.feed.buffer-size} events are kept. A cursor names the instance and
+ * the sequence number of the last event a subscriber has seen. A subscriber whose cursor is
+ * unknown, belongs to another instance (e.g. after a restart or fail-over) or has fallen out of
+ * the buffer gets a snapshot of all current revocations instead, marked as a reset.
+ *
+ * Events are idempotent (a JTI is revoked until its exp, an epoch only ever moves forward), so
+ * seeing one twice is harmless; a snapshot may repeat events that follow it.
+ */
+@ApplicationScoped
+public class RevocationFeed {
+
+    public static final String JTI = "jti";
+    public static final String ACCOUNT = "account";
+    public static final String CLIENT = "client";
+    public static final String ORG = "org";
+    public static final String MEMBER = "member";
+
+    @Inject
+    RevokedTokenCache revokedTokenCache;
+
+    @Inject
+    RevocationEpochService revocationEpochService;
+
+    @ConfigProperty(name = "abstrauth.revocation.feed.buffer-size", defaultValue = "10000")
+    int bufferSize;
+
+    /**
+     * A revocation: the JTI is revoked until {@code time} (its exp), or all tokens of the
+     * account, client or organisation issued at or before {@code time} (the epoch) are. For
+     * MEMBER events, id is the account and orgId the organisation its tokens are revoked in;
+     * orgId is null for the other types. Times are in seconds since the epoch, like the exp and
+     * iat claims.
+     */
+    public record Event(long sequence, String type, String id, String orgId, long time) {
+    }
+
+    /**
+     * Events following a cursor.
+     *
+     * @param cursor To pass to the next read
+     * @param reset Whether the events are a snapshot of all current revocations, replacing what
+     *              the subscriber has seen so far
+     */
+    public record Page(String cursor, boolean reset, List<Event> events) {
+    }
+
+    /**
+     * Receives the events of this instance as they are published, e.g. an open SSE stream. Pages
+     * are delivered one at a time and in order, so they should only be queued for sending.
+     */
+    public interface Subscriber {
+
+        /**
+         * @return false to unsubscribe, e.g. because the connection has been closed
+         */
+        boolean onPage(Page page);
+
+        /**
+         * Called periodically, so that dead connections are noticed even if there are no events.
+         *
+         * @return false to unsubscribe
+         */
+        boolean onHeartbeat();
+    }
+
+    private final String instanceId = HexFormat.of().formatHex(new SecureRandom().generateSeed(4));
+
+    private Event[] buffer;
+
+    // sequence of the last published event; guarded by this
+    private long sequence;
+
+    // completed and replaced whenever an event is published, to wake up long polls
+    private volatile CompletableFuture<Void> next = new CompletableFuture<>();
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder resets = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        buffer = new Event[bufferSize];
+    }
+
+    public void publishJti(String jti, long expiresAtSeconds) {
+        publish(new Event(0, JTI, jti, null, expiresAtSeconds));
+    }
+
+    public void publishEpoch(String subjectType, String subjectId, long notBefore) {
+        publish(epochEvent(subjectType, subjectId, notBefore));
+    }
+
+    /**
+     * The events after the cursor, at most max of them, or a snapshot of all revocations if the
+     * cursor cannot be resumed.
+     */
+    public Page read(String cursor, int max) {
+        long after = parse(cursor);
+        synchronized (this) {
+            long oldest = Math.max(1, sequence - buffer.length + 1);
+            if (after >= 0 && after <= sequence && after + 1 >= oldest) {
+                List<Event> events = new ArrayList<>();
+                long last = after;
+                for (long seq = after + 1; seq <= sequence && events.size() < max; seq++) {
+                    events.add(buffer[index(seq)]);
+                    last = seq;
+                }
+                return new Page(cursor(last), false, events);
+            }
+        }
+        return snapshot();
+    }
+
+    /**
+     * Completes once an event after the cursor has been published; immediately if there already
+     * is one or the cursor cannot be resumed. The caller may complete the returned future, e.g.
+     * on a timeout, without affecting other waiters.
+     */
+    public CompletableFuture<Void> awaitAfter(String cursor) {
+        CompletableFuture<Void> waiting = next;
+        long after = parse(cursor);
+        synchronized (this) {
+            if (after < 0 || after != sequence) {
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+        return waiting.copy();
+    }
+
+    /**
+     * Deliver the events after the cursor (or a snapshot) to the subscriber, followed by every
+     * event published from now on.
+     */
+    public synchronized void subscribe(String cursor, Subscriber subscriber) {
+        // while holding the lock, so that no event is published between the catch-up and the live ones
+        if (subscriber.onPage(read(cursor, Integer.MAX_VALUE))) {
+            subscribers.add(subscriber);
+        }
+    }
+
+    public void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    @Scheduled(every = "${abstrauth.revocation.feed.heartbeat.interval}")
+    synchronized void heartbeat() {
+        subscribers.removeIf(subscriber -> !subscriber.onHeartbeat());
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getResetCount() {
+        return resets.sum();
+    }
+
+    private Page snapshot() {
+        resets.increment();
+        // take the position first: events published while copying are sent again after the snapshot
+        String cursor;
+        synchronized (this) {
+            cursor = cursor(sequence);
+        }
+        // copied without the lock (unless subscribing), as it may take a while
+        List<Event> events = new ArrayList<>();
+        revokedTokenCache.snapshot().forEach((jti, expiresAtMillis) ->
+                events.add(new Event(0, JTI, jti, null, expiresAtMillis / 1000)));
+        for (Map.Entry<String, Map<String, Long>> epochs : revocationEpochService.snapshot().entrySet()) {
+            String subjectType = epochs.getKey();
+            epochs.getValue().forEach((subjectId, notBefore) -> events.add(epochEvent(subjectType, subjectId, notBefore)));
+        }
+        return new Page(cursor, true, events);
+    }
+
+    private void publish(Event unsequenced) {
+        CompletableFuture<Void> woken;
+        synchronized (this) {
+            Event event = new Event(++sequence, unsequenced.type(), unsequenced.id(), unsequenced.orgId(), unsequenced.time());
+            buffer[index(event.sequence())] = event;
+            String cursor = cursor(event.sequence());
+            // delivered in order, while holding the lock; the subscribers only enqueue
+            Page page = new Page(cursor, false, List.of(event));
+            subscribers.removeIf(subscriber -> !subscriber.onPage(page));
+            woken = next;
+            next = new CompletableFuture<>();
+        }
+        published.increment();
+        woken.complete(null);
+    }
+
+    private int index(long seq) {
+        return (int) (seq % buffer.length);
+    }
+
+    private String cursor(long seq) {
+        return instanceId + "." + seq;
+    }
+
+    /**
+     * @return the sequence number in a cursor of this instance, or -1
+     */
+    private long parse(String cursor) {
+        if (cursor == null || !cursor.startsWith(instanceId + ".")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(cursor.substring(instanceId.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static Event epochEvent(String subjectType, String subjectId, long notBefore) {
+        return switch (subjectType) {
+            case RevocationEpoch.ACCOUNT -> new Event(0, ACCOUNT, subjectId, null, notBefore);
+            case RevocationEpoch.CLIENT -> new Event(0, CLIENT, subjectId, null, notBefore);
+            case RevocationEpoch.ORG -> new Event(0, ORG, subjectId, null, notBefore);
+            case RevocationEpoch.MEMBER -> {
+                // accountId/orgId, see RevocationEpoch.memberId
+                int slash = subjectId.indexOf('/');
+                yield new Event(0, MEMBER, subjectId.substring(0, slash), subjectId.substring(slash + 1), notBefore);
+            }
+            default -> throw new IllegalArgumentException("Unknown revocation subject type: " + subjectType);
+        };
+    }
+}
@@ -0,0 +1,285 @@
+package dev.abstratium.abstrauth.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+/**
+ * In-memory copy of the revoked JTIs in T_revoked_tokens, so that checking a bearer token for
+ * revocation does not need a query.
+ *
+ * The whole table is loaded at startup. After that, only rows created since the last sync are
+ * read, every {@code abstrauth.revocation.sync.interval}, which is how long other instances may
+ * still accept a token revoked elsewhere. Revocations made by this instance are added as soon as
+ * their transaction commits (see TokenRevocationService). The sync reads back
+ * {@code abstrauth.revocation.sync.overlap.seconds} before the newest row it has seen, so that
+ * rows committed late, after rows with a newer created_at, are not missed.
+ *
+ * Almost no presented token is revoked, so a Bloom filter sits in front of the set: most lookups
+ * are answered by reading a few bits, without touching the set. The filter only ever says
+ * "maybe" for JTIs that are in the set, plus a small fraction of others, which the set then
+ * answers exactly.
+ *
+ * Entries are dropped once their token has expired, when RevokedTokenPurgeService runs, and the
+ * Bloom filter is rebuilt from the remaining ones, so memory follows the number of live revoked
+ * tokens.
+ *
+ * JTIs that are new to the cache are published to the RevocationFeed, except during the initial
+ * load, which subscribers get as a snapshot instead.
+ */
+@ApplicationScoped
+public class RevokedTokenCache {
+
+    private static final Logger log = Logger.getLogger(RevokedTokenCache.class);
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    RevocationFeed revocationFeed;
+
+    // Number of revoked JTIs the Bloom filter is sized for at a 1% false positive rate; beyond
+    // it, more lookups fall through to the set, which stays exact
+    @ConfigProperty(name = "abstrauth.revocation.cache.expected-entries", defaultValue = "100000")
+    int expectedEntries;
+
+    @ConfigProperty(name = "abstrauth.revocation.sync.overlap.seconds", defaultValue = "60")
+    long overlapSeconds;
+
+    private volatile State state;
+
+    private volatile boolean loaded;
+
+    // created_at of the newest row read from the database
+    private volatile LocalDateTime watermark;
+
+    private volatile long lastSyncMillis = System.currentTimeMillis();
+
+    private final LongAdder filtered = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        state = new State(expectedEntries);
+    }
+
+    @Transactional
+    void onStart(@Observes StartupEvent event) {
+        sync();
+    }
+
+    /**
+     * Read the revocations committed since the last sync, including those of other instances.
+     */
+    @Scheduled(every = "${abstrauth.revocation.sync.interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    @Transactional
+    void scheduledSync() {
+        sync();
+    }
+
+    /**
+     * Whether the cache has been loaded; until then, revocation checks have to query the database.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Whether the JTI is revoked, as of the last sync or a revocation committed by this instance.
+     */
+    public boolean contains(String jti) {
+        State current = state;
+        if (!current.bloom().mightContain(jti)) {
+            filtered.increment();
+            return false;
+        }
+        return current.jtis().containsKey(jti);
+    }
+
+    /**
+     * Record the revocation of a JTI that has been committed to the database.
+     *
+     * @param expiresAtMillis When the revoked token expires, after which the entry may be dropped
+     */
+    public synchronized void add(String jti, long expiresAtMillis) {
+        State current = state;
+        current.bloom().put(jti);
+        Long previous = current.jtis().get(jti);
+        if (previous == null || previous < expiresAtMillis) {
+            current.jtis().put(jti, expiresAtMillis);
+        }
+        if (previous == null && loaded) {
+            revocationFeed.publishJti(jti, expiresAtMillis / 1000);
+        }
+    }
+
+    /**
+     * Drop the entries of tokens that have expired and rebuild the Bloom filter without them.
+     *
+     * @return the number of entries dropped
+     */
+    public synchronized int evictExpired() {
+        long now = System.currentTimeMillis();
+        State current = state;
+        State next = new State(expectedEntries);
+        current.jtis().forEach((jti, expiresAtMillis) -> {
+            if (expiresAtMillis > now) {
+                next.bloom().put(jti);
+                next.jtis().put(jti, expiresAtMillis);
+            }
+        });
+        int evicted = current.jtis().size() - next.jtis().size();
+        if (evicted > 0) {
+            state = next;
+        }
+        return evicted;
+    }
+
+    /**
+     * Load the rows created since the watermark, or all rows on the first sync.
+     */
+    @Transactional
+    public void sync() {
+        LocalDateTime since = watermark;
+        List<Object[]> rows;
+        if (since == null) {
+            rows = em.createQuery("SELECT r.tokenJti, r.createdAt, r.expiresAt FROM RevokedToken r", Object[].class)
+                    .getResultList();
+        } else {
+            rows = em.createQuery(
+                    "SELECT r.tokenJti, r.createdAt, r.expiresAt FROM RevokedToken r WHERE r.createdAt >= :since",
+                    Object[].class)
+                    .setParameter("since", since.minusSeconds(overlapSeconds))
+                    .getResultList();
+        }
+        LocalDateTime newest = since;
+        long now = System.currentTimeMillis();
+        for (Object[] row : rows) {
+            long expiresAtMillis = ((LocalDateTime) row[2]).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            if (expiresAtMillis > now) {
+                // rows of expired tokens are left for the purge
+                add((String) row[0], expiresAtMillis);
+            }
+            LocalDateTime createdAt = (LocalDateTime) row[1];
+            if (createdAt != null && (newest == null || createdAt.isAfter(newest))) {
+                newest = createdAt;
+            }
+        }
+        // on the first sync of an empty table, start from now so that the next sync is incremental
+        watermark = newest != null ? newest : LocalDateTime.now().minusSeconds(overlapSeconds);
+        lastSyncMillis = System.currentTimeMillis();
+        loaded = true;
+        log.debugf("Synced %d revoked token(s), %d in memory", rows.size(), size());
+    }
+
+    /**
+     * Drop all entries, so that the next sync reloads the whole table. Useful for testing.
+     */
+    public synchronized void clear() {
+        state = new State(expectedEntries);
+        watermark = null;
+    }
+
+    public int size() {
+        return state.jtis().size();
+    }
+
+    /**
+     * The revoked JTIs currently held, with the expiry of their tokens in millis.
+     */
+    public Map<String, Long> snapshot() {
+        return Map.copyOf(state.jtis());
+    }
+
+    /**
+     * Seconds since the last successful sync with the database.
+     */
+    public double getSyncLagSeconds() {
+        return (System.currentTimeMillis() - lastSyncMillis) / 1000.0;
+    }
+
+    /**
+     * Number of lookups answered by the Bloom filter alone.
+     */
+    public long getFilteredCount() {
+        return filtered.sum();
+    }
+
+    // Key: revoked JTI, Value: expiry of the token in millis
+    private record State(BloomFilter bloom, Map<String, Long> jtis) {
+
+        State(int expectedEntries) {
+            this(new BloomFilter(expectedEntries), new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * A Bloom filter with a 1% false positive rate at the expected number of entries. The bit
+     * positions are derived from String.hashCode (double hashing), which the set needs anyway.
+     */
+    static final class BloomFilter {
+
+        private static final int HASHES = 7;
+
+        private final AtomicLongArray bits;
+        private final int size;
+
+        BloomFilter(int expectedEntries) {
+            // m = -n ln(p) / (ln 2)^2, i.e. about 9.6 bits per entry for p = 0.01
+            long wanted = (long) Math.ceil(Math.max(expectedEntries, 1) * 9.6);
+            int words = (int) Math.min((wanted + 63) / 64, Integer.MAX_VALUE / 64);
+            bits = new AtomicLongArray(words);
+            size = words * 64;
+        }
+
+        void put(String value) {
+            int h1 = value.hashCode();
+            int h2 = mix(h1);
+            for (int i = 0; i < HASHES; i++) {
+                int bit = Math.floorMod(h1 + i * h2, size);
+                long mask = 1L << bit;
+                int word = bit >>> 6;
+                if ((bits.get(word) & mask) == 0) {
+                    bits.getAndAccumulate(word, mask, (a, b) -> a | b);
+                }
+            }
+        }
+
+        boolean mightContain(String value) {
+            int h1 = value.hashCode();
+            int h2 = mix(h1);
+            for (int i = 0; i < HASHES; i++) {
+                int bit = Math.floorMod(h1 + i * h2, size);
+                if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int mix(int h) {
+            // murmur3 finalizer, so that the second hash is independent enough of the first
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+            return h | 1;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package dev.abstratium.abstrauth.service;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Scheduled service that deletes the revocations of tokens that have expired, since a revoked
+ * JWT past its exp is rejected anyway. Rows are deleted in batches of
+ * {@code abstrauth.revocation.purge.batch-size}, each in its own transaction, so that a large
+ * backlog never locks T_revoked_tokens for long. The in-memory RevokedTokenCache drops the same
+ * entries.
+ */
+@ApplicationScoped
+public class RevokedTokenPurgeService {
+
+    private static final Logger log = Logger.getLogger(RevokedTokenPurgeService.class);
+
+    @Inject
+    TokenRevocationService tokenRevocationService;
+
+    @Inject
+    RevokedTokenCache revokedTokenCache;
+
+    @ConfigProperty(name = "abstrauth.revocation.purge.batch-size", defaultValue = "1000")
+    int batchSize;
+
+    // Upper bound of batches per run; whatever is left is deleted by the next run
+    @ConfigProperty(name = "abstrauth.revocation.purge.max-batches", defaultValue = "100")
+    int maxBatches;
+
+    private final LongAdder deleted = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    @Scheduled(every = "${abstrauth.revocation.purge.interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledPurge() {
+        purgeExpired();
+    }
+
+    /**
+     * Delete the revocations of expired tokens, from the database and from memory.
+     *
+     * @return the number of rows deleted from the database
+     */
+    public int purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int count = tokenRevocationService.deleteExpired(now, batchSize);
+            batches.increment();
+            deleted.add(count);
+            total += count;
+            if (count < batchSize) {
+                break;
+            }
+        }
+        int evicted = revokedTokenCache.evictExpired();
+        if (total > 0 || evicted > 0) {
+            log.infof("Deleted %d expired token revocation(s), dropped %d from memory", total, evicted);
+        }
+        return total;
+    }
+
+    public long getDeletedCount() {
+        return deleted.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+}
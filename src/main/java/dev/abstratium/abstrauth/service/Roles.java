@@ -12,6 +12,7 @@ public interface Roles {
     String _MANAGE_ACCOUNTS_PLAIN = "manage-accounts";
     String _MANAGE_CLIENTS_PLAIN = "manage-clients";
     String _USER_PLAIN = "user";
+    String _REVOCATION_FEED_PLAIN = "revocation-feed";
 
     /** The admin (super user) role. Can manage all clients and accounts of all organisations. */
     String ADMIN = CLIENT_ID + "_" + _ADMIN_PLAIN;
@@ -30,6 +31,11 @@ public interface Roles {
      * and only for the organisation that they are signed in as. */
     String MANAGE_CLIENTS = CLIENT_ID + "_" + _MANAGE_CLIENTS_PLAIN;
 
+    /** Required by clients (as a client role for calling abstrauth) that follow the revocation
+     * feed, which contains the revocations of all organisations. It is not available to foreign
+     * organisations, so only the organisation owning abstrauth can grant it. */
+    String REVOCATION_FEED = CLIENT_ID + "_" + _REVOCATION_FEED_PLAIN;
+
     /* ADDITIONAL VIRTUAL ROLES
        ============================
 
@@ -0,0 +1,220 @@
+package dev.abstratium.abstrauth.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import dev.abstratium.abstrauth.boundary.OverloadedException;
+import dev.abstratium.abstrauth.util.JwsSigner;
+import dev.abstratium.abstrauth.util.JwtClaimsWriter;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.interceptor.Interceptor;
+
+/**
+ * Runs JWT signing on a small dedicated pool instead of on the request worker threads.
+ *
+ * Signing is CPU bound (an RSA-PSS signature takes around a millisecond), while the request
+ * worker pool ({@code quarkus.thread-pool.max-threads}) is sized for threads that mostly wait
+ * on the database. Signing on the workers lets a burst of token requests occupy all of them, so
+ * requests that only need the database queue behind the CPU work. The pool here has one thread
+ * per core by default and a bounded queue. When the queue is full the request is rejected with
+ * an {@link OverloadedException} (503 with Retry-After) instead of piling up.
+ *
+ * Each pool thread keeps its own initialised {@link java.security.Signature} per key (see
+ * {@link JwsSigner}); the threads are started and prepared for the current keys at startup.
+ *
+ * The calling thread waits for the result, so the claims writer it passes in is not touched
+ * by anybody else while the pool thread reads it.
+ */
+@ApplicationScoped
+public class SigningExecutor {
+
+    private static final Logger log = Logger.getLogger(SigningExecutor.class);
+
+    @Inject
+    SigningKeyRing signingKeyRing;
+
+    @ConfigProperty(name = "abstrauth.signing.executor.enabled", defaultValue = "true")
+    boolean enabled;
+
+    // 0 = one thread per available processor
+    @ConfigProperty(name = "abstrauth.signing.executor.threads", defaultValue = "0")
+    int configuredThreads;
+
+    @ConfigProperty(name = "abstrauth.signing.executor.queue-size", defaultValue = "256")
+    int queueSize;
+
+    @ConfigProperty(name = "abstrauth.signing.executor.retry-after.seconds", defaultValue = "1")
+    int retryAfterSeconds;
+
+    private ThreadPoolExecutor executor;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder signingNanos = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        int threads = configuredThreads > 0 ? configuredThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "abstrauth-signing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.prestartAllCoreThreads();
+    }
+
+    /**
+     * Initialise the Signature instances of every pool thread for the keys in use. Runs after the
+     * key ring has loaded its keys on startup; keys added later are initialised on first use.
+     */
+    void onStart(@Observes @Priority(Interceptor.Priority.APPLICATION + 600) StartupEvent event) {
+        if (executor == null) {
+            return;
+        }
+        int threads = executor.getCorePoolSize();
+        // every task waits until all have started, so each one runs on a different thread
+        CountDownLatch started = new CountDownLatch(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        started.countDown();
+                        started.await(5, TimeUnit.SECONDS);
+                        signingKeyRing.activeSigners().forEach(JwsSigner::prepare);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // queue smaller than the pool; that thread initialises its keys on first use
+                started.countDown();
+                done.countDown();
+            }
+        }
+        try {
+            if (!done.await(10, TimeUnit.SECONDS)) {
+                log.warn("Timed out preparing the JWT signing threads; remaining keys are initialised on first use");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.infof("JWT signing pool started with %d thread(s) and a queue of %d", threads, queueSize);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Sign the claims with the given signer on the signing pool and wait for the result.
+     *
+     * @throws OverloadedException if the queue of the signing pool is full
+     */
+    public String sign(JwsSigner signer, JwtClaimsWriter claims) {
+        if (executor == null) {
+            return signer.sign(claims);
+        }
+        long submittedAt = System.nanoTime();
+        Future<String> result;
+        try {
+            result = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                queueWaitNanos.add(startedAt - submittedAt);
+                try {
+                    return signer.sign(claims);
+                } finally {
+                    signingNanos.add(System.nanoTime() - startedAt);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new OverloadedException("Token signing capacity exceeded, please retry", retryAfterSeconds);
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for JWT signing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException("Failed to sign JWT", e.getCause());
+        }
+    }
+
+    /**
+     * Reject the request up front when the signing queue is already full, before the caller
+     * changes any state (e.g. consumes an authorization code) that a later rejection would lose.
+     *
+     * @throws OverloadedException if the queue of the signing pool is full
+     */
+    public void ensureCapacity() {
+        if (executor != null && executor.getQueue().remainingCapacity() == 0) {
+            rejected.increment();
+            throw new OverloadedException("Token signing capacity exceeded, please retry", retryAfterSeconds);
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor == null ? 0 : executor.getActiveCount();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Total time signing tasks spent waiting in the queue, in nanoseconds.
+     */
+    public double getQueueWaitNanos() {
+        return queueWaitNanos.sum();
+    }
+
+    /**
+     * Total time spent computing signatures on the pool, in nanoseconds.
+     */
+    public double getSigningNanos() {
+        return signingNanos.sum();
+    }
+}
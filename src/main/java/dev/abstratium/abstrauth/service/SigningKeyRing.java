@@ -0,0 +1,402 @@
+package dev.abstratium.abstrauth.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import dev.abstratium.abstrauth.entity.SigningKey;
+import dev.abstratium.abstrauth.util.JwsSigner;
+import dev.abstratium.abstrauth.util.SecureRandomProvider;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.jwt.algorithm.SignatureAlgorithm;
+import io.smallrye.jwt.util.KeyUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+/**
+ * The set of keys used to sign and verify the JWTs issued by abstrauth.
+ *
+ * The ring always contains the static PS256 key configured via {@code smallrye.jwt.sign.key}
+ * (kid {@value #STATIC_KEY_ID}). It is the default for every client and the only key used for
+ * abstrauth's own client, because abstrauth's API and BFF verify against the single configured
+ * public key ({@code mp.jwt.verify.publickey}).
+ *
+ * Clients listed in {@code abstrauth.signing.es256.client-ids} or
+ * {@code abstrauth.signing.eddsa.client-ids} get their tokens signed with a managed ES256 or
+ * EdDSA (Ed25519) key instead, which is much cheaper to sign with than RSA. Managed keys are
+ * stored encrypted in {@code T_signing_keys} and rotated automatically:
+ * <ul>
+ *   <li>a successor is created {@code pre-publish} before the current key retires, so that it
+ *       is in the JWKS before the first token is signed with it;</li>
+ *   <li>a retired key stays in the JWKS for {@code overlap} so that tokens signed with it can
+ *       still be verified; afterwards it is deleted.</li>
+ * </ul>
+ * Every instance reloads the ring from the database periodically, so keys created by another
+ * instance are picked up without coordination. If two instances rotate at the same moment both
+ * successors are published and the one activating last wins; this is harmless.
+ *
+ * When no usable managed key exists (e.g. the table was just created, or the key encryption
+ * secret is wrong), signing falls back to the static key.
+ */
+@ApplicationScoped
+public class SigningKeyRing {
+
+    private static final Logger log = Logger.getLogger(SigningKeyRing.class);
+
+    public static final String STATIC_KEY_ID = "abstrauth-key-1";
+
+    private static final int GCM_IV_LENGTH = 12;
+    private static final int GCM_TAG_BITS = 128;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    SecureRandomProvider secureRandomProvider;
+
+    @ConfigProperty(name = "smallrye.jwt.sign.key")
+    String privateKeyPem;
+
+    @ConfigProperty(name = "abstrauth.signing.es256.client-ids")
+    Optional<Set<String>> es256ClientIds;
+
+    @ConfigProperty(name = "abstrauth.signing.eddsa.client-ids")
+    Optional<Set<String>> eddsaClientIds;
+
+    @ConfigProperty(name = "abstrauth.signing.rotation.period.hours", defaultValue = "720")
+    long rotationPeriodHours;
+
+    @ConfigProperty(name = "abstrauth.signing.rotation.pre-publish.minutes", defaultValue = "60")
+    long prePublishMinutes;
+
+    @ConfigProperty(name = "abstrauth.signing.rotation.overlap.hours", defaultValue = "24")
+    long overlapHours;
+
+    @ConfigProperty(name = "abstrauth.signing.key-encryption-secret")
+    String keyEncryptionSecret;
+
+    private JwsSigner staticSigner;
+
+    private PublishedKey staticKey;
+
+    private SecretKeySpec encryptionKey;
+
+    private volatile Snapshot snapshot;
+
+    @PostConstruct
+    void init() {
+        try {
+            PrivateKey privateKey = KeyUtils.decodePrivateKey(privateKeyPem, SignatureAlgorithm.PS256);
+            staticSigner = new JwsSigner(STATIC_KEY_ID, JwsSigner.PS256, privateKey);
+            staticKey = new PublishedKey(STATIC_KEY_ID, JwsSigner.PS256, derivePublicKey(privateKey));
+            byte[] secret = MessageDigest.getInstance("SHA-256")
+                    .digest(keyEncryptionSecret.getBytes(StandardCharsets.UTF_8));
+            encryptionKey = new SecretKeySpec(secret, "AES");
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to initialise the JWT signing keys", e);
+        }
+        snapshot = new Snapshot(List.of(staticKey), Map.of(STATIC_KEY_ID, staticKey), Map.of(), Map.of());
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        rotate();
+    }
+
+    /**
+     * Reload the keys from the database, picking up keys created by other instances and
+     * activating pre-published keys once their time has come.
+     */
+    @Scheduled(every = "${abstrauth.signing.refresh.interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    @Transactional
+    void scheduledRefresh() {
+        refresh();
+    }
+
+    @Scheduled(every = "${abstrauth.signing.rotation.check.interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledRotation() {
+        rotate();
+    }
+
+    /**
+     * The signer to use for tokens issued to (or, for token exchange, audienced to) the given client.
+     */
+    public JwsSigner signerFor(String clientId) {
+        String algorithm = algorithmFor(clientId);
+        if (algorithm != null) {
+            JwsSigner signer = snapshot.signers().get(algorithm);
+            if (signer != null) {
+                return signer;
+            }
+        }
+        return staticSigner;
+    }
+
+    /**
+     * The signers currently used for new tokens: the static signer and the active managed ones.
+     */
+    public List<JwsSigner> activeSigners() {
+        List<JwsSigner> signers = new ArrayList<>(snapshot.signers().values());
+        signers.add(0, staticSigner);
+        return signers;
+    }
+
+    /**
+     * The JOSE algorithm configured for the given client, or null when it uses the static PS256 key.
+     */
+    String algorithmFor(String clientId) {
+        if (clientId == null || Roles.CLIENT_ID.equals(clientId)) {
+            return null;
+        }
+        if (es256ClientIds.isPresent() && es256ClientIds.get().contains(clientId)) {
+            return JwsSigner.ES256;
+        }
+        if (eddsaClientIds.isPresent() && eddsaClientIds.get().contains(clientId)) {
+            return JwsSigner.EDDSA;
+        }
+        return null;
+    }
+
+    /**
+     * All keys that tokens may currently be signed with, static key first. The returned list is
+     * immutable and only replaced when the ring changes, so callers may cache derived data by
+     * identity.
+     */
+    public List<PublishedKey> publishedKeys() {
+        return snapshot.published();
+    }
+
+    /**
+     * Resolve the public key for a token header. PS256 tokens are always verified against the
+     * static key, regardless of their kid, as they were before the ring existed.
+     *
+     * @return the key, or null if the kid is unknown or does not match the algorithm
+     */
+    public PublicKey verificationKey(String kid, String algorithm) {
+        if (JwsSigner.PS256.equals(algorithm)) {
+            return staticKey.publicKey();
+        }
+        PublishedKey key = kid == null ? null : snapshot.byKid().get(kid);
+        if (key == null || !key.algorithm().equals(algorithm)) {
+            return null;
+        }
+        return key.publicKey();
+    }
+
+    /**
+     * Delete expired keys, create initial keys or successors where needed and reload the ring.
+     */
+    @Transactional
+    public void rotate() {
+        Instant now = Instant.now();
+        int purged = em.createQuery("DELETE FROM SigningKey k WHERE k.expiresAt < :now")
+                .setParameter("now", now)
+                .executeUpdate();
+        if (purged > 0) {
+            log.infof("Deleted %d expired signing key(s)", purged);
+        }
+
+        for (String algorithm : managedAlgorithms()) {
+            List<SigningKey> latest = em.createQuery(
+                    "SELECT k FROM SigningKey k WHERE k.algorithm = :algorithm ORDER BY k.retiresAt DESC", SigningKey.class)
+                    .setParameter("algorithm", algorithm)
+                    .setMaxResults(1)
+                    .getResultList();
+            if (latest.isEmpty()) {
+                createKey(algorithm, now);
+            } else {
+                Instant retiresAt = latest.get(0).getRetiresAt();
+                if (!retiresAt.isAfter(now.plus(Duration.ofMinutes(prePublishMinutes)))) {
+                    createKey(algorithm, retiresAt.isAfter(now) ? retiresAt : now);
+                }
+            }
+        }
+        em.flush();
+        refresh();
+    }
+
+    /**
+     * Rebuild the in-memory snapshot from the database.
+     */
+    void refresh() {
+        Instant now = Instant.now();
+        List<SigningKey> keys = em.createQuery(
+                "SELECT k FROM SigningKey k WHERE k.expiresAt > :now ORDER BY k.activatesAt", SigningKey.class)
+                .setParameter("now", now)
+                .getResultList();
+
+        Snapshot previous = snapshot;
+        List<PublishedKey> published = new ArrayList<>();
+        Map<String, PublishedKey> byKid = new HashMap<>();
+        Map<String, JwsSigner> signers = new HashMap<>();
+        Map<String, JwsSigner> signersByKid = new HashMap<>();
+        published.add(staticKey);
+        byKid.put(STATIC_KEY_ID, staticKey);
+
+        for (SigningKey key : keys) {
+            PublishedKey publishedKey = previous.byKid().get(key.getKid());
+            try {
+                if (publishedKey == null) {
+                    publishedKey = new PublishedKey(key.getKid(), key.getAlgorithm(),
+                            decodePublicKey(key.getAlgorithm(), key.getPublicKey()));
+                }
+                published.add(publishedKey);
+                byKid.put(key.getKid(), publishedKey);
+
+                // ordered by activatesAt, so the last active key per algorithm wins
+                if (!key.getActivatesAt().isAfter(now) && key.getRetiresAt().isAfter(now)) {
+                    JwsSigner signer = previous.signersByKid().get(key.getKid());
+                    if (signer == null) {
+                        signer = new JwsSigner(key.getKid(), key.getAlgorithm(), decryptPrivateKey(key));
+                    }
+                    signers.put(key.getAlgorithm(), signer);
+                    signersByKid.put(key.getKid(), signer);
+                }
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                log.errorf(e, "Ignoring unusable signing key %s", key.getKid());
+            }
+        }
+
+        if (published.equals(previous.published()) && signersByKid.equals(previous.signersByKid())) {
+            return;
+        }
+        snapshot = new Snapshot(Collections.unmodifiableList(published), Map.copyOf(byKid),
+                Map.copyOf(signers), Map.copyOf(signersByKid));
+        log.debugf("Signing key ring now publishes %d key(s), signing with %s", published.size(), signersByKid.keySet());
+    }
+
+    private List<String> managedAlgorithms() {
+        List<String> algorithms = new ArrayList<>(2);
+        if (es256ClientIds.isPresent() && !es256ClientIds.get().isEmpty()) {
+            algorithms.add(JwsSigner.ES256);
+        }
+        if (eddsaClientIds.isPresent() && !eddsaClientIds.get().isEmpty()) {
+            algorithms.add(JwsSigner.EDDSA);
+        }
+        return algorithms;
+    }
+
+    private void createKey(String algorithm, Instant activatesAt) {
+        KeyPair keyPair;
+        try {
+            keyPair = generateKeyPair(algorithm);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to generate " + algorithm + " signing key", e);
+        }
+
+        byte[] suffix = new byte[6];
+        secureRandomProvider.getSecureRandom().nextBytes(suffix);
+        String kid = "abstrauth-" + algorithm.toLowerCase() + "-" + HexFormat.of().formatHex(suffix);
+
+        Instant retiresAt = activatesAt.plus(Duration.ofHours(rotationPeriodHours));
+        SigningKey key = new SigningKey();
+        key.setKid(kid);
+        key.setAlgorithm(algorithm);
+        key.setPublicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+        key.setPrivateKey(encrypt(kid, keyPair.getPrivate().getEncoded()));
+        key.setActivatesAt(activatesAt);
+        key.setRetiresAt(retiresAt);
+        key.setExpiresAt(retiresAt.plus(Duration.ofHours(overlapHours)));
+        em.persist(key);
+        log.infof("Created %s signing key %s, active from %s until %s", algorithm, kid, activatesAt, retiresAt);
+    }
+
+    static KeyPair generateKeyPair(String algorithm) throws GeneralSecurityException {
+        if (JwsSigner.ES256.equals(algorithm)) {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            return generator.generateKeyPair();
+        }
+        if (JwsSigner.EDDSA.equals(algorithm)) {
+            return KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        }
+        throw new IllegalArgumentException("Unsupported managed signing algorithm: " + algorithm);
+    }
+
+    private static String keyFactoryAlgorithm(String algorithm) {
+        return JwsSigner.ES256.equals(algorithm) ? "EC" : "Ed25519";
+    }
+
+    private static PublicKey decodePublicKey(String algorithm, String base64) throws GeneralSecurityException {
+        return KeyFactory.getInstance(keyFactoryAlgorithm(algorithm))
+                .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(base64)));
+    }
+
+    private PrivateKey decryptPrivateKey(SigningKey key) throws GeneralSecurityException {
+        byte[] data = Base64.getDecoder().decode(key.getPrivateKey());
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new GCMParameterSpec(GCM_TAG_BITS, data, 0, GCM_IV_LENGTH));
+        // the kid is authenticated, so an encrypted key cannot be moved to another row
+        cipher.updateAAD(key.getKid().getBytes(StandardCharsets.UTF_8));
+        byte[] pkcs8 = cipher.doFinal(data, GCM_IV_LENGTH, data.length - GCM_IV_LENGTH);
+        return KeyFactory.getInstance(keyFactoryAlgorithm(key.getAlgorithm()))
+                .generatePrivate(new PKCS8EncodedKeySpec(pkcs8));
+    }
+
+    private String encrypt(String kid, byte[] plaintext) {
+        try {
+            byte[] iv = new byte[GCM_IV_LENGTH];
+            secureRandomProvider.getSecureRandom().nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, new GCMParameterSpec(GCM_TAG_BITS, iv));
+            cipher.updateAAD(kid.getBytes(StandardCharsets.UTF_8));
+            byte[] ciphertext = cipher.doFinal(plaintext);
+            byte[] out = new byte[iv.length + ciphertext.length];
+            System.arraycopy(iv, 0, out, 0, iv.length);
+            System.arraycopy(ciphertext, 0, out, iv.length, ciphertext.length);
+            return Base64.getEncoder().encodeToString(out);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to encrypt signing key", e);
+        }
+    }
+
+    private static PublicKey derivePublicKey(PrivateKey privateKey) throws GeneralSecurityException {
+        if (privateKey instanceof RSAPrivateCrtKey rsa) {
+            return KeyFactory.getInstance("RSA")
+                    .generatePublic(new RSAPublicKeySpec(rsa.getModulus(), rsa.getPublicExponent()));
+        }
+        throw new IllegalArgumentException("Private key is not an RSA CRT key");
+    }
+
+    /**
+     * A public key as published in the JWKS.
+     */
+    public record PublishedKey(String kid, String algorithm, PublicKey publicKey) {
+    }
+
+    private record Snapshot(List<PublishedKey> published, Map<String, PublishedKey> byKid,
+            Map<String, JwsSigner> signers, Map<String, JwsSigner> signersByKid) {
+    }
+}
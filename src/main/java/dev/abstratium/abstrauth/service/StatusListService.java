@@ -0,0 +1,427 @@
+package dev.abstratium.abstrauth.service;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import dev.abstratium.abstrauth.entity.StatusListAllocation;
+import dev.abstratium.abstrauth.entity.StatusListChunk;
+import dev.abstratium.abstrauth.util.JwtClaimsWriter;
+import dev.abstratium.abstrauth.util.TransactionHooks;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
+
+/**
+ * Token status list: one bit per issued access token, set when the token is revoked, so that
+ * resource servers which verify JWTs locally can check revocation by downloading the list
+ * (/oauth2/status-list) every now and then instead of calling back for every token. The format
+ * follows the OAuth Token Status List draft: each access token carries a claim
+ * {@code "status":{"status_list":{"idx":...,"uri":...}}} and the list is served zlib-compressed.
+ *
+ * The list has {@code abstrauth.status-list.size} indexes (a million tokens are 125KB before
+ * compression), split into chunks of {@code abstrauth.status-list.chunk-size}. Each instance
+ * leases one chunk at a time from T_status_list_chunks and hands out its indexes without touching
+ * the database; a chunk is given up when it is used up or after
+ * {@code abstrauth.status-list.chunk.lease.seconds}, and leased again, with its bits cleared, only
+ * once every token issued from it has expired. If no chunk can be leased, tokens are issued
+ * without a status claim and are still covered by the other revocation checks.
+ *
+ * Revocations set their bit in the chunk row, under a row lock, in the transaction of the
+ * revocation, and in memory once it commits. Every {@code abstrauth.status-list.sync.interval},
+ * the chunks changed by other instances are reloaded.
+ */
+@ApplicationScoped
+public class StatusListService {
+
+    private static final Logger log = Logger.getLogger(StatusListService.class);
+
+    // How long to stop trying to lease a chunk after finding none free
+    private static final long EXHAUSTED_BACKOFF_MILLIS = 10_000;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    TransactionHooks transactionHooks;
+
+    @ConfigProperty(name = "abstrauth.status-list.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "abstrauth.status-list.size", defaultValue = "1048576")
+    int size;
+
+    @ConfigProperty(name = "abstrauth.status-list.chunk-size", defaultValue = "32768")
+    int chunkSize;
+
+    @ConfigProperty(name = "abstrauth.status-list.chunk.lease.seconds", defaultValue = "3600")
+    long leaseSeconds;
+
+    // Longest lifetime of any token with a status claim; a chunk is reused no earlier than this
+    // after its lease ended
+    @ConfigProperty(name = "abstrauth.revocation.unknown-expiry.seconds", defaultValue = "3600")
+    long longestLifetimeSeconds;
+
+    @ConfigProperty(name = "server.base.url", defaultValue = "http://localhost:8080")
+    String baseUrl;
+
+    /**
+     * The status list as served: the bits, zlib-compressed and base64url-encoded, with an entity
+     * tag derived from them and the time they were rendered (seconds since the epoch).
+     */
+    public record Rendered(String etag, String lst, long iat) {
+    }
+
+    // In memory copy of the chunks; null for chunks that have never been leased, i.e. all clear.
+    // Guarded by this
+    private byte[][] chunks;
+    private long[] versions;
+    private long modifications;
+
+    private volatile Rendered rendered;
+    private long renderedModifications = -1;
+
+    private final Object leaseLock = new Object();
+    private volatile Lease lease;
+    private volatile long retryLeaseAtMillis;
+
+    private String claimPrefix;
+    private String claimSuffix;
+
+    private final LongAdder leases = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        if (chunkSize <= 0 || chunkSize % 8 != 0 || size % chunkSize != 0) {
+            throw new IllegalStateException("abstrauth.status-list.size must be a multiple of "
+                    + "abstrauth.status-list.chunk-size, which must be a multiple of 8");
+        }
+        chunks = new byte[size / chunkSize][];
+        versions = new long[chunks.length];
+        claimPrefix = "{\"status_list\":{\"idx\":";
+        StringBuilder sb = new StringBuilder(",\"uri\":");
+        JwtClaimsWriter.quote(sb, getUri());
+        claimSuffix = sb.append("}}").toString();
+    }
+
+    @Transactional
+    void onStart(@Observes StartupEvent event) {
+        sync();
+    }
+
+    /**
+     * Reload the chunks changed by other instances.
+     */
+    @Scheduled(every = "${abstrauth.status-list.sync.interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    @Transactional
+    void scheduledSync() {
+        sync();
+    }
+
+    /**
+     * The URI of the status list, as written into the status claim.
+     */
+    public String getUri() {
+        return baseUrl + "/oauth2/status-list";
+    }
+
+    /**
+     * An index in the status list for a new access token.
+     *
+     * @return the index, or null if the token cannot have one (see class comment)
+     */
+    public Integer allocate() {
+        if (!enabled) {
+            return null;
+        }
+        Lease current = lease;
+        int idx = current != null ? current.next() : -1;
+        if (idx >= 0) {
+            return idx;
+        }
+        synchronized (leaseLock) {
+            current = lease;
+            idx = current != null ? current.next() : -1;
+            if (idx >= 0) {
+                return idx;
+            }
+            if (System.currentTimeMillis() < retryLeaseAtMillis) {
+                exhausted.increment();
+                return null;
+            }
+            // in its own transaction, so that the lease holds even if the caller's rolls back
+            StatusListChunk chunk = QuarkusTransaction.requiringNew().call(this::leaseChunk);
+            if (chunk == null) {
+                log.warn("No status list chunk is free; access tokens are issued without status claim. "
+                        + "Increase abstrauth.status-list.size");
+                retryLeaseAtMillis = System.currentTimeMillis() + EXHAUSTED_BACKOFF_MILLIS;
+                lease = null;
+                exhausted.increment();
+                return null;
+            }
+            apply(chunk.getChunkNo(), chunk.getVersion(), chunk.getBits());
+            leases.increment();
+            lease = new Lease(chunk.getChunkNo() * chunkSize, (chunk.getChunkNo() + 1) * chunkSize,
+                    System.currentTimeMillis() + leaseSeconds * 1000);
+            return lease.next();
+        }
+    }
+
+    /**
+     * The value of the status claim of a token with the given index, or null without an index.
+     */
+    public String claim(Integer idx) {
+        return idx == null ? null : claimPrefix + idx + claimSuffix;
+    }
+
+    /**
+     * Set the bit of a revoked token, as part of the caller's transaction.
+     */
+    @Transactional
+    public void revoke(int idx) {
+        revokeAll(List.of(idx));
+    }
+
+    /**
+     * Set the bits of revoked tokens, as part of the caller's transaction. Each chunk is locked
+     * and written once, however many of its indexes are revoked; chunks are locked in ascending
+     * order, so that concurrent bulk revocations cannot deadlock.
+     *
+     * @return the number of bits set
+     */
+    @Transactional
+    public int revokeAll(Collection<Integer> indexes) {
+        TreeMap<Integer, List<Integer>> byChunk = new TreeMap<>();
+        for (int idx : indexes) {
+            if (idx < 0 || idx >= size) {
+                log.warnf("Ignoring revocation of status list index %d outside of the list", idx);
+                continue;
+            }
+            byChunk.computeIfAbsent(idx / chunkSize, chunkNo -> new ArrayList<>()).add(idx);
+        }
+
+        int revoked = 0;
+        for (Map.Entry<Integer, List<Integer>> entry : byChunk.entrySet()) {
+            int chunkNo = entry.getKey();
+            StatusListChunk chunk = em.find(StatusListChunk.class, chunkNo, LockModeType.PESSIMISTIC_WRITE);
+            if (chunk == null) {
+                log.warnf("Ignoring revocation of %d status list index(es) of chunk %d that was never leased",
+                        entry.getValue().size(), chunkNo);
+                continue;
+            }
+            byte[] bits = chunk.getBits().clone();
+            for (int idx : entry.getValue()) {
+                int bit = idx - chunkNo * chunkSize;
+                bits[bit >>> 3] |= (byte) (1 << (bit & 7));
+            }
+            chunk.setBits(bits);
+            chunk.setVersion(chunk.getVersion() + 1);
+            revoked += entry.getValue().size();
+
+            long version = chunk.getVersion();
+            transactionHooks.afterCommit(() -> apply(chunkNo, version, bits));
+        }
+        return revoked;
+    }
+
+    /**
+     * Whether the bit of the given index is set, as far as this instance knows.
+     */
+    public synchronized boolean isRevoked(int idx) {
+        byte[] bits = idx >= 0 && idx < size ? chunks[idx / chunkSize] : null;
+        int bit = idx % chunkSize;
+        return bits != null && (bits[bit >>> 3] & (1 << (bit & 7))) != 0;
+    }
+
+    /**
+     * Reload the chunks whose version differs from the one in memory.
+     */
+    @Transactional
+    public void sync() {
+        List<Object[]> rows = em.createQuery("SELECT c.chunkNo, c.version FROM StatusListChunk c", Object[].class)
+                .getResultList();
+        int reloaded = 0;
+        for (Object[] row : rows) {
+            int chunkNo = (Integer) row[0];
+            long version = (Long) row[1];
+            if (chunkNo >= chunks.length || version <= currentVersion(chunkNo)) {
+                continue;
+            }
+            StatusListChunk chunk = em.find(StatusListChunk.class, chunkNo);
+            apply(chunkNo, chunk.getVersion(), chunk.getBits());
+            reloaded++;
+        }
+        log.debugf("Reloaded %d status list chunk(s)", reloaded);
+    }
+
+    /**
+     * The current list, compressed. Rendered again only after a change.
+     */
+    public Rendered render() {
+        byte[] raw;
+        long mods;
+        synchronized (this) {
+            if (rendered != null && renderedModifications == modifications) {
+                return rendered;
+            }
+            raw = new byte[size / 8];
+            int chunkBytes = chunkSize / 8;
+            for (int i = 0; i < chunks.length; i++) {
+                if (chunks[i] != null) {
+                    System.arraycopy(chunks[i], 0, raw, i * chunkBytes, chunkBytes);
+                }
+            }
+            mods = modifications;
+        }
+        Rendered result = new Rendered(digest(raw), Base64.getUrlEncoder().withoutPadding().encodeToString(deflate(raw)),
+                System.currentTimeMillis() / 1000);
+        synchronized (this) {
+            if (mods == modifications) {
+                rendered = result;
+                renderedModifications = mods;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forget the lease and the chunks held in memory. Useful for testing.
+     */
+    public void clear() {
+        synchronized (leaseLock) {
+            lease = null;
+            retryLeaseAtMillis = 0;
+        }
+        synchronized (this) {
+            Arrays.fill(chunks, null);
+            Arrays.fill(versions, 0);
+            modifications++;
+        }
+    }
+
+    public long getLeaseCount() {
+        return leases.sum();
+    }
+
+    public long getExhaustedCount() {
+        return exhausted.sum();
+    }
+
+    /**
+     * Lease the chunk at the round-robin position, if every token issued from it has expired.
+     */
+    StatusListChunk leaseChunk() {
+        // the lock on the single allocation row serialises leasing across instances
+        StatusListAllocation allocation = em.find(StatusListAllocation.class, StatusListAllocation.ID,
+                LockModeType.PESSIMISTIC_WRITE);
+        int chunkNo = (int) (allocation.getNextChunk() % chunks.length);
+        LocalDateTime now = LocalDateTime.now();
+        StatusListChunk chunk = em.find(StatusListChunk.class, chunkNo, LockModeType.PESSIMISTIC_WRITE);
+        if (chunk == null) {
+            chunk = new StatusListChunk();
+            chunk.setChunkNo(chunkNo);
+            chunk.setBits(new byte[chunkSize / 8]);
+            chunk.setVersion(1);
+            chunk.setAllocatedAt(now);
+            em.persist(chunk);
+        } else if (chunk.getAllocatedAt().isBefore(now.minusSeconds(leaseSeconds + longestLifetimeSeconds))) {
+            // chunks are leased round-robin, so this is the one leased longest ago
+            chunk.setBits(new byte[chunkSize / 8]);
+            chunk.setVersion(chunk.getVersion() + 1);
+            chunk.setAllocatedAt(now);
+        } else {
+            return null;
+        }
+        allocation.setNextChunk(allocation.getNextChunk() + 1);
+        em.flush();
+        return chunk;
+    }
+
+    private synchronized long currentVersion(int chunkNo) {
+        return versions[chunkNo];
+    }
+
+    private synchronized void apply(int chunkNo, long version, byte[] bits) {
+        if (chunkNo < chunks.length && version > versions[chunkNo]) {
+            chunks[chunkNo] = bits;
+            versions[chunkNo] = version;
+            modifications++;
+        }
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        // zlib format (RFC 1950), as the status list draft requires
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 64 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String digest(byte[] raw) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(raw);
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * The indexes of a leased chunk that this instance has not handed out yet.
+     */
+    private static final class Lease {
+
+        private final int end;
+        private final long expiresAtMillis;
+        private final AtomicInteger next;
+
+        Lease(int start, int end, long expiresAtMillis) {
+            this.end = end;
+            this.expiresAtMillis = expiresAtMillis;
+            this.next = new AtomicInteger(start);
+        }
+
+        /**
+         * @return the next index, or -1 once the lease is used up or over
+         */
+        int next() {
+            if (System.currentTimeMillis() >= expiresAtMillis) {
+                return -1;
+            }
+            int idx = next.getAndIncrement();
+            return idx < end ? idx : -1;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package dev.abstratium.abstrauth.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import dev.abstratium.abstrauth.util.ClientIdUtil;
+import dev.abstratium.abstrauth.util.JwtClaimsWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Mints the JWTs issued by the token endpoints (authorization_code, client_credentials and
+ * token exchange).
+ *
+ * Instead of assembling a claims map through the smallrye {@code Jwt} builder for every
+ * token, callers write the claims directly into a per-thread {@link JwtClaimsWriter} obtained
+ * from {@link #newClaims()} and hand it to {@link #sign(JwtClaimsWriter, String)}. The issuer
+ * claim, the encoded protected header and the per-(client, org) claim fragments are computed
+ * once and reused. The signing key is chosen per client by the {@link SigningKeyRing}, and the
+ * signature is computed on the {@link SigningExecutor} pool.
+ *
+ * Usage:
+ * <pre>
+ * String jwt = tokenMinter.sign(tokenMinter.newClaims()
+ *         .string("sub", accountId)
+ *         .fragment(tokenMinter.clientClaims(clientId, orgId))
+ *         ...), clientId);
+ * </pre>
+ * The writer returned by {@link #newClaims()} belongs to the calling thread and must be
+ * signed before the same thread mints another token.
+ */
+@ApplicationScoped
+public class TokenMinter {
+
+    // The fragments are tiny; clearing the map when it grows this large keeps memory bounded
+    // without tracking recency.
+    private static final int MAX_CACHED_CLIENTS = 10000;
+
+    @Inject
+    SigningKeyRing signingKeyRing;
+
+    @Inject
+    SigningExecutor signingExecutor;
+
+    @ConfigProperty(name = "mp.jwt.verify.issuer")
+    String issuer;
+
+    private String issuerFragment;
+
+    private final ThreadLocal<JwtClaimsWriter> writers = ThreadLocal.withInitial(JwtClaimsWriter::new);
+
+    // Key: clientId + NUL + orgId
+    private final Map<String, ClientFragments> clientFragments = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        StringBuilder sb = new StringBuilder("\"iss\":");
+        JwtClaimsWriter.quote(sb, issuer);
+        issuerFragment = sb.toString();
+    }
+
+    /**
+     * Start a new claims set on the calling thread's writer. The issuer claim is already written.
+     */
+    public JwtClaimsWriter newClaims() {
+        return writers.get().reset().fragment(issuerFragment);
+    }
+
+    /**
+     * Sign a claims set started with {@link #newClaims()} with the key configured for the client.
+     * The signature is computed on the {@link SigningExecutor} pool while the caller waits.
+     *
+     * @param clientId The client the token is issued for (the audience for token exchange)
+     * @return the compact JWS
+     * @throws dev.abstratium.abstrauth.boundary.OverloadedException if the signing pool is saturated
+     */
+    public String sign(JwtClaimsWriter claims, String clientId) {
+        return signingExecutor.sign(signingKeyRing.signerFor(clientId), claims);
+    }
+
+    /**
+     * Pre-serialised {@code "client_id":...,"orgId":...} claims for the given client and org.
+     * orgId is omitted when null.
+     */
+    public String clientClaims(String clientId, String orgId) {
+        return fragmentsFor(clientId, orgId).claims();
+    }
+
+    /**
+     * The escaped "displayClientId_" prefix used for the group names of the given client,
+     * for use with {@link JwtClaimsWriter#prefixedStringArray}.
+     */
+    public String groupPrefix(String clientId) {
+        return fragmentsFor(clientId, null).groupPrefix();
+    }
+
+    private ClientFragments fragmentsFor(String clientId, String orgId) {
+        String key = orgId == null ? clientId : clientId + '\0' + orgId;
+        ClientFragments fragments = clientFragments.get(key);
+        if (fragments == null) {
+            if (clientFragments.size() >= MAX_CACHED_CLIENTS) {
+                clientFragments.clear();
+            }
+            fragments = clientFragments.computeIfAbsent(key, k -> buildFragments(clientId, orgId));
+        }
+        return fragments;
+    }
+
+    private static ClientFragments buildFragments(String clientId, String orgId) {
+        StringBuilder sb = new StringBuilder(96);
+        sb.append("\"client_id\":");
+        JwtClaimsWriter.quote(sb, clientId);
+        if (orgId != null) {
+            sb.append(",\"orgId\":");
+            JwtClaimsWriter.quote(sb, orgId);
+        }
+        String groupPrefix = JwtClaimsWriter.escape(ClientIdUtil.stripOrgPrefix(clientId) + "_");
+        return new ClientFragments(sb.toString(), groupPrefix);
+    }
+
+    private record ClientFragments(String claims, String groupPrefix) {
+    }
+}
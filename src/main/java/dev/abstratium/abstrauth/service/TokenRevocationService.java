@@ -1,17 +1,30 @@
 package dev.abstratium.abstrauth.service;
 
 import dev.abstratium.abstrauth.entity.RevokedToken;
+import dev.abstratium.abstrauth.util.TransactionHooks;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
+import jakarta.transaction.Status;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
 import org.jboss.logging.Logger;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service for managing token revocation.
- * Handles revocation due to authorization code replay attacks and explicit revocation requests.
+ * Handles revocation due to authorization code replay attacks, refresh token reuse and explicit
+ * revocation requests.
  */
 @ApplicationScoped
 public class TokenRevocationService {
@@ -24,6 +37,45 @@ public class TokenRevocationService {
     @Inject
     EntityManager em;
 
+    @Inject
+    ReferenceTokenService referenceTokenService;
+
+    @Inject
+    IntrospectionResultCache introspectionResultCache;
+
+    @Inject
+    RevokedTokenCache revokedTokenCache;
+
+    @Inject
+    ClientCredentialsTokenCache clientCredentialsTokenCache;
+
+    @Inject
+    StatusListService statusListService;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    @Inject
+    TransactionHooks transactionHooks;
+
+    @ConfigProperty(name = "abstrauth.session.timeout.seconds", defaultValue = "900")
+    int sessionTimeoutSeconds;
+
+    // How long a revocation is kept when the exp of the token is not known; must cover the
+    // longest token lifetime
+    @ConfigProperty(name = "abstrauth.revocation.unknown-expiry.seconds", defaultValue = "3600")
+    int unknownExpirySeconds;
+
+    @ConfigProperty(name = "abstrauth.revocation.bulk.batch-size", defaultValue = "500")
+    int batchSize;
+
+    /**
+     * A token to revoke: its jti, its exp (null if unknown) and its status list index (null if
+     * it has none).
+     */
+    public record IssuedToken(String jti, Instant expiresAt, Integer statusIdx) {
+    }
+
     /**
      * Revoke all tokens associated with an authorization code.
      * This is called when an authorization code replay attack is detected.
@@ -37,7 +89,7 @@ public class TokenRevocationService {
         
         // Find all tokens issued from this authorization code
         var query = em.createQuery(
-            "SELECT ac.code FROM AuthorizationCode ac WHERE ac.id = :authCodeId", 
+            "SELECT ac.id FROM AuthorizationCode ac WHERE ac.id = :authCodeId", 
             String.class
         );
         query.setParameter("authCodeId", authCodeId);
@@ -49,33 +101,176 @@ public class TokenRevocationService {
         }
         
         // Create revocation entry for this authorization code
-        // Note: In a full implementation with refresh tokens, we would track JTIs
-        // For now, we mark the authorization code as compromised
         RevokedToken revocation = new RevokedToken();
         revocation.setAuthorizationCodeId(authCodeId);
         revocation.setReason(reason);
         revocation.setTokenJti("AUTH_CODE_" + authCodeId); // Marker for auth code revocation
+        revocation.setExpiresAt(LocalDateTime.now().plusSeconds(unknownExpirySeconds));
         em.persist(revocation);
+
+        // Refresh tokens (and the access tokens issued with them) obtained with the code
+        List<String> families = em.createQuery(
+            "SELECT DISTINCT r.familyId FROM RefreshToken r WHERE r.authorizationCodeId = :authCodeId",
+            String.class
+        ).setParameter("authCodeId", authCodeId).getResultList();
+        for (String familyId : families) {
+            revokeRefreshTokenFamily(familyId, reason);
+        }
     }
 
     /**
-     * Revoke a specific token by its JTI (JWT ID).
+     * Revoke all refresh tokens of a family, i.e. of one login, together with the access tokens
+     * that were issued with them and may not have expired yet.
+     * This is called when an already rotated refresh token is presented again.
+     *
+     * @param familyId The refresh token family (ID of the first refresh token of the login)
+     * @param reason The reason for revocation
+     */
+    @Transactional
+    public void revokeRefreshTokenFamily(String familyId, String reason) {
+        securityProblemLogger.warnfNoContext("Revoking refresh token family: %s, reason: %s", familyId, reason);
+
+        LocalDateTime now = LocalDateTime.now();
+        em.createQuery(
+            "UPDATE RefreshToken r SET r.revokedAt = :now, r.revokedReason = :reason " +
+            "WHERE r.familyId = :familyId AND r.revokedAt IS NULL"
+        ).setParameter("now", now)
+         .setParameter("reason", reason)
+         .setParameter("familyId", familyId)
+         .executeUpdate();
+
+        // Older access tokens have expired anyway; the others expire sessionTimeoutSeconds after
+        // the refresh token they were issued with
+        List<Object[]> issued = em.createQuery(
+            "SELECT r.accessTokenJti, r.createdAt, r.accessTokenStatusIdx FROM RefreshToken r WHERE r.familyId = :familyId " +
+            "AND r.accessTokenJti IS NOT NULL AND r.createdAt >= :since",
+            Object[].class
+        ).setParameter("familyId", familyId)
+         .setParameter("since", now.minusSeconds(sessionTimeoutSeconds))
+         .getResultList();
+        List<IssuedToken> tokens = new ArrayList<>();
+        for (Object[] row : issued) {
+            String jti = (String) row[0];
+            if (!isTokenRevoked(jti)) {
+                LocalDateTime expiresAt = ((LocalDateTime) row[1]).plusSeconds(sessionTimeoutSeconds);
+                tokens.add(new IssuedToken(jti, expiresAt.atZone(ZoneId.systemDefault()).toInstant(), (Integer) row[2]));
+            }
+        }
+        revokeTokens(tokens, reason);
+    }
+
+    /**
+     * Revoke a specific token by its JTI (JWT ID), whose expiry is not known. The revocation is
+     * kept for the longest lifetime a token can have.
      *
      * @param jti The JWT ID to revoke
      * @param reason The reason for revocation
      */
     @Transactional
     public void revokeToken(String jti, String reason) {
+        revokeToken(jti, reason, null);
+    }
+
+    /**
+     * Revoke a specific token by its JTI (JWT ID).
+     *
+     * @param jti The JWT ID to revoke
+     * @param reason The reason for revocation
+     * @param expiresAt The exp of the token, after which the revocation is purged, or null if unknown
+     */
+    @Transactional
+    public void revokeToken(String jti, String reason, Instant expiresAt) {
+        revokeToken(jti, reason, expiresAt, null);
+    }
+
+    /**
+     * Revoke a specific token by its JTI (JWT ID) and, if it has one, its index in the status list.
+     *
+     * @param jti The JWT ID to revoke
+     * @param reason The reason for revocation
+     * @param expiresAt The exp of the token, after which the revocation is purged, or null if unknown
+     * @param statusIdx The idx of the token's status claim, or null if it has none
+     */
+    @Transactional
+    public void revokeToken(String jti, String reason, Instant expiresAt, Integer statusIdx) {
         logger.info("Revoking token with JTI: " + jti + ", reason: " + reason);
-        
-        RevokedToken revocation = new RevokedToken();
-        revocation.setTokenJti(jti);
-        revocation.setReason(reason);
-        em.persist(revocation);
+        revokeTokens(List.of(new IssuedToken(jti, expiresAt, statusIdx)), reason);
+    }
+
+    /**
+     * Revoke several tokens at once. The revocations are inserted in JDBC batches of
+     * {@code abstrauth.revocation.bulk.batch-size} rows, the status list bits are set with one
+     * write per chunk and the caches are scanned once, so that revoking thousands of tokens costs
+     * a handful of round trips rather than thousands.
+     *
+     * @param tokens The tokens to revoke; the caller makes sure they are not revoked already
+     * @param reason The reason for revocation
+     * @return the number of tokens revoked
+     */
+    @Transactional
+    public int revokeTokens(Collection<IssuedToken> tokens, String reason) {
+        if (tokens.isEmpty()) {
+            return 0;
+        }
+        Instant now = Instant.now();
+        Map<String, Long> keepUntil = new HashMap<>();
+        List<Integer> statusIndexes = new ArrayList<>();
+
+        // RevokedToken is not audited, so Hibernate can send the inserts as JDBC batches; the
+        // flushed rows are detached so that the persistence context does not grow with the batch
+        Session session = em.unwrap(Session.class);
+        Integer previousBatchSize = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(batchSize);
+        try {
+            List<RevokedToken> pending = new ArrayList<>(Math.min(batchSize, tokens.size()));
+            for (IssuedToken token : tokens) {
+                Instant expiresAt = token.expiresAt() != null ? token.expiresAt() : now.plusSeconds(unknownExpirySeconds);
+                RevokedToken revocation = new RevokedToken();
+                revocation.setTokenJti(token.jti());
+                revocation.setReason(reason);
+                revocation.setExpiresAt(LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()));
+                em.persist(revocation);
+                pending.add(revocation);
+                if (pending.size() == batchSize) {
+                    flushAndDetach(pending);
+                }
+                keepUntil.put(token.jti(), expiresAt.toEpochMilli());
+
+                // once the token has expired its index may belong to another token
+                if (token.statusIdx() != null && token.expiresAt() != null && token.expiresAt().isAfter(now)) {
+                    statusIndexes.add(token.statusIdx());
+                }
+            }
+            flushAndDetach(pending);
+        } finally {
+            session.setJdbcBatchSize(previousBatchSize);
+        }
+
+        statusListService.revokeAll(statusIndexes);
+
+        // handles of the tokens must no longer resolve
+        referenceTokenService.revokeAll(keepUntil.keySet());
+
+        transactionHooks.afterCommit(() -> {
+            keepUntil.forEach(revokedTokenCache::add);
+            // nor cached introspections report them active
+            introspectionResultCache.invalidateTokens(keepUntil.keySet());
+            // a revoked client_credentials token must not be handed out again
+            clientCredentialsTokenCache.invalidateTokens(keepUntil.keySet());
+        });
+        return tokens.size();
+    }
+
+    private void flushAndDetach(List<RevokedToken> pending) {
+        em.flush();
+        pending.forEach(em::detach);
+        pending.clear();
     }
 
     /**
      * Check if a token has been revoked by its JTI.
+     * Answered from the RevokedTokenCache, except within a transaction, which must also see the
+     * revocations it has not committed yet, and before the cache has been loaded.
      *
      * @param jti The JWT ID to check
      * @return true if the token is revoked, false otherwise
@@ -84,7 +279,12 @@ public class TokenRevocationService {
         if (jti == null || jti.isBlank()) {
             return false;
         }
-        
+
+        if (revokedTokenCache.isLoaded()
+                && transactionSynchronizationRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            return revokedTokenCache.contains(jti);
+        }
+
         var query = em.createQuery(
             "SELECT COUNT(r) FROM RevokedToken r WHERE r.tokenJti = :jti", 
             Long.class
@@ -93,6 +293,28 @@ public class TokenRevocationService {
         return query.getSingleResult() > 0;
     }
 
+    /**
+     * Delete up to batchSize revocations of tokens that expired before the given time.
+     * Each batch is its own transaction, so that the purge never holds locks for long.
+     *
+     * @return the number of rows deleted
+     */
+    @Transactional
+    public int deleteExpired(LocalDateTime before, int batchSize) {
+        List<String> ids = em.createQuery(
+            "SELECT r.id FROM RevokedToken r WHERE r.expiresAt < :before",
+            String.class
+        ).setParameter("before", before)
+         .setMaxResults(batchSize)
+         .getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return em.createQuery("DELETE FROM RevokedToken r WHERE r.id IN :ids")
+            .setParameter("ids", ids)
+            .executeUpdate();
+    }
+
     /**
      * Check if any tokens from an authorization code have been revoked.
      * This indicates an authorization code replay attack.
@@ -0,0 +1,251 @@
+package dev.abstratium.abstrauth.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Bounded in-memory cache whose entries expire, shared by the caches of the services.
+ *
+ * Entries live in an access ordered LinkedHashMap guarded by a single lock, so the least
+ * recently used entry is evicted once {@code maxEntries} is reached and every removal -
+ * eviction, expiry or invalidation - drops the entry and its position in one step. Entries may
+ * carry an index key (e.g. a client ID or a jti), extracted from the value, so that all entries
+ * of an index key can be invalidated without scanning the cache.
+ *
+ * Every invalidation bumps a generation. Callers read {@link #generation()} BEFORE loading a
+ * value and pass it to {@link #put}, which discards the value if an invalidation happened in
+ * the meantime; the check and the store happen under the same lock.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class BoundedTtlCache<K, V> {
+
+    private final int maxEntries;
+
+    // extracts the index key of a value, or null if entries are not indexed
+    private final Function<? super V, ?> indexBy;
+
+    private final LinkedHashMap<K, Cached<V>> entries;
+
+    // Key: index key, Value: the keys of the entries carrying it
+    private final Map<Object, Set<K>> index = new HashMap<>();
+
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxEntries The maximum number of entries; 0 or less disables the cache
+     */
+    public BoundedTtlCache(int maxEntries) {
+        this(maxEntries, null);
+    }
+
+    /**
+     * @param maxEntries The maximum number of entries; 0 or less disables the cache
+     * @param indexBy Extracts the key by which {@link #invalidateIndexed} finds entries;
+     *                values for which it returns null are not indexed
+     */
+    public BoundedTtlCache(int maxEntries, Function<? super V, ?> indexBy) {
+        this.maxEntries = maxEntries;
+        this.indexBy = indexBy;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Cached<V>> eldest) {
+                if (size() <= BoundedTtlCache.this.maxEntries) {
+                    return false;
+                }
+                unindex(eldest.getKey(), eldest.getValue().value());
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * The value cached under the key.
+     *
+     * @return the value, or null if there is none or it has expired
+     */
+    public V get(K key) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Cached<V> entry = entries.get(key);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (entry.validUntilMillis() <= now) {
+                entries.remove(key);
+                unindex(key, entry.value());
+                evictions.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value();
+        }
+    }
+
+    /**
+     * The current invalidation generation, to be read before loading a value.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Cache a value, evicting the least recently used entry if the cache is full.
+     *
+     * @param validUntilMillis Until when the value may be used
+     * @param generationAtLoad The value of {@link #generation()} read before the value was loaded
+     * @return false if the value was not cached, because it had already expired, the cache is
+     *         disabled or an invalidation happened since the value was loaded
+     */
+    public boolean put(K key, V value, long validUntilMillis, long generationAtLoad) {
+        if (maxEntries <= 0 || validUntilMillis <= System.currentTimeMillis()) {
+            return false;
+        }
+        synchronized (this) {
+            if (generation != generationAtLoad) {
+                return false;
+            }
+            Cached<V> previous = entries.put(key, new Cached<>(value, validUntilMillis));
+            if (previous != null) {
+                unindex(key, previous.value());
+            }
+            Object indexKey = indexKey(value);
+            if (indexKey != null) {
+                index.computeIfAbsent(indexKey, k -> new HashSet<>()).add(key);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Remove the entry of the key if it still holds the given value, e.g. because the caller
+     * no longer wants to hand it out. Unlike the invalidate methods, this does not bump the
+     * generation.
+     */
+    public synchronized boolean remove(K key, V value) {
+        Cached<V> entry = entries.get(key);
+        if (entry == null || entry.value() != value) {
+            return false;
+        }
+        entries.remove(key);
+        unindex(key, value);
+        return true;
+    }
+
+    /**
+     * Drop the entry of a key.
+     */
+    public synchronized void invalidate(K key) {
+        generation++;
+        Cached<V> entry = entries.remove(key);
+        if (entry != null) {
+            unindex(key, entry.value());
+        }
+    }
+
+    /**
+     * Drop the entries carrying any of the given index keys.
+     *
+     * @return the number of entries dropped
+     */
+    public synchronized int invalidateIndexed(Collection<?> indexKeys) {
+        generation++;
+        int removed = 0;
+        for (Object indexKey : indexKeys) {
+            Set<K> keys = index.remove(indexKey);
+            if (keys == null) {
+                continue;
+            }
+            for (K key : keys) {
+                if (entries.remove(key) != null) {
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Drop the entries whose value matches, scanning the whole cache. Prefer
+     * {@link #invalidateIndexed} for frequent invalidations.
+     *
+     * @return the number of entries dropped
+     */
+    public synchronized int invalidateIf(Predicate<? super V> filter) {
+        generation++;
+        int removed = 0;
+        Iterator<Map.Entry<K, Cached<V>>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<K, Cached<V>> entry = it.next();
+            if (filter.test(entry.getValue().value())) {
+                it.remove();
+                unindex(entry.getKey(), entry.getValue().value());
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Drop all entries.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        index.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of entries dropped because they expired or the cache was full.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private Object indexKey(V value) {
+        return indexBy == null ? null : indexBy.apply(value);
+    }
+
+    // callers hold the lock
+    private void unindex(K key, V value) {
+        Object indexKey = indexKey(value);
+        if (indexKey == null) {
+            return;
+        }
+        Set<K> keys = index.get(indexKey);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            index.remove(indexKey);
+        }
+    }
+
+    private record Cached<V>(V value, long validUntilMillis) {
+    }
+}
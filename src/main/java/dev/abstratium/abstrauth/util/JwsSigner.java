@@ -0,0 +1,240 @@
+package dev.abstratium.abstrauth.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Signs JWT claims sets into compact JWS strings with a single private key.
+ * <p>
+ * The protected header only depends on the key, so it is encoded once in the constructor.
+ * Each thread keeps its own initialised {@link Signature} and byte buffers, so signing a
+ * token does not look up providers, re-initialise the key or re-encode the header.
+ * Supported algorithms are PS256 (RSA-PSS with SHA-256), ES256 (ECDSA P-256 with SHA-256)
+ * and EdDSA (Ed25519), matching {@link JwtSignatureVerifier}.
+ * <p>
+ * This is a plain utility class (not CDI-managed) so that it can be used from production
+ * code, tests and benchmarks alike.
+ */
+public class JwsSigner {
+
+    public static final String PS256 = "PS256";
+    public static final String ES256 = "ES256";
+    public static final String EDDSA = "EdDSA";
+
+    private static final byte[] BASE64URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private final String keyId;
+    private final String algorithm;
+    private final PrivateKey privateKey;
+
+    // base64url(header) + "."
+    private final byte[] encodedHeaderAndDot;
+
+    private final ThreadLocal<SigningState> state;
+
+    /**
+     * Create a PS256 signer.
+     */
+    public JwsSigner(String keyId, PrivateKey privateKey) {
+        this(keyId, PS256, privateKey);
+    }
+
+    /**
+     * @param algorithm The JOSE algorithm name: PS256, ES256 or EdDSA
+     */
+    public JwsSigner(String keyId, String algorithm, PrivateKey privateKey) {
+        this.keyId = keyId;
+        this.algorithm = algorithm;
+        this.privateKey = privateKey;
+
+        StringBuilder header = new StringBuilder(64);
+        header.append("{\"kid\":");
+        JwtClaimsWriter.quote(header, keyId);
+        header.append(",\"typ\":\"JWT\",\"alg\":\"").append(algorithm).append("\"}");
+        String encodedHeader = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(header.toString().getBytes(StandardCharsets.UTF_8));
+        this.encodedHeaderAndDot = (encodedHeader + ".").getBytes(StandardCharsets.US_ASCII);
+
+        // fail fast on an unusable key rather than on the first token request
+        newSignature();
+        this.state = ThreadLocal.withInitial(() -> new SigningState(newSignature()));
+    }
+
+    public String getKeyId() {
+        return keyId;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Initialise the calling thread's {@link Signature} for this key ahead of its first use.
+     */
+    public void prepare() {
+        state.get();
+    }
+
+    /**
+     * Sign the claims written so far. The writer is closed by this call.
+     *
+     * @return the compact serialisation header.payload.signature
+     */
+    public String sign(JwtClaimsWriter claims) {
+        SigningState s = state.get();
+        CharSequence json = claims.finish();
+
+        int payloadLength = s.utf8(json);
+        int headerLength = encodedHeaderAndDot.length;
+        int encodedPayloadLength = encodedLength(payloadLength);
+
+        // signing input = header "." payload, written straight into the output buffer
+        byte[] out = s.output(headerLength + encodedPayloadLength + 1 + 512);
+        System.arraycopy(encodedHeaderAndDot, 0, out, 0, headerLength);
+        int pos = base64url(s.payload, payloadLength, out, headerLength);
+
+        byte[] signature;
+        try {
+            s.signature.update(out, 0, pos);
+            signature = s.signature.sign();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign JWT", e);
+        }
+
+        out = s.output(pos + 1 + encodedLength(signature.length));
+        out[pos++] = '.';
+        pos = base64url(signature, signature.length, out, pos);
+        return new String(out, 0, pos, StandardCharsets.US_ASCII);
+    }
+
+    private Signature newSignature() {
+        try {
+            Signature signature = newSignatureInstance(algorithm);
+            signature.initSign(privateKey);
+            return signature;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Unable to initialise " + algorithm + " signing with key " + keyId, e);
+        }
+    }
+
+    /**
+     * Create an uninitialised {@link Signature} for the given JOSE algorithm. ES256 uses the
+     * IEEE P1363 (r||s) format required by JWS rather than DER.
+     *
+     * @throws NoSuchAlgorithmException if the JOSE algorithm is not supported
+     */
+    public static Signature newSignatureInstance(String algorithm) throws GeneralSecurityException {
+        return switch (algorithm) {
+            case PS256 -> {
+                Signature signature = Signature.getInstance("RSASSA-PSS");
+                signature.setParameter(new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1));
+                yield signature;
+            }
+            case ES256 -> Signature.getInstance("SHA256withECDSAinP1363Format");
+            case EDDSA -> Signature.getInstance("Ed25519");
+            default -> throw new NoSuchAlgorithmException("Unsupported JWS algorithm: " + algorithm);
+        };
+    }
+
+    private static int encodedLength(int length) {
+        return (length / 3) * 4 + (length % 3 == 0 ? 0 : length % 3 + 1);
+    }
+
+    /**
+     * Base64url-encode (without padding) src[0, length) into dst at offset.
+     *
+     * @return the offset after the last written byte
+     */
+    private static int base64url(byte[] src, int length, byte[] dst, int offset) {
+        int i = 0;
+        int full = length - length % 3;
+        while (i < full) {
+            int bits = (src[i++] & 0xFF) << 16 | (src[i++] & 0xFF) << 8 | (src[i++] & 0xFF);
+            dst[offset++] = BASE64URL[(bits >>> 18) & 0x3F];
+            dst[offset++] = BASE64URL[(bits >>> 12) & 0x3F];
+            dst[offset++] = BASE64URL[(bits >>> 6) & 0x3F];
+            dst[offset++] = BASE64URL[bits & 0x3F];
+        }
+        int remaining = length - full;
+        if (remaining == 1) {
+            int bits = (src[i] & 0xFF) << 16;
+            dst[offset++] = BASE64URL[(bits >>> 18) & 0x3F];
+            dst[offset++] = BASE64URL[(bits >>> 12) & 0x3F];
+        } else if (remaining == 2) {
+            int bits = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8;
+            dst[offset++] = BASE64URL[(bits >>> 18) & 0x3F];
+            dst[offset++] = BASE64URL[(bits >>> 12) & 0x3F];
+            dst[offset++] = BASE64URL[(bits >>> 6) & 0x3F];
+        }
+        return offset;
+    }
+
+    /**
+     * Per-thread signing state: the initialised Signature plus reusable buffers.
+     */
+    private static final class SigningState {
+        final Signature signature;
+        byte[] payload = new byte[1024];
+        byte[] output = new byte[2048];
+
+        SigningState(Signature signature) {
+            this.signature = signature;
+        }
+
+        /**
+         * Grow the output buffer to at least the given size, keeping its content.
+         */
+        byte[] output(int size) {
+            if (output.length < size) {
+                output = Arrays.copyOf(output, Math.max(size, output.length * 2));
+            }
+            return output;
+        }
+
+        /**
+         * UTF-8 encode the JSON into the payload buffer.
+         *
+         * @return number of bytes written
+         */
+        int utf8(CharSequence json) {
+            int length = json.length();
+            // worst case is 3 bytes per UTF-16 char
+            if (payload.length < length * 3) {
+                payload = new byte[length * 3];
+            }
+            byte[] b = payload;
+            int pos = 0;
+            for (int i = 0; i < length; i++) {
+                char c = json.charAt(i);
+                if (c < 0x80) {
+                    b[pos++] = (byte) c;
+                } else if (c < 0x800) {
+                    b[pos++] = (byte) (0xC0 | (c >> 6));
+                    b[pos++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(json.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, json.charAt(++i));
+                    b[pos++] = (byte) (0xF0 | (cp >> 18));
+                    b[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    b[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    b[pos++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // unpaired surrogate - same replacement as String.getBytes(UTF_8)
+                    b[pos++] = (byte) '?';
+                } else {
+                    b[pos++] = (byte) (0xE0 | (c >> 12));
+                    b[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    b[pos++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            return pos;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package dev.abstratium.abstrauth.util;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import jakarta.json.Json;
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.stream.JsonParser;
+
+/**
+ * Reads the top-level claims of a JWT header or payload straight from its UTF-8 JSON bytes.
+ * <p>
+ * The counterpart of {@link JwtClaimsWriter}: the constructor scans the object once and records
+ * where each member's name and value are, without building any JSON objects. A claim is only
+ * converted when it is asked for, so callers that need a few claims such as sub, orgId, exp and
+ * jti do not pay for materialising the whole claims set. Nested objects ({@link #object(String)})
+ * and the full set ({@link #toJsonObject()}) are parsed on demand. Instances are not thread-safe.
+ */
+public final class JwtClaimsReader {
+
+    private final byte[] json;
+    private final int offset;
+    private final int length;
+
+    // nameStart, nameEnd, valueStart, valueEnd per member; names exclude the quotes
+    private int[] members = new int[4 * 16];
+    private int count;
+
+    private JsonObject object;
+
+    /**
+     * Index the members of the JSON object in json[offset, offset + length).
+     *
+     * @throws IllegalArgumentException if the bytes are not a JSON object
+     */
+    JwtClaimsReader(byte[] json, int offset, int length) {
+        this.json = json;
+        this.offset = offset;
+        this.length = length;
+        int end = offset + length;
+        int pos = skipWhitespace(offset, end);
+        if (pos >= end || json[pos] != '{') {
+            throw invalid();
+        }
+        pos = skipWhitespace(pos + 1, end);
+        if (pos < end && json[pos] == '}') {
+            pos++;
+        } else {
+            while (true) {
+                if (pos >= end || json[pos] != '"') {
+                    throw invalid();
+                }
+                int nameStart = pos + 1;
+                pos = skipString(pos, end);
+                int nameEnd = pos - 1;
+                pos = skipWhitespace(pos, end);
+                if (pos >= end || json[pos] != ':') {
+                    throw invalid();
+                }
+                pos = skipWhitespace(pos + 1, end);
+                int valueStart = pos;
+                pos = skipValue(pos, end);
+                add(nameStart, nameEnd, valueStart, pos);
+                pos = skipWhitespace(pos, end);
+                if (pos < end && json[pos] == ',') {
+                    pos = skipWhitespace(pos + 1, end);
+                } else if (pos < end && json[pos] == '}') {
+                    pos++;
+                    break;
+                } else {
+                    throw invalid();
+                }
+            }
+        }
+        if (skipWhitespace(pos, end) != end) {
+            throw invalid();
+        }
+    }
+
+    /**
+     * Whether the claim is present, whatever its type.
+     */
+    public boolean has(String name) {
+        return find(name) >= 0;
+    }
+
+    /**
+     * @return the value of a string claim, or null if it is missing or not a string
+     */
+    public String string(String name) {
+        int m = find(name);
+        if (m < 0 || json[members[m + 2]] != '"') {
+            return null;
+        }
+        int start = members[m + 2] + 1;
+        int end = members[m + 3] - 1;
+        for (int i = start; i < end; i++) {
+            if (json[i] == '\\') {
+                // escapes are rare in claims, so the JSON parser unescapes them
+                try (JsonParser parser = Json.createParser(new ByteArrayInputStream(json, start - 1, end - start + 2))) {
+                    parser.next();
+                    return parser.getString();
+                } catch (JsonException e) {
+                    throw invalid();
+                }
+            }
+        }
+        return new String(json, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the value of a numeric claim such as exp, truncated to a long, or missing if the
+     *         claim is missing or not a number
+     */
+    public long number(String name, long missing) {
+        int m = find(name);
+        if (m < 0) {
+            return missing;
+        }
+        int start = members[m + 2];
+        int end = members[m + 3];
+        int i = start;
+        boolean negative = json[i] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i >= end || json[i] < '0' || json[i] > '9') {
+            return missing;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            byte b = json[i];
+            if (b < '0' || b > '9' || value > (Long.MAX_VALUE - 9) / 10) {
+                // fractions, exponents and very large numbers
+                try {
+                    return new BigDecimal(new String(json, start, end - start, StandardCharsets.US_ASCII)).longValue();
+                } catch (NumberFormatException e) {
+                    return missing;
+                }
+            }
+            value = value * 10 + (b - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return the value of an object claim such as act or ctx, parsed on its own, or null if it
+     *         is missing or not an object
+     */
+    public JsonObject object(String name) {
+        int m = find(name);
+        if (m < 0 || json[members[m + 2]] != '{') {
+            return null;
+        }
+        return parse(members[m + 2], members[m + 3]);
+    }
+
+    /**
+     * All claims, parsed once on first use.
+     */
+    public JsonObject toJsonObject() {
+        if (object == null) {
+            object = parse(offset, offset + length);
+        }
+        return object;
+    }
+
+    private JsonObject parse(int start, int end) {
+        try {
+            return Json.createReader(new ByteArrayInputStream(json, start, end - start)).readObject();
+        } catch (JsonException e) {
+            throw invalid();
+        }
+    }
+
+    private int find(String name) {
+        int n = name.length();
+        for (int m = 0; m < count * 4; m += 4) {
+            int start = members[m];
+            if (members[m + 1] - start != n) {
+                continue;
+            }
+            int i = 0;
+            while (i < n && json[start + i] == name.charAt(i)) {
+                i++;
+            }
+            if (i == n) {
+                return m;
+            }
+        }
+        return -1;
+    }
+
+    private void add(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        if (count * 4 == members.length) {
+            members = Arrays.copyOf(members, members.length * 2);
+        }
+        int m = count++ * 4;
+        members[m] = nameStart;
+        members[m + 1] = nameEnd;
+        members[m + 2] = valueStart;
+        members[m + 3] = valueEnd;
+    }
+
+    private int skipWhitespace(int pos, int end) {
+        while (pos < end && (json[pos] == ' ' || json[pos] == '\t' || json[pos] == '\n' || json[pos] == '\r')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * @param pos the index of the opening quote
+     * @return the index after the closing quote
+     */
+    private int skipString(int pos, int end) {
+        for (pos++; pos < end; pos++) {
+            byte b = json[pos];
+            if (b == '\\') {
+                pos++;
+            } else if (b == '"') {
+                return pos + 1;
+            } else if (b >= 0 && b < 0x20) {
+                break;
+            }
+        }
+        throw invalid();
+    }
+
+    /**
+     * Skip a value; nested objects and arrays are only checked for balanced brackets, they are
+     * validated when parsed.
+     *
+     * @return the index after the value
+     */
+    private int skipValue(int pos, int end) {
+        if (pos >= end) {
+            throw invalid();
+        }
+        byte b = json[pos];
+        if (b == '"') {
+            return skipString(pos, end);
+        }
+        if (b == '{' || b == '[') {
+            int depth = 0;
+            while (pos < end) {
+                b = json[pos];
+                if (b == '"') {
+                    pos = skipString(pos, end);
+                    continue;
+                }
+                if (b == '{' || b == '[') {
+                    depth++;
+                } else if ((b == '}' || b == ']') && --depth == 0) {
+                    return pos + 1;
+                }
+                pos++;
+            }
+            throw invalid();
+        }
+        // number, true, false or null
+        int start = pos;
+        while (pos < end && json[pos] != ',' && json[pos] != '}' && json[pos] != ']'
+                && json[pos] != ' ' && json[pos] != '\t' && json[pos] != '\n' && json[pos] != '\r') {
+            pos++;
+        }
+        if (pos == start || !(b == '-' || (b >= '0' && b <= '9') || b == 't' || b == 'f' || b == 'n')) {
+            throw invalid();
+        }
+        return pos;
+    }
+
+    private static IllegalArgumentException invalid() {
+        return new IllegalArgumentException("Invalid JWT JSON content");
+    }
+}
@@ -0,0 +1,205 @@
+package dev.abstratium.abstrauth.util;
+
+import java.util.Collection;
+
+/**
+ * Writes a JWT claims set as compact JSON directly into a reusable buffer.
+ * <p>
+ * This replaces building a claims map and serialising it through the smallrye {@code Jwt}
+ * builder on every token request. Callers append claims in order; the writer takes care of
+ * separators and JSON string escaping. Instances are not thread-safe and are meant to be
+ * reused by a single thread (see {@link #reset()}).
+ */
+public class JwtClaimsWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final StringBuilder buffer = new StringBuilder(1024);
+    private boolean first = true;
+    private boolean closed;
+
+    /**
+     * Clear the buffer and start a new claims set.
+     */
+    public JwtClaimsWriter reset() {
+        buffer.setLength(0);
+        buffer.append('{');
+        first = true;
+        closed = false;
+        return this;
+    }
+
+    /**
+     * Add a string claim. Null values are skipped.
+     */
+    public JwtClaimsWriter string(String name, String value) {
+        if (value == null) {
+            return this;
+        }
+        name(name);
+        quote(buffer, value);
+        return this;
+    }
+
+    /**
+     * Add a numeric claim, e.g. iat or exp.
+     */
+    public JwtClaimsWriter number(String name, long value) {
+        name(name);
+        buffer.append(value);
+        return this;
+    }
+
+    /**
+     * Add a boolean claim. Null values are skipped.
+     */
+    public JwtClaimsWriter bool(String name, Boolean value) {
+        if (value == null) {
+            return this;
+        }
+        name(name);
+        buffer.append(value.booleanValue());
+        return this;
+    }
+
+    /**
+     * Add a claim whose value is an array of strings.
+     */
+    public JwtClaimsWriter stringArray(String name, Collection<String> values) {
+        return prefixedStringArray(name, null, values);
+    }
+
+    /**
+     * Add a claim whose value is an array of strings, each prefixed with the given
+     * pre-escaped prefix. Used for groups ("clientId_role") so that the group names do not
+     * have to be concatenated into intermediate strings.
+     *
+     * @param escapedPrefix A prefix already escaped with {@link #escape(String)}, or null
+     */
+    public JwtClaimsWriter prefixedStringArray(String name, String escapedPrefix, Collection<String> values) {
+        name(name);
+        buffer.append('[');
+        boolean firstValue = true;
+        for (String value : values) {
+            if (!firstValue) {
+                buffer.append(',');
+            }
+            firstValue = false;
+            buffer.append('"');
+            if (escapedPrefix != null) {
+                buffer.append(escapedPrefix);
+            }
+            escapeInto(buffer, value);
+            buffer.append('"');
+        }
+        buffer.append(']');
+        return this;
+    }
+
+    /**
+     * Add the audience claim. A single audience is written as a string, several as an array,
+     * matching what the smallrye builder produces.
+     */
+    public JwtClaimsWriter audience(Collection<String> audiences) {
+        if (audiences.size() == 1) {
+            return string("aud", audiences.iterator().next());
+        }
+        return stringArray("aud", audiences);
+    }
+
+    /**
+     * Add a claim whose value is already serialised JSON (e.g. a nested object). Null values are skipped.
+     */
+    public JwtClaimsWriter json(String name, String jsonValue) {
+        if (jsonValue == null) {
+            return this;
+        }
+        name(name);
+        buffer.append(jsonValue);
+        return this;
+    }
+
+    /**
+     * Append a pre-serialised fragment of one or more claims, e.g. {@code "iss":"...","aud":"..."}.
+     * The fragment must not start or end with a comma.
+     */
+    public JwtClaimsWriter fragment(String claimsFragment) {
+        if (claimsFragment == null || claimsFragment.isEmpty()) {
+            return this;
+        }
+        if (!first) {
+            buffer.append(',');
+        }
+        first = false;
+        buffer.append(claimsFragment);
+        return this;
+    }
+
+    /**
+     * The JSON written so far, closed as an object.
+     */
+    public String toJson() {
+        return finish().toString();
+    }
+
+    /**
+     * Close the JSON object and return the buffer itself, without copying it into a String.
+     * No claims may be added afterwards until {@link #reset()} is called.
+     */
+    CharSequence finish() {
+        if (!closed) {
+            buffer.append('}');
+            closed = true;
+        }
+        return buffer;
+    }
+
+    private void name(String name) {
+        if (!first) {
+            buffer.append(',');
+        }
+        first = false;
+        buffer.append('"').append(name).append("\":");
+    }
+
+    /**
+     * Escape a string for use inside a JSON string literal (without the surrounding quotes).
+     */
+    public static String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 8);
+        escapeInto(sb, value);
+        return sb.toString();
+    }
+
+    /**
+     * Append a JSON string literal, including the surrounding quotes.
+     */
+    public static void quote(StringBuilder sb, String value) {
+        sb.append('"');
+        escapeInto(sb, value);
+        sb.append('"');
+    }
+
+    private static void escapeInto(StringBuilder sb, String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                case '\b' -> sb.append("\\b");
+                case '\f' -> sb.append("\\f");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append("\\u00").append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+    }
+}
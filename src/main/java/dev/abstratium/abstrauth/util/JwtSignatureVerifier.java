@@ -1,16 +1,10 @@
 package dev.abstratium.abstrauth.util;
 
-import java.nio.charset.StandardCharsets;
-import java.security.InvalidAlgorithmParameterException;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
+import java.security.GeneralSecurityException;
 import java.security.PublicKey;
 import java.security.Signature;
-import java.security.SignatureException;
-import java.security.spec.PSSParameterSpec;
-import java.util.Base64;
+import java.util.Arrays;
 
-import jakarta.json.Json;
 import jakarta.json.JsonObject;
 
 import io.smallrye.jwt.algorithm.SignatureAlgorithm;
@@ -18,18 +12,47 @@ import io.smallrye.jwt.util.KeyUtils;
 
 /**
  * Verifies the signature of abstrauth-issued JWT access tokens and decodes the
- * payload. Tokens are expected to be signed with PS256 (RSA-PSS with SHA-256).
+ * payload. Tokens are signed with PS256 (RSA-PSS with SHA-256) or, for clients
+ * configured to use the signing key ring, ES256 or EdDSA.
+ * <p>
+ * The token is verified on byte ranges of a per-thread copy, without splitting it into strings,
+ * and each thread keeps an initialised {@link Signature} per algorithm that is only
+ * re-initialised when the key changes. {@link #verify(String)} returns a
+ * {@link JwtClaimsReader}, so callers that need only a few claims do not materialise the whole
+ * payload.
  * <p>
  * This is a plain utility class (not CDI-managed) so it can be used from both
- * production code and tests with either a key content string or a ready-made
- * {@link PublicKey}.
+ * production code and tests with either a key content string, a ready-made
+ * {@link PublicKey} or a {@link KeyResolver} that looks keys up by kid.
  */
 public class JwtSignatureVerifier {
 
-    private static final String EXPECTED_ALGORITHM = "PS256";
-    private static final String JAVA_SIGNATURE_ALGORITHM = "RSASSA-PSS";
+    /**
+     * Looks up the public key for the kid and alg of a token header.
+     */
+    @FunctionalInterface
+    public interface KeyResolver {
+        /**
+         * @param kid The key ID from the token header, may be null
+         * @param alg The algorithm from the token header
+         * @return the key, or null if no key with that kid and algorithm is known
+         */
+        PublicKey resolve(String kid, String alg);
+    }
+
+    private static final int[] BASE64URL = new int[128];
+
+    static {
+        Arrays.fill(BASE64URL, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64URL[alphabet.charAt(i)] = i;
+        }
+    }
+
+    private static final ThreadLocal<VerifyingState> STATE = ThreadLocal.withInitial(VerifyingState::new);
 
-    private final PublicKey publicKey;
+    private final KeyResolver keyResolver;
 
     /**
      * Build a verifier from a public key content string. The key may be supplied as
@@ -37,74 +60,212 @@ public class JwtSignatureVerifier {
      * format used by {@code mp.jwt.verify.publickey}).
      */
     public JwtSignatureVerifier(String publicKeyContent) {
+        this(decodePs256Key(publicKeyContent));
+    }
+
+    /**
+     * Build a verifier from an already-loaded PS256 public key. The kid is not checked.
+     */
+    public JwtSignatureVerifier(PublicKey publicKey) {
+        this((kid, alg) -> JwsSigner.PS256.equals(alg) ? publicKey : null);
+    }
+
+    /**
+     * Build a verifier that selects the key by the kid and alg of each token.
+     */
+    public JwtSignatureVerifier(KeyResolver keyResolver) {
+        this.keyResolver = keyResolver;
+    }
+
+    private static PublicKey decodePs256Key(String publicKeyContent) {
         try {
-            this.publicKey = KeyUtils.decodePublicKey(publicKeyContent, SignatureAlgorithm.PS256);
+            return KeyUtils.decodePublicKey(publicKeyContent, SignatureAlgorithm.PS256);
         } catch (Exception e) {
             throw new IllegalArgumentException("Failed to decode JWT verification public key", e);
         }
     }
 
     /**
-     * Build a verifier from an already-loaded public key.
+     * Verify the signature of the supplied JWT and return its decoded payload.
+     *
+     * @throws IllegalArgumentException if the token is malformed, uses an unsupported
+     *                                  algorithm, or has an invalid signature
      */
-    public JwtSignatureVerifier(PublicKey publicKey) {
-        this.publicKey = publicKey;
+    public JsonObject verifyAndDecode(String jwt) {
+        return verify(jwt).toJsonObject();
     }
 
     /**
-     * Verify the signature of the supplied JWT and return its decoded payload.
+     * Verify the signature of the supplied JWT and return a reader over its payload, whose
+     * claims are only decoded when asked for.
      *
      * @throws IllegalArgumentException if the token is malformed, uses an unsupported
      *                                  algorithm, or has an invalid signature
      */
-    public JsonObject verifyAndDecode(String jwt) {
-        String[] parts = jwt.split("\\.");
-        if (parts.length != 3) {
+    public JwtClaimsReader verify(String jwt) {
+        int firstDot = jwt.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : jwt.indexOf('.', firstDot + 1);
+        if (secondDot < 0 || secondDot == jwt.length() - 1 || jwt.indexOf('.', secondDot + 1) >= 0) {
             throw new IllegalArgumentException("Not a valid JWT (expected 3 parts)");
         }
 
-        JsonObject header = decodeBase64Json(parts[0]);
-        String alg = header.containsKey("alg") ? header.getString("alg") : null;
-        if (!EXPECTED_ALGORITHM.equals(alg)) {
+        VerifyingState s = STATE.get();
+        int length = jwt.length();
+        byte[] token = s.token(jwt);
+
+        // the header is only needed for alg and kid, so it is read from the per-thread buffer
+        int headerLength = base64url(token, 0, firstDot, s.decoded(decodedLength(firstDot)), 0);
+        JwtClaimsReader header = new JwtClaimsReader(s.decoded, 0, headerLength);
+        String alg = header.string("alg");
+        int algIndex = algIndex(alg);
+        if (algIndex < 0) {
             throw new IllegalArgumentException("Unsupported or missing signature algorithm: " + alg);
         }
+        String kid = header.string("kid");
+        PublicKey publicKey = keyResolver.resolve(kid, alg);
+        if (publicKey == null) {
+            throw new IllegalArgumentException("Unknown signing key: " + kid + " (" + alg + ")");
+        }
 
-        String signedInput = parts[0] + "." + parts[1];
-        byte[] signatureBytes;
+        int signatureLength;
         try {
-            signatureBytes = Base64.getUrlDecoder().decode(parts[2]);
+            signatureLength = base64url(token, secondDot + 1, length - secondDot - 1,
+                    s.decoded(decodedLength(length - secondDot - 1)), 0);
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("Invalid JWT signature encoding", e);
         }
 
         try {
-            Signature signature = Signature.getInstance(JAVA_SIGNATURE_ALGORITHM);
-            PSSParameterSpec pssSpec = new PSSParameterSpec(
-                    "SHA-256", "MGF1",
-                    java.security.spec.MGF1ParameterSpec.SHA256,
-                    32, 1);
-            signature.setParameter(pssSpec);
-            signature.initVerify(publicKey);
-            signature.update(signedInput.getBytes(StandardCharsets.UTF_8));
-            if (!signature.verify(signatureBytes)) {
+            Signature signature = s.signature(algIndex, alg, publicKey);
+            signature.update(token, 0, secondDot);
+            if (!signature.verify(s.decoded, 0, signatureLength)) {
                 throw new IllegalArgumentException("Invalid JWT signature");
             }
-        } catch (InvalidKeyException | InvalidAlgorithmParameterException | SignatureException | NoSuchAlgorithmException e) {
+        } catch (GeneralSecurityException e) {
+            s.reset(algIndex);
             throw new IllegalArgumentException("Failed to verify JWT signature", e);
         }
 
-        return decodeBase64Json(parts[1]);
+        // the payload outlives this call, so it gets its own array
+        int payloadOffset = firstDot + 1;
+        byte[] payload = new byte[decodedLength(secondDot - payloadOffset)];
+        int payloadLength = base64url(token, payloadOffset, secondDot - payloadOffset, payload, 0);
+        return new JwtClaimsReader(payload, 0, payloadLength);
     }
 
-    private JsonObject decodeBase64Json(String base64) {
-        try {
-            byte[] decoded = Base64.getUrlDecoder().decode(base64);
-            String json = new String(decoded, StandardCharsets.UTF_8);
-            return Json.createReader(new java.io.StringReader(json)).readObject();
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("Invalid JWT base64url encoding", e);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Invalid JWT JSON content", e);
+    private static int algIndex(String alg) {
+        if (JwsSigner.PS256.equals(alg)) {
+            return 0;
+        }
+        if (JwsSigner.ES256.equals(alg)) {
+            return 1;
+        }
+        return JwsSigner.EDDSA.equals(alg) ? 2 : -1;
+    }
+
+    private static int decodedLength(int encodedLength) {
+        return encodedLength / 4 * 3 + Math.max(encodedLength % 4 - 1, 0);
+    }
+
+    /**
+     * Base64url-decode src[offset, offset + length) into dst at dstOffset. Padding is ignored.
+     *
+     * @return the number of bytes written
+     * @throws IllegalArgumentException if the input is not base64url
+     */
+    private static int base64url(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        int end = offset + length;
+        while (end > offset && src[end - 1] == '=') {
+            end--;
+        }
+        if ((end - offset) % 4 == 1) {
+            throw new IllegalArgumentException("Invalid JWT base64url encoding");
+        }
+        int pos = dstOffset;
+        int bits = 0;
+        int count = 0;
+        for (int i = offset; i < end; i++) {
+            int value = src[i] < 0 ? -1 : BASE64URL[src[i]];
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid JWT base64url encoding");
+            }
+            bits = bits << 6 | value;
+            if (++count == 4) {
+                dst[pos++] = (byte) (bits >> 16);
+                dst[pos++] = (byte) (bits >> 8);
+                dst[pos++] = (byte) bits;
+                bits = 0;
+                count = 0;
+            }
+        }
+        if (count == 3) {
+            dst[pos++] = (byte) (bits >> 10);
+            dst[pos++] = (byte) (bits >> 2);
+        } else if (count == 2) {
+            dst[pos++] = (byte) (bits >> 4);
+        }
+        return pos - dstOffset;
+    }
+
+    /**
+     * Per-thread verification state: one initialised Signature per algorithm, with the key it
+     * was last initialised for, plus reusable buffers for the token and the decoded header and
+     * signature.
+     */
+    private static final class VerifyingState {
+        final Signature[] signatures = new Signature[3];
+        final PublicKey[] keys = new PublicKey[3];
+        byte[] token = new byte[2048];
+        byte[] decoded = new byte[1024];
+
+        /**
+         * The Signature for the algorithm, initialised for the key. Verifying resets it to that
+         * state, so it is only re-initialised when the key changes.
+         */
+        Signature signature(int algIndex, String alg, PublicKey publicKey) throws GeneralSecurityException {
+            Signature signature = signatures[algIndex];
+            if (signature == null) {
+                signature = JwsSigner.newSignatureInstance(alg);
+                signatures[algIndex] = signature;
+            }
+            if (keys[algIndex] != publicKey) {
+                keys[algIndex] = null;
+                signature.initVerify(publicKey);
+                keys[algIndex] = publicKey;
+            }
+            return signature;
+        }
+
+        /**
+         * Forget the key after a failure, so that the Signature is initialised again next time.
+         */
+        void reset(int algIndex) {
+            keys[algIndex] = null;
+        }
+
+        /**
+         * Copy the (ASCII) token into the token buffer, which may be longer than the token.
+         */
+        byte[] token(String jwt) {
+            int length = jwt.length();
+            if (token.length < length) {
+                token = new byte[Math.max(length, token.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                char c = jwt.charAt(i);
+                if (c >= 0x80) {
+                    throw new IllegalArgumentException("Invalid JWT base64url encoding");
+                }
+                token[i] = (byte) c;
+            }
+            return token;
+        }
+
+        byte[] decoded(int size) {
+            if (decoded.length < size) {
+                decoded = new byte[Math.max(size, decoded.length * 2)];
+            }
+            return decoded;
         }
     }
 }
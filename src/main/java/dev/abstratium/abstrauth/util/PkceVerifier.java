@@ -0,0 +1,54 @@
+package dev.abstratium.abstrauth.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Verifies a PKCE code_verifier against the code_challenge of an authorization code
+ * (RFC 7636 - Proof Key for Code Exchange by OAuth Public Clients).
+ */
+public class PkceVerifier {
+
+    private PkceVerifier() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * Verify PKCE code_verifier against code_challenge.
+     *
+     * @param codeVerifier The code_verifier from the client
+     * @param codeChallenge The code_challenge stored in the authorization code
+     * @param codeChallengeMethod The code_challenge_method (S256 or plain), S256 if null
+     * @return true if verification succeeds, false otherwise
+     */
+    public static boolean verify(String codeVerifier, String codeChallenge, String codeChallengeMethod) {
+        if (codeVerifier == null || codeChallenge == null) {
+            return false;
+        }
+
+        // Default to S256 if not specified
+        String method = codeChallengeMethod != null ? codeChallengeMethod : "S256";
+
+        if ("plain".equals(method)) {
+            // For "plain" method, direct comparison
+            return codeVerifier.equals(codeChallenge);
+        } else if ("S256".equals(method)) {
+            // For "S256" method, hash the verifier with SHA-256 and base64url encode
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                byte[] hash = digest.digest(codeVerifier.getBytes(StandardCharsets.US_ASCII));
+                String computedChallenge = Base64.getUrlEncoder()
+                        .withoutPadding()
+                        .encodeToString(hash);
+                return computedChallenge.equals(codeChallenge);
+            } catch (NoSuchAlgorithmException e) {
+                return false;
+            }
+        }
+
+        // Unknown method
+        return false;
+    }
+}
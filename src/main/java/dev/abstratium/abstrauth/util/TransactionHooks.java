@@ -0,0 +1,49 @@
+package dev.abstratium.abstrauth.util;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Hooks into the completion of the current transaction.
+ *
+ * In-memory state derived from the database - caches, epochs, status list bits - must only
+ * change once the change is committed: before the commit, a concurrent request still reads the
+ * old rows and would cache them again, and a rollback would leave the memory ahead of the
+ * database. The caches reject values that were loaded before an invalidation, so invalidating
+ * after the commit is enough.
+ */
+@ApplicationScoped
+public class TransactionHooks {
+
+    @Inject
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    /**
+     * Run the action once the current transaction has committed. Without a transaction, or when
+     * called while completing a committed one, it runs immediately; if the transaction is rolling
+     * back, it never runs.
+     */
+    public void afterCommit(Runnable action) {
+        switch (transactionSynchronizationRegistry.getTransactionStatus()) {
+            case Status.STATUS_ACTIVE -> transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        action.run();
+                    }
+                }
+            });
+            case Status.STATUS_MARKED_ROLLBACK, Status.STATUS_ROLLING_BACK, Status.STATUS_ROLLEDBACK -> {
+                // the change is discarded, so is the action
+            }
+            default -> action.run();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+-- Managed JWT signing keys (key ring).
+--
+-- The static PS256 key configured via smallrye.jwt.sign.key is not stored here. This table
+-- holds the additional ES256 / EdDSA keys used for clients that opt into those algorithms.
+-- Keys are generated and rotated by SigningKeyRing:
+--   activates_at  the key is used for signing from this point on
+--   retires_at    the key is no longer used for signing (its successor takes over)
+--   expires_at    the key is removed from the JWKS; must be later than retires_at by at
+--                 least the longest token lifetime so that issued tokens stay verifiable
+-- Keys are published in the JWKS from created_at, i.e. before they are activated.
+--
+-- private_key holds the PKCS#8 key encrypted with AES-GCM (see
+-- abstrauth.signing.key-encryption-secret), public_key the X.509 encoding, both base64.
+
+CREATE TABLE T_signing_keys (
+    kid VARCHAR(64) PRIMARY KEY,
+    algorithm VARCHAR(10) NOT NULL,
+    private_key VARCHAR(2000) NOT NULL,
+    public_key VARCHAR(2000) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    activates_at TIMESTAMP NOT NULL,
+    retires_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX I_signing_keys_expires_at ON T_signing_keys(expires_at);
@@ -0,0 +1,44 @@
+-- Refresh tokens (refresh_token grant)
+--
+-- Only the SHA-256 digest of a refresh token is stored (hex, 64 chars), never the token itself.
+-- The unique index on token_hash is the only lookup path when a token is redeemed.
+--
+-- Every refresh rotates the token: the presented row gets used_at and a new row is inserted in
+-- the same family (family_id = id of the first row, issued together with the authorization
+-- code's tokens). Presenting a token whose row already has used_at or revoked_at set is
+-- treated as theft and revokes the whole family, including the access tokens issued with it
+-- (access_token_jti).
+--
+-- expires_at is the idle timeout of the individual token, family_expires_at the absolute
+-- lifetime of the login, which rotation never extends.
+
+CREATE TABLE T_refresh_tokens (
+    id VARCHAR(36) PRIMARY KEY,
+    token_hash VARCHAR(64) NOT NULL,
+    family_id VARCHAR(36) NOT NULL,
+    account_id VARCHAR(36) NOT NULL,
+    client_id VARCHAR(255) NOT NULL,
+    org_id VARCHAR(36),
+    scope VARCHAR(500),
+    auth_method VARCHAR(50),
+    authorization_code_id VARCHAR(36),
+    access_token_jti VARCHAR(36),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    family_expires_at TIMESTAMP NOT NULL,
+    used_at TIMESTAMP NULL,
+    revoked_at TIMESTAMP NULL,
+    revoked_reason VARCHAR(100),
+    CONSTRAINT FK_refresh_tokens_account_id FOREIGN KEY (account_id) REFERENCES T_accounts(id) ON DELETE CASCADE,
+    CONSTRAINT FK_refresh_tokens_client_id FOREIGN KEY (client_id) REFERENCES T_oauth_clients(client_id) ON DELETE CASCADE
+);
+
+-- FK indexes
+CREATE INDEX I_refresh_tokens_account_id ON T_refresh_tokens(account_id);
+CREATE INDEX I_refresh_tokens_client_id ON T_refresh_tokens(client_id);
+
+-- other indexes
+CREATE UNIQUE INDEX I_refresh_tokens_token_hash ON T_refresh_tokens(token_hash); -- for redemption
+CREATE INDEX I_refresh_tokens_family_id ON T_refresh_tokens(family_id); -- for family revocation
+CREATE INDEX I_refresh_tokens_authorization_code_id ON T_refresh_tokens(authorization_code_id); -- for code replay
+CREATE INDEX I_refresh_tokens_family_expires_at ON T_refresh_tokens(family_expires_at); -- for deletion
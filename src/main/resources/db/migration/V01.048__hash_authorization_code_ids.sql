@@ -0,0 +1,15 @@
+-- Authorization codes are now keyed by the hex SHA-256 digest of the code, so that redemption is a
+-- primary key lookup and the plaintext code is no longer stored.
+-- Codes issued before this migration keep their UUID id and can no longer be redeemed; they live
+-- for at most 5 minutes and clients simply restart the login.
+ALTER TABLE T_revoked_tokens DROP FOREIGN KEY FK_revoked_tokens_authorization_code;
+
+ALTER TABLE T_authorization_codes MODIFY COLUMN id VARCHAR(64) NOT NULL;
+ALTER TABLE T_revoked_tokens MODIFY COLUMN authorization_code_id VARCHAR(64);
+ALTER TABLE T_refresh_tokens MODIFY COLUMN authorization_code_id VARCHAR(64);
+
+ALTER TABLE T_revoked_tokens ADD CONSTRAINT FK_revoked_tokens_authorization_code
+    FOREIGN KEY (authorization_code_id) REFERENCES T_authorization_codes(id) ON DELETE CASCADE;
+
+ALTER TABLE T_authorization_codes DROP INDEX I_authorization_codes_code;
+ALTER TABLE T_authorization_codes DROP COLUMN code;
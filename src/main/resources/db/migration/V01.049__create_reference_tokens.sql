@@ -0,0 +1,26 @@
+-- Reference (opaque) access tokens, opt-in per client (abstrauth.reference-tokens.client-ids)
+--
+-- The token endpoint hands such clients a random handle instead of the JWT. The JWT is kept here
+-- and gateways swap the handle for it at the introspection endpoint. Only the SHA-256 digest of
+-- the handle is stored (hex, 64 chars), so the primary key is the only lookup path. The JWT
+-- itself is stored because it is what the handle resolves to; it is only usable until
+-- expires_at, after which the row is deleted by the purge job.
+--
+-- access_token_jti is the jti of the JWT, used to drop the row when the token is revoked.
+
+CREATE TABLE T_reference_tokens (
+    handle_hash VARCHAR(64) PRIMARY KEY,
+    access_token_jti VARCHAR(36) NOT NULL,
+    client_id VARCHAR(255) NOT NULL,
+    access_token TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    CONSTRAINT FK_reference_tokens_client_id FOREIGN KEY (client_id) REFERENCES T_oauth_clients(client_id) ON DELETE CASCADE
+);
+
+-- FK indexes
+CREATE INDEX I_reference_tokens_client_id ON T_reference_tokens(client_id);
+
+-- other indexes
+CREATE INDEX I_reference_tokens_access_token_jti ON T_reference_tokens(access_token_jti); -- for revocation
+CREATE INDEX I_reference_tokens_expires_at ON T_reference_tokens(expires_at); -- for deletion
@@ -0,0 +1,21 @@
+-- Revocation epochs ("not before" times) of accounts, clients and organisations
+--
+-- Every token whose iat is at or before the not_before of its account (sub), client (client_id)
+-- or organisation (orgId) is revoked, so "sign this user out everywhere" or "revoke every token
+-- of this client" is a single row instead of one T_revoked_tokens row per jti. There is at most
+-- one row per subject; bumping it again moves not_before forward.
+--
+-- not_before is in seconds since the epoch, like the iat claim it is compared with. The table is
+-- small and every instance holds it in memory, reloading it periodically.
+--
+-- subject_type is ACCOUNT, CLIENT or ORG. There are no foreign keys, so that the epoch of a
+-- subject outlives it until the tokens issued to it have expired.
+
+CREATE TABLE T_revocation_epochs (
+    subject_type VARCHAR(10) NOT NULL,
+    subject_id VARCHAR(255) NOT NULL,
+    not_before BIGINT NOT NULL,
+    reason VARCHAR(100) NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (subject_type, subject_id)
+);
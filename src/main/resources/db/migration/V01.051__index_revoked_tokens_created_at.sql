@@ -0,0 +1,4 @@
+-- Every instance keeps the revoked JTIs in memory and periodically reads the rows created since
+-- the newest one it has seen (RevokedTokenCache), which needs an index on created_at.
+
+CREATE INDEX I_revoked_tokens_created_at ON T_revoked_tokens(created_at);
@@ -0,0 +1,16 @@
+-- Expiry of revoked tokens
+--
+-- A revoked JWT is harmless once its exp has passed, so each row now records it and the purge job
+-- (RevokedTokenPurgeService) deletes rows past expires_at in batches. The table then only holds
+-- revocations of tokens that are still live, rather than the whole history.
+--
+-- Existing rows did not record the exp of their token; they are given one hour after revocation,
+-- the longest lifetime of any token abstrauth issues.
+
+ALTER TABLE T_revoked_tokens ADD COLUMN expires_at TIMESTAMP NULL;
+
+UPDATE T_revoked_tokens SET expires_at = TIMESTAMPADD(HOUR, 1, revoked_at);
+
+ALTER TABLE T_revoked_tokens MODIFY COLUMN expires_at TIMESTAMP NOT NULL;
+
+CREATE INDEX I_revoked_tokens_expires_at ON T_revoked_tokens(expires_at); -- for deletion
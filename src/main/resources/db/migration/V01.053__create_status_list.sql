@@ -0,0 +1,31 @@
+-- Token status list: one bit per issued access token, set when the token is revoked
+--
+-- Every access token carries a status claim with its index in the list, so resource servers can
+-- check revocation offline by downloading the whole list (/oauth2/status-list). The list is split
+-- into chunks of consecutive indexes. An instance leases one chunk at a time and hands out its
+-- indexes; T_status_list_allocations holds the round-robin position of the next chunk to lease,
+-- and locking its single row serialises leasing across instances. A chunk is only leased again
+-- (and its bits cleared) once every token issued from it has expired.
+--
+-- bits holds the chunk as bytes, index 0 being the least significant bit of the first byte.
+-- version is incremented on every change, so that instances reload only the chunks that changed.
+
+CREATE TABLE T_status_list_chunks (
+    chunk_no INT NOT NULL,
+    bits BLOB NOT NULL,
+    version BIGINT NOT NULL,
+    allocated_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (chunk_no)
+);
+
+CREATE TABLE T_status_list_allocations (
+    id INT NOT NULL,
+    next_chunk BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO T_status_list_allocations (id, next_chunk) VALUES (1, 0);
+
+-- so that revoking a refresh token family also sets the bits of its access tokens
+ALTER TABLE T_refresh_tokens ADD COLUMN access_token_status_idx INT NULL;
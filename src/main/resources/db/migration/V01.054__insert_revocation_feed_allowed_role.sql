@@ -0,0 +1,6 @@
+-- The revocation feed (/oauth2/revocations) contains the revoked tokens and epochs of all
+-- organisations, so only clients holding the revocation-feed client role for abstrauth may read
+-- it. The role is not available to foreign organisations: only the organisation owning abstrauth
+-- can grant it, e.g. to the gateways and resource servers that it operates.
+INSERT INTO T_client_allowed_roles (client_id, role, default_assignment, available_to_foreign_orgs) VALUES
+    ('abstratium-abstrauth', 'revocation-feed', 'not_default', FALSE);
@@ -6,9 +6,14 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.time.Instant;
 import java.util.Set;
+import java.util.UUID;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -19,6 +24,8 @@ import dev.abstratium.abstrauth.entity.DefaultAssignment;
 import dev.abstratium.abstrauth.service.AccountRoleService;
 import dev.abstratium.abstrauth.service.AccountService;
 import dev.abstratium.abstrauth.service.OrganisationService;
+import dev.abstratium.abstrauth.service.RefreshTokenService;
+import dev.abstratium.abstrauth.service.RevocationEpochService;
 import dev.abstratium.abstrauth.service.Roles;
 import dev.abstratium.abstrauth.service.SubscriptionService;
 import dev.abstratium.abstrauth.util.TestDatabaseResetHelper;
@@ -44,6 +51,12 @@ public class AccountsResourceTest {
     @Inject
     SubscriptionService subscriptionService;
 
+    @Inject
+    RefreshTokenService refreshTokenService;
+
+    @Inject
+    RevocationEpochService revocationEpochService;
+
     @Inject
     jakarta.persistence.EntityManager em;
     
@@ -1214,4 +1227,40 @@ public class AccountsResourceTest {
             .statusCode(201);
     }
 
+    /**
+     * An account may be a member of several organisations. Revoking its tokens as the admin of
+     * one of them must not sign it out of the others.
+     */
+    @Test
+    public void testRevokeAccountTokensOnlyAffectsCallersOrganisation() throws Exception {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        transactionHelper.beginTransaction();
+        Account admin = accountService.createAccount("revoke_admin_" + suffix + "@example.com", "Revoke Admin", "revoke_admin_" + suffix, "Pass123", AccountService.NATIVE, "Admin Org " + suffix);
+        Account shared = accountService.createAccount("revoke_shared_" + suffix + "@example.com", "Shared Member", "revoke_shared_" + suffix, "Pass123", AccountService.NATIVE, "Shared Org " + suffix);
+        transactionHelper.commitTransaction();
+        String adminOrgId = organisationService.listOrganisationsForAccount(admin.getId()).get(0).getId();
+        String otherOrgId = organisationService.listOrganisationsForAccount(shared.getId()).get(0).getId();
+
+        transactionHelper.beginTransaction();
+        organisationService.addMember(adminOrgId, shared.getId());
+        transactionHelper.commitTransaction();
+
+        String adminOrgToken = refreshTokenService.issue(shared.getId(), Roles.CLIENT_ID, adminOrgId, "openid", AccountService.NATIVE, null, null, null);
+        String otherOrgToken = refreshTokenService.issue(shared.getId(), Roles.CLIENT_ID, otherOrgId, "openid", AccountService.NATIVE, null, null, null);
+        long issuedAt = Instant.now().getEpochSecond();
+
+        given()
+            .auth().oauth2(generateManageAccountsToken(admin.getId(), adminOrgId))
+            .when()
+            .post("/api/accounts/" + shared.getId() + "/revoke-tokens")
+            .then()
+            .statusCode(204);
+
+        assertNotNull(refreshTokenService.findByToken(adminOrgToken).orElseThrow().getRevokedAt());
+        assertNull(refreshTokenService.findByToken(otherOrgToken).orElseThrow().getRevokedAt());
+        assertTrue(revocationEpochService.isRevoked(shared.getId(), Roles.CLIENT_ID, adminOrgId, issuedAt));
+        assertFalse(revocationEpochService.isRevoked(shared.getId(), Roles.CLIENT_ID, otherOrgId, issuedAt));
+        assertFalse(revocationEpochService.isRevoked(admin.getId(), Roles.CLIENT_ID, adminOrgId, issuedAt));
+    }
+
 }
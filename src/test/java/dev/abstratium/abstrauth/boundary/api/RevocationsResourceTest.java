@@ -0,0 +1,256 @@
+package dev.abstratium.abstrauth.boundary.api;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.abstratium.abstrauth.entity.Account;
+import dev.abstratium.abstrauth.entity.OAuthClient;
+import dev.abstratium.abstrauth.service.AccountService;
+import dev.abstratium.abstrauth.service.OrganisationService;
+import dev.abstratium.abstrauth.service.RefreshTokenService;
+import dev.abstratium.abstrauth.service.RevocationEpochService;
+import dev.abstratium.abstrauth.service.Roles;
+import dev.abstratium.abstrauth.service.StatusListService;
+import dev.abstratium.abstrauth.service.TokenRevocationService;
+import dev.abstratium.abstrauth.util.TestTransactionHelper;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import io.smallrye.jwt.build.Jwt;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+/**
+ * Tests for the bulk revocation endpoint.
+ */
+@QuarkusTest
+public class RevocationsResourceTest {
+
+    private static final String CLIENT = "test-service-bulk-revoke";
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    AccountService accountService;
+
+    @Inject
+    OrganisationService organisationService;
+
+    @Inject
+    RefreshTokenService refreshTokenService;
+
+    @Inject
+    TokenRevocationService tokenRevocationService;
+
+    @Inject
+    RevocationEpochService revocationEpochService;
+
+    @Inject
+    StatusListService statusListService;
+
+    @Inject
+    TestTransactionHelper transactionHelper;
+
+    @BeforeEach
+    @Transactional
+    public void setup() {
+        em.createQuery("DELETE FROM RefreshToken WHERE clientId = :clientId").setParameter("clientId", CLIENT).executeUpdate();
+        em.createQuery("DELETE FROM OAuthClient WHERE clientId = :clientId").setParameter("clientId", CLIENT).executeUpdate();
+        em.flush();
+
+        OAuthClient client = new OAuthClient();
+        client.setClientId(CLIENT);
+        client.setClientName("Test Service Client");
+        client.setClientType("confidential");
+        client.setRedirectUris("");
+        client.setAllowedScopes("api:read");
+        client.setRequirePkce(false);
+        em.persist(client);
+        em.flush();
+    }
+
+    private String token(String accountId, String orgId, String... roles) {
+        return Jwt.issuer("https://dev.abstrauth.abstratium.dev").audience("abstratium-abstrauth")
+                .subject(accountId)
+                .upn("test@example.com")
+                .groups(Set.of(roles))
+                .claim("orgId", orgId)
+                .sign();
+    }
+
+    private Account createAccount() throws Exception {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        transactionHelper.beginTransaction();
+        Account account = accountService.createAccount(
+                "bulk_" + suffix + "@example.com",
+                "Bulk " + suffix,
+                "bulk_" + suffix,
+                "Pass123!",
+                AccountService.NATIVE,
+                "Bulk Org " + suffix);
+        transactionHelper.commitTransaction();
+        return account;
+    }
+
+    private void ownClient(String orgId) throws Exception {
+        transactionHelper.beginTransaction();
+        em.createQuery("UPDATE OAuthClient c SET c.orgId = :orgId WHERE c.clientId = :clientId")
+                .setParameter("orgId", orgId)
+                .setParameter("clientId", CLIENT)
+                .executeUpdate();
+        transactionHelper.commitTransaction();
+    }
+
+    private String orgOf(Account account) {
+        return organisationService.listOrganisationsForAccount(account.getId()).get(0).getId();
+    }
+
+    @Test
+    public void testRevokeAccountsRevokesRefreshAndAccessTokens() throws Exception {
+        Account account = createAccount();
+        String orgId = orgOf(account);
+        String jti = UUID.randomUUID().toString();
+        Integer idx = statusListService.allocate();
+        String refreshToken = refreshTokenService.issue(account.getId(), CLIENT, orgId, "api:read",
+                AccountService.NATIVE, null, jti, idx);
+
+        given()
+                .auth().oauth2(token(account.getId(), orgId, Roles.USER, Roles.MANAGE_ACCOUNTS))
+                .contentType(ContentType.JSON)
+                .body(Map.of("accountIds", List.of(account.getId()), "reason", "incident-test"))
+                .when()
+                .post("/api/revocations")
+                .then()
+                .statusCode(200)
+                .body("subjects", equalTo(1))
+                .body("refreshTokens", equalTo(1))
+                .body("accessTokens", equalTo(1))
+                .body("elapsedMillis", greaterThanOrEqualTo(0));
+
+        assertEquals("incident-test", refreshTokenService.findByToken(refreshToken).orElseThrow().getRevokedReason());
+        assertTrue(tokenRevocationService.isTokenRevoked(jti));
+        if (idx != null) {
+            assertTrue(statusListService.isRevoked(idx));
+        }
+        assertTrue(revocationEpochService.isRevoked(account.getId(), null, orgId, Instant.now().getEpochSecond() - 1));
+        assertFalse(revocationEpochService.isRevoked(account.getId(), null, null, Instant.now().getEpochSecond() - 1));
+    }
+
+    @Test
+    public void testRevokeOrganisationsAndClientsTogether() throws Exception {
+        Account first = createAccount();
+        Account second = createAccount();
+        String jti1 = UUID.randomUUID().toString();
+        String jti2 = UUID.randomUUID().toString();
+        refreshTokenService.issue(first.getId(), CLIENT, orgOf(first), "api:read", AccountService.NATIVE, null, jti1, null);
+        refreshTokenService.issue(second.getId(), CLIENT, orgOf(second), "api:read", AccountService.NATIVE, null, jti2, null);
+        ownClient(orgOf(first));
+
+        // the client covers the second account's token, the organisation the first one's
+        given()
+                .auth().oauth2(token(first.getId(), orgOf(first), Roles.USER, Roles.MANAGE_ACCOUNTS, Roles.MANAGE_CLIENTS))
+                .contentType(ContentType.JSON)
+                .body(Map.of("orgIds", List.of(orgOf(first)), "clientIds", List.of(CLIENT)))
+                .when()
+                .post("/api/revocations")
+                .then()
+                .statusCode(200)
+                .body("subjects", equalTo(2))
+                .body("refreshTokens", equalTo(2))
+                .body("accessTokens", equalTo(2));
+
+        assertTrue(tokenRevocationService.isTokenRevoked(jti1));
+        assertTrue(tokenRevocationService.isTokenRevoked(jti2));
+    }
+
+    @Test
+    public void testRevokeAccountsOnlyAffectsCallersOrganisation() throws Exception {
+        Account caller = createAccount();
+        Account shared = createAccount();
+        String callerOrgId = orgOf(caller);
+        String otherOrgId = orgOf(shared);
+        transactionHelper.beginTransaction();
+        organisationService.addMember(callerOrgId, shared.getId());
+        transactionHelper.commitTransaction();
+        String callerOrgToken = refreshTokenService.issue(shared.getId(), CLIENT, callerOrgId, "api:read",
+                AccountService.NATIVE, null, null, null);
+        String otherOrgToken = refreshTokenService.issue(shared.getId(), CLIENT, otherOrgId, "api:read",
+                AccountService.NATIVE, null, null, null);
+
+        given()
+                .auth().oauth2(token(caller.getId(), callerOrgId, Roles.USER, Roles.MANAGE_ACCOUNTS))
+                .contentType(ContentType.JSON)
+                .body(Map.of("accountIds", List.of(shared.getId())))
+                .when()
+                .post("/api/revocations")
+                .then()
+                .statusCode(200)
+                .body("refreshTokens", equalTo(1));
+
+        assertNotNull(refreshTokenService.findByToken(callerOrgToken).orElseThrow().getRevokedAt());
+        assertNull(refreshTokenService.findByToken(otherOrgToken).orElseThrow().getRevokedAt());
+        long now = Instant.now().getEpochSecond();
+        assertTrue(revocationEpochService.isRevoked(shared.getId(), null, callerOrgId, now));
+        assertFalse(revocationEpochService.isRevoked(shared.getId(), null, otherOrgId, now));
+    }
+
+    @Test
+    public void testNothingIsRevokedIfAnySubjectIsForbidden() throws Exception {
+        Account caller = createAccount();
+        Account stranger = createAccount();
+        String jti = UUID.randomUUID().toString();
+        String refreshToken = refreshTokenService.issue(caller.getId(), CLIENT, orgOf(caller), "api:read",
+                AccountService.NATIVE, null, jti, null);
+
+        given()
+                .auth().oauth2(token(caller.getId(), orgOf(caller), Roles.USER, Roles.MANAGE_ACCOUNTS))
+                .contentType(ContentType.JSON)
+                .body(Map.of("accountIds", List.of(caller.getId(), stranger.getId())))
+                .when()
+                .post("/api/revocations")
+                .then()
+                .statusCode(403);
+
+        assertNull(refreshTokenService.findByToken(refreshToken).orElseThrow().getRevokedAt());
+        assertFalse(tokenRevocationService.isTokenRevoked(jti));
+    }
+
+    @Test
+    public void testClientsRequireManageClientsRole() throws Exception {
+        Account caller = createAccount();
+
+        given()
+                .auth().oauth2(token(caller.getId(), orgOf(caller), Roles.USER, Roles.MANAGE_ACCOUNTS))
+                .contentType(ContentType.JSON)
+                .body(Map.of("clientIds", List.of(CLIENT)))
+                .when()
+                .post("/api/revocations")
+                .then()
+                .statusCode(403);
+    }
+
+    @Test
+    public void testEmptyRequestIsRejected() throws Exception {
+        Account caller = createAccount();
+
+        given()
+                .auth().oauth2(token(caller.getId(), orgOf(caller), Roles.USER, Roles.MANAGE_ACCOUNTS))
+                .contentType(ContentType.JSON)
+                .body(Map.of("accountIds", List.of()))
+                .when()
+                .post("/api/revocations")
+                .then()
+                .statusCode(400);
+    }
+}
@@ -0,0 +1,297 @@
+package dev.abstratium.abstrauth.boundary.oauth;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.abstratium.abstrauth.entity.ClientSecret;
+import dev.abstratium.abstrauth.entity.OAuthClient;
+import dev.abstratium.abstrauth.service.IntrospectionResultCache;
+import dev.abstratium.abstrauth.service.ReferenceTokenService;
+import dev.abstratium.abstrauth.service.RevocationEpochService;
+import dev.abstratium.abstrauth.service.RevokedTokenCache;
+import dev.abstratium.abstrauth.service.TokenRevocationService;
+import dev.abstratium.abstrauth.util.PasswordEncoder;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.restassured.response.Response;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+/**
+ * Tests for the token introspection endpoint (RFC 7662) and reference tokens.
+ */
+@QuarkusTest
+@TestProfile(IntrospectionResourceTest.TestProfile.class)
+public class IntrospectionResourceTest {
+
+    private static final String REFERENCE_CLIENT = "test-service-introspect-ref";
+    private static final String JWT_CLIENT = "test-service-introspect-jwt";
+    // its tokens are revoked by epoch, which would also revoke the tokens of the other tests
+    private static final String EPOCH_CLIENT = "test-service-introspect-epoch";
+    private static final String SECRET = "introspection-test-secret";
+
+    public static class TestProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("abstrauth.reference-tokens.client-ids", REFERENCE_CLIENT + "," + EPOCH_CLIENT);
+        }
+    }
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    PasswordEncoder passwordEncoder;
+
+    @Inject
+    ReferenceTokenService referenceTokenService;
+
+    @Inject
+    TokenRevocationService tokenRevocationService;
+
+    @Inject
+    IntrospectionResultCache introspectionResultCache;
+
+    @Inject
+    RevocationEpochService revocationEpochService;
+
+    @Inject
+    RevokedTokenCache revokedTokenCache;
+
+    @BeforeEach
+    @Transactional
+    public void setup() {
+        em.createQuery("DELETE FROM ReferenceToken WHERE clientId LIKE 'test-service-introspect-%'").executeUpdate();
+        em.createQuery("DELETE FROM ClientSecret WHERE clientId LIKE 'test-service-introspect-%'").executeUpdate();
+        em.createQuery("DELETE FROM OAuthClient WHERE clientId LIKE 'test-service-introspect-%'").executeUpdate();
+        em.flush();
+        referenceTokenService.clear();
+        introspectionResultCache.clear();
+        createServiceClient(REFERENCE_CLIENT);
+        createServiceClient(JWT_CLIENT);
+        createServiceClient(EPOCH_CLIENT);
+    }
+
+    private void createServiceClient(String clientId) {
+        OAuthClient client = new OAuthClient();
+        client.setClientId(clientId);
+        client.setClientName("Test Service Client");
+        client.setClientType("confidential");
+        client.setRedirectUris("");
+        client.setAllowedScopes("api:read");
+        client.setRequirePkce(false);
+        em.persist(client);
+
+        ClientSecret secret = new ClientSecret();
+        secret.setClientId(clientId);
+        secret.setSecretHash(passwordEncoder.hashClientSecret(SECRET));
+        secret.setDescription("Test secret");
+        secret.setActive(true);
+        em.persist(secret);
+        em.flush();
+    }
+
+    private String requestToken(String clientId) {
+        return given()
+                .formParam("grant_type", "client_credentials")
+                .formParam("client_id", clientId)
+                .formParam("client_secret", SECRET)
+                .formParam("scope", "api:read")
+                .when()
+                .post("/oauth2/token")
+                .then()
+                .statusCode(200)
+                .extract()
+                .jsonPath().getString("access_token");
+    }
+
+    private Response introspect(String token) {
+        return given()
+                .auth().preemptive().basic(JWT_CLIENT, SECRET)
+                .formParam("token", token)
+                .when()
+                .post("/oauth2/introspect");
+    }
+
+    @Test
+    public void testIntrospectionRequiresClientAuthentication() {
+        given()
+                .formParam("token", "whatever")
+                .when()
+                .post("/oauth2/introspect")
+                .then()
+                .statusCode(401)
+                .body("error", equalTo("invalid_client"));
+
+        given()
+                .formParam("client_id", JWT_CLIENT)
+                .formParam("client_secret", "wrong-secret")
+                .formParam("token", "whatever")
+                .when()
+                .post("/oauth2/introspect")
+                .then()
+                .statusCode(401)
+                .body("error", equalTo("invalid_client"));
+    }
+
+    @Test
+    public void testIntrospectionRequiresToken() {
+        given()
+                .auth().preemptive().basic(JWT_CLIENT, SECRET)
+                .when()
+                .post("/oauth2/introspect")
+                .then()
+                .statusCode(400)
+                .body("error", equalTo("invalid_request"));
+    }
+
+    @Test
+    public void testJwtIsActive() {
+        String accessToken = requestToken(JWT_CLIENT);
+        assertTrue(accessToken.contains("."), "clients not listed get JWTs");
+
+        introspect(accessToken)
+                .then()
+                .statusCode(200)
+                .body("active", equalTo(true))
+                .body("client_id", equalTo(JWT_CLIENT))
+                .body("token_type", equalTo("Bearer"))
+                .body("exp", notNullValue())
+                .body("jti", notNullValue())
+                .body("jwt", nullValue());
+    }
+
+    @Test
+    public void testRepeatedIntrospectionIsAnsweredFromCache() {
+        String accessToken = requestToken(JWT_CLIENT);
+        introspect(accessToken).then().statusCode(200).body("active", equalTo(true));
+
+        long hits = introspectionResultCache.getHitCount();
+        introspect(accessToken).then().statusCode(200).body("active", equalTo(true));
+        assertEquals(hits + 1, introspectionResultCache.getHitCount());
+    }
+
+    @Test
+    public void testUnknownTokensAreInactive() {
+        introspect("not-a-jwt")
+                .then()
+                .statusCode(200)
+                .body("active", equalTo(false))
+                .body("jti", nullValue());
+
+        // has the shape of a handle, but was never issued
+        introspect("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA")
+                .then()
+                .statusCode(200)
+                .body("active", equalTo(false));
+    }
+
+    @Test
+    public void testReferenceTokenResolvesToJwt() {
+        String handle = requestToken(REFERENCE_CLIENT);
+        assertTrue(ReferenceTokenService.isHandle(handle), "listed clients get a handle: " + handle);
+
+        String jwt = introspect(handle)
+                .then()
+                .statusCode(200)
+                .body("active", equalTo(true))
+                .body("client_id", equalTo(REFERENCE_CLIENT))
+                .body("scope", equalTo("api:read"))
+                .extract()
+                .jsonPath().getString("jwt");
+        assertNotNull(jwt);
+        assertEquals(3, jwt.split("\\.").length);
+
+        // a restart of the cache must not lose the handle
+        referenceTokenService.clear();
+        introspect(handle)
+                .then()
+                .statusCode(200)
+                .body("active", equalTo(true))
+                .body("jwt", equalTo(jwt));
+    }
+
+    @Test
+    public void testRevokedReferenceTokenIsInactive() {
+        String handle = requestToken(REFERENCE_CLIENT);
+        String jti = introspect(handle)
+                .then()
+                .statusCode(200)
+                .body("active", equalTo(true))
+                .extract()
+                .jsonPath().getString("jti");
+
+        tokenRevocationService.revokeToken(jti, "test");
+
+        introspect(handle)
+                .then()
+                .statusCode(200)
+                .body("active", equalTo(false))
+                .body("jwt", nullValue());
+    }
+
+    @Test
+    public void testReferenceTokenRevokedByEpochIsInactive() {
+        String handle = requestToken(EPOCH_CLIENT);
+        introspect(handle)
+                .then()
+                .statusCode(200)
+                .body("active", equalTo(true));
+
+        // "sign out everywhere" deletes no handles, the epoch is checked on the JWT behind them
+        revocationEpochService.revokeClient(EPOCH_CLIENT, "test");
+
+        introspect(handle)
+                .then()
+                .statusCode(200)
+                .body("active", equalTo(false))
+                .body("jwt", nullValue());
+    }
+
+    @Test
+    public void testRevokedJwtIsInactive() {
+        String accessToken = requestToken(JWT_CLIENT);
+        // the active result is cached now, the revocation must evict it
+        String jti = introspect(accessToken).jsonPath().getString("jti");
+
+        tokenRevocationService.revokeToken(jti, "test");
+
+        introspect(accessToken)
+                .then()
+                .statusCode(200)
+                .body("active", equalTo(false));
+
+        // and the revoked result is remembered
+        long hits = introspectionResultCache.getHitCount();
+        introspect(accessToken)
+                .then()
+                .statusCode(200)
+                .body("active", equalTo(false));
+        assertEquals(hits + 1, introspectionResultCache.getHitCount());
+    }
+
+    @Test
+    public void testCachedJwtRevokedOnAnotherInstanceIsInactive() {
+        String accessToken = requestToken(JWT_CLIENT);
+        var active = introspect(accessToken).jsonPath();
+        assertTrue(active.getBoolean("active"));
+
+        // what the sync reads from the revocation of another instance; it evicts no cached result
+        revokedTokenCache.add(active.getString("jti"), active.getLong("exp") * 1000L);
+
+        long hits = introspectionResultCache.getHitCount();
+        introspect(accessToken)
+                .then()
+                .statusCode(200)
+                .body("active", equalTo(false));
+        assertEquals(hits + 1, introspectionResultCache.getHitCount());
+    }
+}
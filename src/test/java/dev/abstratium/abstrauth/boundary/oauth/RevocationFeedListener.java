@@ -0,0 +1,177 @@
+package dev.abstratium.abstrauth.boundary.oauth;
+
+import java.io.StringReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonValue;
+
+/**
+ * Reference implementation of a resource server following the revocation feed, using nothing
+ * but the JDK's HttpClient and a JSON parser.
+ *
+ * It keeps the stream at /oauth2/revocations/stream open, applies every page to a local
+ * deny-list and reconnects with the last cursor (Last-Event-ID) if the connection drops. A
+ * resource server calls {@link #isRevoked} after validating a JWT's signature and expiry.
+ */
+public class RevocationFeedListener implements AutoCloseable {
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final URI stream;
+    private final String authorization;
+
+    // Key: revoked JTI, Value: exp of the token, after which it can be forgotten
+    private final Map<String, Long> jtis = new ConcurrentHashMap<>();
+    // Key: "type:id" of an account, client or org, or "member:account/org", Value: tokens issued
+    // at or before it are revoked
+    private final Map<String, Long> epochs = new ConcurrentHashMap<>();
+
+    private volatile String cursor;
+    private volatile int resets;
+    private volatile boolean closed;
+    private volatile Stream<String> lines;
+    private Thread thread;
+
+    /**
+     * @param cursor Where to resume, e.g. persisted by a previous run, or null to start with a snapshot
+     */
+    public RevocationFeedListener(URI stream, String clientId, String clientSecret, String cursor) {
+        this.stream = stream;
+        this.authorization = "Basic " + Base64.getEncoder()
+                .encodeToString((clientId + ":" + clientSecret).getBytes(StandardCharsets.UTF_8));
+        this.cursor = cursor;
+    }
+
+    public RevocationFeedListener start() {
+        thread = Thread.ofPlatform().daemon().name("revocation-feed-listener").start(this::run);
+        return this;
+    }
+
+    /**
+     * Whether a token with these claims (sub, client_id and orgId may be null) has been revoked.
+     */
+    public boolean isRevoked(String jti, String sub, String clientId, String orgId, long iat) {
+        Long exp = jti != null ? jtis.get(jti) : null;
+        if (exp != null && exp > Instant.now().getEpochSecond()) {
+            return true;
+        }
+        return issuedBefore(iat, "account", sub) || issuedBefore(iat, "client", clientId)
+                || issuedBefore(iat, "org", orgId)
+                || sub != null && orgId != null && issuedBefore(iat, "member", sub + "/" + orgId);
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public int getResets() {
+        return resets;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Stream<String> current = lines;
+        if (current != null) {
+            current.close();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            try {
+                HttpRequest.Builder request = HttpRequest.newBuilder(stream)
+                        .header("Accept", "text/event-stream")
+                        .header("Authorization", authorization);
+                if (cursor != null) {
+                    request.header("Last-Event-ID", cursor);
+                }
+                HttpResponse<Stream<String>> response = httpClient.send(request.build(),
+                        HttpResponse.BodyHandlers.ofLines());
+                if (response.statusCode() != 200) {
+                    response.body().close();
+                    throw new IllegalStateException("Revocation feed answered " + response.statusCode());
+                }
+                lines = response.body();
+                read(lines.iterator());
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                // reconnect below, resuming from the cursor
+            }
+            if (!closed) {
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void read(Iterator<String> lines) {
+        String id = null;
+        StringBuilder data = new StringBuilder();
+        while (!closed && lines.hasNext()) {
+            String line = lines.next();
+            if (line.isEmpty()) {
+                // end of an event; comments (heartbeats) have no data
+                if (!data.isEmpty()) {
+                    apply(Json.createReader(new StringReader(data.toString())).readObject());
+                    if (id != null) {
+                        cursor = id;
+                    }
+                }
+                id = null;
+                data.setLength(0);
+            } else if (line.startsWith("id:")) {
+                id = line.substring(3).strip();
+            } else if (line.startsWith("data:")) {
+                if (!data.isEmpty()) {
+                    data.append('\n');
+                }
+                data.append(line.substring(5).strip());
+            }
+        }
+    }
+
+    private void apply(JsonObject page) {
+        if (page.getBoolean("reset", false)) {
+            jtis.clear();
+            epochs.clear();
+            resets++;
+        }
+        for (JsonValue value : page.getJsonArray("events")) {
+            JsonObject event = value.asJsonObject();
+            String type = event.getString("type");
+            String id = event.getString("id");
+            if ("jti".equals(type)) {
+                jtis.merge(id, event.getJsonNumber("exp").longValue(), Math::max);
+            } else {
+                String subject = "member".equals(type) ? id + "/" + event.getString("org") : id;
+                epochs.merge(type + ":" + subject, event.getJsonNumber("not_before").longValue(), Math::max);
+            }
+        }
+        long now = Instant.now().getEpochSecond();
+        jtis.values().removeIf(exp -> exp <= now);
+    }
+
+    private boolean issuedBefore(long iat, String type, String id) {
+        Long notBefore = id != null ? epochs.get(type + ":" + id) : null;
+        return notBefore != null && iat <= notBefore;
+    }
+}
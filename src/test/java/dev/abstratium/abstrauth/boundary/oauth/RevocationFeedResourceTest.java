@@ -0,0 +1,279 @@
+package dev.abstratium.abstrauth.boundary.oauth;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.abstratium.abstrauth.entity.ClientSecret;
+import dev.abstratium.abstrauth.entity.OAuthClient;
+import dev.abstratium.abstrauth.service.RevocationEpochService;
+import dev.abstratium.abstrauth.service.Roles;
+import dev.abstratium.abstrauth.service.TokenRevocationService;
+import dev.abstratium.abstrauth.util.PasswordEncoder;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.response.Response;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Tests for the revocation feed, by long polling and with the reference listener as a local
+ * subscriber of the stream.
+ */
+@QuarkusTest
+public class RevocationFeedResourceTest {
+
+    private static final String CLIENT = "test-service-revocation-feed";
+    private static final String OTHER_CLIENT = "test-service-revocation-feed-other";
+    private static final String SECRET = "revocation-feed-test-secret";
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    PasswordEncoder passwordEncoder;
+
+    @Inject
+    TokenRevocationService tokenRevocationService;
+
+    @Inject
+    RevocationEpochService revocationEpochService;
+
+    @ConfigProperty(name = "default.org.uuid")
+    String defaultOrgId;
+
+    @TestHTTPResource("/oauth2/revocations/stream")
+    URI stream;
+
+    @BeforeEach
+    @Transactional
+    public void setup() {
+        for (String clientId : new String[] {CLIENT, OTHER_CLIENT}) {
+            em.createNativeQuery("DELETE FROM T_client_roles WHERE src_client_id = :clientId").setParameter("clientId", clientId).executeUpdate();
+            em.createQuery("DELETE FROM ClientSecret WHERE clientId = :clientId").setParameter("clientId", clientId).executeUpdate();
+            em.createQuery("DELETE FROM OAuthClient WHERE clientId = :clientId").setParameter("clientId", clientId).executeUpdate();
+        }
+        em.flush();
+
+        persistClient(CLIENT);
+        persistClient(OTHER_CLIENT);
+        // only CLIENT may follow the feed
+        em.createNativeQuery("INSERT INTO T_client_roles (id, role, org_id, src_client_id, target_client_id, created_at) "
+                + "VALUES (UUID(), :role, :orgId, :clientId, :targetClientId, NOW())")
+                .setParameter("role", Roles._REVOCATION_FEED_PLAIN)
+                .setParameter("orgId", defaultOrgId)
+                .setParameter("clientId", CLIENT)
+                .setParameter("targetClientId", Roles.CLIENT_ID)
+                .executeUpdate();
+        em.flush();
+    }
+
+    private void persistClient(String clientId) {
+        OAuthClient client = new OAuthClient();
+        client.setClientId(clientId);
+        client.setClientName("Test Resource Server");
+        client.setClientType("confidential");
+        client.setRedirectUris("");
+        client.setAllowedScopes("api:read");
+        client.setRequirePkce(false);
+        em.persist(client);
+
+        ClientSecret secret = new ClientSecret();
+        secret.setClientId(clientId);
+        secret.setSecretHash(passwordEncoder.hashClientSecret(SECRET));
+        secret.setDescription("Test secret");
+        secret.setActive(true);
+        em.persist(secret);
+    }
+
+    private Response poll(String cursor, int wait) {
+        var request = given().auth().preemptive().basic(CLIENT, SECRET).queryParam("wait", wait);
+        if (cursor != null) {
+            request.queryParam("cursor", cursor);
+        }
+        return request.when().get("/oauth2/revocations");
+    }
+
+    private String revokeJti() {
+        String jti = UUID.randomUUID().toString();
+        tokenRevocationService.revokeToken(jti, "test", Instant.now().plusSeconds(600));
+        return jti;
+    }
+
+    @Test
+    public void testFeedRequiresClientAuthentication() {
+        given()
+                .when()
+                .get("/oauth2/revocations")
+                .then()
+                .statusCode(401)
+                .body("error", equalTo("invalid_client"));
+
+        given()
+                .auth().preemptive().basic(CLIENT, "wrong-secret")
+                .when()
+                .get("/oauth2/revocations")
+                .then()
+                .statusCode(401);
+
+        given()
+                .when()
+                .get("/oauth2/revocations/stream")
+                .then()
+                .statusCode(401);
+    }
+
+    @Test
+    public void testFeedRequiresTheRevocationFeedRole() {
+        // the revocations of all organisations must not be readable by any confidential client
+        given()
+                .auth().preemptive().basic(OTHER_CLIENT, SECRET)
+                .when()
+                .get("/oauth2/revocations")
+                .then()
+                .statusCode(403)
+                .body("error", equalTo("access_denied"));
+
+        given()
+                .auth().preemptive().basic(OTHER_CLIENT, SECRET)
+                .when()
+                .get("/oauth2/revocations/stream")
+                .then()
+                .statusCode(403);
+    }
+
+    @Test
+    public void testWithoutCursorAllCurrentRevocationsAreReturned() {
+        String jti = revokeJti();
+
+        poll(null, 0)
+                .then()
+                .statusCode(200)
+                .body("reset", equalTo(true))
+                .body("cursor", notNullValue())
+                .body("events.findAll { it.type == 'jti' }.id", hasItem(jti));
+    }
+
+    @Test
+    public void testRevocationsAfterTheCursorAreReturned() {
+        String cursor = poll(null, 0).then().statusCode(200).extract().path("cursor");
+
+        String jti = revokeJti();
+        Response afterJti = poll(cursor, 0);
+        afterJti.then()
+                .statusCode(200)
+                .body("reset", equalTo(false))
+                .body("events.id", contains(jti))
+                .body("events[0].type", equalTo("jti"))
+                .body("events[0].exp", notNullValue());
+
+        String accountId = UUID.randomUUID().toString();
+        revocationEpochService.revokeAccount(accountId, "test");
+        poll(afterJti.path("cursor"), 0)
+                .then()
+                .statusCode(200)
+                .body("reset", equalTo(false))
+                .body("events.id", contains(accountId))
+                .body("events[0].type", equalTo("account"))
+                .body("events[0].not_before", notNullValue());
+    }
+
+    @Test
+    public void testUnknownCursorGetsSnapshot() {
+        poll("00000000.1", 0)
+                .then()
+                .statusCode(200)
+                .body("reset", equalTo(true));
+    }
+
+    @Test
+    public void testLongPollReturnsOnRevocation() throws Exception {
+        String cursor = poll(null, 0).then().statusCode(200).extract().path("cursor");
+        String jti = UUID.randomUUID().toString();
+        Thread revoker = Thread.ofPlatform().start(() -> {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                return;
+            }
+            // the tenant resolver is request scoped, so it needs a request context on this thread
+            ManagedContext requestContext = Arc.container().requestContext();
+            requestContext.activate();
+            try {
+                tokenRevocationService.revokeToken(jti, "test", Instant.now().plusSeconds(600));
+            } finally {
+                requestContext.terminate();
+            }
+        });
+
+        long start = System.currentTimeMillis();
+        poll(cursor, 10)
+                .then()
+                .statusCode(200)
+                .body("events.id", hasItem(jti));
+        revoker.join();
+
+        assertTrue(System.currentTimeMillis() - start < 10_000, "the long poll should return on the revocation");
+    }
+
+    @Test
+    public void testLongPollTimesOutWithoutRevocations() {
+        String cursor = poll(null, 0).then().statusCode(200).extract().path("cursor");
+
+        long start = System.currentTimeMillis();
+        poll(cursor, 1)
+                .then()
+                .statusCode(200)
+                .body("reset", equalTo(false))
+                .body("events", empty())
+                .body("cursor", equalTo(cursor));
+
+        assertTrue(System.currentTimeMillis() - start >= 900, "the long poll should have waited");
+    }
+
+    @Test
+    public void testListenerFollowsTheStreamAndResumes() throws Exception {
+        String cursor;
+        try (RevocationFeedListener listener = new RevocationFeedListener(stream, CLIENT, SECRET, null).start()) {
+            awaitTrue(() -> listener.getCursor() != null);
+            assertEquals(1, listener.getResets());
+
+            String jti = revokeJti();
+            awaitTrue(() -> listener.isRevoked(jti, null, null, null, 0));
+
+            String accountId = UUID.randomUUID().toString();
+            long issuedAt = Instant.now().getEpochSecond() - 10;
+            assertFalse(listener.isRevoked(UUID.randomUUID().toString(), accountId, null, null, issuedAt));
+            revocationEpochService.revokeAccount(accountId, "test");
+            awaitTrue(() -> listener.isRevoked(UUID.randomUUID().toString(), accountId, null, null, issuedAt));
+            cursor = listener.getCursor();
+        }
+
+        // revoked while the listener is away; it resumes from its cursor instead of a snapshot
+        String missed = revokeJti();
+        try (RevocationFeedListener listener = new RevocationFeedListener(stream, CLIENT, SECRET, cursor).start()) {
+            awaitTrue(() -> listener.isRevoked(missed, null, null, null, 0));
+            assertEquals(0, listener.getResets());
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package dev.abstratium.abstrauth.boundary.oauth;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.abstratium.abstrauth.entity.Account;
+import dev.abstratium.abstrauth.entity.ClientSecret;
+import dev.abstratium.abstrauth.entity.OAuthClient;
+import dev.abstratium.abstrauth.service.AccountService;
+import dev.abstratium.abstrauth.service.RefreshTokenService;
+import dev.abstratium.abstrauth.service.StatusListService;
+import dev.abstratium.abstrauth.service.TokenRevocationService;
+import dev.abstratium.abstrauth.util.PasswordEncoder;
+import dev.abstratium.abstrauth.util.TestTransactionHelper;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+/**
+ * Tests for the RFC 7009 revocation endpoint.
+ */
+@QuarkusTest
+public class RevocationResourceTest {
+
+    private static final String CLIENT = "test-service-revoke-a";
+    private static final String OTHER_CLIENT = "test-service-revoke-b";
+    // listed in %test.abstrauth.client-credentials.token-reuse.client-ids
+    private static final String REUSE_CLIENT = "test-service-revoke-reuse";
+    private static final String PUBLIC_CLIENT = "test-service-revoke-spa";
+    private static final String SECRET = "revoke-test-secret";
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    PasswordEncoder passwordEncoder;
+
+    @Inject
+    TokenRevocationService tokenRevocationService;
+
+    @Inject
+    RefreshTokenService refreshTokenService;
+
+    @Inject
+    StatusListService statusListService;
+
+    @Inject
+    AccountService accountService;
+
+    @Inject
+    TestTransactionHelper transactionHelper;
+
+    @BeforeEach
+    @Transactional
+    public void setup() {
+        em.createQuery("DELETE FROM RefreshToken WHERE clientId LIKE 'test-service-revoke-%'").executeUpdate();
+        em.createQuery("DELETE FROM ClientSecret WHERE clientId LIKE 'test-service-revoke-%'").executeUpdate();
+        em.createQuery("DELETE FROM OAuthClient WHERE clientId LIKE 'test-service-revoke-%'").executeUpdate();
+        em.flush();
+        createServiceClient(CLIENT);
+        createServiceClient(OTHER_CLIENT);
+        createServiceClient(REUSE_CLIENT);
+
+        OAuthClient spa = new OAuthClient();
+        spa.setClientId(PUBLIC_CLIENT);
+        spa.setClientName("Test SPA");
+        spa.setClientType("public");
+        spa.setRedirectUris("http://localhost:4200/callback");
+        spa.setAllowedScopes("openid");
+        spa.setRequirePkce(true);
+        em.persist(spa);
+        em.flush();
+    }
+
+    private void createServiceClient(String clientId) {
+        OAuthClient client = new OAuthClient();
+        client.setClientId(clientId);
+        client.setClientName("Test Service Client");
+        client.setClientType("confidential");
+        client.setRedirectUris("");
+        client.setAllowedScopes("api:read");
+        client.setRequirePkce(false);
+        em.persist(client);
+
+        ClientSecret secret = new ClientSecret();
+        secret.setClientId(clientId);
+        secret.setSecretHash(passwordEncoder.hashClientSecret(SECRET));
+        secret.setDescription("Test secret");
+        secret.setActive(true);
+        em.persist(secret);
+        em.flush();
+    }
+
+    private String requestToken(String clientId) {
+        return given()
+                .formParam("grant_type", "client_credentials")
+                .formParam("client_id", clientId)
+                .formParam("client_secret", SECRET)
+                .formParam("scope", "api:read")
+                .when()
+                .post("/oauth2/token")
+                .then()
+                .statusCode(200)
+                .extract()
+                .jsonPath().getString("access_token");
+    }
+
+    private static JsonObject claims(String jwt) {
+        String payload = new String(Base64.getUrlDecoder().decode(jwt.split("\\.")[1]), StandardCharsets.UTF_8);
+        return Json.createReader(new StringReader(payload)).readObject();
+    }
+
+    private Account createAccount() throws Exception {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        transactionHelper.beginTransaction();
+        Account account = accountService.createAccount(
+                "revoke_" + suffix + "@example.com",
+                "Revoke " + suffix,
+                "revoke_" + suffix,
+                "Pass123!",
+                AccountService.NATIVE,
+                "Revoke Org " + suffix);
+        transactionHelper.commitTransaction();
+        return account;
+    }
+
+    @Test
+    public void testRevocationRequiresClientAuthentication() {
+        given()
+                .formParam("token", "whatever")
+                .when()
+                .post("/oauth2/revoke")
+                .then()
+                .statusCode(401)
+                .body("error", equalTo("invalid_client"));
+
+        given()
+                .formParam("token", "whatever")
+                .formParam("client_id", CLIENT)
+                .formParam("client_secret", "wrong")
+                .when()
+                .post("/oauth2/revoke")
+                .then()
+                .statusCode(401);
+
+        // confidential clients must send their secret
+        given()
+                .formParam("token", "whatever")
+                .formParam("client_id", CLIENT)
+                .when()
+                .post("/oauth2/revoke")
+                .then()
+                .statusCode(401);
+
+        given()
+                .formParam("token", "whatever")
+                .formParam("client_id", "test-service-revoke-unknown")
+                .when()
+                .post("/oauth2/revoke")
+                .then()
+                .statusCode(401);
+    }
+
+    @Test
+    public void testPublicClientRevokesWithClientIdAlone() throws Exception {
+        Account account = createAccount();
+        String jti = UUID.randomUUID().toString();
+        String refreshToken = refreshTokenService.issue(account.getId(), PUBLIC_CLIENT, null, "openid",
+                AccountService.NATIVE, null, jti, null);
+        String otherRefreshToken = refreshTokenService.issue(account.getId(), CLIENT, null, "api:read",
+                AccountService.NATIVE, null, UUID.randomUUID().toString(), null);
+
+        for (String token : new String[] {refreshToken, otherRefreshToken}) {
+            given()
+                    .formParam("token", token)
+                    .formParam("token_type_hint", "refresh_token")
+                    .formParam("client_id", PUBLIC_CLIENT)
+                    .when()
+                    .post("/oauth2/revoke")
+                    .then()
+                    .statusCode(200);
+        }
+
+        assertNotNull(refreshTokenService.findByToken(refreshToken).orElseThrow().getRevokedAt());
+        assertTrue(tokenRevocationService.isTokenRevoked(jti));
+        // a public client still cannot revoke the tokens of another client
+        assertNull(refreshTokenService.findByToken(otherRefreshToken).orElseThrow().getRevokedAt());
+    }
+
+    @Test
+    public void testMissingTokenIsInvalidRequest() {
+        given()
+                .auth().preemptive().basic(CLIENT, SECRET)
+                .when()
+                .post("/oauth2/revoke")
+                .then()
+                .statusCode(400)
+                .body("error", equalTo("invalid_request"));
+    }
+
+    @Test
+    public void testRevokeAccessToken() {
+        String token = requestToken(CLIENT);
+        JsonObject claims = claims(token);
+        int idx = claims.getJsonObject("status").getJsonObject("status_list").getInt("idx");
+
+        given()
+                .formParam("token", token)
+                .formParam("token_type_hint", "access_token")
+                .formParam("client_id", CLIENT)
+                .formParam("client_secret", SECRET)
+                .when()
+                .post("/oauth2/revoke")
+                .then()
+                .statusCode(200);
+
+        assertTrue(tokenRevocationService.isTokenRevoked(claims.getString("jti")));
+        assertTrue(statusListService.isRevoked(idx));
+
+        given()
+                .auth().preemptive().basic(CLIENT, SECRET)
+                .formParam("token", token)
+                .when()
+                .post("/oauth2/introspect")
+                .then()
+                .statusCode(200)
+                .body("active", equalTo(false));
+    }
+
+    @Test
+    public void testRevokedReusableTokenIsNotHandedOutAgain() {
+        String token = requestToken(REUSE_CLIENT);
+        assertEquals(token, requestToken(REUSE_CLIENT));
+
+        given()
+                .auth().preemptive().basic(REUSE_CLIENT, SECRET)
+                .formParam("token", token)
+                .when()
+                .post("/oauth2/revoke")
+                .then()
+                .statusCode(200);
+
+        String next = requestToken(REUSE_CLIENT);
+        assertNotEquals(token, next);
+        assertNotEquals(claims(token).getString("jti"), claims(next).getString("jti"));
+    }
+
+    @Test
+    public void testAccessTokenOfAnotherClientIsNotRevoked() {
+        String token = requestToken(OTHER_CLIENT);
+
+        given()
+                .auth().preemptive().basic(CLIENT, SECRET)
+                .formParam("token", token)
+                .when()
+                .post("/oauth2/revoke")
+                .then()
+                .statusCode(200);
+
+        assertFalse(tokenRevocationService.isTokenRevoked(claims(token).getString("jti")));
+    }
+
+    @Test
+    public void testUnknownTokenIsAnsweredWithOk() {
+        given()
+                .auth().preemptive().basic(CLIENT, SECRET)
+                .formParam("token", "not-a-token")
+                .formParam("token_type_hint", "refresh_token")
+                .when()
+                .post("/oauth2/revoke")
+                .then()
+                .statusCode(200);
+    }
+
+    @Test
+    public void testRevokeRefreshTokenRevokesItsFamily() throws Exception {
+        Account account = createAccount();
+        String jti = UUID.randomUUID().toString();
+        Integer idx = statusListService.allocate();
+        String refreshToken = refreshTokenService.issue(account.getId(), CLIENT, null, "api:read",
+                AccountService.NATIVE, null, jti, idx);
+
+        // without hint, the value is first looked up as a reference token, which it resembles
+        given()
+                .auth().preemptive().basic(CLIENT, SECRET)
+                .formParam("token", refreshToken)
+                .when()
+                .post("/oauth2/revoke")
+                .then()
+                .statusCode(200);
+
+        assertNotNull(refreshTokenService.findByToken(refreshToken).orElseThrow().getRevokedAt());
+        assertTrue(tokenRevocationService.isTokenRevoked(jti));
+        if (idx != null) {
+            assertTrue(statusListService.isRevoked(idx));
+        }
+    }
+
+    @Test
+    public void testRefreshTokenOfAnotherClientIsNotRevoked() throws Exception {
+        Account account = createAccount();
+        String refreshToken = refreshTokenService.issue(account.getId(), OTHER_CLIENT, null, "api:read",
+                AccountService.NATIVE, null, UUID.randomUUID().toString(), null);
+
+        given()
+                .auth().preemptive().basic(CLIENT, SECRET)
+                .formParam("token", refreshToken)
+                .formParam("token_type_hint", "refresh_token")
+                .when()
+                .post("/oauth2/revoke")
+                .then()
+                .statusCode(200);
+
+        assertNull(refreshTokenService.findByToken(refreshToken).orElseThrow().getRevokedAt());
+    }
+}
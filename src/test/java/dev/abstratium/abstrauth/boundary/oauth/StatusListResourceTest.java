@@ -0,0 +1,173 @@
+package dev.abstratium.abstrauth.boundary.oauth;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.zip.Inflater;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.abstratium.abstrauth.entity.ClientSecret;
+import dev.abstratium.abstrauth.entity.OAuthClient;
+import dev.abstratium.abstrauth.service.StatusListService;
+import dev.abstratium.abstrauth.service.TokenRevocationService;
+import dev.abstratium.abstrauth.util.PasswordEncoder;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.response.Response;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+/**
+ * Tests for the token status list: the status claim of access tokens and the list itself.
+ */
+@QuarkusTest
+public class StatusListResourceTest {
+
+    private static final String CLIENT = "test-service-status-list";
+    private static final String SECRET = "status-list-test-secret";
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    PasswordEncoder passwordEncoder;
+
+    @Inject
+    TokenRevocationService tokenRevocationService;
+
+    @Inject
+    StatusListService statusListService;
+
+    @BeforeEach
+    @Transactional
+    public void setup() {
+        em.createQuery("DELETE FROM ClientSecret WHERE clientId = :clientId").setParameter("clientId", CLIENT).executeUpdate();
+        em.createQuery("DELETE FROM OAuthClient WHERE clientId = :clientId").setParameter("clientId", CLIENT).executeUpdate();
+        em.flush();
+
+        OAuthClient client = new OAuthClient();
+        client.setClientId(CLIENT);
+        client.setClientName("Test Service Client");
+        client.setClientType("confidential");
+        client.setRedirectUris("");
+        client.setAllowedScopes("api:read");
+        client.setRequirePkce(false);
+        em.persist(client);
+
+        ClientSecret secret = new ClientSecret();
+        secret.setClientId(CLIENT);
+        secret.setSecretHash(passwordEncoder.hashClientSecret(SECRET));
+        secret.setDescription("Test secret");
+        secret.setActive(true);
+        em.persist(secret);
+        em.flush();
+    }
+
+    private JsonObject requestTokenClaims() {
+        String token = given()
+                .formParam("grant_type", "client_credentials")
+                .formParam("client_id", CLIENT)
+                .formParam("client_secret", SECRET)
+                .formParam("scope", "api:read")
+                .when()
+                .post("/oauth2/token")
+                .then()
+                .statusCode(200)
+                .extract()
+                .jsonPath().getString("access_token");
+        String payload = new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), StandardCharsets.UTF_8);
+        return Json.createReader(new StringReader(payload)).readObject();
+    }
+
+    private static int statusIdx(JsonObject claims) {
+        return claims.getJsonObject("status").getJsonObject("status_list").getInt("idx");
+    }
+
+    private static boolean isSet(Response statusList, int idx) throws Exception {
+        byte[] compressed = Base64.getUrlDecoder().decode(statusList.jsonPath().getString("status_list.lst"));
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressed);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        while (!inflater.finished()) {
+            out.write(buffer, 0, inflater.inflate(buffer));
+        }
+        inflater.end();
+        byte[] bits = out.toByteArray();
+        return (bits[idx / 8] & (1 << (idx % 8))) != 0;
+    }
+
+    @Test
+    public void testAccessTokensCarryUniqueStatusIndexes() {
+        JsonObject first = requestTokenClaims();
+        JsonObject second = requestTokenClaims();
+
+        JsonObject statusList = first.getJsonObject("status").getJsonObject("status_list");
+        assertEquals(statusListService.getUri(), statusList.getString("uri"));
+        assertTrue(statusList.getString("uri").endsWith("/oauth2/status-list"));
+        assertNotEquals(statusIdx(first), statusIdx(second));
+    }
+
+    @Test
+    public void testRevokedTokenIsSetInTheList() throws Exception {
+        JsonObject claims = requestTokenClaims();
+        int idx = statusIdx(claims);
+
+        Response before = given().when().get("/oauth2/status-list");
+        before.then()
+                .statusCode(200)
+                .contentType(startsWith(StatusListResource.STATUS_LIST_JSON))
+                .body("sub", equalTo(statusListService.getUri()))
+                .body("status_list.bits", equalTo(1));
+        assertFalse(isSet(before, idx));
+
+        tokenRevocationService.revokeToken(claims.getString("jti"), "test",
+                Instant.ofEpochSecond(claims.getJsonNumber("exp").longValue()), idx);
+
+        Response after = given().when().get("/oauth2/status-list");
+        after.then().statusCode(200);
+        assertTrue(isSet(after, idx));
+        assertFalse(isSet(after, idx + 1));
+        assertNotEquals(before.getHeader("ETag"), after.getHeader("ETag"));
+        assertTrue(statusListService.isRevoked(idx));
+    }
+
+    @Test
+    public void testRevocationOfExpiredTokenLeavesItsIndexAlone() throws Exception {
+        JsonObject claims = requestTokenClaims();
+        int idx = statusIdx(claims);
+
+        // the index may already belong to another token
+        tokenRevocationService.revokeToken(claims.getString("jti"), "test", Instant.now().minusSeconds(1), idx);
+
+        assertFalse(isSet(given().when().get("/oauth2/status-list"), idx));
+    }
+
+    @Test
+    public void testUnchangedListIsNotModified() {
+        requestTokenClaims();
+        Response first = given().when().get("/oauth2/status-list");
+        first.then()
+                .statusCode(200)
+                .header("ETag", notNullValue())
+                .header("Cache-Control", containsString("max-age=60"));
+
+        given()
+                .header("If-None-Match", first.getHeader("ETag"))
+                .when()
+                .get("/oauth2/status-list")
+                .then()
+                .statusCode(304)
+                .header("Cache-Control", containsString("max-age=60"));
+    }
+}
@@ -0,0 +1,287 @@
+package dev.abstratium.abstrauth.boundary.oauth;
+
+import dev.abstratium.abstrauth.entity.Account;
+import dev.abstratium.abstrauth.service.AccountProfileCache;
+import dev.abstratium.abstrauth.service.AccountService;
+import dev.abstratium.abstrauth.service.TokenRevocationService;
+import dev.abstratium.abstrauth.util.TestDatabaseResetHelper;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.response.Response;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the OpenID Connect userinfo endpoint (/oauth2/userinfo): bearer token handling,
+ * scope-based claim filtering and invalidation of the cached account profile.
+ */
+@QuarkusTest
+public class UserInfoEndpointResourceTest {
+
+    private static final String CLIENT_ID = "abstratium-abstrauth";
+    private static final String CLIENT_SECRET = "dev-secret-CHANGE-IN-PROD";
+    private static final String REDIRECT_URI = "http://localhost:8080/api/auth/callback";
+    private static final String TEST_USERNAME = "userinfotest_" + System.currentTimeMillis();
+    private static final String TEST_EMAIL = "userinfotest_" + System.currentTimeMillis() + "@example.com";
+    private static final String TEST_PASSWORD = "SecurePassword123";
+    private static final String TEST_NAME = "UserInfo Test User";
+
+    @Inject
+    TestDatabaseResetHelper dbResetHelper;
+
+    @Inject
+    AccountService accountService;
+
+    @Inject
+    AccountProfileCache accountProfileCache;
+
+    @Inject
+    TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    public void setup() {
+        dbResetHelper.resetDatabase();
+
+        given()
+            .formParam("email", TEST_EMAIL)
+            .formParam("name", TEST_NAME)
+            .formParam("username", TEST_USERNAME)
+            .formParam("password", TEST_PASSWORD)
+            .when()
+            .post("/api/signup")
+            .then()
+            .statusCode(anyOf(is(201), is(409)));
+    }
+
+    @Test
+    public void testAllScopesReturnProfileAndEmailClaims() throws Exception {
+        String accessToken = performOAuthFlow("openid profile email");
+
+        given()
+            .header("Authorization", "Bearer " + accessToken)
+            .when()
+            .get("/oauth2/userinfo")
+            .then()
+            .statusCode(200)
+            .body("sub", notNullValue())
+            .body("email", equalTo(TEST_EMAIL))
+            .body("email_verified", equalTo(false))
+            .body("name", equalTo(TEST_NAME));
+    }
+
+    @Test
+    public void testOpenIdOnlyReturnsSubOnly() throws Exception {
+        String accessToken = performOAuthFlow("openid");
+
+        given()
+            .header("Authorization", "Bearer " + accessToken)
+            .when()
+            .get("/oauth2/userinfo")
+            .then()
+            .statusCode(200)
+            .body("sub", notNullValue())
+            .body("email", nullValue())
+            .body("email_verified", nullValue())
+            .body("name", nullValue());
+    }
+
+    @Test
+    public void testTokenInFormBody() throws Exception {
+        String accessToken = performOAuthFlow("openid email");
+
+        given()
+            .formParam("access_token", accessToken)
+            .when()
+            .post("/oauth2/userinfo")
+            .then()
+            .statusCode(200)
+            .body("email", equalTo(TEST_EMAIL))
+            .body("name", nullValue());
+    }
+
+    @Test
+    public void testMissingOrInvalidTokenIsRejected() {
+        given()
+            .when()
+            .get("/oauth2/userinfo")
+            .then()
+            .statusCode(401)
+            .header("WWW-Authenticate", equalTo("Bearer"));
+
+        given()
+            .formParam("access_token", "not-a-token")
+            .when()
+            .post("/oauth2/userinfo")
+            .then()
+            .statusCode(401)
+            .header("WWW-Authenticate", containsString("invalid_token"))
+            .body("error", equalTo("invalid_token"));
+    }
+
+    @Test
+    public void testRevokedTokenIsRejected() throws Exception {
+        String accessToken = performOAuthFlow("openid profile");
+        given()
+            .header("Authorization", "Bearer " + accessToken)
+            .when()
+            .get("/oauth2/userinfo")
+            .then()
+            .statusCode(200);
+
+        tokenRevocationService.revokeToken(jtiOf(accessToken), "test");
+
+        given()
+            .formParam("access_token", accessToken)
+            .when()
+            .post("/oauth2/userinfo")
+            .then()
+            .statusCode(401)
+            .body("error", equalTo("invalid_token"));
+    }
+
+    @Test
+    public void testProfileIsCachedAndInvalidatedOnAccountUpdate() throws Exception {
+        String accessToken = performOAuthFlow("openid profile");
+
+        given()
+            .header("Authorization", "Bearer " + accessToken)
+            .when()
+            .get("/oauth2/userinfo")
+            .then()
+            .statusCode(200)
+            .body("name", equalTo(TEST_NAME));
+
+        long hits = accountProfileCache.getHitCount();
+        given()
+            .header("Authorization", "Bearer " + accessToken)
+            .when()
+            .get("/oauth2/userinfo")
+            .then()
+            .statusCode(200)
+            .body("name", equalTo(TEST_NAME));
+        assertEquals(hits + 1, accountProfileCache.getHitCount());
+
+        Account account = accountService.findByEmail(TEST_EMAIL).orElseThrow();
+        account.setName("Renamed User");
+        accountService.updateAccount(account);
+
+        given()
+            .header("Authorization", "Bearer " + accessToken)
+            .when()
+            .get("/oauth2/userinfo")
+            .then()
+            .statusCode(200)
+            .body("name", equalTo("Renamed User"));
+    }
+
+    private String jtiOf(String jwt) {
+        String payload = new String(Base64.getUrlDecoder().decode(jwt.split("\\.")[1]), StandardCharsets.UTF_8);
+        Matcher matcher = Pattern.compile("\"jti\"\\s*:\\s*\"([^\"]+)\"").matcher(payload);
+        assertTrue(matcher.find(), "access token has a jti");
+        return matcher.group(1);
+    }
+
+    /**
+     * Performs the authorization code flow and returns the access token
+     */
+    private String performOAuthFlow(String scope) throws Exception {
+        String codeVerifier = generateCodeVerifier();
+        String codeChallenge = generateCodeChallenge(codeVerifier);
+
+        Response authResponse = given()
+            .queryParam("response_type", "code")
+            .queryParam("client_id", CLIENT_ID)
+            .queryParam("redirect_uri", REDIRECT_URI)
+            .queryParam("scope", scope)
+            .queryParam("state", "test_state")
+            .queryParam("code_challenge", codeChallenge)
+            .queryParam("code_challenge_method", "S256")
+            .redirects().follow(false)
+            .when()
+            .get("/oauth2/authorize")
+            .then()
+            .statusCode(303)
+            .extract()
+            .response();
+
+        String requestId = extractRequestId(authResponse.getHeader("Location"));
+
+        given()
+            .formParam("username", TEST_USERNAME)
+            .formParam("password", TEST_PASSWORD)
+            .formParam("request_id", requestId)
+            .when()
+            .post("/oauth2/authorize/authenticate")
+            .then()
+            .statusCode(200);
+
+        Response consentResponse = given()
+            .formParam("consent", "approve")
+            .formParam("request_id", requestId)
+            .redirects().follow(false)
+            .when()
+            .post("/oauth2/authorize")
+            .then()
+            .statusCode(303)
+            .extract()
+            .response();
+
+        String authCode = extractParameter(consentResponse.getHeader("Location"), "code");
+
+        return given()
+            .formParam("grant_type", "authorization_code")
+            .formParam("code", authCode)
+            .formParam("client_id", CLIENT_ID)
+            .formParam("client_secret", CLIENT_SECRET)
+            .formParam("redirect_uri", REDIRECT_URI)
+            .formParam("code_verifier", codeVerifier)
+            .when()
+            .post("/oauth2/token")
+            .then()
+            .statusCode(200)
+            .extract()
+            .jsonPath().getString("access_token");
+    }
+
+    private String generateCodeVerifier() {
+        SecureRandom secureRandom = new SecureRandom();
+        byte[] code = new byte[32];
+        secureRandom.nextBytes(code);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(code);
+    }
+
+    private String generateCodeChallenge(String codeVerifier) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] hash = digest.digest(codeVerifier.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    private String extractRequestId(String url) {
+        Pattern pathPattern = Pattern.compile("/signin/([^/?]+)");
+        Matcher pathMatcher = pathPattern.matcher(url);
+        if (pathMatcher.find()) {
+            return pathMatcher.group(1);
+        }
+        return null;
+    }
+
+    private String extractParameter(String url, String paramName) {
+        Pattern pattern = Pattern.compile(paramName + "=([^&]+)");
+        Matcher matcher = pattern.matcher(url);
+        if (matcher.find()) {
+            return matcher.group(1);
+        }
+        return null;
+    }
+}
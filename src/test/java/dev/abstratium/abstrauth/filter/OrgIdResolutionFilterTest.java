@@ -4,12 +4,11 @@ import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.security.TestSecurity;
 import io.quarkus.test.security.oidc.Claim;
 import io.quarkus.test.security.oidc.OidcSecurity;
-import jakarta.enterprise.inject.Instance;
 import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.core.UriInfo;
 import dev.abstratium.abstrauth.service.CurrentOrgContext;
+import dev.abstratium.abstrauth.service.RequestTokenContext;
 
-import org.eclipse.microprofile.jwt.JsonWebToken;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
@@ -20,8 +19,6 @@ import static io.restassured.RestAssured.given;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @QuarkusTest
@@ -76,462 +73,77 @@ public class OrgIdResolutionFilterTest {
     }
 
     // ═══════════════════════════════════════════════════════════
-    // Unit tests – directly instantiate the filter with mocks
+    // Unit tests – directly instantiate the filter with a mocked identity
     // ═══════════════════════════════════════════════════════════
 
     @Test
-    void filter_withIdTokenNotResolvableAndAccessTokenResolvable_setsFromAccessToken() throws IOException {
+    void filter_withVerifiedToken_setsOrgId() throws IOException {
         CurrentOrgContext ctx = new CurrentOrgContext();
-        OrgIdResolutionFilter filter = new OrgIdResolutionFilter();
-        filter.currentOrgContext = ctx;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> idToken = mock(Instance.class);
-        when(idToken.isResolvable()).thenReturn(false);
-        filter.idTokenInstance = idToken;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> accessToken = mock(Instance.class);
-        JsonWebToken token = mock(JsonWebToken.class);
-        when(accessToken.isResolvable()).thenReturn(true);
-        when(accessToken.get()).thenReturn(token);
-        when(token.getClaim("orgId")).thenReturn(TEST_ORG_ID);
-        filter.accessTokenInstance = accessToken;
-
-        ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
-        UriInfo uriInfo = mock(UriInfo.class);
-        when(requestContext.getUriInfo()).thenReturn(uriInfo);
-        when(uriInfo.getPath()).thenReturn("/test");
+        OrgIdResolutionFilter filter = filter(ctx, claims(TEST_ORG_ID));
 
-        filter.filter(requestContext);
+        filter.filter(request(null));
         assertEquals(TEST_ORG_ID, ctx.getOrgId());
+        assertEquals("/test", ctx.getRequestPath());
     }
 
     @Test
-    void filter_withBlankIdTokenClaimAndAccessTokenClaim_setsFromAccessToken() throws IOException {
-        CurrentOrgContext ctx = new CurrentOrgContext();
-        OrgIdResolutionFilter filter = new OrgIdResolutionFilter();
-        filter.currentOrgContext = ctx;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> idToken = mock(Instance.class);
-        JsonWebToken idJwt = mock(JsonWebToken.class);
-        when(idToken.isResolvable()).thenReturn(true);
-        when(idToken.get()).thenReturn(idJwt);
-        when(idJwt.getClaim("orgId")).thenReturn("   ");
-        filter.idTokenInstance = idToken;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> accessToken = mock(Instance.class);
-        JsonWebToken accJwt = mock(JsonWebToken.class);
-        when(accessToken.isResolvable()).thenReturn(true);
-        when(accessToken.get()).thenReturn(accJwt);
-        when(accJwt.getClaim("orgId")).thenReturn(TEST_ORG_ID);
-        filter.accessTokenInstance = accessToken;
-
-        ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
-        UriInfo uriInfo = mock(UriInfo.class);
-        when(requestContext.getUriInfo()).thenReturn(uriInfo);
-        when(uriInfo.getPath()).thenReturn("/test");
-
-        filter.filter(requestContext);
-        assertEquals(TEST_ORG_ID, ctx.getOrgId());
-    }
-
-    @Test
-    void filter_withIdTokenException_fallsThrough() throws IOException {
-        CurrentOrgContext ctx = new CurrentOrgContext();
-        OrgIdResolutionFilter filter = new OrgIdResolutionFilter();
-        filter.currentOrgContext = ctx;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> idToken = mock(Instance.class);
-        when(idToken.isResolvable()).thenReturn(true);
-        when(idToken.get()).thenThrow(new RuntimeException("token error"));
-        filter.idTokenInstance = idToken;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> accessToken = mock(Instance.class);
-        when(accessToken.isResolvable()).thenReturn(false);
-        filter.accessTokenInstance = accessToken;
-
-        ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
-        UriInfo uriInfo = mock(UriInfo.class);
-        when(requestContext.getUriInfo()).thenReturn(uriInfo);
-        when(uriInfo.getPath()).thenReturn("/test");
-
-        filter.filter(requestContext);
-        assertNull(ctx.getOrgId());
-    }
-
-    @Test
-    void filter_withAccessTokenException_fallsThrough() throws IOException {
-        CurrentOrgContext ctx = new CurrentOrgContext();
-        OrgIdResolutionFilter filter = new OrgIdResolutionFilter();
-        filter.currentOrgContext = ctx;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> idToken = mock(Instance.class);
-        when(idToken.isResolvable()).thenReturn(false);
-        filter.idTokenInstance = idToken;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> accessToken = mock(Instance.class);
-        when(accessToken.isResolvable()).thenReturn(true);
-        when(accessToken.get()).thenThrow(new RuntimeException("token error"));
-        filter.accessTokenInstance = accessToken;
-
-        ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
-        UriInfo uriInfo = mock(UriInfo.class);
-        when(requestContext.getUriInfo()).thenReturn(uriInfo);
-        when(uriInfo.getPath()).thenReturn("/test");
-
-        filter.filter(requestContext);
-        assertNull(ctx.getOrgId());
-    }
-
-    @Test
-    void filter_withBearerHeader_extractsOrgId() throws IOException {
+    void filter_withBlankOrgIdClaim_setsNothing() throws IOException {
         CurrentOrgContext ctx = new CurrentOrgContext();
-        OrgIdResolutionFilter filter = new OrgIdResolutionFilter();
-        filter.currentOrgContext = ctx;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> idToken = mock(Instance.class);
-        when(idToken.isResolvable()).thenReturn(false);
-        filter.idTokenInstance = idToken;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> accessToken = mock(Instance.class);
-        when(accessToken.isResolvable()).thenReturn(false);
-        filter.accessTokenInstance = accessToken;
-
-        ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
-        UriInfo uriInfo = mock(UriInfo.class);
-        when(requestContext.getUriInfo()).thenReturn(uriInfo);
-        when(uriInfo.getPath()).thenReturn("/test");
-        String token = buildBearerToken("{\"sub\":\"user\",\"orgId\":\"" + TEST_ORG_ID + "\"}");
-        when(requestContext.getHeaderString("Authorization")).thenReturn("Bearer " + token);
+        OrgIdResolutionFilter filter = filter(ctx, claims("   "));
 
-        filter.filter(requestContext);
+        filter.filter(request(null));
         assertNull(ctx.getOrgId());
     }
 
     @Test
-    void filter_withBearerHeaderBlankOrgId_setsNothing() throws IOException {
+    void filter_withMissingOrgIdClaim_setsNothing() throws IOException {
         CurrentOrgContext ctx = new CurrentOrgContext();
-        OrgIdResolutionFilter filter = new OrgIdResolutionFilter();
-        filter.currentOrgContext = ctx;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> idToken = mock(Instance.class);
-        when(idToken.isResolvable()).thenReturn(false);
-        filter.idTokenInstance = idToken;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> accessToken = mock(Instance.class);
-        when(accessToken.isResolvable()).thenReturn(false);
-        filter.accessTokenInstance = accessToken;
-
-        ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
-        UriInfo uriInfo = mock(UriInfo.class);
-        when(requestContext.getUriInfo()).thenReturn(uriInfo);
-        when(uriInfo.getPath()).thenReturn("/test");
-        String token = buildBearerToken("{\"sub\":\"user\",\"orgId\":\"\"}");
-        when(requestContext.getHeaderString("Authorization")).thenReturn("Bearer " + token);
-
-        filter.filter(requestContext);
-        assertNull(ctx.getOrgId());
-    }
-
-    @Test
-    void filter_withMalformedBearerHeader_setsNothing() throws IOException {
-        CurrentOrgContext ctx = new CurrentOrgContext();
-        OrgIdResolutionFilter filter = new OrgIdResolutionFilter();
-        filter.currentOrgContext = ctx;
+        OrgIdResolutionFilter filter = filter(ctx, claims(null));
 
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> idToken = mock(Instance.class);
-        when(idToken.isResolvable()).thenReturn(false);
-        filter.idTokenInstance = idToken;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> accessToken = mock(Instance.class);
-        when(accessToken.isResolvable()).thenReturn(false);
-        filter.accessTokenInstance = accessToken;
-
-        ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
-        UriInfo uriInfo = mock(UriInfo.class);
-        when(requestContext.getUriInfo()).thenReturn(uriInfo);
-        when(uriInfo.getPath()).thenReturn("/test");
-        when(requestContext.getHeaderString("Authorization")).thenReturn("Bearer notavalidjwt");
-
-        filter.filter(requestContext);
+        filter.filter(request(null));
         assertNull(ctx.getOrgId());
     }
 
     @Test
-    void filter_withNoAuthHeader_setsNothing() throws IOException {
+    void filter_withoutToken_setsNothing() throws IOException {
         CurrentOrgContext ctx = new CurrentOrgContext();
-        OrgIdResolutionFilter filter = new OrgIdResolutionFilter();
-        filter.currentOrgContext = ctx;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> idToken = mock(Instance.class);
-        when(idToken.isResolvable()).thenReturn(false);
-        filter.idTokenInstance = idToken;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> accessToken = mock(Instance.class);
-        when(accessToken.isResolvable()).thenReturn(false);
-        filter.accessTokenInstance = accessToken;
+        OrgIdResolutionFilter filter = filter(ctx, null);
 
-        ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
-        UriInfo uriInfo = mock(UriInfo.class);
-        when(requestContext.getUriInfo()).thenReturn(uriInfo);
-        when(uriInfo.getPath()).thenReturn("/test");
-        when(requestContext.getHeaderString("Authorization")).thenReturn(null);
-
-        filter.filter(requestContext);
+        filter.filter(request(null));
         assertNull(ctx.getOrgId());
     }
 
     @Test
-    void filter_withNonBearerAuthHeader_setsNothing() throws IOException {
+    void filter_withUnverifiedBearerHeader_ignoresHeader() throws IOException {
+        // only the verified token counts, a header on its own is never decoded
         CurrentOrgContext ctx = new CurrentOrgContext();
-        OrgIdResolutionFilter filter = new OrgIdResolutionFilter();
-        filter.currentOrgContext = ctx;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> idToken = mock(Instance.class);
-        when(idToken.isResolvable()).thenReturn(false);
-        filter.idTokenInstance = idToken;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> accessToken = mock(Instance.class);
-        when(accessToken.isResolvable()).thenReturn(false);
-        filter.accessTokenInstance = accessToken;
-
-        ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
-        UriInfo uriInfo = mock(UriInfo.class);
-        when(requestContext.getUriInfo()).thenReturn(uriInfo);
-        when(uriInfo.getPath()).thenReturn("/test");
-        when(requestContext.getHeaderString("Authorization")).thenReturn("Basic dXNlcjpwYXNz");
-
-        filter.filter(requestContext);
-        assertNull(ctx.getOrgId());
-    }
-
-    @Test
-    void filter_withBearerHeaderMissingOrgId_setsNothing() throws IOException {
-        CurrentOrgContext ctx = new CurrentOrgContext();
-        OrgIdResolutionFilter filter = new OrgIdResolutionFilter();
-        filter.currentOrgContext = ctx;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> idToken = mock(Instance.class);
-        when(idToken.isResolvable()).thenReturn(false);
-        filter.idTokenInstance = idToken;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> accessToken = mock(Instance.class);
-        when(accessToken.isResolvable()).thenReturn(false);
-        filter.accessTokenInstance = accessToken;
-
-        ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
-        UriInfo uriInfo = mock(UriInfo.class);
-        when(requestContext.getUriInfo()).thenReturn(uriInfo);
-        when(uriInfo.getPath()).thenReturn("/test");
-        String token = buildBearerToken("{\"sub\":\"user\"}");
-        when(requestContext.getHeaderString("Authorization")).thenReturn("Bearer " + token);
+        OrgIdResolutionFilter filter = filter(ctx, null);
+        String token = buildBearerToken("{\"sub\":\"user\",\"orgId\":\"" + TEST_ORG_ID + "\"}");
 
-        filter.filter(requestContext);
+        filter.filter(request("Bearer " + token));
         assertNull(ctx.getOrgId());
     }
 
-    @Test
-    void filter_withBearerHeaderInvalidBase64_setsNothing() throws IOException {
-        CurrentOrgContext ctx = new CurrentOrgContext();
+    private static OrgIdResolutionFilter filter(CurrentOrgContext ctx, RequestTokenContext.TokenClaims claims) {
+        RequestTokenContext requestTokenContext = mock(RequestTokenContext.class);
+        when(requestTokenContext.claims()).thenReturn(claims);
         OrgIdResolutionFilter filter = new OrgIdResolutionFilter();
         filter.currentOrgContext = ctx;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> idToken = mock(Instance.class);
-        when(idToken.isResolvable()).thenReturn(false);
-        filter.idTokenInstance = idToken;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> accessToken = mock(Instance.class);
-        when(accessToken.isResolvable()).thenReturn(false);
-        filter.accessTokenInstance = accessToken;
-
-        ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
-        UriInfo uriInfo = mock(UriInfo.class);
-        when(requestContext.getUriInfo()).thenReturn(uriInfo);
-        when(uriInfo.getPath()).thenReturn("/test");
-        when(requestContext.getHeaderString("Authorization"))
-                .thenReturn("Bearer header.!!!invalid!!!.sig");
-
-        filter.filter(requestContext);
-        assertNull(ctx.getOrgId());
+        filter.requestTokenContext = requestTokenContext;
+        return filter;
     }
 
-    @Test
-    void filter_withBearerHeaderOrgIdAsFirstClaim_extractsCorrectly() throws IOException {
-        CurrentOrgContext ctx = new CurrentOrgContext();
-        OrgIdResolutionFilter filter = new OrgIdResolutionFilter();
-        filter.currentOrgContext = ctx;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> idToken = mock(Instance.class);
-        when(idToken.isResolvable()).thenReturn(false);
-        filter.idTokenInstance = idToken;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> accessToken = mock(Instance.class);
-        when(accessToken.isResolvable()).thenReturn(false);
-        filter.accessTokenInstance = accessToken;
-
-        ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
-        UriInfo uriInfo = mock(UriInfo.class);
-        when(requestContext.getUriInfo()).thenReturn(uriInfo);
-        when(uriInfo.getPath()).thenReturn("/test");
-        String token = buildBearerToken("{\"orgId\":\"" + TEST_ORG_ID + "\",\"sub\":\"user\"}");
-        when(requestContext.getHeaderString("Authorization")).thenReturn("Bearer " + token);
-
-        filter.filter(requestContext);
-        assertNull(ctx.getOrgId());
+    private static RequestTokenContext.TokenClaims claims(String orgId) {
+        return new RequestTokenContext.TokenClaims("user", null, null, orgId, 0);
     }
 
-    @Test
-    void filter_withBearerHeaderMissingClosingQuote_setsNothing() throws IOException {
-        CurrentOrgContext ctx = new CurrentOrgContext();
-        OrgIdResolutionFilter filter = new OrgIdResolutionFilter();
-        filter.currentOrgContext = ctx;
-
-        filter.idTokenInstance = null;
-        filter.accessTokenInstance = null;
-
+    private static ContainerRequestContext request(String authorization) {
         ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
         UriInfo uriInfo = mock(UriInfo.class);
         when(requestContext.getUriInfo()).thenReturn(uriInfo);
         when(uriInfo.getPath()).thenReturn("/test");
-        String payload = Base64.getUrlEncoder().withoutPadding()
-                .encodeToString("{\"orgId\":\"no_closing".getBytes(StandardCharsets.UTF_8));
-        String token = Base64.getUrlEncoder().withoutPadding()
-                .encodeToString("{\"alg\":\"PS256\"}".getBytes(StandardCharsets.UTF_8))
-                + "." + payload + ".fakesig";
-        when(requestContext.getHeaderString("Authorization")).thenReturn("Bearer " + token);
-
-        filter.filter(requestContext);
-        assertNull(ctx.getOrgId());
-    }
-
-    @Test
-    void filter_withNullIdTokenInstance_skipsToAccessToken() throws IOException {
-        CurrentOrgContext ctx = new CurrentOrgContext();
-        OrgIdResolutionFilter filter = new OrgIdResolutionFilter();
-        filter.currentOrgContext = ctx;
-
-        filter.idTokenInstance = null;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> accessToken = mock(Instance.class);
-        JsonWebToken accJwt = mock(JsonWebToken.class);
-        when(accessToken.isResolvable()).thenReturn(true);
-        when(accessToken.get()).thenReturn(accJwt);
-        when(accJwt.getClaim("orgId")).thenReturn(TEST_ORG_ID);
-        filter.accessTokenInstance = accessToken;
-
-        ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
-        UriInfo uriInfo = mock(UriInfo.class);
-        when(requestContext.getUriInfo()).thenReturn(uriInfo);
-        when(uriInfo.getPath()).thenReturn("/test");
-
-        filter.filter(requestContext);
-        assertEquals(TEST_ORG_ID, ctx.getOrgId());
-    }
-
-    @Test
-    void filter_withNullAccessTokenInstance_skipsToHeader() throws IOException {
-        CurrentOrgContext ctx = new CurrentOrgContext();
-        OrgIdResolutionFilter filter = new OrgIdResolutionFilter();
-        filter.currentOrgContext = ctx;
-
-        filter.idTokenInstance = null;
-        filter.accessTokenInstance = null;
-
-        ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
-        UriInfo uriInfo = mock(UriInfo.class);
-        when(requestContext.getUriInfo()).thenReturn(uriInfo);
-        when(uriInfo.getPath()).thenReturn("/test");
-        String token = buildBearerToken("{\"sub\":\"user\",\"orgId\":\"" + TEST_ORG_ID + "\"}");
-        when(requestContext.getHeaderString("Authorization")).thenReturn("Bearer " + token);
-
-        filter.filter(requestContext);
-        assertNull(ctx.getOrgId());
-    }
-
-    @Test
-    void filter_withBlankAccessTokenClaim_setsNothing() throws IOException {
-        CurrentOrgContext ctx = new CurrentOrgContext();
-        OrgIdResolutionFilter filter = new OrgIdResolutionFilter();
-        filter.currentOrgContext = ctx;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> idToken = mock(Instance.class);
-        when(idToken.isResolvable()).thenReturn(false);
-        filter.idTokenInstance = idToken;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> accessToken = mock(Instance.class);
-        JsonWebToken accessJwt = mock(JsonWebToken.class);
-        when(accessToken.isResolvable()).thenReturn(true);
-        when(accessToken.get()).thenReturn(accessJwt);
-        when(accessJwt.getClaim("orgId")).thenReturn(" ");
-        filter.accessTokenInstance = accessToken;
-
-        ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
-        UriInfo uriInfo = mock(UriInfo.class);
-        when(requestContext.getUriInfo()).thenReturn(uriInfo);
-        when(uriInfo.getPath()).thenReturn("api/journals");
-
-        filter.filter(requestContext);
-
-        assertNull(ctx.getOrgId());
-    }
-
-    @Test
-    void filter_withConflictingTokenClaims_prefersIdToken() throws IOException {
-        CurrentOrgContext ctx = new CurrentOrgContext();
-        OrgIdResolutionFilter filter = new OrgIdResolutionFilter();
-        filter.currentOrgContext = ctx;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> idToken = mock(Instance.class);
-        JsonWebToken idJwt = mock(JsonWebToken.class);
-        when(idToken.isResolvable()).thenReturn(true);
-        when(idToken.get()).thenReturn(idJwt);
-        when(idJwt.getClaim("orgId")).thenReturn(TEST_ORG_ID);
-        filter.idTokenInstance = idToken;
-
-        @SuppressWarnings("unchecked")
-        Instance<JsonWebToken> accessToken = mock(Instance.class);
-        JsonWebToken accessJwt = mock(JsonWebToken.class);
-        when(accessToken.isResolvable()).thenReturn(true);
-        when(accessToken.get()).thenReturn(accessJwt);
-        when(accessJwt.getClaim("orgId")).thenReturn("other-org");
-        filter.accessTokenInstance = accessToken;
-
-        ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
-        UriInfo uriInfo = mock(UriInfo.class);
-        when(requestContext.getUriInfo()).thenReturn(uriInfo);
-        when(uriInfo.getPath()).thenReturn("api/journals");
-
-        filter.filter(requestContext);
-
-        assertEquals(TEST_ORG_ID, ctx.getOrgId());
-        verify(accessToken, never()).isResolvable();
+        when(requestContext.getHeaderString("Authorization")).thenReturn(authorization);
+        return requestContext;
     }
 
     private String buildBearerToken(String payloadJson) {
@@ -9,8 +9,21 @@ import org.junit.jupiter.api.Test;
 
 import java.util.Map;
 
+import org.mockito.ArgumentCaptor;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Tests for RateLimitFilter to verify rate limiting is applied to OAuth endpoints.
@@ -151,4 +164,74 @@ class RateLimitFilterTest {
             "Remaining count should decrease with each request"
         );
     }
+
+    // Unit tests - the filter created directly, with mocked requests
+
+    private static RateLimitFilter newFilter(int maxRequests, int windowSeconds, int banDurationSeconds, int maxEntries) {
+        RateLimitFilter filter = new RateLimitFilter();
+        filter.rateLimitEnabled = true;
+        filter.maxRequests = maxRequests;
+        filter.windowSeconds = windowSeconds;
+        filter.banDurationSeconds = banDurationSeconds;
+        filter.maxEntries = maxEntries;
+        return filter;
+    }
+
+    private static ContainerRequestContext tokenRequest(String ip) {
+        ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
+        UriInfo uriInfo = mock(UriInfo.class);
+        when(requestContext.getUriInfo()).thenReturn(uriInfo);
+        when(uriInfo.getPath()).thenReturn("/oauth2/token");
+        when(requestContext.getHeaderString("X-Forwarded-For")).thenReturn(ip + ", 10.0.0.1");
+        return requestContext;
+    }
+
+    private static Response aborted(ContainerRequestContext requestContext) {
+        ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+        verify(requestContext).abortWith(response.capture());
+        return response.getValue();
+    }
+
+    @Test
+    void bucketAllowsABurstThenBansTheIp() throws Exception {
+        RateLimitFilter filter = newFilter(2, 60, 300, 1000);
+
+        for (int i = 0; i < 2; i++) {
+            ContainerRequestContext request = tokenRequest("192.0.2.1");
+            filter.filter(request);
+            verify(request, never()).abortWith(any());
+            verify(request).setProperty("X-RateLimit-Remaining", 1 - i);
+        }
+
+        ContainerRequestContext exceeded = tokenRequest("192.0.2.1");
+        filter.filter(exceeded);
+        Response first = aborted(exceeded);
+        assertEquals(429, first.getStatus());
+        assertEquals("Rate limit exceeded. Too many requests from your IP address.", first.getEntity());
+
+        // the ban outlasts the refill of the bucket
+        ContainerRequestContext banned = tokenRequest("192.0.2.1");
+        filter.filter(banned);
+        Response again = aborted(banned);
+        assertEquals(429, again.getStatus());
+        assertEquals("Rate limit exceeded. Please try again later.", again.getEntity());
+
+        // other IPs have their own bucket
+        ContainerRequestContext other = tokenRequest("192.0.2.2");
+        filter.filter(other);
+        verify(other, never()).abortWith(any());
+    }
+
+    @Test
+    void trackedIpsAreCapped() throws Exception {
+        RateLimitFilter filter = newFilter(10, 60, 300, 100);
+
+        for (int i = 0; i < 1000; i++) {
+            filter.filter(tokenRequest("198.51.100." + i));
+        }
+
+        assertTrue(filter.trackedIps() <= 100, "tracked " + filter.trackedIps());
+        filter.clearAll();
+        assertEquals(0, filter.trackedIps());
+    }
 }
@@ -1,5 +1,6 @@
 package dev.abstratium.abstrauth.filter;
 
+import dev.abstratium.abstrauth.service.RevocationEpochService;
 import dev.abstratium.abstrauth.service.TokenRevocationService;
 import dev.abstratium.abstrauth.util.TestTransactionHelper;
 import io.quarkus.test.junit.QuarkusTest;
@@ -9,10 +10,13 @@ import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
 import java.util.UUID;
 
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Tests for TokenRevocationFilter.
@@ -24,6 +28,9 @@ class TokenRevocationFilterTest {
     @Inject
     TokenRevocationService tokenRevocationService;
 
+    @Inject
+    RevocationEpochService revocationEpochService;
+
     @Inject
     EntityManager em;
 
@@ -35,7 +42,9 @@ class TokenRevocationFilterTest {
         // Clean up test data
         transactionHelper.beginTransaction();
         em.createQuery("DELETE FROM RevokedToken").executeUpdate();
+        em.createQuery("DELETE FROM RevocationEpoch").executeUpdate();
         transactionHelper.commitTransaction();
+        revocationEpochService.clear();
     }
 
     @Test
@@ -85,6 +94,93 @@ class TokenRevocationFilterTest {
         tokenRevocationService.revokeToken(jti, "test_revocation");
     }
 
+    @Test
+    void testTokensOfRevokedAccountCannotAccessProtectedResource() {
+        // Given: A valid JWT token of an account (/api/organisations is not tenant-scoped, so no orgId is needed)
+        String accountId = UUID.randomUUID().toString();
+        String token = generateTokenForAccount(accountId);
+
+        given()
+                .header("Authorization", "Bearer " + token)
+        .when()
+                .get("/api/organisations")
+        .then()
+                .statusCode(200);
+
+        // When: All tokens of the account are revoked
+        revocationEpochService.revokeAccount(accountId, "test_revocation");
+
+        // Then: The token no longer works, although its jti was never revoked
+        given()
+                .header("Authorization", "Bearer " + token)
+        .when()
+                .get("/api/organisations")
+        .then()
+                .statusCode(401)
+                .body("error", equalTo("invalid_token"))
+                .body("error_description", containsString("revoked"));
+
+        // And: Tokens of other accounts are not affected
+        given()
+                .header("Authorization", "Bearer " + generateTokenForAccount(UUID.randomUUID().toString()))
+        .when()
+                .get("/api/organisations")
+        .then()
+                .statusCode(200);
+    }
+
+    @Test
+    void testTokensOfRevokedClientCannotAccessProtectedResource() {
+        String clientId = "revoked-client-" + UUID.randomUUID();
+        String token = Jwt.issuer("https://dev.abstrauth.abstratium.dev").audience("abstratium-abstrauth")
+                .upn("test@example.com")
+                .groups(java.util.Set.of("abstratium-abstrauth_user", "abstratium-abstrauth_manage-clients"))
+                .claim("jti", UUID.randomUUID().toString())
+                .claim("client_id", clientId)
+                .sign();
+
+        revocationEpochService.revokeClient(clientId, "test_revocation");
+
+        given()
+                .header("Authorization", "Bearer " + token)
+        .when()
+                .get("/api/clients")
+        .then()
+                .statusCode(401)
+                .body("error_description", containsString("revoked"));
+    }
+
+    @Test
+    void testEpochOnlyRevokesTokensIssuedAtOrBeforeIt() {
+        String orgId = UUID.randomUUID().toString();
+        long now = Instant.now().getEpochSecond();
+
+        revocationEpochService.revokeOrganisation(orgId, "test_revocation");
+
+        assertTrue(revocationEpochService.isRevoked(null, null, orgId, now - 60));
+        assertTrue(revocationEpochService.isRevoked(null, null, orgId, now));
+        assertFalse(revocationEpochService.isRevoked(null, null, orgId, now + 60));
+        assertFalse(revocationEpochService.isRevoked(null, null, UUID.randomUUID().toString(), now - 60));
+        assertFalse(revocationEpochService.isRevoked(null, null, null, now - 60));
+    }
+
+    @Test
+    void testEpochsAreReloadedFromTheDatabase() {
+        String accountId = UUID.randomUUID().toString();
+        long now = Instant.now().getEpochSecond();
+        revocationEpochService.revokeAccount(accountId, "test_revocation");
+
+        // Given: An instance that has not seen the epoch yet
+        revocationEpochService.clear();
+        assertFalse(revocationEpochService.isRevoked(accountId, null, null, now));
+
+        // When: It refreshes
+        revocationEpochService.refresh();
+
+        // Then: The epoch applies
+        assertTrue(revocationEpochService.isRevoked(accountId, null, null, now));
+    }
+
     @Test
     void testRequestWithoutTokenIsNotAffected() {
         // When: Accessing a protected resource without a token
@@ -129,4 +225,16 @@ class TokenRevocationFilterTest {
                 .claim("jti", jti)
                 .sign();
     }
+
+    /**
+     * Generate a valid JWT token with the given account as subject.
+     */
+    private String generateTokenForAccount(String accountId) {
+        return Jwt.issuer("https://dev.abstrauth.abstratium.dev").audience("abstratium-abstrauth")
+                .subject(accountId)
+                .upn("test@example.com")
+                .groups(java.util.Set.of("abstratium-abstrauth_user", "abstratium-abstrauth_manage-clients"))
+                .claim("jti", UUID.randomUUID().toString())
+                .sign();
+    }
 }
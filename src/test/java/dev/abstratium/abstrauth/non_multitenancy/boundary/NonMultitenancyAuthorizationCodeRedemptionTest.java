@@ -0,0 +1,247 @@
+package dev.abstratium.abstrauth.non_multitenancy.boundary;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.abstratium.abstrauth.boundary.OverloadedException;
+import dev.abstratium.abstrauth.entity.AuthorizationCode;
+import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyUserTokenService;
+import dev.abstratium.abstrauth.service.AccountService;
+import dev.abstratium.abstrauth.service.AuthorizationService;
+import dev.abstratium.abstrauth.service.TokenRevocationService;
+import dev.abstratium.abstrauth.util.TestDatabaseResetHelper;
+import dev.abstratium.abstrauth.util.TestTransactionHelper;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.mockito.InjectSpy;
+import io.restassured.response.Response;
+import jakarta.inject.Inject;
+
+/**
+ * Tests for authorization code redemption: the code is stored by its digest only, and it is
+ * consumed with a single conditional update so that of several concurrent redemptions exactly
+ * one succeeds.
+ */
+@QuarkusTest
+public class NonMultitenancyAuthorizationCodeRedemptionTest {
+
+    private static final String CLIENT_ID = "abstratium-abstrauth";
+    private static final String CLIENT_SECRET = "dev-secret-CHANGE-IN-PROD";
+    private static final String REDIRECT_URI = "http://localhost:8080/api/auth/callback";
+    private static final int PARALLEL_REDEMPTIONS = 8;
+
+    @Inject
+    AccountService accountService;
+
+    @Inject
+    AuthorizationService authorizationService;
+
+    @Inject
+    TokenRevocationService tokenRevocationService;
+
+    @Inject
+    TestTransactionHelper transactionHelper;
+
+    @Inject
+    TestDatabaseResetHelper dbResetHelper;
+
+    @InjectSpy
+    NonMultitenancyUserTokenService userTokenService;
+
+    @BeforeEach
+    public void setup() {
+        dbResetHelper.resetDatabase();
+    }
+
+    @Test
+    public void testCodeIsKeyedByItsDigest() throws Exception {
+        Login login = authorize("digest");
+
+        Optional<AuthorizationCode> found = authorizationService.findAuthorizationCode(login.code());
+        assertTrue(found.isPresent());
+        assertEquals(AuthorizationCode.idForCode(login.code()), found.get().getId());
+        assertEquals(64, found.get().getId().length());
+
+        Optional<AuthorizationService.CodeRedemption> redemption = authorizationService.findCodeRedemption(login.code());
+        assertTrue(redemption.isPresent());
+        assertEquals(login.username() + "@example.com", redemption.get().account().getEmail());
+        assertEquals(AccountService.NATIVE, redemption.get().authMethod());
+        assertNotNull(redemption.get().orgId());
+        assertTrue(redemption.get().member());
+
+        assertTrue(authorizationService.findCodeRedemption("no-such-code").isEmpty());
+    }
+
+    @Test
+    public void testClaimSucceedsOnlyOnce() throws Exception {
+        Login login = authorize("claim");
+        String id = AuthorizationCode.idForCode(login.code());
+
+        assertTrue(authorizationService.claimAuthorizationCode(id));
+        assertFalse(authorizationService.claimAuthorizationCode(id));
+        assertTrue(authorizationService.findAuthorizationCode(login.code()).orElseThrow().getUsed());
+    }
+
+    @Test
+    public void testParallelRedemptionsOfOneCodeYieldExactlyOneToken() throws Exception {
+        Login login = authorize("parallel");
+
+        ExecutorService pool = Executors.newFixedThreadPool(PARALLEL_REDEMPTIONS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Response>> results = new ArrayList<>();
+            for (int i = 0; i < PARALLEL_REDEMPTIONS; i++) {
+                Callable<Response> redeem = () -> {
+                    start.await();
+                    return redeem(login);
+                };
+                results.add(pool.submit(redeem));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            int replayed = 0;
+            for (Future<Response> result : results) {
+                Response response = result.get(30, TimeUnit.SECONDS);
+                if (response.statusCode() == 200) {
+                    succeeded++;
+                    assertNotNull(response.jsonPath().getString("access_token"));
+                } else {
+                    assertEquals(400, response.statusCode());
+                    assertEquals("invalid_grant", response.jsonPath().getString("error"));
+                    assertEquals("Authorization code has already been used", response.jsonPath().getString("error_description"));
+                    replayed++;
+                }
+            }
+            assertEquals(1, succeeded);
+            assertEquals(PARALLEL_REDEMPTIONS - 1, replayed);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // the replays were detected and recorded
+        assertTrue(tokenRevocationService.isAuthorizationCodeCompromised(AuthorizationCode.idForCode(login.code())));
+    }
+
+    @Test
+    public void testSequentialReplayIsRejected() throws Exception {
+        Login login = authorize("sequential");
+
+        assertEquals(200, redeem(login).statusCode());
+
+        Response replay = redeem(login);
+        assertEquals(400, replay.statusCode());
+        assertEquals("Authorization code has already been used", replay.jsonPath().getString("error_description"));
+    }
+
+    @Test
+    public void testCodeSurvivesSigningRejectedAfterCapacityCheck() throws Exception {
+        Login login = authorize("overload");
+
+        // the signing queue fills up between the capacity check and the signing
+        doThrow(new OverloadedException("Token signing capacity exceeded, please retry", 3))
+                .doCallRealMethod()
+                .when(userTokenService).generateAccessToken(any(), any(), any(), any(), any(), any(), any());
+
+        Response rejected = redeem(login);
+        assertEquals(503, rejected.statusCode());
+        assertEquals("3", rejected.getHeader("Retry-After"));
+        assertFalse(authorizationService.findAuthorizationCode(login.code()).orElseThrow().getUsed());
+
+        // the retry the client was told to make is not a replay
+        Response retried = redeem(login);
+        assertEquals(200, retried.statusCode());
+        assertNotNull(retried.jsonPath().getString("access_token"));
+        assertFalse(tokenRevocationService.isAuthorizationCodeCompromised(AuthorizationCode.idForCode(login.code())));
+    }
+
+    // ─────────────────────────────────────────────────────────
+    // Helpers
+    // ─────────────────────────────────────────────────────────
+
+    private record Login(String username, String code, String verifier) {
+    }
+
+    private Response redeem(Login login) {
+        return given()
+                .formParam("grant_type", "authorization_code")
+                .formParam("code", login.code())
+                .formParam("client_id", CLIENT_ID)
+                .formParam("client_secret", CLIENT_SECRET)
+                .formParam("redirect_uri", REDIRECT_URI)
+                .formParam("code_verifier", login.verifier())
+                .post("/oauth2/token");
+    }
+
+    /**
+     * Run the authorization part of the code flow with PKCE and return the issued code.
+     */
+    private Login authorize(String suffix) throws Exception {
+        String username = "redeem_" + suffix + "_" + System.currentTimeMillis();
+        transactionHelper.beginTransaction();
+        accountService.createAccount(username + "@example.com", "Redeem " + suffix, username,
+                "Pass123!", AccountService.NATIVE, null);
+        transactionHelper.commitTransaction();
+
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        String verifier = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+        String challenge = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                MessageDigest.getInstance("SHA-256").digest(verifier.getBytes(StandardCharsets.UTF_8)));
+
+        Response authorize = given()
+                .queryParam("response_type", "code")
+                .queryParam("client_id", CLIENT_ID)
+                .queryParam("redirect_uri", REDIRECT_URI)
+                .queryParam("scope", "openid profile email")
+                .queryParam("code_challenge", challenge)
+                .queryParam("code_challenge_method", "S256")
+                .redirects().follow(false)
+                .get("/oauth2/authorize")
+                .then().statusCode(303).extract().response();
+        String requestId = extract(authorize.getHeader("Location"), "/signin/([^/?]+)");
+
+        given()
+                .formParam("username", username)
+                .formParam("password", "Pass123!")
+                .formParam("request_id", requestId)
+                .post("/oauth2/authorize/authenticate")
+                .then().statusCode(200);
+
+        Response consent = given()
+                .formParam("consent", "approve")
+                .formParam("request_id", requestId)
+                .redirects().follow(false)
+                .post("/oauth2/authorize")
+                .then().statusCode(303).extract().response();
+        String code = java.net.URLDecoder.decode(extract(consent.getHeader("Location"), "code=([^&]+)"), StandardCharsets.UTF_8);
+
+        return new Login(username, code, verifier);
+    }
+
+    private static String extract(String url, String regex) {
+        Matcher m = Pattern.compile(regex).matcher(url);
+        assertTrue(m.find(), "No match for " + regex + " in " + url);
+        return m.group(1);
+    }
+}
@@ -0,0 +1,197 @@
+package dev.abstratium.abstrauth.non_multitenancy.boundary;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyTokenPrecomputer;
+import dev.abstratium.abstrauth.service.AccountService;
+import dev.abstratium.abstrauth.util.TestDatabaseResetHelper;
+import dev.abstratium.abstrauth.util.TestTransactionHelper;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.restassured.response.Response;
+import jakarta.inject.Inject;
+
+/**
+ * Tests for precomputed tokens: with abstrauth.token.precompute.enabled the tokens of an
+ * authorization code are minted when the code is issued and returned on redemption, and the
+ * token endpoint mints them itself when none are available.
+ */
+@QuarkusTest
+@TestProfile(NonMultitenancyPrecomputedTokenTest.TestProfile.class)
+public class NonMultitenancyPrecomputedTokenTest {
+
+    private static final String CLIENT_ID = "abstratium-abstrauth";
+    private static final String CLIENT_SECRET = "dev-secret-CHANGE-IN-PROD";
+    private static final String REDIRECT_URI = "http://localhost:8080/api/auth/callback";
+
+    public static class TestProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            // wait long enough for the background minting, so that the tests do not depend on timing
+            return Map.of(
+                    "abstrauth.token.precompute.enabled", "true",
+                    "abstrauth.token.precompute.wait.millis", "10000");
+        }
+    }
+
+    @Inject
+    AccountService accountService;
+
+    @Inject
+    NonMultitenancyTokenPrecomputer tokenPrecomputer;
+
+    @Inject
+    TestTransactionHelper transactionHelper;
+
+    @Inject
+    TestDatabaseResetHelper dbResetHelper;
+
+    @BeforeEach
+    public void setup() {
+        dbResetHelper.resetDatabase();
+    }
+
+    @Test
+    public void testRedemptionReturnsPrecomputedTokens() throws Exception {
+        Login login = authorize("used");
+        long used = tokenPrecomputer.getUsedCount();
+
+        Response response = redeem(login);
+        assertEquals(200, response.statusCode());
+        assertEquals(used + 1, tokenPrecomputer.getUsedCount());
+        assertEquals(0, tokenPrecomputer.size());
+
+        String accessToken = response.jsonPath().getString("access_token");
+        assertEquals(3, accessToken.split("\\.").length);
+        assertNotNull(response.jsonPath().getString("id_token"));
+        assertNotNull(response.jsonPath().getString("refresh_token"));
+        int expiresIn = response.jsonPath().getInt("expires_in");
+        assertTrue(expiresIn > 0 && expiresIn <= 900, "expires_in counts from code issuance: " + expiresIn);
+
+        // the precomputed token is a regular access token of the account
+        given()
+                .header("Authorization", "Bearer " + accessToken)
+                .get("/oauth2/userinfo")
+                .then()
+                .statusCode(200)
+                .body("email", equalTo(login.username() + "@example.com"));
+    }
+
+    @Test
+    public void testMissingPrecomputedTokensAreMintedInline() throws Exception {
+        Login login = authorize("missed");
+        tokenPrecomputer.clear();
+        long missed = tokenPrecomputer.getMissedCount();
+
+        Response response = redeem(login);
+        assertEquals(200, response.statusCode());
+        assertEquals(missed + 1, tokenPrecomputer.getMissedCount());
+        assertNotNull(response.jsonPath().getString("access_token"));
+        assertNotNull(response.jsonPath().getString("id_token"));
+        assertEquals(900, response.jsonPath().getInt("expires_in"));
+    }
+
+    @Test
+    public void testPrecomputedCodeCannotBeReplayed() throws Exception {
+        Login login = authorize("replay");
+
+        assertEquals(200, redeem(login).statusCode());
+
+        Response replay = redeem(login);
+        assertEquals(400, replay.statusCode());
+        assertEquals("Authorization code has already been used", replay.jsonPath().getString("error_description"));
+    }
+
+    @Test
+    public void testPkceIsStillVerified() throws Exception {
+        Login login = authorize("pkce");
+
+        Response response = redeem(new Login(login.username(), login.code(), "wrong-verifier-wrong-verifier-wrong-verifier"));
+        assertEquals(400, response.statusCode());
+        assertEquals("PKCE code_verifier verification failed", response.jsonPath().getString("error_description"));
+    }
+
+    // ─────────────────────────────────────────────────────────
+    // Helpers
+    // ─────────────────────────────────────────────────────────
+
+    private record Login(String username, String code, String verifier) {
+    }
+
+    private Response redeem(Login login) {
+        return given()
+                .formParam("grant_type", "authorization_code")
+                .formParam("code", login.code())
+                .formParam("client_id", CLIENT_ID)
+                .formParam("client_secret", CLIENT_SECRET)
+                .formParam("redirect_uri", REDIRECT_URI)
+                .formParam("code_verifier", login.verifier())
+                .post("/oauth2/token");
+    }
+
+    /**
+     * Run the authorization part of the code flow with PKCE and return the issued code.
+     */
+    private Login authorize(String suffix) throws Exception {
+        String username = "precompute_" + suffix + "_" + System.currentTimeMillis();
+        transactionHelper.beginTransaction();
+        accountService.createAccount(username + "@example.com", "Precompute " + suffix, username,
+                "Pass123!", AccountService.NATIVE, null);
+        transactionHelper.commitTransaction();
+
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        String verifier = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+        String challenge = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                MessageDigest.getInstance("SHA-256").digest(verifier.getBytes(StandardCharsets.UTF_8)));
+
+        Response authorize = given()
+                .queryParam("response_type", "code")
+                .queryParam("client_id", CLIENT_ID)
+                .queryParam("redirect_uri", REDIRECT_URI)
+                .queryParam("scope", "openid profile email")
+                .queryParam("code_challenge", challenge)
+                .queryParam("code_challenge_method", "S256")
+                .redirects().follow(false)
+                .get("/oauth2/authorize")
+                .then().statusCode(303).extract().response();
+        String requestId = extract(authorize.getHeader("Location"), "/signin/([^/?]+)");
+
+        given()
+                .formParam("username", username)
+                .formParam("password", "Pass123!")
+                .formParam("request_id", requestId)
+                .post("/oauth2/authorize/authenticate")
+                .then().statusCode(200);
+
+        Response consent = given()
+                .formParam("consent", "approve")
+                .formParam("request_id", requestId)
+                .redirects().follow(false)
+                .post("/oauth2/authorize")
+                .then().statusCode(303).extract().response();
+        String code = java.net.URLDecoder.decode(extract(consent.getHeader("Location"), "code=([^&]+)"), StandardCharsets.UTF_8);
+
+        return new Login(username, code, verifier);
+    }
+
+    private static String extract(String url, String regex) {
+        Matcher m = Pattern.compile(regex).matcher(url);
+        assertTrue(m.find(), "No match for " + regex + " in " + url);
+        return m.group(1);
+    }
+}
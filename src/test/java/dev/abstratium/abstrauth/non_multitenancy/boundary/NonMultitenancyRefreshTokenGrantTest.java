@@ -0,0 +1,276 @@
+package dev.abstratium.abstrauth.non_multitenancy.boundary;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.abstratium.abstrauth.entity.RefreshToken;
+import dev.abstratium.abstrauth.service.AccountService;
+import dev.abstratium.abstrauth.service.RefreshTokenService;
+import dev.abstratium.abstrauth.service.TokenRevocationService;
+import dev.abstratium.abstrauth.util.TestDatabaseResetHelper;
+import dev.abstratium.abstrauth.util.TestTransactionHelper;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.response.Response;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+
+/**
+ * Tests for the refresh_token grant: rotation, reuse detection with family revocation,
+ * scope narrowing and client binding.
+ */
+@QuarkusTest
+public class NonMultitenancyRefreshTokenGrantTest {
+
+    private static final String CLIENT_ID = "abstratium-abstrauth";
+    private static final String CLIENT_SECRET = "dev-secret-CHANGE-IN-PROD";
+    private static final String REDIRECT_URI = "http://localhost:8080/api/auth/callback";
+
+    @Inject
+    AccountService accountService;
+
+    @Inject
+    RefreshTokenService refreshTokenService;
+
+    @Inject
+    TokenRevocationService tokenRevocationService;
+
+    @Inject
+    TestTransactionHelper transactionHelper;
+
+    @Inject
+    TestDatabaseResetHelper dbResetHelper;
+
+    @BeforeEach
+    public void setup() {
+        dbResetHelper.resetDatabase();
+    }
+
+    @Test
+    public void testAuthorizationCodeGrantIssuesRefreshTokenStoredAsDigest() throws Exception {
+        Response tokens = login("issue");
+
+        String refreshToken = tokens.jsonPath().getString("refresh_token");
+        assertNotNull(refreshToken);
+
+        RefreshToken row = refreshTokenService.findByToken(refreshToken).orElseThrow();
+        assertNotEquals(refreshToken, row.getTokenHash());
+        assertEquals(64, row.getTokenHash().length());
+        assertEquals(row.getId(), row.getFamilyId());
+        assertEquals(jti(tokens.jsonPath().getString("access_token")), row.getAccessTokenJti());
+    }
+
+    @Test
+    public void testRefreshRotatesTokenAndIssuesNewAccessToken() throws Exception {
+        Response tokens = login("rotate");
+        String first = tokens.jsonPath().getString("refresh_token");
+
+        Response refreshed = refresh(first, null)
+                .then()
+                .statusCode(200)
+                .body("access_token", notNullValue())
+                .body("id_token", notNullValue())
+                .body("refresh_token", notNullValue())
+                .body("token_type", equalTo("Bearer"))
+                .body("scope", equalTo("openid profile email"))
+                .extract().response();
+
+        String second = refreshed.jsonPath().getString("refresh_token");
+        assertNotEquals(first, second);
+        assertNotEquals(jti(tokens.jsonPath().getString("access_token")),
+                jti(refreshed.jsonPath().getString("access_token")));
+
+        RefreshToken firstRow = refreshTokenService.findByToken(first).orElseThrow();
+        RefreshToken secondRow = refreshTokenService.findByToken(second).orElseThrow();
+        assertNotNull(firstRow.getUsedAt());
+        assertNull(secondRow.getUsedAt());
+        assertEquals(firstRow.getFamilyId(), secondRow.getFamilyId());
+        assertEquals(firstRow.getFamilyExpiresAt(), secondRow.getFamilyExpiresAt());
+
+        // the successor can be used in turn
+        refresh(second, null).then().statusCode(200);
+    }
+
+    @Test
+    public void testReuseOfRotatedTokenRevokesFamily() throws Exception {
+        Response tokens = login("reuse");
+        String first = tokens.jsonPath().getString("refresh_token");
+
+        Response refreshed = refresh(first, null).then().statusCode(200).extract().response();
+        String second = refreshed.jsonPath().getString("refresh_token");
+
+        // an attacker replays the first token
+        refresh(first, null)
+                .then()
+                .statusCode(400)
+                .body("error", equalTo("invalid_grant"))
+                .body("error_description", containsString("already been used"));
+
+        // the legitimate successor is revoked as well
+        refresh(second, null)
+                .then()
+                .statusCode(400)
+                .body("error", equalTo("invalid_grant"))
+                .body("error_description", containsString("revoked"));
+
+        // and so are the access tokens issued with the family
+        assertTrue(tokenRevocationService.isTokenRevoked(jti(tokens.jsonPath().getString("access_token"))));
+        assertTrue(tokenRevocationService.isTokenRevoked(jti(refreshed.jsonPath().getString("access_token"))));
+    }
+
+    @Test
+    public void testRefreshCanNarrowButNotWidenScope() throws Exception {
+        String refreshToken = login("scope").jsonPath().getString("refresh_token");
+
+        refresh(refreshToken, "openid api:write")
+                .then()
+                .statusCode(400)
+                .body("error", equalTo("invalid_scope"));
+
+        Response narrowed = refresh(refreshToken, "openid")
+                .then()
+                .statusCode(200)
+                .body("scope", equalTo("openid"))
+                .extract().response();
+
+        JsonObject claims = payload(narrowed.jsonPath().getString("access_token"));
+        assertFalse(claims.containsKey("email"));
+        assertFalse(claims.containsKey("name"));
+
+        // the rotated refresh token keeps the original scope
+        RefreshToken successor = refreshTokenService.findByToken(narrowed.jsonPath().getString("refresh_token")).orElseThrow();
+        assertEquals("openid profile email", successor.getScope());
+    }
+
+    @Test
+    public void testRefreshTokenIsBoundToClient() throws Exception {
+        String refreshToken = login("client").jsonPath().getString("refresh_token");
+
+        given()
+                .formParam("grant_type", "refresh_token")
+                .formParam("refresh_token", refreshToken)
+                .formParam("client_id", CLIENT_ID)
+                .formParam("client_secret", "wrong-secret")
+                .post("/oauth2/token")
+                .then()
+                .statusCode(401)
+                .body("error", equalTo("invalid_client"));
+
+        // a failed attempt must not consume the token
+        refresh(refreshToken, null).then().statusCode(200);
+    }
+
+    @Test
+    public void testAuthorizationCodeReplayRevokesRefreshTokens() throws Exception {
+        Response tokens = login("codereplay");
+        String refreshToken = tokens.jsonPath().getString("refresh_token");
+        RefreshToken row = refreshTokenService.findByToken(refreshToken).orElseThrow();
+
+        tokenRevocationService.revokeTokensByAuthorizationCode(row.getAuthorizationCodeId(), "authorization_code_replay_detected");
+
+        refresh(refreshToken, null)
+                .then()
+                .statusCode(400)
+                .body("error", equalTo("invalid_grant"));
+        assertTrue(tokenRevocationService.isTokenRevoked(jti(tokens.jsonPath().getString("access_token"))));
+    }
+
+    // ─────────────────────────────────────────────────────────
+    // Helpers
+    // ─────────────────────────────────────────────────────────
+
+    private Response refresh(String refreshToken, String scope) {
+        var request = given()
+                .formParam("grant_type", "refresh_token")
+                .formParam("refresh_token", refreshToken)
+                .formParam("client_id", CLIENT_ID)
+                .formParam("client_secret", CLIENT_SECRET);
+        if (scope != null) {
+            request.formParam("scope", scope);
+        }
+        return request.post("/oauth2/token");
+    }
+
+    /**
+     * Run the authorization code flow with PKCE and return the token response.
+     */
+    private Response login(String suffix) throws Exception {
+        String username = "refresh_" + suffix + "_" + System.currentTimeMillis();
+        transactionHelper.beginTransaction();
+        accountService.createAccount(username + "@example.com", "Refresh " + suffix, username,
+                "Pass123!", AccountService.NATIVE, null);
+        transactionHelper.commitTransaction();
+
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        String verifier = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+        String challenge = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                MessageDigest.getInstance("SHA-256").digest(verifier.getBytes(StandardCharsets.UTF_8)));
+
+        Response authorize = given()
+                .queryParam("response_type", "code")
+                .queryParam("client_id", CLIENT_ID)
+                .queryParam("redirect_uri", REDIRECT_URI)
+                .queryParam("scope", "openid profile email")
+                .queryParam("code_challenge", challenge)
+                .queryParam("code_challenge_method", "S256")
+                .redirects().follow(false)
+                .get("/oauth2/authorize")
+                .then().statusCode(303).extract().response();
+        String requestId = extract(authorize.getHeader("Location"), "/signin/([^/?]+)");
+
+        given()
+                .formParam("username", username)
+                .formParam("password", "Pass123!")
+                .formParam("request_id", requestId)
+                .post("/oauth2/authorize/authenticate")
+                .then().statusCode(200);
+
+        Response consent = given()
+                .formParam("consent", "approve")
+                .formParam("request_id", requestId)
+                .redirects().follow(false)
+                .post("/oauth2/authorize")
+                .then().statusCode(303).extract().response();
+        String code = extract(consent.getHeader("Location"), "code=([^&]+)");
+
+        return given()
+                .formParam("grant_type", "authorization_code")
+                .formParam("code", code)
+                .formParam("client_id", CLIENT_ID)
+                .formParam("client_secret", CLIENT_SECRET)
+                .formParam("redirect_uri", REDIRECT_URI)
+                .formParam("code_verifier", verifier)
+                .post("/oauth2/token")
+                .then()
+                .statusCode(200)
+                .body("refresh_token", notNullValue())
+                .extract().response();
+    }
+
+    private static String extract(String url, String regex) {
+        Matcher m = Pattern.compile(regex).matcher(url);
+        assertTrue(m.find(), "No match for " + regex + " in " + url);
+        return m.group(1);
+    }
+
+    private static JsonObject payload(String jwt) {
+        String json = new String(Base64.getUrlDecoder().decode(jwt.split("\\.")[1]), StandardCharsets.UTF_8);
+        return Json.createReader(new java.io.StringReader(json)).readObject();
+    }
+
+    private static String jti(String jwt) {
+        return payload(jwt).getString("jti");
+    }
+}
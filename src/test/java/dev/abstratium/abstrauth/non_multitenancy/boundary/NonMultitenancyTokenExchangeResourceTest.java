@@ -656,6 +656,120 @@ public class NonMultitenancyTokenExchangeResourceTest {
             .body("grant_types_supported", org.hamcrest.Matchers.hasItem(GRANT_TYPE));
     }
 
+    // ─────────────────────────────────────────────────────────────────────
+    // Batch exchange tests (POST /oauth2/token/exchange/batch)
+    // ─────────────────────────────────────────────────────────────────────
+
+    @Test
+    public void testBatchExchangeIssuesOneTokenPerAudienceWithErrorEntries() throws Exception {
+        Account account = accountService.createAccount(
+            "batch_user_" + System.currentTimeMillis() + "@example.com",
+            "Batch User", "batch_user_" + System.currentTimeMillis(),
+            "Pass123!", AccountService.NATIVE, null);
+
+        String ordersClientId = createClientWithDefaultRole("batch-orders", "user", defaultOrgId);
+        String billingClientId = createClientWithDefaultRole("batch-billing", "viewer", defaultOrgId);
+
+        String subjectToken = Jwt.issuer(issuer)
+            .subject(account.getId())
+            .audience(ABSTRAUTH_CLIENT_ID)
+            .claim("orgId", defaultOrgId)
+            .claim("scope", "openid profile")
+            .claim("client_id", ABSTRAUTH_CLIENT_ID)
+            .claim("auth_method", "native")
+            .claim("jti", java.util.UUID.randomUUID().toString())
+            .expiresAt(Instant.now().plusSeconds(900))
+            .jws().keyId("abstrauth-key-1").sign();
+
+        Response response = given()
+            .formParam("grant_type", GRANT_TYPE)
+            .formParam("subject_token", subjectToken)
+            .formParam("subject_token_type", TOKEN_TYPE)
+            .formParam("audience", ordersClientId)
+            .formParam("audience", "non-existent-client")
+            .formParam("audience", billingClientId)
+            .formParam("audience", ordersClientId) // duplicates are ignored
+            .formParam("client_id", ABSTRAUTH_CLIENT_ID)
+            .formParam("client_secret", ABSTRAUTH_CLIENT_SECRET)
+            .when().post("/oauth2/token/exchange/batch")
+            .then()
+            .statusCode(200)
+            .body("tokens.size()", equalTo(3))
+            .body("tokens[0].audience", equalTo(ordersClientId))
+            .body("tokens[0].token_type", equalTo("Bearer"))
+            .body("tokens[0].issued_token_type", equalTo(TOKEN_TYPE))
+            .body("tokens[1].audience", equalTo("non-existent-client"))
+            .body("tokens[1].error", equalTo("invalid_request"))
+            .body("tokens[1].error_description", containsString("audience client does not exist"))
+            .body("tokens[1].access_token", org.hamcrest.Matchers.nullValue())
+            .body("tokens[2].audience", equalTo(billingClientId))
+            .extract().response();
+
+        JsonObject orders = decodeJwtPayload(response.jsonPath().getString("tokens[0].access_token"));
+        assertEquals(account.getId(), orders.getString("sub"));
+        assertEquals(ordersClientId, getAudience(orders));
+        assertEquals(ABSTRAUTH_CLIENT_ID, orders.getJsonObject("act").getString("sub"));
+        assertEquals(ordersClientId + "_user", orders.getJsonArray("groups").getString(0));
+
+        JsonObject billing = decodeJwtPayload(response.jsonPath().getString("tokens[2].access_token"));
+        assertEquals(billingClientId, getAudience(billing));
+        assertEquals(billingClientId + "_viewer", billing.getJsonArray("groups").getString(0));
+        assertTrue(!orders.getString("jti").equals(billing.getString("jti")), "each token has its own jti");
+    }
+
+    @Test
+    public void testBatchExchangeWithRevokedSubjectTokenRejectsWholeRequest() throws Exception {
+        String jti = java.util.UUID.randomUUID().toString();
+        String token = buildJwtWithJti(issuer, "user-123", defaultOrgId,
+                Instant.now().plusSeconds(900), "openid", jti);
+        tokenRevocationService.revokeToken(jti, "test");
+
+        given()
+            .formParam("grant_type", GRANT_TYPE)
+            .formParam("subject_token", token)
+            .formParam("subject_token_type", TOKEN_TYPE)
+            .formParam("audience", ABSTRAUTH_CLIENT_ID)
+            .formParam("audience", "another-client")
+            .formParam("client_id", ABSTRAUTH_CLIENT_ID)
+            .formParam("client_secret", ABSTRAUTH_CLIENT_SECRET)
+            .when().post("/oauth2/token/exchange/batch")
+            .then().statusCode(400)
+            .body("error", equalTo("invalid_grant"))
+            .body("tokens", org.hamcrest.Matchers.nullValue());
+    }
+
+    @Test
+    public void testBatchExchangeWithoutAudienceReturns400() {
+        given()
+            .formParam("grant_type", GRANT_TYPE)
+            .formParam("subject_token", "some.jwt.token")
+            .formParam("subject_token_type", TOKEN_TYPE)
+            .formParam("client_id", ABSTRAUTH_CLIENT_ID)
+            .formParam("client_secret", ABSTRAUTH_CLIENT_SECRET)
+            .when().post("/oauth2/token/exchange/batch")
+            .then().statusCode(400)
+            .body("error", equalTo("invalid_request"))
+            .body("error_description", containsString("audience is required"));
+    }
+
+    @Test
+    public void testBatchExchangeWithTooManyAudiencesReturns400() {
+        var request = given()
+            .formParam("grant_type", GRANT_TYPE)
+            .formParam("subject_token", "some.jwt.token")
+            .formParam("subject_token_type", TOKEN_TYPE)
+            .formParam("client_id", ABSTRAUTH_CLIENT_ID)
+            .formParam("client_secret", ABSTRAUTH_CLIENT_SECRET);
+        for (int i = 0; i < 21; i++) {
+            request.formParam("audience", "client-" + i);
+        }
+        request
+            .when().post("/oauth2/token/exchange/batch")
+            .then().statusCode(400)
+            .body("error", equalTo("invalid_request"))
+            .body("error_description", containsString("At most 20 audiences"));
+    }
+
     // ─────────────────────────────────────────────────────────────────────
     // Helpers
     // ─────────────────────────────────────────────────────────────────────
@@ -277,17 +277,18 @@ public class NonMultitenancyTokenResourceTest {
     }
 
     @Test
-    public void testTokenEndpointWithRefreshTokenGrant() {
+    public void testTokenEndpointWithUnknownRefreshToken() {
         given()
             .formParam("grant_type", "refresh_token")
             .formParam("refresh_token", "some_refresh_token")
             .formParam("client_id", CLIENT_ID)
+            .formParam("client_secret", CLIENT_SECRET)
             .when()
             .post("/oauth2/token")
             .then()
             .statusCode(400)
-            .body("error", equalTo("unsupported_grant_type"))
-            .body("error_description", containsString("not yet implemented"));
+            .body("error", equalTo("invalid_grant"))
+            .body("error_description", containsString("invalid or expired"));
     }
 
     @Test
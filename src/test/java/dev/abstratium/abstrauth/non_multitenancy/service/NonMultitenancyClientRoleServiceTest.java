@@ -2,12 +2,15 @@ package dev.abstratium.abstrauth.non_multitenancy.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import dev.abstratium.abstrauth.non_multitenancy.entity.NonMultitenancyClientRole;
+import dev.abstratium.abstrauth.service.ClientCredentialsTokenCache;
 import dev.abstratium.abstrauth.util.TestDatabaseResetHelper;
 import dev.abstratium.abstrauth.util.TestTransactionHelper;
 import io.quarkus.test.junit.QuarkusTest;
@@ -32,6 +35,9 @@ public class NonMultitenancyClientRoleServiceTest {
     @Inject
     TestDatabaseResetHelper dbResetHelper;
 
+    @Inject
+    ClientCredentialsTokenCache clientCredentialsTokenCache;
+
     @ConfigProperty(name = "default.org.uuid")
     String defaultOrgId;
 
@@ -181,4 +187,52 @@ public class NonMultitenancyClientRoleServiceTest {
         assertEquals(TEST_TARGET_CLIENT_ID, found.getTargetClientId());
         assertNotNull(found.getCreatedAt());
     }
+
+    @Test
+    public void testRemovingRoleDropsTokensCachedBeforeCommit() throws Exception {
+        persistRole("admin");
+        clientCredentialsTokenCache.clear();
+
+        transactionHelper.beginTransaction();
+        nonMultitenancyClientRoleService.removeClientRolesForTargetAndRole(TEST_TARGET_CLIENT_ID, "admin");
+        // a concurrent client_credentials request still reads the committed role and caches its token
+        storeToken();
+        transactionHelper.commitTransaction();
+
+        assertFalse(reusable());
+    }
+
+    @Test
+    public void testRolledBackRoleRemovalKeepsReusableTokens() throws Exception {
+        persistRole("admin");
+        clientCredentialsTokenCache.clear();
+        storeToken();
+
+        transactionHelper.beginTransaction();
+        nonMultitenancyClientRoleService.removeClientRolesForTargetAndRole(TEST_TARGET_CLIENT_ID, "admin");
+        transactionHelper.rollback();
+
+        assertTrue(reusable());
+    }
+
+    private void persistRole(String roleName) throws Exception {
+        transactionHelper.beginTransaction();
+        NonMultitenancyClientRole role = new NonMultitenancyClientRole();
+        role.setRole(roleName);
+        role.setOrgId(defaultOrgId);
+        role.setSrcClientId(TEST_SRC_CLIENT_ID);
+        role.setTargetClientId(TEST_TARGET_CLIENT_ID);
+        em.persist(role);
+        transactionHelper.commitTransaction();
+    }
+
+    private void storeToken() {
+        Instant now = Instant.now();
+        clientCredentialsTokenCache.store(TEST_SRC_CLIENT_ID, defaultOrgId, Set.of("openid"), "token", "jti-token",
+                now, now.plusSeconds(3600), clientCredentialsTokenCache.generation());
+    }
+
+    private boolean reusable() {
+        return clientCredentialsTokenCache.find(TEST_SRC_CLIENT_ID, defaultOrgId, Set.of("openid")).isPresent();
+    }
 }
@@ -0,0 +1,150 @@
+package dev.abstratium.abstrauth.non_multitenancy.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.abstratium.abstrauth.entity.Account;
+import dev.abstratium.abstrauth.entity.ClientAllowedRole;
+import dev.abstratium.abstrauth.entity.DefaultAssignment;
+import dev.abstratium.abstrauth.service.AccountService;
+import dev.abstratium.abstrauth.service.DefaultRoleSeeder;
+import dev.abstratium.abstrauth.service.OrganisationService;
+import dev.abstratium.abstrauth.service.Roles;
+import dev.abstratium.abstrauth.util.TestDatabaseResetHelper;
+import dev.abstratium.abstrauth.util.TestTransactionHelper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Tests for the request-scoped lookup memoization used by the token endpoints.
+ */
+@QuarkusTest
+public class RequestLookupCacheTest {
+
+    private static final String SEEDED_CLIENT_ID = "client-a";
+
+    @Inject
+    RequestLookupCache lookups;
+
+    @Inject
+    AccountService accountService;
+
+    @Inject
+    OrganisationService organisationService;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    DefaultRoleSeeder defaultRoleSeeder;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    TestTransactionHelper transactionHelper;
+
+    @Inject
+    TestDatabaseResetHelper dbResetHelper;
+
+    private ManagedContext requestContext;
+    private String accountId;
+    private String orgId;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        dbResetHelper.resetDatabase();
+        String username = "lookup_" + System.currentTimeMillis();
+        transactionHelper.beginTransaction();
+        Account account = accountService.createAccount(username + "@example.com", "Lookup", username,
+                "Pass123!", AccountService.NATIVE, null);
+        transactionHelper.commitTransaction();
+        accountId = account.getId();
+        orgId = organisationService.listOrganisationsForAccount(accountId).get(0).getId();
+
+        requestContext = Arc.container().requestContext();
+        requestContext.activate();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (requestContext.isActive()) {
+            requestContext.terminate();
+        }
+    }
+
+    @Test
+    public void testRepeatedLookupsAreAnsweredFromTheCache() {
+        var client = lookups.findClient(Roles.CLIENT_ID);
+        assertTrue(client.isPresent());
+        assertEquals(0, lookups.getSavedCount());
+
+        assertSame(client.get(), lookups.findClient(Roles.CLIENT_ID).get());
+        assertEquals(1, lookups.getSavedCount());
+
+        assertTrue(lookups.findClient("no-such-client").isEmpty());
+        assertTrue(lookups.findClient("no-such-client").isEmpty());
+        assertEquals(2, lookups.getSavedCount());
+
+        assertTrue(lookups.isMember(orgId, accountId));
+        assertTrue(lookups.isMember(orgId, accountId));
+        assertEquals(lookups.isOwner(orgId, accountId), lookups.isOwner(orgId, accountId));
+        assertEquals(4, lookups.getSavedCount());
+
+        assertEquals(lookups.findSubscription(orgId, Roles.CLIENT_ID).isPresent(),
+                lookups.findSubscription(orgId, Roles.CLIENT_ID).isPresent());
+        assertEquals(5, lookups.getSavedCount());
+    }
+
+    @Test
+    public void testRoleCheckAndTokenGenerationShareOneQuery() {
+        boolean hasRoles = lookups.hasAnyRoleForClient(accountId, Roles.CLIENT_ID, orgId);
+        Set<String> roles = lookups.findRoles(accountId, Roles.CLIENT_ID, orgId);
+        assertEquals(hasRoles, !roles.isEmpty());
+        // access token and ID token
+        assertSame(roles, lookups.findRoles(accountId, Roles.CLIENT_ID, orgId));
+        assertEquals(2, lookups.getSavedCount());
+    }
+
+    @Test
+    public void testSeedingEvictsTheRoles() throws Exception {
+        transactionHelper.beginTransaction();
+        ClientAllowedRole role = new ClientAllowedRole();
+        role.setClientId(SEEDED_CLIENT_ID);
+        role.setRole("lookup-cache-test");
+        role.setDefaultAssignment(DefaultAssignment.ALL_USERS);
+        role.setAvailableToForeignOrgs(true);
+        em.persist(role);
+        transactionHelper.commitTransaction();
+        defaultRoleSeeder.invalidateClient(SEEDED_CLIENT_ID);
+
+        assertTrue(lookups.findRoles(accountId, SEEDED_CLIENT_ID, orgId).isEmpty());
+
+        lookups.seedDefaultRolesIfNone(accountId, SEEDED_CLIENT_ID, orgId);
+
+        assertEquals(Set.of("lookup-cache-test"), lookups.findRoles(accountId, SEEDED_CLIENT_ID, orgId));
+        // only the role check inside the seeding was answered from the cache
+        assertEquals(1, lookups.getSavedCount());
+    }
+
+    @Test
+    public void testSavedLookupsAreCountedWhenTheRequestEnds() {
+        double before = registry.counter("abstrauth.request.lookup.saved").count();
+
+        lookups.findClient(Roles.CLIENT_ID);
+        lookups.findClient(Roles.CLIENT_ID);
+        lookups.findClient(Roles.CLIENT_ID);
+        requestContext.terminate();
+
+        assertEquals(before + 2, registry.counter("abstrauth.request.lookup.saved").count());
+    }
+}
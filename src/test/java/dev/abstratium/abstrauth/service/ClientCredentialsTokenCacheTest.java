@@ -0,0 +1,114 @@
+package dev.abstratium.abstrauth.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+
+/**
+ * Tests for the reuse of client_credentials tokens.
+ */
+@QuarkusTest
+public class ClientCredentialsTokenCacheTest {
+
+    @Inject
+    ClientCredentialsTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache.clear();
+    }
+
+    @Test
+    public void testReuseIsOptIn() {
+        assertFalse(cache.isEnabledFor("some-client"));
+    }
+
+    @Test
+    public void testStoredTokenIsReusedForSameScopesInAnyOrder() {
+        Instant now = Instant.now();
+        cache.store("batch-client", "org-1", Set.of("read", "write"), "token-1", "jti-1",
+                now, now.plusSeconds(3600), cache.generation());
+
+        long reused = cache.getReusedCount();
+        var cached = cache.find("batch-client", "org-1", new LinkedHashSet<>(List.of("write", "read")));
+
+        assertTrue(cached.isPresent());
+        assertEquals("token-1", cached.get().accessToken());
+        assertTrue(cached.get().remainingSeconds() > 3500);
+        assertEquals(reused + 1, cache.getReusedCount());
+    }
+
+    @Test
+    public void testDifferentScopesOrOrgAreNotReused() {
+        Instant now = Instant.now();
+        cache.store("batch-client", "org-1", Set.of("read"), "token-1", "jti-1",
+                now, now.plusSeconds(3600), cache.generation());
+
+        assertFalse(cache.find("batch-client", "org-1", Set.of("read", "write")).isPresent());
+        assertFalse(cache.find("batch-client", "org-2", Set.of("read")).isPresent());
+        assertFalse(cache.find("other-client", "org-1", Set.of("read")).isPresent());
+    }
+
+    @Test
+    public void testTokenPastMinimumRemainingLifetimeIsNotReused() {
+        // issued 40 minutes ago - less than half of its lifetime is left
+        Instant issuedAt = Instant.now().minusSeconds(2400);
+        cache.store("batch-client", "org-1", Set.of("read"), "token-1", "jti-1",
+                issuedAt, issuedAt.plusSeconds(3600), cache.generation());
+
+        assertFalse(cache.find("batch-client", "org-1", Set.of("read")).isPresent());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidateClientDropsOnlyThatClient() {
+        Instant now = Instant.now();
+        cache.store("batch-client", "org-1", Set.of("read"), "token-1", "jti-1",
+                now, now.plusSeconds(3600), cache.generation());
+        cache.store("other-client", "org-1", Set.of("read"), "token-2", "jti-2",
+                now, now.plusSeconds(3600), cache.generation());
+
+        cache.invalidateClient("batch-client");
+
+        assertFalse(cache.find("batch-client", "org-1", Set.of("read")).isPresent());
+        assertTrue(cache.find("other-client", "org-1", Set.of("read")).isPresent());
+    }
+
+    @Test
+    public void testTokenMintedBeforeInvalidationIsNotStored() {
+        long generation = cache.generation();
+        // a role is removed while the token is being minted
+        cache.invalidateClient("batch-client");
+
+        Instant now = Instant.now();
+        cache.store("batch-client", "org-1", Set.of("read"), "token-1", "jti-1",
+                now, now.plusSeconds(3600), generation);
+
+        assertFalse(cache.find("batch-client", "org-1", Set.of("read")).isPresent());
+    }
+
+    @Test
+    public void testInvalidateTokensDropsRevokedToken() {
+        Instant now = Instant.now();
+        cache.store("batch-client", "org-1", Set.of("read"), "token-1", "jti-1",
+                now, now.plusSeconds(3600), cache.generation());
+        cache.store("batch-client", "org-1", Set.of("write"), "token-2", "jti-2",
+                now, now.plusSeconds(3600), cache.generation());
+
+        cache.invalidateTokens(Set.of("jti-1"));
+
+        assertFalse(cache.find("batch-client", "org-1", Set.of("read")).isPresent());
+        assertEquals("jti-2", cache.find("batch-client", "org-1", Set.of("write")).orElseThrow().jti());
+    }
+}
@@ -0,0 +1,115 @@
+package dev.abstratium.abstrauth.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.abstratium.abstrauth.entity.ClientSecret;
+import dev.abstratium.abstrauth.entity.OAuthClient;
+import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyClientSecretService;
+import dev.abstratium.abstrauth.util.PasswordEncoder;
+import dev.abstratium.abstrauth.util.TestTransactionHelper;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+/**
+ * Tests that revoking a client secret drops its cached verifications only once the change is
+ * committed.
+ */
+@QuarkusTest
+public class ClientSecretServiceTest {
+
+    private static final String CLIENT = "test-service-secret-cache";
+    private static final String SECRET = "secret-cache-test-secret";
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    PasswordEncoder passwordEncoder;
+
+    @Inject
+    ClientSecretService clientSecretService;
+
+    @Inject
+    NonMultitenancyClientSecretService nonMultitenancyClientSecretService;
+
+    @Inject
+    ClientSecretVerificationCache verificationCache;
+
+    @Inject
+    TestTransactionHelper transactionHelper;
+
+    private Long secretId;
+
+    @BeforeEach
+    @Transactional
+    public void setup() {
+        em.createQuery("DELETE FROM ClientSecret WHERE clientId = :clientId").setParameter("clientId", CLIENT).executeUpdate();
+        em.createQuery("DELETE FROM OAuthClient WHERE clientId = :clientId").setParameter("clientId", CLIENT).executeUpdate();
+        em.flush();
+        verificationCache.clear();
+
+        OAuthClient client = new OAuthClient();
+        client.setClientId(CLIENT);
+        client.setClientName("Secret Cache Test Client");
+        client.setClientType("confidential");
+        client.setRedirectUris("");
+        client.setAllowedScopes("api:read");
+        client.setRequirePkce(false);
+        em.persist(client);
+
+        ClientSecret secret = new ClientSecret();
+        secret.setClientId(CLIENT);
+        secret.setSecretHash(passwordEncoder.hashClientSecret(SECRET));
+        secret.setDescription("Test secret");
+        secret.setActive(true);
+        em.persist(secret);
+        em.flush();
+        secretId = secret.getId();
+    }
+
+    @Test
+    public void testVerificationCachedBeforeCommitIsDroppedOnDeactivate() throws Exception {
+        assertTrue(nonMultitenancyClientSecretService.verifySecret(CLIENT, SECRET));
+
+        transactionHelper.beginTransaction();
+        clientSecretService.deactivate(secretId);
+        // a concurrent request still reads the committed, active secret and caches it again
+        verificationCache.recordVerified(CLIENT, SECRET, null, verificationCache.generation());
+        transactionHelper.commitTransaction();
+
+        assertFalse(verificationCache.isVerified(CLIENT, SECRET));
+        assertFalse(nonMultitenancyClientSecretService.verifySecret(CLIENT, SECRET));
+    }
+
+    @Test
+    public void testRolledBackDeactivationKeepsTheCache() throws Exception {
+        assertTrue(nonMultitenancyClientSecretService.verifySecret(CLIENT, SECRET));
+
+        transactionHelper.beginTransaction();
+        clientSecretService.deactivate(secretId);
+        transactionHelper.rollback();
+
+        assertTrue(verificationCache.isVerified(CLIENT, SECRET));
+        assertTrue(nonMultitenancyClientSecretService.verifySecret(CLIENT, SECRET));
+    }
+
+    @Test
+    public void testVerificationCachedBeforeCommitIsDroppedOnDelete() throws Exception {
+        transactionHelper.beginTransaction();
+        clientSecretService.deactivate(secretId);
+        transactionHelper.commitTransaction();
+
+        transactionHelper.beginTransaction();
+        clientSecretService.delete(secretId);
+        verificationCache.recordVerified(CLIENT, SECRET, null, verificationCache.generation());
+        transactionHelper.commitTransaction();
+
+        assertFalse(verificationCache.isVerified(CLIENT, SECRET));
+    }
+}
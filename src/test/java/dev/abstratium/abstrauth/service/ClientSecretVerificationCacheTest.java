@@ -0,0 +1,88 @@
+package dev.abstratium.abstrauth.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+
+/**
+ * Tests for the verified client secret cache used by the token endpoints.
+ */
+@QuarkusTest
+public class ClientSecretVerificationCacheTest {
+
+    @Inject
+    ClientSecretVerificationCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache.clear();
+    }
+
+    @Test
+    public void testMissThenHitAfterRecording() {
+        long misses = cache.getMissCount();
+        long hits = cache.getHitCount();
+
+        assertFalse(cache.isVerified("cache-client", "secret-1"));
+        cache.recordVerified("cache-client", "secret-1", null, cache.generation());
+        assertTrue(cache.isVerified("cache-client", "secret-1"));
+
+        assertEquals(misses + 1, cache.getMissCount());
+        assertEquals(hits + 1, cache.getHitCount());
+    }
+
+    @Test
+    public void testDifferentSecretIsNotAHit() {
+        cache.recordVerified("cache-client", "secret-1", null, cache.generation());
+        assertFalse(cache.isVerified("cache-client", "secret-2"));
+        assertFalse(cache.isVerified("other-client", "secret-1"));
+    }
+
+    @Test
+    public void testInvalidateClientDropsOnlyThatClient() {
+        cache.recordVerified("cache-client", "secret-1", null, cache.generation());
+        cache.recordVerified("other-client", "secret-1", null, cache.generation());
+
+        cache.invalidateClient("cache-client");
+
+        assertFalse(cache.isVerified("cache-client", "secret-1"));
+        assertTrue(cache.isVerified("other-client", "secret-1"));
+    }
+
+    @Test
+    public void testVerificationStartedBeforeInvalidationIsNotCached() {
+        long generation = cache.generation();
+        // the secret is revoked while BCrypt is still running
+        cache.invalidateClient("cache-client");
+        cache.recordVerified("cache-client", "secret-1", null, generation);
+
+        assertFalse(cache.isVerified("cache-client", "secret-1"));
+    }
+
+    @Test
+    public void testExpiredSecretIsNotCached() {
+        cache.recordVerified("cache-client", "secret-1", Instant.now().minusSeconds(1), cache.generation());
+        assertFalse(cache.isVerified("cache-client", "secret-1"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEntryExpiresWithSecret() throws InterruptedException {
+        cache.recordVerified("cache-client", "secret-1", Instant.now().plusMillis(200), cache.generation());
+        assertTrue(cache.isVerified("cache-client", "secret-1"));
+
+        Thread.sleep(300);
+
+        long evictions = cache.getEvictionCount();
+        assertFalse(cache.isVerified("cache-client", "secret-1"));
+        assertEquals(evictions + 1, cache.getEvictionCount());
+    }
+}
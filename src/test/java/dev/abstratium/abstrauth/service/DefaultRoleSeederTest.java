@@ -0,0 +1,189 @@
+package dev.abstratium.abstrauth.service;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.abstratium.abstrauth.entity.Account;
+import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyAccountRoleService;
+import dev.abstratium.abstrauth.util.TestDatabaseResetHelper;
+import dev.abstratium.abstrauth.util.TestTransactionHelper;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.jwt.build.Jwt;
+import jakarta.inject.Inject;
+
+/**
+ * Tests for the cached default role plans: plans are reused until the client's allowed roles
+ * change through ClientAllowedRoleService, and seeding follows the plan.
+ */
+@QuarkusTest
+public class DefaultRoleSeederTest {
+
+    private static final String OTHER_ORG = "11111111-1111-1111-1111-111111111111";
+
+    @ConfigProperty(name = "default.org.uuid")
+    String defaultOrgId;
+
+    @Inject
+    DefaultRoleSeeder defaultRoleSeeder;
+
+    @Inject
+    AccountService accountService;
+
+    @Inject
+    NonMultitenancyAccountRoleService nonMultitenancyAccountRoleService;
+
+    @Inject
+    TestTransactionHelper transactionHelper;
+
+    @Inject
+    TestDatabaseResetHelper dbResetHelper;
+
+    private String clientId;
+
+    @BeforeEach
+    public void setup() {
+        dbResetHelper.resetDatabase();
+        clientId = createClient();
+    }
+
+    @Test
+    public void testPlanIsCachedUntilTheAllowedRolesChange() {
+        addAllowedRole("viewer", "all_users", true);
+
+        DefaultRoleSeeder.DefaultRolePlan plan = defaultRoleSeeder.planFor(clientId, defaultOrgId);
+        assertEquals(List.of("viewer"), plan.allUsers());
+        assertTrue(plan.orgOwnersOnly().isEmpty());
+        assertSame(plan, defaultRoleSeeder.planFor(clientId, defaultOrgId));
+
+        // add
+        addAllowedRole("approver", "org_owners_only", false);
+        plan = defaultRoleSeeder.planFor(clientId, defaultOrgId);
+        assertEquals(List.of("viewer"), plan.allUsers());
+        assertEquals(List.of("approver"), plan.orgOwnersOnly());
+        assertEquals(Set.of("viewer", "approver"), Set.copyOf(plan.rolesFor(true)));
+        assertEquals(List.of("viewer"), plan.rolesFor(false));
+
+        // update
+        given()
+            .header("Authorization", "Bearer " + manageClientsToken())
+            .contentType("application/json")
+            .body("{\"defaultAssignment\": \"not_default\", \"availableToForeignOrgs\": true}")
+            .when()
+            .put("/api/clients/" + clientId + "/allowed-roles/viewer")
+            .then()
+            .statusCode(200);
+        assertTrue(defaultRoleSeeder.planFor(clientId, defaultOrgId).allUsers().isEmpty());
+
+        // remove
+        given()
+            .header("Authorization", "Bearer " + manageClientsToken())
+            .when()
+            .delete("/api/clients/" + clientId + "/allowed-roles/approver")
+            .then()
+            .statusCode(204);
+        assertTrue(defaultRoleSeeder.planFor(clientId, defaultOrgId).orgOwnersOnly().isEmpty());
+    }
+
+    @Test
+    public void testForeignOrgsOnlyGetRolesAvailableToThem() {
+        addAllowedRole("viewer", "all_users", true);
+        addAllowedRole("internal", "all_users", false);
+
+        assertEquals(Set.of("viewer", "internal"), Set.copyOf(defaultRoleSeeder.planFor(clientId, defaultOrgId).allUsers()));
+        assertEquals(List.of("viewer"), defaultRoleSeeder.planFor(clientId, OTHER_ORG).allUsers());
+    }
+
+    @Test
+    public void testSeedAsksForOwnershipOnlyWhenNeeded() throws Exception {
+        addAllowedRole("viewer", "all_users", true);
+        String accountId = createAccount("seed");
+
+        assertTrue(defaultRoleSeeder.seed(accountId, clientId, defaultOrgId, () -> {
+            throw new AssertionError("ownership must not be checked without ORG_OWNERS_ONLY roles");
+        }));
+        assertEquals(Set.of("viewer"),
+                nonMultitenancyAccountRoleService.findRolesByAccountIdAndClientIdAndOrgId(accountId, clientId, defaultOrgId));
+
+        addAllowedRole("approver", "org_owners_only", false);
+        String ownerId = createAccount("owner");
+        assertTrue(defaultRoleSeeder.seed(ownerId, clientId, defaultOrgId, () -> true));
+        assertEquals(Set.of("viewer", "approver"),
+                nonMultitenancyAccountRoleService.findRolesByAccountIdAndClientIdAndOrgId(ownerId, clientId, defaultOrgId));
+
+        // seeding again does not duplicate the rows
+        assertTrue(defaultRoleSeeder.seed(ownerId, clientId, defaultOrgId, () -> true));
+        assertEquals(2, nonMultitenancyAccountRoleService.findRolesByAccountIdAndClientIdAndOrgId(ownerId, clientId, defaultOrgId).size());
+    }
+
+    @Test
+    public void testNothingToSeedWithoutDefaultRoles() throws Exception {
+        addAllowedRole("viewer", "not_default", true);
+        String accountId = createAccount("none");
+
+        assertFalse(defaultRoleSeeder.seed(accountId, clientId, defaultOrgId, () -> true));
+        assertTrue(nonMultitenancyAccountRoleService.findRolesByAccountIdAndClientIdAndOrgId(accountId, clientId, defaultOrgId).isEmpty());
+    }
+
+    // ─────────────────────────────────────────────────────────
+    // Helpers
+    // ─────────────────────────────────────────────────────────
+
+    private String manageClientsToken() {
+        return Jwt.issuer("https://dev.abstrauth.abstratium.dev").audience("abstratium-abstrauth")
+            .upn("test@example.com")
+            .groups(Set.of("abstratium-abstrauth_user", "abstratium-abstrauth_manage-clients"))
+            .claim("email", "test@example.com")
+            .claim("name", "Test User")
+            .claim("orgId", defaultOrgId)
+            .sign();
+    }
+
+    private String createClient() {
+        String body = String.format("""
+            {
+                "clientId": "%s",
+                "clientName": "Default Role Plan Client",
+                "clientType": "confidential"
+            }
+            """, "test-role-plan-" + System.currentTimeMillis());
+        return given()
+            .header("Authorization", "Bearer " + manageClientsToken())
+            .contentType("application/json")
+            .body(body)
+            .when()
+            .post("/api/clients")
+            .then()
+            .statusCode(201)
+            .extract()
+            .jsonPath()
+            .getString("clientId");
+    }
+
+    private void addAllowedRole(String role, String defaultAssignment, boolean availableToForeignOrgs) {
+        given()
+            .header("Authorization", "Bearer " + manageClientsToken())
+            .contentType("application/json")
+            .body(String.format("{\"role\": \"%s\", \"defaultAssignment\": \"%s\", \"availableToForeignOrgs\": %s}",
+                    role, defaultAssignment, availableToForeignOrgs))
+            .when()
+            .post("/api/clients/" + clientId + "/allowed-roles")
+            .then()
+            .statusCode(201);
+    }
+
+    private String createAccount(String suffix) throws Exception {
+        String username = "plan_" + suffix + "_" + System.currentTimeMillis();
+        transactionHelper.beginTransaction();
+        Account account = accountService.createAccount(username + "@example.com", "Plan " + suffix, username,
+                "Pass123!", AccountService.NATIVE, null);
+        transactionHelper.commitTransaction();
+        return account.getId();
+    }
+}
@@ -0,0 +1,101 @@
+package dev.abstratium.abstrauth.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+
+/**
+ * Tests for the cache of token introspection results.
+ */
+@QuarkusTest
+public class IntrospectionResultCacheTest {
+
+    private static final JsonObject CLAIMS = Json.createObjectBuilder().add("jti", "jti-1").build();
+
+    @Inject
+    IntrospectionResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache.clear();
+    }
+
+    private static long inOneMinute() {
+        return System.currentTimeMillis() + 60_000;
+    }
+
+    @Test
+    public void testMissThenHitAfterRecording() {
+        long misses = cache.getMissCount();
+        long hits = cache.getHitCount();
+
+        assertNull(cache.get("token-1"));
+        cache.record("token-1", CLAIMS, "jti-1", false, inOneMinute(), cache.generation());
+        IntrospectionResultCache.CachedResult cached = cache.get("token-1");
+
+        assertNotNull(cached);
+        assertEquals(CLAIMS, cached.claims());
+        assertEquals(misses + 1, cache.getMissCount());
+        assertEquals(hits + 1, cache.getHitCount());
+        assertNull(cache.get("token-2"));
+    }
+
+    @Test
+    public void testRevokedResultIsCached() {
+        cache.record("token-1", CLAIMS, "jti-1", true, inOneMinute(), cache.generation());
+        assertTrue(cache.get("token-1").revoked());
+    }
+
+    @Test
+    public void testExpiredTokenIsNotCached() {
+        cache.record("token-1", CLAIMS, "jti-1", false, System.currentTimeMillis() - 1, cache.generation());
+        assertNull(cache.get("token-1"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidateTokenDropsOnlyThatJti() {
+        cache.record("token-1", CLAIMS, "jti-1", false, inOneMinute(), cache.generation());
+        cache.record("token-2", CLAIMS, "jti-2", false, inOneMinute(), cache.generation());
+
+        cache.invalidateToken("jti-1");
+
+        assertNull(cache.get("token-1"));
+        assertNotNull(cache.get("token-2"));
+    }
+
+    @Test
+    public void testInvalidateTokensDropsEntriesOfAllJtis() {
+        cache.record("token-1", CLAIMS, "jti-1", false, inOneMinute(), cache.generation());
+        cache.record("token-2", CLAIMS, "jti-2", false, inOneMinute(), cache.generation());
+        cache.record("token-3", CLAIMS, "jti-3", false, inOneMinute(), cache.generation());
+
+        cache.invalidateTokens(List.of("jti-1", "jti-3", "jti-unknown"));
+
+        assertNull(cache.get("token-1"));
+        assertNotNull(cache.get("token-2"));
+        assertNull(cache.get("token-3"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testRecordAfterConcurrentInvalidationIsDiscarded() {
+        long generationAtLoad = cache.generation();
+        cache.invalidateToken("jti-1");
+
+        cache.record("token-1", CLAIMS, "jti-1", false, inOneMinute(), generationAtLoad);
+
+        assertNull(cache.get("token-1"));
+    }
+}
@@ -0,0 +1,80 @@
+package dev.abstratium.abstrauth.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.security.Principal;
+
+import org.eclipse.microprofile.jwt.JsonWebToken;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.security.identity.SecurityIdentity;
+import jakarta.json.Json;
+
+/**
+ * Tests for the claims of the verified token that are shared within a request.
+ */
+public class RequestTokenContextTest {
+
+    private static RequestTokenContext context(Object principal) {
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        when(identity.getPrincipal()).thenAnswer(invocation -> principal);
+        RequestTokenContext context = new RequestTokenContext();
+        context.securityIdentity = identity;
+        return context;
+    }
+
+    @Test
+    void claimsAreReadFromTheVerifiedToken() {
+        JsonWebToken jwt = mock(JsonWebToken.class);
+        when(jwt.getClaim("sub")).thenReturn("account-1");
+        when(jwt.getClaim("jti")).thenReturn("jti-1");
+        when(jwt.getClaim("client_id")).thenReturn(Json.createValue("client-1"));
+        when(jwt.getClaim("orgId")).thenReturn("org-1");
+        when(jwt.getClaim("iat")).thenReturn(1760000000L);
+
+        RequestTokenContext.TokenClaims claims = context(jwt).claims();
+
+        assertEquals(new RequestTokenContext.TokenClaims("account-1", "jti-1", "client-1", "org-1", 1760000000L), claims);
+    }
+
+    @Test
+    void jsonNumberIssuedAtIsConverted() {
+        JsonWebToken jwt = mock(JsonWebToken.class);
+        when(jwt.getClaim("iat")).thenReturn(Json.createValue(1760000000L));
+
+        assertEquals(1760000000L, context(jwt).claims().issuedAt());
+    }
+
+    @Test
+    void missingClaimsAreNull() {
+        RequestTokenContext.TokenClaims claims = context(mock(JsonWebToken.class)).claims();
+
+        assertNull(claims.subject());
+        assertNull(claims.jti());
+        assertNull(claims.orgId());
+        assertEquals(0, claims.issuedAt());
+    }
+
+    @Test
+    void nonJwtPrincipalHasNoClaims() {
+        assertNull(context((Principal) () -> "anonymous").claims());
+    }
+
+    @Test
+    void claimsAreReadOncePerRequest() {
+        JsonWebToken jwt = mock(JsonWebToken.class);
+        when(jwt.getClaim("orgId")).thenReturn("org-1");
+        RequestTokenContext context = context(jwt);
+
+        RequestTokenContext.TokenClaims first = context.claims();
+
+        assertSame(first, context.claims());
+        verify(jwt, times(1)).getClaim("orgId");
+    }
+}
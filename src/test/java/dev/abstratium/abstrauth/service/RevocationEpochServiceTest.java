@@ -0,0 +1,115 @@
+package dev.abstratium.abstrauth.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.abstratium.abstrauth.entity.RevocationEpoch;
+import dev.abstratium.abstrauth.util.TestTransactionHelper;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Tests that revocation epochs drop the reusable client_credentials tokens they revoke, once
+ * committed and when they arrive from another instance.
+ */
+@QuarkusTest
+public class RevocationEpochServiceTest {
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    RevocationEpochService revocationEpochService;
+
+    @Inject
+    ClientCredentialsTokenCache cache;
+
+    @Inject
+    TestTransactionHelper transactionHelper;
+
+    private String clientId;
+    private String orgId;
+
+    @BeforeEach
+    void setUp() {
+        cache.clear();
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        clientId = "epoch-client-" + suffix;
+        orgId = "epoch-org-" + suffix;
+    }
+
+    private void storeToken(String token) {
+        Instant now = Instant.now();
+        cache.store(clientId, orgId, Set.of("read"), token, "jti-" + token, now, now.plusSeconds(3600), cache.generation());
+    }
+
+    private boolean reusable() {
+        return cache.find(clientId, orgId, Set.of("read")).isPresent();
+    }
+
+    @Test
+    public void testRevokeClientDropsTokensCachedBeforeCommit() throws Exception {
+        storeToken("token-1");
+
+        transactionHelper.beginTransaction();
+        revocationEpochService.revokeClient(clientId, "test");
+        // a concurrent client_credentials request caches a token before the epoch is committed
+        storeToken("token-2");
+        transactionHelper.commitTransaction();
+
+        assertFalse(reusable());
+    }
+
+    @Test
+    public void testRolledBackRevocationKeepsReusableTokens() throws Exception {
+        storeToken("token-1");
+
+        transactionHelper.beginTransaction();
+        revocationEpochService.revokeClient(clientId, "test");
+        transactionHelper.rollback();
+
+        assertTrue(reusable());
+    }
+
+    @Test
+    public void testClientEpochOfAnotherInstanceDropsReusableTokens() throws Exception {
+        storeToken("token-1");
+
+        bumpedElsewhere(RevocationEpoch.CLIENT, clientId);
+        assertTrue(reusable());
+        revocationEpochService.refresh();
+
+        assertFalse(reusable());
+    }
+
+    @Test
+    public void testOrgEpochOfAnotherInstanceDropsReusableTokens() throws Exception {
+        storeToken("token-1");
+
+        bumpedElsewhere(RevocationEpoch.ORG, orgId);
+        revocationEpochService.refresh();
+
+        assertFalse(reusable());
+    }
+
+    /**
+     * Insert an epoch the way another instance would, without this instance applying it.
+     */
+    private void bumpedElsewhere(String subjectType, String subjectId) throws Exception {
+        transactionHelper.beginTransaction();
+        RevocationEpoch epoch = new RevocationEpoch();
+        epoch.setId(new RevocationEpoch.Id(subjectType, subjectId));
+        epoch.setNotBefore(Instant.now().getEpochSecond());
+        epoch.setReason("test");
+        em.persist(epoch);
+        transactionHelper.commitTransaction();
+    }
+}
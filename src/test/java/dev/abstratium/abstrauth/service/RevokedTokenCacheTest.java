@@ -0,0 +1,134 @@
+package dev.abstratium.abstrauth.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.abstratium.abstrauth.entity.RevokedToken;
+import dev.abstratium.abstrauth.util.TestTransactionHelper;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Tests for the in-memory copy of the revoked JTIs.
+ */
+@QuarkusTest
+public class RevokedTokenCacheTest {
+
+    @Inject
+    RevokedTokenCache cache;
+
+    @Inject
+    TokenRevocationService tokenRevocationService;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    TestTransactionHelper transactionHelper;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        transactionHelper.beginTransaction();
+        em.createQuery("DELETE FROM RevokedToken").executeUpdate();
+        transactionHelper.commitTransaction();
+        cache.clear();
+        cache.sync();
+    }
+
+    @Test
+    public void testCommittedRevocationIsSeenWithoutSync() {
+        String jti = UUID.randomUUID().toString();
+        assertFalse(tokenRevocationService.isTokenRevoked(jti));
+
+        tokenRevocationService.revokeToken(jti, "test");
+
+        assertTrue(cache.contains(jti));
+        assertTrue(tokenRevocationService.isTokenRevoked(jti));
+    }
+
+    @Test
+    public void testRolledBackRevocationIsIgnored() throws Exception {
+        String jti = UUID.randomUUID().toString();
+
+        transactionHelper.beginTransaction();
+        tokenRevocationService.revokeToken(jti, "test");
+        // within the transaction, its own revocation is visible
+        assertTrue(tokenRevocationService.isTokenRevoked(jti));
+        transactionHelper.rollback();
+
+        assertFalse(cache.contains(jti));
+        assertFalse(tokenRevocationService.isTokenRevoked(jti));
+    }
+
+    @Test
+    public void testRevocationsOfOtherInstancesArePickedUpBySync() throws Exception {
+        String jti = UUID.randomUUID().toString();
+        // written by another instance, so this instance only learns about it by syncing
+        insertRow(jti, LocalDateTime.now());
+
+        cache.sync();
+
+        assertTrue(tokenRevocationService.isTokenRevoked(jti));
+    }
+
+    @Test
+    public void testRowsCommittedOutOfOrderArePickedUpWithinTheOverlap() throws Exception {
+        String newer = UUID.randomUUID().toString();
+        insertRow(newer, LocalDateTime.now());
+        cache.sync();
+
+        // a transaction that started earlier commits after the sync
+        String older = UUID.randomUUID().toString();
+        insertRow(older, LocalDateTime.now().minusSeconds(10));
+        cache.sync();
+
+        assertTrue(cache.contains(newer));
+        assertTrue(cache.contains(older));
+    }
+
+    @Test
+    public void testClearReloadsEverythingOnNextSync() throws Exception {
+        String jti = UUID.randomUUID().toString();
+        tokenRevocationService.revokeToken(jti, "test");
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        cache.sync();
+
+        assertTrue(cache.contains(jti));
+    }
+
+    @Test
+    public void testBloomFilterAnswersMostNegativeLookups() {
+        for (int i = 0; i < 1000; i++) {
+            cache.add(UUID.randomUUID().toString(), Long.MAX_VALUE);
+        }
+        long filtered = cache.getFilteredCount();
+
+        for (int i = 0; i < 10000; i++) {
+            assertFalse(cache.contains(UUID.randomUUID().toString()));
+        }
+        long falsePositives = 10000 - (cache.getFilteredCount() - filtered);
+
+        assertTrue(falsePositives < 100, "too many lookups passed the Bloom filter: " + falsePositives);
+    }
+
+    private void insertRow(String jti, LocalDateTime createdAt) throws Exception {
+        transactionHelper.beginTransaction();
+        RevokedToken row = new RevokedToken();
+        row.setTokenJti(jti);
+        row.setReason("other_instance");
+        row.setCreatedAt(createdAt);
+        row.setExpiresAt(createdAt.plusMinutes(15));
+        em.persist(row);
+        transactionHelper.commitTransaction();
+    }
+}
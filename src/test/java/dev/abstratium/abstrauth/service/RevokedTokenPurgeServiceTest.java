@@ -0,0 +1,116 @@
+package dev.abstratium.abstrauth.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.abstratium.abstrauth.entity.RevokedToken;
+import dev.abstratium.abstrauth.util.TestTransactionHelper;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Tests for the purge of revocations of expired tokens.
+ */
+@QuarkusTest
+public class RevokedTokenPurgeServiceTest {
+
+    @Inject
+    RevokedTokenPurgeService purgeService;
+
+    @Inject
+    TokenRevocationService tokenRevocationService;
+
+    @Inject
+    RevokedTokenCache revokedTokenCache;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    TestTransactionHelper transactionHelper;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        transactionHelper.beginTransaction();
+        em.createQuery("DELETE FROM RevokedToken").executeUpdate();
+        transactionHelper.commitTransaction();
+        revokedTokenCache.clear();
+        revokedTokenCache.sync();
+    }
+
+    @Test
+    public void testExpiredRevocationsArePurged() throws Exception {
+        String expired = UUID.randomUUID().toString();
+        String live = UUID.randomUUID().toString();
+        tokenRevocationService.revokeToken(expired, "test", Instant.now().minusSeconds(1));
+        tokenRevocationService.revokeToken(live, "test", Instant.now().plusSeconds(600));
+        long deletedBefore = purgeService.getDeletedCount();
+
+        assertEquals(1, purgeService.purgeExpired());
+
+        assertEquals(deletedBefore + 1, purgeService.getDeletedCount());
+        assertEquals(0L, countRows(expired));
+        assertEquals(1L, countRows(live));
+        assertFalse(revokedTokenCache.contains(expired));
+        assertTrue(revokedTokenCache.contains(live));
+        assertTrue(tokenRevocationService.isTokenRevoked(live));
+    }
+
+    @Test
+    public void testPurgeDeletesInBatches() throws Exception {
+        int rows = 2500;
+        transactionHelper.beginTransaction();
+        for (int i = 0; i < rows; i++) {
+            RevokedToken row = new RevokedToken();
+            row.setTokenJti(UUID.randomUUID().toString());
+            row.setReason("test");
+            row.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+            em.persist(row);
+        }
+        transactionHelper.commitTransaction();
+        long batchesBefore = purgeService.getBatchCount();
+
+        assertEquals(rows, purgeService.purgeExpired());
+
+        // batches of 1000: two full ones and the rest
+        assertEquals(batchesBefore + 3, purgeService.getBatchCount());
+        transactionHelper.beginTransaction();
+        assertEquals(0L, em.createQuery("SELECT COUNT(r) FROM RevokedToken r", Long.class).getSingleResult());
+        transactionHelper.commitTransaction();
+    }
+
+    @Test
+    public void testRevocationWithoutKnownExpiryIsKeptForTheLongestTokenLifetime() throws Exception {
+        String jti = UUID.randomUUID().toString();
+        tokenRevocationService.revokeToken(jti, "test");
+
+        transactionHelper.beginTransaction();
+        LocalDateTime expiresAt = em.createQuery(
+                "SELECT r.expiresAt FROM RevokedToken r WHERE r.tokenJti = :jti", LocalDateTime.class)
+                .setParameter("jti", jti)
+                .getSingleResult();
+        transactionHelper.commitTransaction();
+
+        assertTrue(expiresAt.isAfter(LocalDateTime.now().plusMinutes(59)), "expires at " + expiresAt);
+        assertEquals(0, purgeService.purgeExpired());
+        assertTrue(tokenRevocationService.isTokenRevoked(jti));
+    }
+
+    private long countRows(String jti) throws Exception {
+        transactionHelper.beginTransaction();
+        long count = em.createQuery("SELECT COUNT(r) FROM RevokedToken r WHERE r.tokenJti = :jti", Long.class)
+                .setParameter("jti", jti)
+                .getSingleResult();
+        transactionHelper.commitTransaction();
+        return count;
+    }
+}
@@ -0,0 +1,140 @@
+package dev.abstratium.abstrauth.service;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.KeyPairGenerator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import dev.abstratium.abstrauth.boundary.OverloadedException;
+import dev.abstratium.abstrauth.util.JwsSigner;
+import dev.abstratium.abstrauth.util.JwtClaimsWriter;
+import dev.abstratium.abstrauth.util.JwtSignatureVerifier;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+
+/**
+ * Tests for the dedicated JWT signing pool: signing happens on the pool, and requests are shed
+ * with 503 + Retry-After once the queue is full.
+ */
+@QuarkusTest
+@TestProfile(SigningExecutorTest.TestProfile.class)
+public class SigningExecutorTest {
+
+    public static class TestProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "abstrauth.signing.executor.threads", "1",
+                    "abstrauth.signing.executor.queue-size", "1",
+                    "abstrauth.signing.executor.retry-after.seconds", "7");
+        }
+    }
+
+    @Inject
+    SigningExecutor signingExecutor;
+
+    @Inject
+    SigningKeyRing signingKeyRing;
+
+    @Test
+    public void testSignsOnThePool() {
+        long completedBefore = signingExecutor.getCompletedCount();
+
+        String token = signingExecutor.sign(signingKeyRing.signerFor(Roles.CLIENT_ID),
+                new JwtClaimsWriter().reset().string("sub", "pool-test"));
+
+        JwtSignatureVerifier verifier = new JwtSignatureVerifier(signingKeyRing::verificationKey);
+        assertEquals("pool-test", verifier.verifyAndDecode(token).getString("sub"));
+        assertEquals(completedBefore + 1, signingExecutor.getCompletedCount());
+        assertTrue(signingExecutor.getSigningNanos() > 0);
+    }
+
+    @Test
+    public void testSaturatedPoolRejectsWithRetryAfter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        JwsSigner blockingSigner = new BlockingSigner(release);
+        long rejectedBefore = signingExecutor.getRejectedCount();
+
+        // occupy the only signing thread, then fill the queue of one
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(
+                () -> signingExecutor.sign(blockingSigner, new JwtClaimsWriter().reset().string("sub", "a")));
+        awaitValue(signingExecutor::getActiveCount, 1);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(
+                () -> signingExecutor.sign(blockingSigner, new JwtClaimsWriter().reset().string("sub", "b")));
+        awaitValue(signingExecutor::getQueueDepth, 1);
+
+        try {
+            OverloadedException e = assertThrows(OverloadedException.class,
+                    () -> signingExecutor.sign(blockingSigner, new JwtClaimsWriter().reset().string("sub", "c")));
+            assertEquals(7, e.getRetryAfterSeconds());
+            assertThrows(OverloadedException.class, () -> signingExecutor.ensureCapacity());
+
+            // the token endpoint sheds the request before looking at it
+            given()
+                .formParam("grant_type", "client_credentials")
+                .formParam("client_id", "abstratium-abstrauth")
+                .formParam("client_secret", "dev-secret-CHANGE-IN-PROD")
+                .when()
+                .post("/oauth2/token")
+                .then()
+                .statusCode(503)
+                .header("Retry-After", "7")
+                .body("error", equalTo("temporarily_unavailable"));
+
+            assertEquals(rejectedBefore + 3, signingExecutor.getRejectedCount());
+        } finally {
+            release.countDown();
+        }
+
+        // the accepted tasks still complete
+        running.get(10, TimeUnit.SECONDS);
+        queued.get(10, TimeUnit.SECONDS);
+        assertTrue(signingExecutor.getQueueWaitNanos() > 0);
+        signingExecutor.ensureCapacity();
+    }
+
+    private static void awaitValue(IntSupplier supplier, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (supplier.getAsInt() != expected) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Expected " + expected + " but was " + supplier.getAsInt());
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Signs only once the latch has been released, to keep the signing thread busy.
+     */
+    private static final class BlockingSigner extends JwsSigner {
+
+        private final CountDownLatch release;
+
+        BlockingSigner(CountDownLatch release) throws Exception {
+            super("blocking", JwsSigner.EDDSA, KeyPairGenerator.getInstance("Ed25519").generateKeyPair().getPrivate());
+            this.release = release;
+        }
+
+        @Override
+        public String sign(JwtClaimsWriter claims) {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.sign(claims);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package dev.abstratium.abstrauth.service;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import dev.abstratium.abstrauth.entity.SigningKey;
+import dev.abstratium.abstrauth.util.JwsSigner;
+import dev.abstratium.abstrauth.util.JwtClaimsWriter;
+import dev.abstratium.abstrauth.util.JwtSignatureVerifier;
+import dev.abstratium.abstrauth.util.TestTransactionHelper;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Tests for the signing key ring: per-client algorithm selection, verification by kid,
+ * JWKS publication and rotation of the managed keys.
+ */
+@QuarkusTest
+@TestProfile(SigningKeyRingTest.TestProfile.class)
+public class SigningKeyRingTest {
+
+    private static final String ES256_CLIENT = "ring-es256-client";
+    private static final String EDDSA_CLIENT = "ring-eddsa-client";
+
+    public static class TestProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "abstrauth.signing.es256.client-ids", ES256_CLIENT,
+                    "abstrauth.signing.eddsa.client-ids", EDDSA_CLIENT);
+        }
+    }
+
+    @Inject
+    SigningKeyRing ring;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    TestTransactionHelper tx;
+
+    @Test
+    public void testSignerIsChosenPerClient() {
+        assertEquals(JwsSigner.ES256, ring.signerFor(ES256_CLIENT).getAlgorithm());
+        assertEquals(JwsSigner.EDDSA, ring.signerFor(EDDSA_CLIENT).getAlgorithm());
+
+        JwsSigner defaultSigner = ring.signerFor("some-other-client");
+        assertEquals(JwsSigner.PS256, defaultSigner.getAlgorithm());
+        assertEquals(SigningKeyRing.STATIC_KEY_ID, defaultSigner.getKeyId());
+        assertEquals(SigningKeyRing.STATIC_KEY_ID, ring.signerFor(Roles.CLIENT_ID).getKeyId());
+    }
+
+    @Test
+    public void testTokensOfEveryAlgorithmVerifyAgainstTheRing() {
+        JwtSignatureVerifier verifier = new JwtSignatureVerifier(ring::verificationKey);
+
+        for (String clientId : List.of(ES256_CLIENT, EDDSA_CLIENT, "some-other-client")) {
+            String token = ring.signerFor(clientId).sign(new JwtClaimsWriter().reset().string("sub", clientId));
+            assertEquals(clientId, verifier.verifyAndDecode(token).getString("sub"));
+        }
+    }
+
+    @Test
+    public void testUnknownKidIsRejected() {
+        assertNull(ring.verificationKey("no-such-key", JwsSigner.ES256));
+
+        String kid = ring.signerFor(ES256_CLIENT).getKeyId();
+        // a known kid with the wrong algorithm must not be accepted either
+        assertNull(ring.verificationKey(kid, JwsSigner.EDDSA));
+        assertNotNull(ring.verificationKey(kid, JwsSigner.ES256));
+
+        JwtSignatureVerifier verifier = new JwtSignatureVerifier((k, alg) -> null);
+        String token = ring.signerFor(ES256_CLIENT).sign(new JwtClaimsWriter().reset().string("sub", "x"));
+        assertThrows(IllegalArgumentException.class, () -> verifier.verifyAndDecode(token));
+    }
+
+    @Test
+    public void testJwksPublishesAllKeysWithStaticKeyFirst() {
+        List<SigningKeyRing.PublishedKey> keys = ring.publishedKeys();
+        assertEquals(SigningKeyRing.STATIC_KEY_ID, keys.get(0).kid());
+
+        given()
+            .when()
+            .get("/.well-known/jwks.json")
+            .then()
+            .statusCode(200)
+            .body("keys[0].kid", equalTo(SigningKeyRing.STATIC_KEY_ID))
+            .body("keys[0].kty", equalTo("RSA"))
+            .body("keys.kid", hasItem(ring.signerFor(ES256_CLIENT).getKeyId()))
+            .body("keys.kid", hasItem(ring.signerFor(EDDSA_CLIENT).getKeyId()))
+            .body("keys.find { it.kty == 'EC' }.crv", equalTo("P-256"))
+            .body("keys.find { it.kty == 'OKP' }.crv", equalTo("Ed25519"));
+    }
+
+    @Test
+    public void testRotationPrePublishesSuccessorAndPurgesExpiredKeys() throws Exception {
+        Instant soon = Instant.now().plus(10, ChronoUnit.MINUTES).truncatedTo(ChronoUnit.SECONDS);
+
+        tx.beginTransaction();
+        em.createQuery("UPDATE SigningKey k SET k.retiresAt = :soon WHERE k.algorithm = :alg")
+                .setParameter("soon", soon)
+                .setParameter("alg", JwsSigner.ES256)
+                .executeUpdate();
+        SigningKey expired = new SigningKey();
+        expired.setKid("abstrauth-es256-expired");
+        expired.setAlgorithm(JwsSigner.ES256);
+        expired.setPublicKey("unused");
+        expired.setPrivateKey("unused");
+        expired.setActivatesAt(Instant.now().minus(3, ChronoUnit.DAYS));
+        expired.setRetiresAt(Instant.now().minus(2, ChronoUnit.DAYS));
+        expired.setExpiresAt(Instant.now().minus(1, ChronoUnit.DAYS));
+        em.persist(expired);
+        tx.commitTransaction();
+
+        String currentKid = ring.signerFor(ES256_CLIENT).getKeyId();
+        ring.rotate();
+
+        tx.beginTransaction();
+        List<SigningKey> keys = em.createQuery(
+                "SELECT k FROM SigningKey k WHERE k.algorithm = :alg ORDER BY k.activatesAt", SigningKey.class)
+                .setParameter("alg", JwsSigner.ES256)
+                .getResultList();
+        tx.commitTransaction();
+        assertFalse(keys.stream().anyMatch(k -> k.getKid().equals("abstrauth-es256-expired")));
+
+        SigningKey successor = keys.get(keys.size() - 1);
+        assertEquals(soon, successor.getActivatesAt().truncatedTo(ChronoUnit.SECONDS));
+        assertTrue(successor.getExpiresAt().isAfter(successor.getRetiresAt()));
+
+        // the successor is published before it is used for signing
+        assertTrue(ring.publishedKeys().stream().anyMatch(k -> k.kid().equals(successor.getKid())));
+        assertEquals(currentKid, ring.signerFor(ES256_CLIENT).getKeyId());
+    }
+}
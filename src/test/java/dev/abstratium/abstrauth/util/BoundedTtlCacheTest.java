@@ -0,0 +1,148 @@
+package dev.abstratium.abstrauth.util;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for BoundedTtlCache.
+ */
+public class BoundedTtlCacheTest {
+
+    private record Value(String owner, String data) {
+    }
+
+    private static long later() {
+        return System.currentTimeMillis() + 60_000;
+    }
+
+    @Test
+    void put_thenGet_hits() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10);
+        assertNull(cache.get("a"));
+        assertTrue(cache.put("a", "1", later(), cache.generation()));
+
+        assertEquals("1", cache.get("a"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void put_whenFull_evictsLeastRecentlyUsed() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(2);
+        cache.put("a", "1", later(), cache.generation());
+        cache.put("b", "2", later(), cache.generation());
+        cache.get("a");
+        cache.put("c", "3", later(), cache.generation());
+
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void put_sameKeyRepeatedly_staysBounded() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(2);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("a", "v" + i, later(), cache.generation());
+            cache.invalidate("a");
+        }
+        cache.put("a", "last", later(), cache.generation());
+        cache.put("b", "2", later(), cache.generation());
+
+        assertEquals(2, cache.size());
+        assertEquals("last", cache.get("a"));
+        assertEquals("2", cache.get("b"));
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    void get_afterExpiry_removesEntry() throws InterruptedException {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10);
+        cache.put("a", "1", System.currentTimeMillis() + 50, cache.generation());
+        Thread.sleep(100);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void put_alreadyExpired_isNotCached() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10);
+        assertFalse(cache.put("a", "1", System.currentTimeMillis() - 1, cache.generation()));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void put_withMaxEntriesZero_isDisabled() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(0);
+        assertFalse(cache.put("a", "1", later(), cache.generation()));
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void put_afterInvalidation_isDiscarded() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10);
+        long generation = cache.generation();
+        cache.invalidate("other");
+
+        assertFalse(cache.put("a", "1", later(), generation));
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void invalidateIndexed_dropsOnlyMatchingEntries() {
+        BoundedTtlCache<String, Value> cache = new BoundedTtlCache<>(10, Value::owner);
+        cache.put("a1", new Value("a", "1"), later(), cache.generation());
+        cache.put("a2", new Value("a", "2"), later(), cache.generation());
+        cache.put("b1", new Value("b", "1"), later(), cache.generation());
+
+        assertEquals(2, cache.invalidateIndexed(List.of("a", "unknown")));
+
+        assertNull(cache.get("a1"));
+        assertNull(cache.get("a2"));
+        assertEquals("1", cache.get("b1").data());
+    }
+
+    @Test
+    void invalidateIndexed_afterReplacingValue_usesNewIndexKey() {
+        BoundedTtlCache<String, Value> cache = new BoundedTtlCache<>(10, Value::owner);
+        cache.put("k", new Value("a", "1"), later(), cache.generation());
+        cache.put("k", new Value("b", "2"), later(), cache.generation());
+
+        assertEquals(0, cache.invalidateIndexed(List.of("a")));
+        assertEquals("2", cache.get("k").data());
+        assertEquals(1, cache.invalidateIndexed(List.of("b")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidateIf_dropsMatchingEntries() {
+        BoundedTtlCache<String, Value> cache = new BoundedTtlCache<>(10);
+        cache.put("a1", new Value("a", "1"), later(), cache.generation());
+        cache.put("b1", new Value("b", "1"), later(), cache.generation());
+
+        assertEquals(1, cache.invalidateIf(value -> value.owner().equals("a")));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void remove_onlyDropsTheGivenValue() {
+        BoundedTtlCache<String, Value> cache = new BoundedTtlCache<>(10);
+        Value stale = new Value("a", "1");
+        cache.put("a", stale, later(), cache.generation());
+        Value fresh = new Value("a", "2");
+        cache.put("a", fresh, later(), cache.generation());
+
+        assertFalse(cache.remove("a", stale));
+        assertTrue(cache.remove("a", fresh));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,149 @@
+package dev.abstratium.abstrauth.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link JwsSigner} and {@link JwtClaimsWriter}.
+ * <p>
+ * Tokens are checked with {@link JwtSignatureVerifier} so that the signer and verifier
+ * stay compatible.
+ */
+public class JwsSignerTest {
+
+    private KeyPair keyPair;
+    private JwsSigner signer;
+    private JwtSignatureVerifier verifier;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+        signer = new JwsSigner("abstrauth-key-1", keyPair.getPrivate());
+        verifier = new JwtSignatureVerifier(keyPair.getPublic());
+    }
+
+    @Test
+    void sign_producesVerifiablePs256TokenWithHeader() {
+        String token = signer.sign(new JwtClaimsWriter().reset()
+                .string("iss", "https://auth.abstratium.dev")
+                .string("sub", "user-123")
+                .number("exp", 1700000000L));
+
+        JsonObject header = decode(token.split("\\.")[0]);
+        assertEquals("PS256", header.getString("alg"));
+        assertEquals("abstrauth-key-1", header.getString("kid"));
+        assertEquals("JWT", header.getString("typ"));
+
+        JsonObject payload = verifier.verifyAndDecode(token);
+        assertEquals("user-123", payload.getString("sub"));
+        assertEquals(1700000000L, payload.getJsonNumber("exp").longValue());
+    }
+
+    @Test
+    void sign_producesVerifiableEs256AndEdDsaTokens() throws Exception {
+        KeyPairGenerator ec = KeyPairGenerator.getInstance("EC");
+        ec.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair ecKeys = ec.generateKeyPair();
+        KeyPair edKeys = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+
+        JwsSigner es256 = new JwsSigner("ec-1", JwsSigner.ES256, ecKeys.getPrivate());
+        JwsSigner eddsa = new JwsSigner("ed-1", JwsSigner.EDDSA, edKeys.getPrivate());
+        JwtSignatureVerifier ringVerifier = new JwtSignatureVerifier((kid, alg) -> switch (kid) {
+            case "ec-1" -> JwsSigner.ES256.equals(alg) ? ecKeys.getPublic() : null;
+            case "ed-1" -> JwsSigner.EDDSA.equals(alg) ? edKeys.getPublic() : null;
+            default -> null;
+        });
+
+        String ecToken = es256.sign(new JwtClaimsWriter().reset().string("sub", "ec"));
+        String edToken = eddsa.sign(new JwtClaimsWriter().reset().string("sub", "ed"));
+
+        assertEquals("ES256", decode(ecToken.split("\\.")[0]).getString("alg"));
+        assertEquals("EdDSA", decode(edToken.split("\\.")[0]).getString("alg"));
+        // JWS ES256 signatures are the raw 64 byte r||s, not DER
+        assertEquals(64, Base64.getUrlDecoder().decode(ecToken.split("\\.")[2]).length);
+        assertEquals("ec", ringVerifier.verifyAndDecode(ecToken).getString("sub"));
+        assertEquals("ed", ringVerifier.verifyAndDecode(edToken).getString("sub"));
+
+        // a PS256-only verifier rejects the other algorithms
+        assertThrows(IllegalArgumentException.class, () -> verifier.verifyAndDecode(ecToken));
+    }
+
+    @Test
+    void sign_escapesStringsAndKeepsNonAsciiCharacters() {
+        String name = "Zoë \"the\" \\ Müller\n€ 😀";
+        String token = signer.sign(new JwtClaimsWriter().reset().string("name", name));
+
+        assertEquals(name, verifier.verifyAndDecode(token).getString("name"));
+    }
+
+    @Test
+    void writer_writesArraysFragmentsAndNestedJson() {
+        JwtClaimsWriter claims = new JwtClaimsWriter().reset()
+                .fragment("\"client_id\":\"client-a\",\"orgId\":\"org-1\"")
+                .prefixedStringArray("groups", JwtClaimsWriter.escape("client-a_"), List.of("reader", "writer"))
+                .audience(Set.of("single"))
+                .bool("email_verified", true)
+                .json("act", "{\"sub\":\"caller\"}");
+
+        JsonObject payload = verifier.verifyAndDecode(signer.sign(claims));
+
+        assertEquals("client-a", payload.getString("client_id"));
+        assertEquals("org-1", payload.getString("orgId"));
+        assertEquals("client-a_reader", payload.getJsonArray("groups").getString(0));
+        assertEquals("client-a_writer", payload.getJsonArray("groups").getString(1));
+        assertEquals("single", payload.getString("aud"));
+        assertTrue(payload.getBoolean("email_verified"));
+        assertEquals("caller", payload.getJsonObject("act").getString("sub"));
+    }
+
+    @Test
+    void writer_skipsNullValuesAndWritesMultipleAudiencesAsArray() {
+        JwtClaimsWriter claims = new JwtClaimsWriter().reset()
+                .string("email", null)
+                .bool("email_verified", null)
+                .json("ctx", null)
+                .audience(List.of("a", "b"));
+
+        JsonObject payload = verifier.verifyAndDecode(signer.sign(claims));
+
+        assertFalse(payload.containsKey("email"));
+        assertFalse(payload.containsKey("email_verified"));
+        assertFalse(payload.containsKey("ctx"));
+        assertEquals(2, payload.getJsonArray("aud").size());
+    }
+
+    @Test
+    void sign_reusesBuffersAcrossTokensOfDifferentSizes() {
+        JwtClaimsWriter claims = new JwtClaimsWriter();
+        String large = signer.sign(claims.reset().string("data", "x".repeat(5000)));
+        String small = signer.sign(claims.reset().string("data", "y"));
+
+        assertEquals("x".repeat(5000), verifier.verifyAndDecode(large).getString("data"));
+        assertEquals("y", verifier.verifyAndDecode(small).getString("data"));
+        assertNotEquals(large.split("\\.")[2], small.split("\\.")[2]);
+    }
+
+    private static JsonObject decode(String base64url) {
+        String json = new String(Base64.getUrlDecoder().decode(base64url), StandardCharsets.UTF_8);
+        return Json.createReader(new java.io.StringReader(json)).readObject();
+    }
+}
@@ -0,0 +1,102 @@
+package dev.abstratium.abstrauth.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+
+/**
+ * Unit tests for {@link JwtClaimsReader}.
+ */
+public class JwtClaimsReaderTest {
+
+    private static JwtClaimsReader read(String json) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return new JwtClaimsReader(bytes, 0, bytes.length);
+    }
+
+    @Test
+    void readsClaimsWrittenByTheWriter() {
+        String json = new JwtClaimsWriter().reset()
+                .string("sub", "user-1")
+                .string("orgId", "org-1")
+                .string("name", "Zoë \"Quote\" \\ Backslash")
+                .stringArray("groups", List.of("a", "b"))
+                .json("act", "{\"sub\":\"client-2\",\"act\":{\"sub\":\"client-1\"}}")
+                .bool("email_verified", true)
+                .number("exp", 1760000900L)
+                .finish().toString();
+
+        JwtClaimsReader claims = read(json);
+
+        assertEquals("user-1", claims.string("sub"));
+        assertEquals("org-1", claims.string("orgId"));
+        assertEquals("Zoë \"Quote\" \\ Backslash", claims.string("name"));
+        assertEquals(1760000900L, claims.number("exp", 0));
+        assertEquals("client-1", claims.object("act").getJsonObject("act").getString("sub"));
+        assertTrue(claims.has("groups"));
+        assertFalse(claims.has("jti"));
+        assertEquals(Json.createReader(new StringReader(json)).readObject(), claims.toJsonObject());
+    }
+
+    @Test
+    void missingAndMistypedClaims() {
+        JwtClaimsReader claims = read("{ \"sub\" : 42, \"exp\": \"soon\", \"ctx\": [1, 2] }");
+
+        assertNull(claims.string("sub"));
+        assertEquals(42, claims.number("sub", 0));
+        assertEquals(-1, claims.number("exp", -1));
+        assertEquals(-1, claims.number("nbf", -1));
+        assertNull(claims.object("ctx"));
+        assertNull(claims.object("act"));
+    }
+
+    @Test
+    void numbersWithFractionsExponentsAndSigns() {
+        JwtClaimsReader claims = read("{\"a\":1760000900.5,\"b\":1.76e9,\"c\":-7,\"d\":99999999999999999999}");
+
+        assertEquals(1760000900L, claims.number("a", 0));
+        assertEquals(1760000000L, claims.number("b", 0));
+        assertEquals(-7, claims.number("c", 0));
+        assertEquals(new BigDecimal("99999999999999999999").longValue(), claims.number("d", 0));
+    }
+
+    @Test
+    void readsARangeOfALargerArray() {
+        byte[] bytes = "xx{\"sub\":\"user-1\"}yy".getBytes(StandardCharsets.US_ASCII);
+
+        JwtClaimsReader claims = new JwtClaimsReader(bytes, 2, bytes.length - 4);
+
+        assertEquals("user-1", claims.string("sub"));
+        JsonObject all = claims.toJsonObject();
+        assertEquals(1, all.size());
+    }
+
+    @Test
+    void emptyObject() {
+        JwtClaimsReader claims = read(" {} ");
+
+        assertFalse(claims.has("sub"));
+        assertTrue(claims.toJsonObject().isEmpty());
+    }
+
+    @Test
+    void rejectsMalformedJson() {
+        for (String json : List.of("", "[]", "{", "{\"sub\"}", "{\"sub\":}", "{\"sub\":\"x\"", "{\"sub\":\"x\",}",
+                "{\"sub\":\"x\"} trailing", "{\"sub\":{\"a\":1}", "{sub:1}", "{\"sub\":xyz}")) {
+            IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> read(json), json);
+            assertEquals("Invalid JWT JSON content", ex.getMessage());
+        }
+    }
+}
@@ -17,6 +17,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -112,6 +113,52 @@ public class JwtSignatureVerifierTest {
         assertEquals(SUBJECT, payload.getString("sub"));
     }
 
+    @Test
+    void verify_returnsLazyClaims() throws Exception {
+        Instant expiresAt = Instant.now().plusSeconds(900);
+        String token = buildJwt(keyPair.getPrivate(), "PS256", expiresAt);
+
+        JwtClaimsReader claims = verifier.verify(token);
+
+        assertEquals(SUBJECT, claims.string("sub"));
+        assertEquals(expiresAt.getEpochSecond(), claims.number("exp", 0));
+        assertNull(claims.string("orgId"));
+        assertEquals(verifier.verifyAndDecode(token), claims.toJsonObject());
+    }
+
+    @Test
+    void verify_alternatingKeysAndFailures_onTheSameThread() throws Exception {
+        KeyPair otherKeyPair = generateRsaKeyPair();
+        JwtSignatureVerifier otherVerifier = new JwtSignatureVerifier(otherKeyPair.getPublic());
+        String token = buildJwt(keyPair.getPrivate(), "PS256", Instant.now().plusSeconds(900));
+        String otherToken = buildJwt(otherKeyPair.getPrivate(), "PS256", Instant.now().plusSeconds(900));
+
+        // the per-thread Signature is re-initialised whenever the key changes
+        for (int i = 0; i < 3; i++) {
+            assertEquals(SUBJECT, verifier.verify(token).string("sub"));
+            assertEquals(SUBJECT, otherVerifier.verify(otherToken).string("sub"));
+            assertThrows(IllegalArgumentException.class, () -> verifier.verify(otherToken));
+        }
+    }
+
+    @Test
+    void verify_withNonAsciiToken_throwsInvalidJwt() throws Exception {
+        String token = buildJwt(keyPair.getPrivate(), "PS256", Instant.now().plusSeconds(900));
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> verifier.verify(token.replaceFirst("\\.", ".\u00e9")));
+        assertTrue(ex.getMessage().contains("Invalid JWT"));
+    }
+
+    @Test
+    void verify_withExtraPart_throwsInvalidJwt() throws Exception {
+        String token = buildJwt(keyPair.getPrivate(), "PS256", Instant.now().plusSeconds(900));
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> verifier.verify(token + ".extra"));
+        assertTrue(ex.getMessage().contains("Not a valid JWT"));
+    }
+
     // -------------------------------------------------------------------------
     // Helpers
     // -------------------------------------------------------------------------
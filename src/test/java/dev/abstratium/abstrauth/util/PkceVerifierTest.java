@@ -0,0 +1,45 @@
+package dev.abstratium.abstrauth.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for PkceVerifier.verify.
+ */
+public class PkceVerifierTest {
+
+    // RFC 7636 Appendix B
+    private static final String VERIFIER = "dBjftJeZ4CVP-mB92K27uhbUJU1p1r_wW1gFWFOEjXk";
+    private static final String CHALLENGE = "E9Melhoa2OwvFrEMTJguCHaoeK1t8URWbuGJSstw-cM";
+
+    @Test
+    void verify_withS256_matchesRfcExample() {
+        assertTrue(PkceVerifier.verify(VERIFIER, CHALLENGE, "S256"));
+    }
+
+    @Test
+    void verify_withoutMethod_defaultsToS256() {
+        assertTrue(PkceVerifier.verify(VERIFIER, CHALLENGE, null));
+        assertFalse(PkceVerifier.verify(VERIFIER, VERIFIER, null));
+    }
+
+    @Test
+    void verify_withS256AndWrongVerifier_fails() {
+        assertFalse(PkceVerifier.verify(VERIFIER + "x", CHALLENGE, "S256"));
+    }
+
+    @Test
+    void verify_withPlain_comparesDirectly() {
+        assertTrue(PkceVerifier.verify(VERIFIER, VERIFIER, "plain"));
+        assertFalse(PkceVerifier.verify(VERIFIER, CHALLENGE, "plain"));
+    }
+
+    @Test
+    void verify_withUnknownMethodOrMissingValues_fails() {
+        assertFalse(PkceVerifier.verify(VERIFIER, CHALLENGE, "S512"));
+        assertFalse(PkceVerifier.verify(null, CHALLENGE, "S256"));
+        assertFalse(PkceVerifier.verify(VERIFIER, null, "S256"));
+    }
+}
@@ -9,8 +9,15 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
 import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyAccountService;
+import dev.abstratium.abstrauth.non_multitenancy.service.NonMultitenancyTokenPrecomputer;
+import dev.abstratium.abstrauth.service.AccountProfileCache;
 import dev.abstratium.abstrauth.service.BootstrapService;
 import dev.abstratium.abstrauth.service.CurrentOrgContext;
+import dev.abstratium.abstrauth.service.DefaultRoleSeeder;
+import dev.abstratium.abstrauth.service.IntrospectionResultCache;
+import dev.abstratium.abstrauth.service.ReferenceTokenService;
+import dev.abstratium.abstrauth.service.RevocationEpochService;
+import dev.abstratium.abstrauth.service.RevokedTokenCache;
 
 /**
  * Helper class to reset the database state before tests.
@@ -48,6 +55,27 @@ public class TestDatabaseResetHelper {
     @Inject
     BootstrapService bootstrapService;
 
+    @Inject
+    DefaultRoleSeeder defaultRoleSeeder;
+
+    @Inject
+    ReferenceTokenService referenceTokenService;
+
+    @Inject
+    IntrospectionResultCache introspectionResultCache;
+
+    @Inject
+    AccountProfileCache accountProfileCache;
+
+    @Inject
+    NonMultitenancyTokenPrecomputer tokenPrecomputer;
+
+    @Inject
+    RevocationEpochService revocationEpochService;
+
+    @Inject
+    RevokedTokenCache revokedTokenCache;
+
     @Inject
     CurrentOrgContext currentOrgContext;
 
@@ -64,6 +92,13 @@ public class TestDatabaseResetHelper {
     public void resetDatabase() {
         currentOrgContext.setOrgId(configuredDefaultOrgId);
         nonMultitenancyAccountService.resetAccountExistenceCache();
+        defaultRoleSeeder.clear();
+        referenceTokenService.clear();
+        introspectionResultCache.clear();
+        accountProfileCache.clear();
+        tokenPrecomputer.clear();
+        revocationEpochService.clear();
+        revokedTokenCache.clear();
 
         final String defaultOrg = "'" + configuredDefaultOrgId + "'";
         final String seededClients = buildInClause(SEEDED_CLIENT_IDS);
@@ -95,6 +130,9 @@ public class TestDatabaseResetHelper {
 
         // 1. Transient tables with no seed data — delete everything.
         em.createNativeQuery("DELETE FROM T_revoked_tokens").executeUpdate();
+        em.createNativeQuery("DELETE FROM T_revocation_epochs").executeUpdate();
+        em.createNativeQuery("DELETE FROM T_refresh_tokens").executeUpdate();
+        em.createNativeQuery("DELETE FROM T_reference_tokens").executeUpdate();
         em.createNativeQuery("DELETE FROM T_authorization_codes").executeUpdate();
         em.createNativeQuery("DELETE FROM T_authorization_requests").executeUpdate();
 
@@ -192,6 +230,11 @@ public class TestDatabaseResetHelper {
                 "SELECT " + clientIdLiteral + ", 'admin', 'not_default', FALSE " +
                 "WHERE NOT EXISTS (SELECT 1 FROM T_client_allowed_roles WHERE client_id = " + clientIdLiteral + " AND role = 'admin')")
             .executeUpdate();
+        em.createNativeQuery(
+                "INSERT INTO T_client_allowed_roles (client_id, role, default_assignment, available_to_foreign_orgs) " +
+                "SELECT " + clientIdLiteral + ", 'revocation-feed', 'not_default', FALSE " +
+                "WHERE NOT EXISTS (SELECT 1 FROM T_client_allowed_roles WHERE client_id = " + clientIdLiteral + " AND role = 'revocation-feed')")
+            .executeUpdate();
     }
 
     private void restoreAbstrauthClient(String org, String clientIdLiteral) {